@@ -0,0 +1,111 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.lang3.StringUtils;
+
+// Zips finished archive directories on a small pool of background threads, so the processor can
+// carry on with the next archive. Only a few archives may be waiting to be zipped at a time; when
+// that many are queued the processor waits for one to finish, so unzipped directories don't pile
+// up on disk. A failed archive is reported when it fails and the run fails once all zips are done.
+// The archives being zipped share one pool of deflate threads, one per core.
+public class ArchiveZipper {
+
+	public static final int DEFAULT_THREADS = 2;
+
+	public interface ZipListener {
+		void zipped() throws IOException;
+	}
+
+	// archives finished but not yet zipped, per zip thread
+	private static final int PENDING_PER_THREAD = 2;
+
+	private final int threads;
+	private final boolean store;
+	private final Semaphore pending;
+	private final AtomicInteger submitted = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private ExecutorService executor;
+	private ExecutorService deflater;
+
+	public ArchiveZipper(CommandLine cmd) {
+		this(StringUtils.isEmpty(cmd.getOptionValue(MigrationFileBuilder.OPT_ZIP_THREADS))
+				? DEFAULT_THREADS : Integer.parseInt(cmd.getOptionValue(MigrationFileBuilder.OPT_ZIP_THREADS)),
+				cmd.hasOption(MigrationFileBuilder.OPT_ZIP_STORE));
+	}
+
+	// 0 zips on the calling thread, as the processors always did
+	public ArchiveZipper(int threads, boolean store) {
+		this.threads = Math.max(0, threads);
+		this.store = store;
+		this.pending = new Semaphore(Math.max(1, this.threads * PENDING_PER_THREAD));
+	}
+
+	public void submit(Path directory, Path filename) throws IOException {
+		submit(directory, filename, null);
+	}
+
+	// zipped, when given, is told once the zip is complete
+	public void submit(Path directory, Path filename, ZipListener zipped) throws IOException {
+		submitted.incrementAndGet();
+		if (deflater == null) {
+			deflater = Executors.newFixedThreadPool(ZipDirectory.DEFAULT_THREADS);
+		}
+		ExecutorService deflater = this.deflater;
+		if (threads == 0) {
+			ZipDirectory.zipDirectory(directory, filename, deflater, store);
+			if (zipped != null) {
+				zipped.zipped();
+			}
+			return;
+		}
+
+		pending.acquireUninterruptibly();
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		executor.submit(() -> {
+			try {
+				ZipDirectory.zipDirectory(directory, filename, deflater, store);
+				if (zipped != null) {
+					zipped.zipped();
+				}
+			} catch (Exception ex) {
+				failed.incrementAndGet();
+				System.out.println("ZIP FAILED: " + filename + " - " + ex);
+			} finally {
+				pending.release();
+			}
+		});
+	}
+
+	// waits for every archive and fails if any of them could not be zipped
+	public void finish() throws IOException {
+		shutdown();
+		if (failed.get() > 0) {
+			throw new IOException(failed.get() + " of " + submitted.get() + " archives could not be zipped");
+		}
+	}
+
+	// waits for the archives already queued, without reporting failures
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (deflater != null) {
+			deflater.shutdown();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.tools.nrcan.migration.filebuilder.model.Author;
+
+// The authors in DSpace by name, read from author_export.csv, for the photo items to link to. Names
+// are a sorted string table, each with the range of its authors' UUIDs, kept in file order, and the
+// table is saved as a snapshot next to the export that later runs map rather than read it again.
+public class AuthorTable {
+
+	private static final int SNAPSHOT_KIND = 4;
+
+	private final StringTable names;
+	private final IntBuffer firstAuthors;
+	private final StringTable uuids;
+
+	private AuthorTable(StringTable names, IntBuffer firstAuthors, StringTable uuids) {
+		this.names = names;
+		this.firstAuthors = firstAuthors;
+		this.uuids = uuids;
+	}
+
+	// from the snapshot of the export, made first when there is none or the export changed since
+	public static AuthorTable load(Path path) throws IOException {
+		TableSnapshot.Input snapshot = TableSnapshot.open(path, SNAPSHOT_KIND);
+		if (snapshot != null) {
+			return read(snapshot);
+		}
+		TableSnapshot.Source source = TableSnapshot.read(path);
+		AuthorTable table = read(source);
+		TableSnapshot.write(source, SNAPSHOT_KIND, table::write);
+		return table;
+	}
+
+	// the first line is the header
+	public static AuthorTable read(InputStream inputStream) throws IOException {
+		Map<String, List<String>> authors = new HashMap<String, List<String>>();
+		int count = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+			reader.readLine();
+			String line = reader.readLine();
+			while (line != null) {
+				Author author = createAuthor(line);
+				if (author.getName() != null) {
+					List<String> uuids = authors.get(author.getName());
+					if (uuids == null) {
+						uuids = new ArrayList<String>();
+						authors.put(author.getName(), uuids);
+					}
+					uuids.add(String.valueOf(author.getUuid()));
+					count++;
+				}
+				line = reader.readLine();
+			}
+		}
+
+		List<String> names = new ArrayList<String>(authors.keySet());
+		Collections.sort(names);
+		int[] firstAuthors = new int[names.size() + 1];
+		List<String> uuids = new ArrayList<String>(count);
+		for (int i = 0; i < names.size(); i++) {
+			firstAuthors[i] = uuids.size();
+			uuids.addAll(authors.get(names.get(i)));
+		}
+		firstAuthors[names.size()] = uuids.size();
+		return new AuthorTable(StringTable.of(names), IntBuffer.wrap(firstAuthors), StringTable.of(uuids));
+	}
+
+	public static Author createAuthor(String line) {
+		Author author = new Author();
+		line = line.replace("\"", "");
+		try {
+			String[] columns = line.split(",");
+
+			author.setName(columns[2] + ", " + columns[1]);
+			author.setUuid(columns[9]);
+			author.setDpsid(columns[5]);
+
+			author.setName(author.getName().replace(".", ""));
+		} catch (Exception e) {
+			System.out.println(line);
+		}
+		return author;
+	}
+
+	private static AuthorTable read(TableSnapshot.Input input) {
+		StringTable names = StringTable.read(input);
+		IntBuffer firstAuthors = input.readInts(names.size() + 1);
+		return new AuthorTable(names, firstAuthors, StringTable.read(input));
+	}
+
+	private void write(DataOutputStream output) throws IOException {
+		names.write(output);
+		TableSnapshot.align(output);
+		for (int i = 0; i <= names.size(); i++) {
+			output.writeInt(firstAuthors.get(i));
+		}
+		uuids.write(output);
+	}
+
+	// how many names there are
+	public int size() {
+		return names.size();
+	}
+
+	// the entry for the name, -1 when no author has it
+	public int find(CharSequence name) {
+		return names.find(name);
+	}
+
+	public int getAuthorCount(int entry) {
+		return firstAuthors.get(entry + 1) - firstAuthors.get(entry);
+	}
+
+	// the first author in the export with the name
+	public String getUuid(int entry) {
+		return uuids.get(firstAuthors.get(entry));
+	}
+}
@@ -3,14 +3,13 @@ package org.dspace.tools.nrcan.migration.filebuilder;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
@@ -44,7 +43,13 @@ import static com.github.pemistahl.lingua.api.Language.*;
 public class CFSFileProcessor implements FileProcessor {
 
 	private String inPath;
-	private String outPath;
+	private Path outPath;
+	private ArchiveZipper zipper;
+	private boolean resume = false;
+	private CheckpointJournal journal;
+	private String filterExpression;
+	private ItemFilter itemFilter;
+	private int filteredOutCount = 0;
 	private FileInputStream inputStream;
 	private BufferedReader streamReader;
 	private String cfsidInPath;
@@ -52,6 +57,7 @@ public class CFSFileProcessor implements FileProcessor {
 	private int archiveCount = 0;
 	private int archiveSize = 100;
 	private String currentArchivePath;
+	private Path archiveDirectory;
 	private String currentItemPath;
 	private boolean filesOpen = false;
 	private PrintStream contentsFileStream;
@@ -62,9 +68,9 @@ public class CFSFileProcessor implements FileProcessor {
 	private PrintStream geospatialFileStream;
 	private PrintStream cfsidFileStream;
 	private PrintStream cfsidsSkippedFileStream;
-	private Map<String, String> dcElementTemplates;
-	private Map<String, String> nrcanElementTemplates;
-	private Map<String, String> geospatialElementTemplates;
+	private Map<String, MetadataTemplate> dcElementTemplates;
+	private Map<String, MetadataTemplate> nrcanElementTemplates;
+	private Map<String, MetadataTemplate> geospatialElementTemplates;
 	private Map<String, Relationship> relationshipElements;
 	private Set<String> ignoredElements = new HashSet<String>();
 	private Set<String> valueSet = new HashSet<String>();
@@ -73,10 +79,6 @@ public class CFSFileProcessor implements FileProcessor {
 	
 	private final LanguageDetector detector = LanguageDetectorBuilder.fromLanguages(ENGLISH, FRENCH).build();
 	
-	private static final String VALUE = "##VALUE##";
-	private static final String LANGUAGE = "##LANG##";
-	private static final String QUALIFIER = "##QUAL##";
-	
 	private static final String ELEMENT_TYPE = "dc:type";
 	private static final String ELEMENT_DOCTYPE = "doctype";
 	private static final String ELEMENT_TITLE_M = "dc:titlem";
@@ -228,17 +230,36 @@ public class CFSFileProcessor implements FileProcessor {
 	private static final String ATTRIBUTE_JOURNAL_MIGRATION_ID = "nrcan.journal.migrationid";
 	private static final String ATTRIBUTE_LANGUAGE_CODE = "dc.identifier.iso";
 	
+	private static final String FILTER_UID = "uid";
+	private static final String FILTER_DOCTYPE = "doctype";
+	private static final String FILTER_HAS_ASSET = "hasasset";
+	private static final String FILTER_DATE = "date";
+	
 	public CFSFileProcessor(String inPath, String outPath, String cfsidInPath, CommandLine cmd) {
 		this.inPath = inPath;
-		this.outPath = outPath;
+		this.outPath = OutputFiles.resolve(outPath);
+		this.zipper = new ArchiveZipper(cmd);
+		this.resume = cmd.hasOption(MigrationFileBuilder.OPT_RESUME);
+		this.filterExpression = cmd.getOptionValue(MigrationFileBuilder.OPT_FILTER);
 		this.cfsidInPath = cfsidInPath;
 	}
 	
 	public void process() {
 		try {
+			if (StringUtils.isNotEmpty(filterExpression)) {
+				itemFilter = ItemFilter.parse(filterExpression, FILTER_UID, FILTER_DOCTYPE, FILTER_HAS_ASSET, FILTER_DATE);
+				System.out.println("FILTER: " + itemFilter);
+			}
 			initCFSIDs();
-			cfsidFileStream = getPrintStream("C:\\dspace\\csfids");
-			cfsidsSkippedFileStream = getPrintStream("C:\\dspace\\csfidsskipped");
+			journal = CheckpointJournal.open(outPath, resume);
+			if (resume) {
+				journal.restoreSideFiles(getSideFiles());
+			}
+			cfsidFileStream = OutputFiles.open(OutputFiles.getBasePath("csfids"), resume);
+			cfsidsSkippedFileStream = OutputFiles.open(OutputFiles.getBasePath("csfidsskipped"), resume);
+			if (resume) {
+				resumeFromJournal();
+			}
 			
 			if (StringUtils.isNotEmpty(cfsidInPath)) {
 				inputStream = new FileInputStream(cfsidInPath);
@@ -256,6 +277,10 @@ public class CFSFileProcessor implements FileProcessor {
 			File[] directoryListing = dir.listFiles();
 			if (directoryListing != null) {
 				for (File child : directoryListing) {
+					if (journal.isPageDone(child.getName())) {
+						System.out.println("Skipping File: " + child.getPath());
+						continue;
+					}
 					System.out.println("Processing File: " + child.getPath());
 					CFSFile file = get(CFSFile.class, child.getPath());
 					
@@ -268,8 +293,16 @@ public class CFSFileProcessor implements FileProcessor {
 							processItem(item);
 						}
 					}
+					
+					cfsidFileStream.flush();
+					cfsidsSkippedFileStream.flush();
+					journal.pageFinished(child.getName(), archiveCount, itemCount, getSideFiles());
 				}
 			}
+			zipper.finish();
+			if (itemFilter != null) {
+				System.out.println("FILTERED OUT COUNT: " + filteredOutCount);
+			}
 			cfsidFileStream.close();
 			cfsidsSkippedFileStream.close();
 		}
@@ -281,6 +314,40 @@ public class CFSFileProcessor implements FileProcessor {
 		}
 	}
 	
+	// Carries on the archive and item numbering from the last page an earlier run finished, and zips
+	// any full archives it didn't get to zip. The pages themselves are skipped as they come up.
+	private void resumeFromJournal() throws IOException {
+		CheckpointJournal.Page last = journal.getLastPage();
+		if (last == null) {
+			System.out.println("NO CHECKPOINT IN " + journal.getPath() + ", STARTING FROM THE BEGINNING");
+			return;
+		}
+		
+		archiveCount = last.archiveCount;
+		itemCount = last.itemCount;
+		if (archiveCount > 0) {
+			currentArchivePath = "archive_" + String.format("%03d" , archiveCount - 1);
+			archiveDirectory = OutputFiles.createArchiveDirectory(outPath, currentArchivePath);
+		}
+		int full = itemCount == archiveSize ? archiveCount : archiveCount - 1;
+		for (int archive = 0; archive < full; archive++) {
+			if (!journal.isZipped(archive)) {
+				zipArchive(archive);
+			}
+		}
+		System.out.println("RESUMING AFTER " + last.name + " AT " + currentArchivePath + " ITEM " + itemCount);
+	}
+	
+	private Path[] getSideFiles() {
+		return new Path[] { OutputFiles.getBasePath("csfids"), OutputFiles.getBasePath("csfidsskipped") };
+	}
+	
+	private void zipArchive(int archive) throws IOException {
+		Path directory = outPath.resolve("archive_" + String.format("%03d" , archive));
+		Path filename = outPath.resolve("archive_" + String.format("%03d" , archive) + ".zip");
+		zipper.submit(directory, filename, () -> journal.archiveZipped(archive));
+	}
+	
 	private <T> T get(Class<T> type, String inPath) {
 		ObjectMapper mapper = new ObjectMapper();
 	    try {
@@ -294,6 +361,11 @@ public class CFSFileProcessor implements FileProcessor {
 	@Override
 	public void close() {
 		try {			
+			zipper.shutdown();
+			if (journal != null) {
+				journal.close();
+			}
+			
 			if (filesOpen) {
 				closeOutputFiles();
 			}
@@ -308,15 +380,6 @@ public class CFSFileProcessor implements FileProcessor {
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
-		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
-	}
 	
 	public void processItem(CFSItem input) throws Exception {
 		try {
@@ -327,15 +390,13 @@ public class CFSFileProcessor implements FileProcessor {
 			
 			if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
 				currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
+				archiveDirectory = OutputFiles.createArchiveDirectory(outPath, currentArchivePath);
 				itemCount = 0;
 			}
 			
 			currentItemPath = "item_" + String.format("%03d" , itemCount++);
 			
-			String path = outPath + "\\" + currentArchivePath + "\\" + currentItemPath;
-			//System.out.println("PATH: " + path);
-			
-			createDirectory(path);
+			Path path = OutputFiles.createItemDirectory(archiveDirectory, currentItemPath);
 			openNewOutputFiles(path);
 
 			processMetadata(input);
@@ -343,9 +404,9 @@ public class CFSFileProcessor implements FileProcessor {
 			closeOutputFiles();
 			
 			if (itemCount == archiveSize) {
-				String directory = outPath + "\\" + currentArchivePath + "\\";
-				String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-				ZipDirectory.zipDirectory(directory, filename);			
+				zipArchive(archiveCount - 1);
+				cfsidFileStream.flush();
+				cfsidsSkippedFileStream.flush();
 			}
 			
 		} catch (Exception e) {
@@ -361,7 +422,7 @@ public class CFSFileProcessor implements FileProcessor {
 		return true;
 	}
 	
-	private void processMetadata(CFSItem input) throws Exception {
+	void processMetadata(CFSItem input) throws Exception {
 
 		// ID
 		if (StringUtils.isEmpty(input.getUid())) {
@@ -655,27 +716,17 @@ public class CFSFileProcessor implements FileProcessor {
 		*/
 	}
 	
-	private void printElement(PrintStream stream, String template, String value, String lang) throws Exception {			
+	private void printElement(PrintStream stream, MetadataTemplate template, String value, String lang) throws Exception {			
 		printElement(stream, template, value, null, lang);					
 	}
 	
-	private void printElement(PrintStream stream, String template, String value, String qualifier, String lang) throws Exception {			
+	private void printElement(PrintStream stream, MetadataTemplate template, String value, String qualifier, String lang) throws Exception {			
 		if (template == null) {
 			throw new Exception("Element not found");
 		}
 		
-		template = template.replace(VALUE, value);
-		
-		if (qualifier != null) {
-			template = template.replace(QUALIFIER, qualifier);
-		}
-		
-		if (lang != null) {
-			template = template.replace(LANGUAGE, lang);
-		}
-		
-		stream.println(template);					
-}
+		template.println(stream, value, lang, qualifier, MetadataTemplate.Escape.NONE);
+	}
 	
 	private void printRelationship(String element, String value) {			
 		Relationship rel = relationshipElements.get(element);
@@ -685,20 +736,13 @@ public class CFSFileProcessor implements FileProcessor {
 		relationshipsFileStream.println(output);				
 	}
 
-	private void createDirectory(String path) {
-		File theDir = new File(path);
-		if (!theDir.exists()){
-		    theDir.mkdirs();
-		}
-	}
-	
-	private void openNewOutputFiles(String path) throws UnsupportedEncodingException {
-		contentsFileStream = getPrintStream(path + "\\contents");
-		relationshipsFileStream = getPrintStream(path + "\\relationships");
-		dublinCoreFileStream = getPrintStream(path + "\\dublin_core.xml");
-		dspaceFileStream = getPrintStream(path + "\\metadata_dspace.xml");
-		nrcanFileStream = getPrintStream(path + "\\metadata_nrcan.xml");
-		geospatialFileStream = getPrintStream(path + "\\metadata_geospatial.xml");
+	private void openNewOutputFiles(Path path) throws UnsupportedEncodingException {
+		contentsFileStream = OutputFiles.open(path.resolve("contents"));
+		relationshipsFileStream = OutputFiles.open(path.resolve("relationships"));
+		dublinCoreFileStream = OutputFiles.open(path.resolve("dublin_core.xml"));
+		dspaceFileStream = OutputFiles.open(path.resolve("metadata_dspace.xml"));
+		nrcanFileStream = OutputFiles.open(path.resolve("metadata_nrcan.xml"));
+		geospatialFileStream = OutputFiles.open(path.resolve("metadata_geospatial.xml"));
 		
 		initializeDSpaceFile();
 		initializeDublinCoreFile();
@@ -706,6 +750,17 @@ public class CFSFileProcessor implements FileProcessor {
 		initializeGeospatialFile();
 	}
 	
+	// every file processMetadata writes to, pointed at one stream so it can run without an item directory
+	void setOutputStream(PrintStream stream) {
+		contentsFileStream = stream;
+		relationshipsFileStream = stream;
+		dublinCoreFileStream = stream;
+		dspaceFileStream = stream;
+		nrcanFileStream = stream;
+		geospatialFileStream = stream;
+		cfsidFileStream = stream;
+	}
+	
 	private void closeOutputFiles() {
 		finalizeXmlFile(dublinCoreFileStream);
 		finalizeXmlFile(nrcanFileStream);
@@ -741,112 +796,112 @@ public class CFSFileProcessor implements FileProcessor {
 		geospatialFileStream.println("<dublin_core schema=\"geospatial\">");
 	}
 	
-	private void initializeElementTemplates() {
-		dcElementTemplates = new HashMap<String, String>();
+	void initializeElementTemplates() {
+		dcElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		dcElementTemplates.put(ELEMENT_TITLE_A, "<dcvalue element=\"title\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_IDENTIFIER, "<dcvalue element=\"identifier\" qualifier=\"" + "##QUAL##" + "\">" + VALUE + "</dcvalue>");
+		dcElementTemplates.put(ELEMENT_TITLE_A, MetadataTemplate.compile("<dcvalue element=\"title\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_IDENTIFIER, MetadataTemplate.compile("<dcvalue element=\"identifier\" qualifier=\"" + MetadataTemplate.QUALIFIER + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		//dcElementTemplates.put(ELEMENT_LANGUAGE, "<dcvalue element=\"language\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_ABSTRACT, "<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_TYPE, "<dcvalue element=\"type\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, "<dcvalue element=\"subject\" qualifier=\"descriptor\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, "<dcvalue element=\"subject\" qualifier=\"geoscan\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, "<dcvalue element=\"subject\" qualifier=\"broad\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_CFS, "<dcvalue element=\"subject\" qualifier=\"broad\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GC, "<dcvalue element=\"subject\" qualifier=\"gc\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, "<dcvalue element=\"subject\" qualifier=\"other\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RECORD_CREATED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_ISSUED, "<dcvalue element=\"date\" qualifier=\"issued\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, "<dcvalue element=\"date\" qualifier=\"available\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_UPDATED, "<dcvalue element=\"date\" qualifier=\"updated\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, "<dcvalue element=\"relation\" qualifier=\"replaces\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, "<dcvalue element=\"relation\" qualifier=\"accompanies\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, "<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, "<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, "<dcvalue element=\"relation\" qualifier=\"ispartof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, "<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, "<dcvalue element=\"relation\" qualifier=\"contains\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, "<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, "<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, "<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_TBD, "<dcvalue element=\"relation\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_EDITOR_COMPILER, "<dcvalue element=\"contributor\" qualifier=\"editor\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_IDENTIFIER_CFS, "<dcvalue element=\"identifier\" qualifier=\"" + "##QUAL##" + "\">" + VALUE + "</dcvalue>");
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_TYPE, MetadataTemplate.compile("<dcvalue element=\"type\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"descriptor\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"geoscan\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"broad\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_CFS, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"broad\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GC, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"gc\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"other\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RECORD_CREATED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_ISSUED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"issued\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"available\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_UPDATED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"updated\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"replaces\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"accompanies\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"ispartof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"contains\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_TBD, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_EDITOR_COMPILER, MetadataTemplate.compile("<dcvalue element=\"contributor\" qualifier=\"editor\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_IDENTIFIER_CFS, MetadataTemplate.compile("<dcvalue element=\"identifier\" qualifier=\"" + MetadataTemplate.QUALIFIER + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
-		nrcanElementTemplates = new HashMap<String, String>();
+		nrcanElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		nrcanElementTemplates.put(ELEMENT_VOLUME, "<dcvalue element=\"volume\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ISSUE, "<dcvalue element=\"issue\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, "<dcvalue element=\"openaccess\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTRIBUTOR, "<dcvalue element=\"sourcesystem\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NTS, "<dcvalue element=\"nts\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, "<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, "<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, "<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FILE_TYPE, "<dcvalue element=\"filetype\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEDIA, "<dcvalue element=\"media\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, "<dcvalue element=\"abstract\" qualifier=\"language\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, "<dcvalue element=\"publication\" qualifier=\"externalurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SUMMARY, "<dcvalue element=\"summary\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NOTES, "<dcvalue element=\"notes\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOCTYPE, "<dcvalue element=\"legacy\" qualifier=\"doctype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, "<dcvalue element=\"policy\" qualifier=\"paae\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, "<dcvalue element=\"geopsurvey\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, "<dcvalue element=\"geography\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, "<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_EDITION, "<dcvalue element=\"edition\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_REF, "<dcvalue element=\"legacy\" qualifier=\"relationref\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, "<dcvalue element=\"articlenumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_E, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_F, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_THESIS, "<dcvalue element=\"legacy\" qualifier=\"thesis\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, "<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TITLE_M, "<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, "<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, "<dcvalue element=\"legacy\" qualifier=\"download\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, "<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MAP, "<dcvalue element=\"map\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, "<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, "<dcvalue element=\"meeting\" qualifier=\"name\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, "<dcvalue element=\"meeting\" qualifier=\"city\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, "<dcvalue element=\"meeting\" qualifier=\"country\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, "<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, "<dcvalue element=\"legacy\" qualifier=\"printdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_URL, "<dcvalue element=\"legacy\" qualifier=\"relationurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION, "<dcvalue element=\"legacy\" qualifier=\"relation\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, "<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_START, "<dcvalue element=\"meeting\" qualifier=\"startdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_END, "<dcvalue element=\"meeting\" qualifier=\"enddate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DIGITAL, "<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, "<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, "<dcvalue element=\"legacy\" qualifier=\"map\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, "<dcvalue element=\"reportnumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, "<dcvalue element=\"secserial\" qualifier=\"0number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, "<dcvalue element=\"secserial\" qualifier=\"1number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, "<dcvalue element=\"secserial\" qualifier=\"2number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, "<dcvalue element=\"secserial\" qualifier=\"3number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, "<dcvalue element=\"secserial\" qualifier=\"4number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, "<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, "<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, "<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, "<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_STATUS, "<dcvalue element=\"legacy\" qualifier=\"status\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IMAGE, "<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, "<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, "<dcvalue element=\"legacy\" qualifier=\"classification\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DURATION, "<dcvalue element=\"legacy\" qualifier=\"duration\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, "<dcvalue element=\"legacy\" qualifier=\"bbox\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CFS, "<dcvalue element=\"cfs\" qualifier=\"emailpdf\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_PLACE, "<dcvalue element=\"meeting\" qualifier=\"place\">" + VALUE + "</dcvalue>");
+		nrcanElementTemplates.put(ELEMENT_VOLUME, MetadataTemplate.compile("<dcvalue element=\"volume\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ISSUE, MetadataTemplate.compile("<dcvalue element=\"issue\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, MetadataTemplate.compile("<dcvalue element=\"openaccess\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONTRIBUTOR, MetadataTemplate.compile("<dcvalue element=\"sourcesystem\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NTS, MetadataTemplate.compile("<dcvalue element=\"nts\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_FILE_TYPE, MetadataTemplate.compile("<dcvalue element=\"filetype\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEDIA, MetadataTemplate.compile("<dcvalue element=\"media\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"abstract\" qualifier=\"language\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, MetadataTemplate.compile("<dcvalue element=\"publication\" qualifier=\"externalurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SUMMARY, MetadataTemplate.compile("<dcvalue element=\"summary\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NOTES, MetadataTemplate.compile("<dcvalue element=\"notes\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOCTYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"doctype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"paae\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, MetadataTemplate.compile("<dcvalue element=\"geopsurvey\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, MetadataTemplate.compile("<dcvalue element=\"geography\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_EDITION, MetadataTemplate.compile("<dcvalue element=\"edition\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_REF, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationref\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, MetadataTemplate.compile("<dcvalue element=\"articlenumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_E, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_F, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_THESIS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thesis\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TITLE_M, MetadataTemplate.compile("<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"download\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MAP, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"name\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"city\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"country\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"printdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_URL, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relation\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_START, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"startdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_END, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"enddate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DIGITAL, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"map\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, MetadataTemplate.compile("<dcvalue element=\"reportnumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"0number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"1number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"2number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"3number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"4number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_STATUS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"status\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_IMAGE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"classification\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DURATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"duration\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"bbox\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CFS, MetadataTemplate.compile("<dcvalue element=\"cfs\" qualifier=\"emailpdf\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_PLACE, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"place\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 					
 		relationshipElements = new HashMap<String, Relationship>();
 		
@@ -870,10 +925,10 @@ public class CFSFileProcessor implements FileProcessor {
 		relationshipElements.put(ELEMENT_JOURNAL_CFS, new Relationship(RELATIONSHIP_JOURNAL, ATTRIBUTE_JOURNAL_MIGRATION_ID));
 		relationshipElements.put(ELEMENT_LANGUAGE, new Relationship(RELATIONSHIP_LANGUAGE, ATTRIBUTE_LANGUAGE_CODE));
 		
-		geospatialElementTemplates = new HashMap<String, String>();
-		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, "<dcvalue element=\"polygon\" qualifier=\"degrees\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_COVERAGE, "<dcvalue element=\"polygon\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_BBOX, "<dcvalue element=\"bbox\" qualifier=\"\">" + VALUE + "</dcvalue>");
+		geospatialElementTemplates = new HashMap<String, MetadataTemplate>();
+		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"degrees\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_COVERAGE, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_BBOX, MetadataTemplate.compile("<dcvalue element=\"bbox\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
 		ignoredElements.add(ELEMENT_BIBLIOGRAPHIC_LEVEL);
 		
@@ -917,18 +972,26 @@ public class CFSFileProcessor implements FileProcessor {
 			return false;
 		}
 
-		/*
-		if (input.getType().getData().getName().getEn().contentEquals("Journal Article") ||
-				input.getType().getData().getName().getEn().contentEquals("Series Item") ||
-				input.getType().getData().getName().getEn().contentEquals("Monographs")) {
-			return true;
+		if (itemFilter != null && !itemFilter.matches(getFilterAttributes(input))) {
+			filteredOutCount++;
+			return false;
 		}
-		
-		return false;
-		*/
 		return true;
 	}
 	
+	// what --filter can ask about an item, e.g. doctype = 'Journal Article'
+	private Map<String, String> getFilterAttributes(CFSItem input) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		attributes.put(FILTER_UID, input.getUid());
+		attributes.put(FILTER_DATE, input.getYear());
+		if (input.getType().getData() != null && input.getType().getData().getName() != null) {
+			attributes.put(FILTER_DOCTYPE, input.getType().getData().getName().getEn());
+		}
+		attributes.put(FILTER_HAS_ASSET, String.valueOf(input.getAvailability() != null
+				&& "1".equals(input.getAvailability().getPdf_download())));
+		return attributes;
+	}
+	
 	private void handleMeetingDate(String uid, String value, String year) throws Exception {
 		try {	
 			LocalDate startDate = null;
@@ -1054,24 +1117,16 @@ public class CFSFileProcessor implements FileProcessor {
 			
 			// 1970
 			} else {
-				String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, value);
 				
-				template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, value);
 				
 				return;
 			}
 			
-			String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-			template = template.replace(VALUE, startDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, startDate.format(DateTimeFormatter.ISO_DATE));
 			
-			template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-			template = template.replace(VALUE, endDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, endDate.format(DateTimeFormatter.ISO_DATE));
 		
 		} catch (Exception e) {
 			System.out.println("CFS ID: " + uid + " - Meeting Date: " + value);
@@ -4,15 +4,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -76,13 +73,36 @@ public class CSVRelProcessor implements FileProcessor {
 	private int startId = 0;
 	
 	private Map<String, String> relMap = new HashMap<String, String>();	
+	private CopyWriter.Format copyFormat;
+	private int copyRows = CopyWriter.DEFAULT_ROWS_PER_BLOCK;
+	private CopyWriter copyWriter;
+	private String relationshipType;
+	private int skippedCount = 0;
+	
+	// the columns of the rel type's output.csv, with the id before them and the type, which the file
+	// doesn't have, from --relationship-type
+	private static final CopyTable RELATIONSHIP_ROWS = CopyTable.RELATIONSHIP.select("id", "left_id", "type_id", "right_id", "left_place", "right_place");
 
 	public CSVRelProcessor(String inPath, String outPath, CommandLine cmd) {
 		this.inPath = inPath;
 		this.outPath = outPath;
+		
+		if (cmd.hasOption(MigrationFileBuilder.OPT_COPY)) {
+			this.copyFormat = CopyWriter.parseFormat(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY));
+		}
+		if (!StringUtils.isEmpty(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY_ROWS))) {
+			this.copyRows = Integer.parseInt(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY_ROWS));
+		}
+		this.relationshipType = cmd.getOptionValue(MigrationFileBuilder.OPT_RELATIONSHIP_TYPE);
 	}
 	
 	public void process() {
+		// type_id is NOT NULL in relationship
+		if (copyFormat != null && !StringUtils.isNumeric(relationshipType)) {
+			System.out.println("ERROR: --copy for the csv type needs the relationship type id, given with --relationship-type");
+			return;
+		}
+		
 		try {
 			System.out.println("CSV Processor initialized");
 			
@@ -91,13 +111,24 @@ public class CSVRelProcessor implements FileProcessor {
 			inputStream = new FileInputStream(inPath);
 			streamReader = new BufferedReader(new InputStreamReader(inputStream));
 	
-			outputStream = getPrintStream(outPath + "/output.csv");
+			if (copyFormat != null) {
+				copyWriter = new CopyWriter(OutputFiles.resolve(outPath).resolve("output.sql"), copyFormat, copyRows);
+			} else {
+				outputStream = OutputFiles.open(OutputFiles.resolve(outPath).resolve("output.csv"));
+			}
 			
 			String line;
 			
             while ((line = streamReader.readLine()) != null) {
             	processLine(line);
             }
+            
+            if (copyWriter != null) {
+            	copyWriter.close();
+            	System.out.println("COPY ROWS: " + copyWriter.getRowCount());
+            	System.out.println("COPY BLOCKS: " + copyWriter.getBlockCount());
+            	System.out.println("SKIPPED WITHOUT A RIGHT ID: " + skippedCount);
+            }
 			
 //			while(StringUtils.isNotEmpty(line)) {
 //				processLine(line);
@@ -119,28 +150,40 @@ public class CSVRelProcessor implements FileProcessor {
 		try {
 			streamReader.close();
 			inputStream.close();
-			outputStream.close();
+			if (outputStream != null) {
+				outputStream.close();
+			}
+			if (copyWriter != null) {
+				copyWriter.close();
+			}
 		}
 		catch(IOException ex) {
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
-		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
-	}
 
 	private void processLine(String line) throws Exception {
 		if (StringUtils.isEmpty(line) || "COMMIT;".contentEquals(line)) {
 			return;
 		}
 		
+		if (copyWriter != null) {
+			// left_id,right_id,left_place,right_place
+			String[] fields = line.split(",", -1);
+			if (fields.length != 4) {
+				throw new IllegalArgumentException("Not a relationship row: " + line);
+			}
+			// an author the rel file didn't have, which right_id can't be left without
+			if ("null".equals(fields[1]) || fields[1].isEmpty()) {
+				System.out.println("SKIPPED, NO RIGHT ID: " + line);
+				skippedCount++;
+				return;
+			}
+			copyWriter.write(RELATIONSHIP_ROWS, String.valueOf(startId++), fields[0], relationshipType, fields[1], fields[2], fields[3]);
+			return;
+		}
+		
 		outputStream.println(startId++ + "," + line);
 //		String[] fields = line.split(",");
 //        
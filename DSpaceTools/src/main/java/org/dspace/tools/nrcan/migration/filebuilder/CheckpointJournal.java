@@ -0,0 +1,299 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+// Records how far a run has got, one line per step, so a run that stopped can be picked up with
+// --resume. The line is synced to disk before the run carries on.
+//
+//   export <length> <last modified>
+//     the export the offsets are into, which a resumed run has to read unchanged
+//   archive <number> <items> <end offset> <next record> <first id> <last id> <side file>=<length>...
+//     an archive is finished and its items came from the export up to the end offset
+//   zipped <number>
+//     the zip of an archive is complete
+//   page <file> <archive count> <item count> <side file>=<length>...
+//     every item in a CFS page file has been written, leaving the counters at these values
+//
+// The side files are the ones the run appends to, at their length when the step was finished. A
+// resumed run cuts them back to it, as anything after it is from the items it writes again.
+public class CheckpointJournal implements Closeable {
+
+	public static final String FILENAME = "checkpoint.journal";
+
+	private static final String EXPORT = "export";
+	private static final String ARCHIVE = "archive";
+	private static final String ZIPPED = "zipped";
+	private static final String PAGE = "page";
+
+	public static class Archive {
+
+		final int number;
+		final int items;
+		final long endOffset;
+		final long nextRecord;
+		final String firstId;
+		final String lastId;
+		final Map<String, Long> sideFiles;
+
+		Archive(int number, int items, long endOffset, long nextRecord, String firstId, String lastId, Map<String, Long> sideFiles) {
+			this.number = number;
+			this.items = items;
+			this.endOffset = endOffset;
+			this.nextRecord = nextRecord;
+			this.firstId = firstId;
+			this.lastId = lastId;
+			this.sideFiles = sideFiles;
+		}
+	}
+
+	public static class Page {
+
+		final String name;
+		final int archiveCount;
+		final int itemCount;
+		final Map<String, Long> sideFiles;
+
+		Page(String name, int archiveCount, int itemCount, Map<String, Long> sideFiles) {
+			this.name = name;
+			this.archiveCount = archiveCount;
+			this.itemCount = itemCount;
+			this.sideFiles = sideFiles;
+		}
+	}
+
+	private final Path path;
+	private final FileChannel channel;
+	private Archive lastArchive;
+	private final Set<Integer> zipped = new HashSet<Integer>();
+	private final Map<String, Page> pages = new LinkedHashMap<String, Page>();
+	private Page lastPage;
+	private long exportLength = -1;
+	private long exportModified;
+
+	// the archive being written
+	private String firstId;
+	private String lastId;
+	private long endOffset;
+	private long nextRecord;
+
+	// a fresh journal unless resuming, when the steps of the earlier run are read back first
+	public static CheckpointJournal open(Path outPath, boolean resume) throws IOException {
+		Files.createDirectories(outPath);
+		return new CheckpointJournal(outPath.resolve(FILENAME), resume);
+	}
+
+	private CheckpointJournal(Path path, boolean resume) throws IOException {
+		this.path = path;
+		long length = 0;
+		if (resume && Files.exists(path)) {
+			length = read();
+		}
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+		if (resume && channel.size() > length) {
+			channel.truncate(length);
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	// null when no archive was finished
+	public Archive getLastArchive() {
+		return lastArchive;
+	}
+
+	public boolean isZipped(int archive) {
+		synchronized (zipped) {
+			return zipped.contains(archive);
+		}
+	}
+
+	public boolean isPageDone(String name) {
+		return pages.containsKey(name);
+	}
+
+	// null when no page was finished
+	public Page getLastPage() {
+		return lastPage;
+	}
+
+	// The export the run reads. A new journal records it, and resuming from one that recorded
+	// another length or time refuses, as the offsets wouldn't be into the same records.
+	public void checkExport(Path export) throws IOException {
+		long length = Files.size(export);
+		long modified = Files.getLastModifiedTime(export).toMillis();
+		if (exportLength >= 0) {
+			if (length != exportLength || modified != exportModified) {
+				throw new IOException(export + " isn't the export " + path + " was made from, it can't be resumed");
+			}
+			return;
+		}
+		if (lastArchive != null) {
+			throw new IOException(path + " doesn't say which export it was made from, it can't be resumed");
+		}
+		append(EXPORT, String.valueOf(length), String.valueOf(modified));
+		exportLength = length;
+		exportModified = modified;
+	}
+
+	// Cuts the side files back to their length at the last step, or empties them when there was
+	// none, before a resumed run appends to them.
+	public void restoreSideFiles(Path... files) throws IOException {
+		Map<String, Long> lengths = lastArchive != null ? lastArchive.sideFiles : lastPage != null ? lastPage.sideFiles : null;
+		for (Path file : files) {
+			String name = file.getFileName().toString();
+			long length = 0;
+			if (lengths != null) {
+				if (!lengths.containsKey(name)) {
+					throw new IOException(path + " has no length for " + file + ", it can't be resumed");
+				}
+				length = lengths.get(name);
+			}
+			long size = Files.exists(file) ? Files.size(file) : 0;
+			if (size < length) {
+				throw new IOException(file + " is shorter than " + path + " has it, it can't be resumed");
+			}
+			if (size > length) {
+				try (FileChannel side = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					side.truncate(length);
+				}
+				System.out.println("TRUNCATED " + file + " FROM " + size + " TO " + length + " BYTES");
+			}
+		}
+	}
+
+	// called for each item in the order they are written to the archive
+	public void itemWritten(String id, long endOffset, long nextRecord) {
+		if (firstId == null) {
+			firstId = id;
+		}
+		lastId = id;
+		this.endOffset = endOffset;
+		this.nextRecord = nextRecord;
+	}
+
+	// the side files have to be flushed first
+	public void archiveFinished(int number, int items, Path... sideFiles) throws IOException {
+		Archive archive = new Archive(number, items, endOffset, nextRecord, id(firstId), id(lastId), lengths(sideFiles));
+		List<String> columns = new ArrayList<String>(Arrays.asList(ARCHIVE, String.valueOf(number), String.valueOf(items),
+				String.valueOf(endOffset), String.valueOf(nextRecord), archive.firstId, archive.lastId));
+		addLengths(columns, archive.sideFiles);
+		append(columns.toArray(new String[columns.size()]));
+		lastArchive = archive;
+		firstId = null;
+		lastId = null;
+	}
+
+	public void archiveZipped(int number) throws IOException {
+		append(ZIPPED, String.valueOf(number));
+		synchronized (zipped) {
+			zipped.add(number);
+		}
+	}
+
+	// the side files have to be flushed first
+	public void pageFinished(String name, int archiveCount, int itemCount, Path... sideFiles) throws IOException {
+		Page page = new Page(name, archiveCount, itemCount, lengths(sideFiles));
+		List<String> columns = new ArrayList<String>(Arrays.asList(PAGE, name, String.valueOf(archiveCount), String.valueOf(itemCount)));
+		addLengths(columns, page.sideFiles);
+		append(columns.toArray(new String[columns.size()]));
+		pages.put(name, page);
+		lastPage = page;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// zips finish on their own threads
+	private synchronized void append(String... columns) throws IOException {
+		ByteBuffer line = ByteBuffer.wrap((String.join("\t", columns) + "\n").getBytes(StandardCharsets.UTF_8));
+		while (line.hasRemaining()) {
+			channel.write(line);
+		}
+		channel.force(true);
+	}
+
+	// The lines of an earlier run, returning where the last whole one ends. A run that stopped while
+	// writing a line leaves it without its new line, and it is dropped so the next one starts clean.
+	private long read() throws IOException {
+		byte[] bytes = Files.readAllBytes(path);
+		int end = bytes.length;
+		while (end > 0 && bytes[end - 1] != '\n') {
+			end--;
+		}
+		if (end < bytes.length) {
+			System.out.println("IGNORING CHECKPOINT: " + new String(bytes, end, bytes.length - end, StandardCharsets.UTF_8));
+		}
+		
+		for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+			String[] columns = line.split("\t");
+			Map<String, Long> lengths;
+			if (columns[0].equals(EXPORT) && columns.length == 3) {
+				exportLength = Long.parseLong(columns[1]);
+				exportModified = Long.parseLong(columns[2]);
+			} else if (columns[0].equals(ARCHIVE) && columns.length >= 7 && (lengths = readLengths(columns, 7)) != null) {
+				lastArchive = new Archive(Integer.parseInt(columns[1]), Integer.parseInt(columns[2]), Long.parseLong(columns[3]),
+						Long.parseLong(columns[4]), columns[5], columns[6], lengths);
+			} else if (columns[0].equals(ZIPPED) && columns.length == 2) {
+				zipped.add(Integer.parseInt(columns[1]));
+			} else if (columns[0].equals(PAGE) && columns.length >= 4 && (lengths = readLengths(columns, 4)) != null) {
+				lastPage = new Page(columns[1], Integer.parseInt(columns[2]), Integer.parseInt(columns[3]), lengths);
+				pages.put(lastPage.name, lastPage);
+			} else if (!line.isEmpty()) {
+				System.out.println("IGNORING CHECKPOINT: " + line);
+			}
+		}
+		return end;
+	}
+
+	private static Map<String, Long> lengths(Path... files) throws IOException {
+		Map<String, Long> lengths = new LinkedHashMap<String, Long>();
+		for (Path file : files) {
+			lengths.put(file.getFileName().toString(), Files.size(file));
+		}
+		return lengths;
+	}
+
+	private static void addLengths(List<String> columns, Map<String, Long> lengths) {
+		for (Map.Entry<String, Long> length : lengths.entrySet()) {
+			columns.add(length.getKey() + "=" + length.getValue());
+		}
+	}
+
+	// the name=length columns from start on, null when one is cut short
+	private static Map<String, Long> readLengths(String[] columns, int start) {
+		Map<String, Long> lengths = new LinkedHashMap<String, Long>();
+		for (int i = start; i < columns.length; i++) {
+			int equals = columns[i].lastIndexOf('=');
+			if (equals < 1 || equals == columns[i].length() - 1 || !StringUtils.isNumeric(columns[i].substring(equals + 1))) {
+				return null;
+			}
+			lengths.put(columns[i].substring(0, equals), Long.parseLong(columns[i].substring(equals + 1)));
+		}
+		return lengths;
+	}
+
+	private static String id(String id) {
+		return id == null || id.isEmpty() ? "-" : id;
+	}
+}
@@ -0,0 +1,131 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// A table and the columns a COPY block loads, with the PostgreSQL type of each column for the binary
+// format, which sends values the way the server keeps them. The types are known for the DSpace
+// tables the migration loads, metadatavalue and relationship; a column of any other table has none
+// and is only written in the text format.
+public class CopyTable {
+
+	public enum Type { INTEGER, UUID, TEXT }
+
+	public static final CopyTable METADATA_VALUE = new CopyTable("metadatavalue", new String[] {
+			"metadata_value_id", "metadata_field_id", "text_value", "text_lang", "place", "authority", "confidence", "dspace_object_id" },
+			new Type[] { Type.INTEGER, Type.INTEGER, Type.TEXT, Type.TEXT, Type.INTEGER, Type.TEXT, Type.INTEGER, Type.UUID });
+
+	public static final CopyTable RELATIONSHIP = new CopyTable("relationship", new String[] {
+			"id", "left_id", "type_id", "right_id", "left_place", "right_place", "leftward_value", "rightward_value", "latest_version_status" },
+			new Type[] { Type.INTEGER, Type.UUID, Type.INTEGER, Type.UUID, Type.INTEGER, Type.INTEGER, Type.TEXT, Type.TEXT, Type.INTEGER });
+
+	private static final Map<String, CopyTable> TABLES = new HashMap<String, CopyTable>();
+
+	private static final Pattern INTEGER_PATTERN = Pattern.compile("\\s*[+-]?[0-9]+\\s*");
+	private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+	static {
+		TABLES.put(METADATA_VALUE.name, METADATA_VALUE);
+		TABLES.put(RELATIONSHIP.name, RELATIONSHIP);
+	}
+
+	private final String name;
+	private final String[] columns;
+	private final Type[] types;
+
+	private CopyTable(String name, String[] columns, Type[] types) {
+		this.name = name;
+		this.columns = columns;
+		this.types = types;
+	}
+
+	// the columns of table, all of them when columns is null, and without types when any isn't known
+	public static CopyTable of(String name, String... columns) {
+		// a schema in front of the name doesn't change the table
+		CopyTable known = TABLES.get(name.substring(name.lastIndexOf('.') + 1).toLowerCase());
+		if (columns == null) {
+			return known != null ? new CopyTable(name, known.columns, known.types) : new CopyTable(name, null, null);
+		}
+		Type[] types = new Type[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			int column = known == null ? -1 : Arrays.asList(known.columns).indexOf(columns[i].toLowerCase());
+			if (column < 0) {
+				return new CopyTable(name, columns, null);
+			}
+			types[i] = known.types[column];
+		}
+		return new CopyTable(name, columns, types);
+	}
+
+	// the same table with only the named columns, in that order
+	public CopyTable select(String... columns) {
+		return of(name, columns);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// null for every column of a table whose columns aren't known
+	public String[] getColumns() {
+		return columns;
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public Type getType(int column) {
+		return types[column];
+	}
+
+	// Whether the column takes the value as it is, in both formats. A NULL is left to the column's
+	// constraints, and a column without a known type takes anything.
+	public boolean accepts(int column, String value) {
+		if (value == null || types == null) {
+			return true;
+		}
+		switch (types[column]) {
+		case INTEGER:
+			if (!INTEGER_PATTERN.matcher(value).matches()) {
+				return false;
+			}
+			// and in range
+			try {
+				Integer.parseInt(value.trim());
+				return true;
+			} catch (NumberFormatException ex) {
+				return false;
+			}
+		case UUID:
+			return UUID_PATTERN.matcher(value).matches();
+		default:
+			return true;
+		}
+	}
+
+	// whether the binary format can write the table
+	public boolean hasTypes() {
+		return types != null;
+	}
+
+	// the table and column list of a COPY statement
+	public String getTarget() {
+		return columns == null ? name : name + " (" + String.join(", ", columns) + ")";
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof CopyTable)) {
+			return false;
+		}
+		return getTarget().equals(((CopyTable) other).getTarget());
+	}
+
+	@Override
+	public int hashCode() {
+		return getTarget().hashCode();
+	}
+}
@@ -0,0 +1,227 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.UUID;
+
+// Rows written as PostgreSQL COPY blocks for psql to load, rather than an INSERT a row. The script has
+// a block of up to rowsPerBlock rows at a time, each followed by a COMMIT as the INSERT output had
+// every 10,000 lines, and SQL that isn't rows goes between the blocks as it is. In the text format
+// the rows are in the script after COPY ... FROM STDIN, tab separated with \N for null. In the binary
+// format each block is a file of its own next to the script, which the script loads with \copy, so
+// psql has to be run from the script's folder.
+public class CopyWriter implements Closeable {
+
+	public enum Format { TEXT, BINARY }
+
+	public static final int DEFAULT_ROWS_PER_BLOCK = 10000;
+
+	private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+	private final Path script;
+	private final Format format;
+	private final int rowsPerBlock;
+	private final PrintStream scriptStream;
+	private final StringBuilder line = new StringBuilder();
+	private CopyTable table;
+	private DataOutputStream blockStream;
+	private int blockRows;
+	private int blockCount;
+	private long rowCount;
+
+	public CopyWriter(Path script, Format format, int rowsPerBlock) throws IOException {
+		if (rowsPerBlock < 1) {
+			throw new IllegalArgumentException("Rows per COPY block must be at least 1, not " + rowsPerBlock);
+		}
+		this.script = script;
+		this.format = format;
+		this.rowsPerBlock = rowsPerBlock;
+		this.scriptStream = OutputFiles.open(script);
+		writeLine("SET client_encoding = 'UTF8';");
+	}
+
+	// text or binary, as given to --copy
+	public static Format parseFormat(String name) {
+		if ("text".equalsIgnoreCase(name)) {
+			return Format.TEXT;
+		}
+		if ("binary".equalsIgnoreCase(name)) {
+			return Format.BINARY;
+		}
+		throw new IllegalArgumentException("COPY format has to be text or binary, not " + name);
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	// a row of the table, with null for NULL, in a new block when the last row was for other columns
+	// or the block is full
+	public void write(CopyTable table, String... values) throws IOException {
+		if (format == Format.BINARY && !table.hasTypes()) {
+			throw new IllegalArgumentException("No column types for a binary COPY into " + table.getTarget());
+		}
+		if (table.getColumns() != null && values.length != table.getColumnCount()) {
+			throw new IllegalArgumentException(values.length + " values for " + table.getTarget());
+		}
+		if (!table.equals(this.table) || blockRows == rowsPerBlock) {
+			endBlock();
+			startBlock(table);
+		}
+
+		if (format == Format.TEXT) {
+			writeText(values);
+		} else {
+			writeBinary(table, values);
+		}
+		blockRows++;
+		rowCount++;
+	}
+
+	// SQL written between the blocks as it is
+	public void writeStatement(String sql) throws IOException {
+		endBlock();
+		writeLine(sql);
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			endBlock();
+		} finally {
+			scriptStream.close();
+		}
+		if (scriptStream.checkError()) {
+			throw new IOException("Could not write " + script);
+		}
+	}
+
+	private void startBlock(CopyTable table) throws IOException {
+		this.table = table;
+		blockRows = 0;
+		blockCount++;
+		if (format == Format.TEXT) {
+			writeLine("COPY " + table.getTarget() + " FROM STDIN;");
+		} else {
+			String name = script.getFileName().toString();
+			if (name.lastIndexOf('.') > 0) {
+				name = name.substring(0, name.lastIndexOf('.'));
+			}
+			name = name + "-" + String.format("%06d", blockCount) + ".bin";
+			writeLine("\\copy " + table.getTarget() + " FROM '" + name + "' WITH (FORMAT binary)");
+
+			blockStream = new DataOutputStream(OutputFiles.openStream(script.resolveSibling(name)));
+			blockStream.write(SIGNATURE);
+			// no flags and no header extension
+			blockStream.writeInt(0);
+			blockStream.writeInt(0);
+		}
+	}
+
+	private void endBlock() throws IOException {
+		if (table == null) {
+			return;
+		}
+		if (format == Format.TEXT) {
+			writeLine("\\.");
+		} else {
+			blockStream.writeShort(-1);
+			blockStream.close();
+			blockStream = null;
+		}
+		writeLine("COMMIT;");
+		table = null;
+	}
+
+	private void writeText(String[] values) {
+		line.setLength(0);
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				line.append('\t');
+			}
+			escape(values[i], line);
+		}
+		line.append('\n');
+		scriptStream.append(line);
+	}
+
+	// the value as COPY text reads it back, a backslash starting every escape
+	static void escape(String value, StringBuilder builder) {
+		if (value == null) {
+			builder.append("\\N");
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\b':
+				builder.append("\\b");
+				break;
+			case '\f':
+				builder.append("\\f");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			case 0x0B:
+				builder.append("\\v");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+	}
+
+	// a tuple is its field count and each field's length, -1 for null, and bytes in network order
+	private void writeBinary(CopyTable table, String[] values) throws IOException {
+		blockStream.writeShort(values.length);
+		for (int i = 0; i < values.length; i++) {
+			String value = values[i];
+			if (value == null) {
+				blockStream.writeInt(-1);
+				continue;
+			}
+			switch (table.getType(i)) {
+			case INTEGER:
+				blockStream.writeInt(4);
+				blockStream.writeInt(Integer.parseInt(value.trim()));
+				break;
+			case UUID:
+				UUID uuid = UUID.fromString(value);
+				blockStream.writeInt(16);
+				blockStream.writeLong(uuid.getMostSignificantBits());
+				blockStream.writeLong(uuid.getLeastSignificantBits());
+				break;
+			default:
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				blockStream.writeInt(bytes.length);
+				blockStream.write(bytes);
+			}
+		}
+	}
+
+	private void writeLine(String text) {
+		scriptStream.append(text).append('\n');
+	}
+}
@@ -0,0 +1,134 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import org.apache.commons.lang3.StringUtils;
+
+// One line of an element mapping file: how a tag's value is read, what is done to it and which
+// metadata file it is written to.
+public class ElementMapping {
+
+	public enum Handler {
+		GENERIC,
+		CAPITALIZE,
+		LANGUAGE,
+		OPEN_ACCESS,
+		RECORD_TOUCHED,
+		ARCHIVAL_FILE,
+		DOWNLOAD,
+		RECORD_CREATED,
+		THESIS,
+		MAP,
+		RELATION_URL,
+		// handled in code by element name
+		CUSTOM,
+		RELATIONSHIP,
+		// never matched as a tag, only printed by name
+		TEMPLATE
+	}
+
+	public enum Filter {
+		LTGT,
+		AMP,
+		XML
+	}
+
+	public enum Target {
+		DC,
+		NRCAN,
+		GEOSPATIAL
+	}
+
+	// language column value meaning "take it from the lang attribute"
+	public static final String LANGUAGE_ATTRIBUTE = "@";
+
+	private static final Filter[] NO_FILTERS = new Filter[0];
+
+	private final String name;
+	private final Handler handler;
+	private final Filter[] filters;
+	private final String language;
+	private final Target target;
+	private final MetadataTemplate template;
+	private final MetadataTemplate.Escape escape;
+
+	public ElementMapping(String name, Handler handler, Filter[] filters, String language, Target target, MetadataTemplate template) {
+		this.name = name;
+		this.handler = handler;
+		this.filters = filters;
+		this.language = language;
+		this.target = target;
+		this.template = template;
+
+		MetadataTemplate.Escape escape = MetadataTemplate.Escape.NONE;
+		for (Filter filter : filters) {
+			if (filter == Filter.XML) {
+				escape = MetadataTemplate.Escape.XML;
+			}
+		}
+		this.escape = escape;
+	}
+
+	// name | handler | filters | language | file | template, trailing columns may be left off
+	public static ElementMapping parse(String line) {
+		String[] columns = line.split("[|]", 6);
+		if (columns.length < 2) {
+			throw new IllegalArgumentException("Expected at least a name and a handler: " + line);
+		}
+
+		String name = columns[0].trim().toLowerCase();
+		Handler handler = Handler.valueOf(columns[1].trim().toUpperCase().replace('-', '_'));
+		String filterColumn = column(columns, 2);
+		String language = column(columns, 3);
+		String file = column(columns, 4);
+		String template = column(columns, 5);
+
+		Filter[] filters = NO_FILTERS;
+		if (!filterColumn.isEmpty()) {
+			String[] names = filterColumn.split(",");
+			filters = new Filter[names.length];
+			for (int i = 0; i < names.length; i++) {
+				filters[i] = Filter.valueOf(names[i].trim().toUpperCase());
+			}
+		}
+
+		Target target = file.isEmpty() ? null : Target.valueOf(file.toUpperCase());
+		if (StringUtils.isNotEmpty(template) && target == null) {
+			throw new IllegalArgumentException("Template without a file: " + line);
+		}
+
+		return new ElementMapping(name, handler, filters, language, target, template.isEmpty() ? null : MetadataTemplate.compile(template));
+	}
+
+	private static String column(String[] columns, int index) {
+		return index < columns.length ? columns[index].trim() : "";
+	}
+
+	// lower case, the same as the old ELEMENT_ constants
+	public String getName() {
+		return name;
+	}
+
+	public Handler getHandler() {
+		return handler;
+	}
+
+	public Filter[] getFilters() {
+		return filters;
+	}
+
+	public String getLanguage() {
+		return language;
+	}
+
+	public Target getTarget() {
+		return target;
+	}
+
+	// null when the element has nothing to write
+	public MetadataTemplate getTemplate() {
+		return template;
+	}
+
+	public MetadataTemplate.Escape getEscape() {
+		return escape;
+	}
+}
@@ -0,0 +1,188 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// An element mapping file compiled into a lookup table. Names are matched without regard to case
+// straight from the tag in the export line, so a lookup allocates nothing. The table is a perfect
+// hash built with hash and displace: every name gets a slot of its own, found with one displacement
+// read and a single compare.
+public class ElementTable {
+
+	private static final int MAX_DISPLACEMENT = 1 << 20;
+
+	private final ElementMapping[] slots;
+	private final int[] displacements;
+	private final int slotMask;
+	private final int bucketMask;
+	private final int size;
+
+	private ElementTable(List<ElementMapping> mappings) {
+		size = mappings.size();
+		int slotCount = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+		int bucketCount = Math.max(1, slotCount / 4);
+		slots = new ElementMapping[slotCount];
+		displacements = new int[bucketCount];
+		slotMask = slotCount - 1;
+		bucketMask = bucketCount - 1;
+
+		List<List<ElementMapping>> buckets = new ArrayList<List<ElementMapping>>();
+		for (int i = 0; i < bucketCount; i++) {
+			buckets.add(new ArrayList<ElementMapping>());
+		}
+		for (ElementMapping mapping : mappings) {
+			String name = mapping.getName();
+			buckets.get(bucket(hash(name, 0, name.length()))).add(mapping);
+		}
+
+		// place the fullest buckets first, while the table is still empty
+		Integer[] order = new Integer[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+		for (int bucket : order) {
+			List<ElementMapping> members = buckets.get(bucket);
+			if (!members.isEmpty()) {
+				displacements[bucket] = place(members);
+			}
+		}
+	}
+
+	// the built in table when path is empty
+	public static ElementTable load(String path, Class<?> owner, String resource) throws IOException {
+		if (path == null || path.isEmpty()) {
+			InputStream inputStream = owner.getResourceAsStream(resource);
+			if (inputStream == null) {
+				throw new IOException("Missing element mapping " + resource);
+			}
+			return read(inputStream);
+		}
+		return read(new FileInputStream(path));
+	}
+
+	public static ElementTable read(InputStream inputStream) throws IOException {
+		List<ElementMapping> mappings = new ArrayList<ElementMapping>();
+		Set<String> names = new HashSet<String>();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			String line = reader.readLine();
+			while (line != null) {
+				String trimmed = line.trim();
+				if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+					ElementMapping mapping = ElementMapping.parse(trimmed);
+					if (!names.add(mapping.getName())) {
+						throw new IllegalArgumentException("Element mapped twice: " + mapping.getName());
+					}
+					mappings.add(mapping);
+				}
+				line = reader.readLine();
+			}
+		}
+
+		return new ElementTable(mappings);
+	}
+
+	public ElementMapping get(String name) {
+		return get(name, 0, name.length());
+	}
+
+	// looks up text[start, end), typically the tag name inside a raw export line
+	public ElementMapping get(CharSequence text, int start, int end) {
+		if (end <= start) {
+			return null;
+		}
+		int hash = hash(text, start, end);
+		ElementMapping mapping = slots[slot(hash, displacements[bucket(hash)])];
+		if (mapping == null || !matches(mapping.getName(), text, start, end)) {
+			return null;
+		}
+		return mapping;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private int place(List<ElementMapping> members) {
+		int[] hashes = new int[members.size()];
+		for (int i = 0; i < hashes.length; i++) {
+			String name = members.get(i).getName();
+			hashes[i] = hash(name, 0, name.length());
+		}
+
+		int[] taken = new int[hashes.length];
+		for (int displacement = 0; displacement < MAX_DISPLACEMENT; displacement++) {
+			boolean fits = true;
+			for (int i = 0; i < hashes.length && fits; i++) {
+				taken[i] = slot(hashes[i], displacement);
+				fits = slots[taken[i]] == null;
+				for (int j = 0; j < i && fits; j++) {
+					fits = taken[j] != taken[i];
+				}
+			}
+			if (fits) {
+				for (int i = 0; i < hashes.length; i++) {
+					slots[taken[i]] = members.get(i);
+				}
+				return displacement;
+			}
+		}
+		throw new IllegalStateException("No free slots for " + members.get(0).getName());
+	}
+
+	private int bucket(int hash) {
+		return mix(hash) & bucketMask;
+	}
+
+	private int slot(int hash, int displacement) {
+		return mix(hash + displacement * 0x9E3779B9) & slotMask;
+	}
+
+	// case folded, so "dc:titleA" and "dc:titlea" hash the same
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + fold(text.charAt(i));
+		}
+		return hash;
+	}
+
+	private static char fold(char c) {
+		if (c >= 'A' && c <= 'Z') {
+			return (char) (c + ('a' - 'A'));
+		}
+		return c < 128 ? c : Character.toLowerCase(c);
+	}
+
+	private static boolean matches(String name, CharSequence text, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != fold(text.charAt(start + i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
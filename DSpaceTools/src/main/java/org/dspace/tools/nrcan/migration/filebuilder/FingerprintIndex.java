@@ -0,0 +1,164 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+
+// The GID, a hash of the record and the date it was last modified, for every item in an export.
+// It's written at the end of a run and read back by the next one, so a refresh can write only the
+// items that are new or changed and list the GIDs that are gone. One tab separated line per item:
+//
+//   <gid>\t<hash>\t<last modified>
+public class FingerprintIndex {
+
+	public static final String FILENAME = "fingerprints";
+
+	private static final String GID = "info:GID/";
+	private static final String RECORD_MODIFIED = "daterecordmod";
+	private static final String RECORD_SENT = "daterecordsent";
+	private static final String DATE_SUBMITTED = "dc:datesubmitted";
+	private static final String IDENTIFIER = "dc:identifier";
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	public static class Fingerprint {
+
+		final String gid;
+		final long hash;
+		final String modified;
+
+		Fingerprint(String gid, long hash, String modified) {
+			this.gid = gid;
+			this.hash = hash;
+			this.modified = modified;
+		}
+	}
+
+	private final Map<String, Fingerprint> previous;
+	private final Map<String, Fingerprint> current = new LinkedHashMap<String, Fingerprint>();
+
+	private FingerprintIndex(Map<String, Fingerprint> previous) {
+		this.previous = previous;
+	}
+
+	// the index of the last run, empty when there wasn't one
+	public static FingerprintIndex load(Path path) throws IOException {
+		Map<String, Fingerprint> previous = new HashMap<String, Fingerprint>();
+		if (Files.exists(path)) {
+			try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				String line = reader.readLine();
+				while (line != null) {
+					String[] columns = line.split("\t", -1);
+					if (columns.length == 3) {
+						previous.put(columns[0], new Fingerprint(columns[0], Long.parseUnsignedLong(columns[1], 16), columns[2]));
+					} else {
+						System.out.println("IGNORING FINGERPRINT: " + line);
+					}
+					line = reader.readLine();
+				}
+			}
+		}
+		return new FingerprintIndex(previous);
+	}
+
+	// null for a record without a GID, which can't be matched to an earlier run
+	public static Fingerprint of(GEOScanRecord record) {
+		String gid = null;
+		String recordModified = null;
+		String recordSent = null;
+		String dateSubmitted = null;
+		long hash = FNV_OFFSET;
+
+		for (GEOScanElement element : record.getElements()) {
+			String text = element.getText();
+			for (int i = 0; i < text.length(); i++) {
+				hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+			}
+			hash = (hash ^ '\n') * FNV_PRIME;
+
+			String name = element.getName();
+			if (gid == null && name.equalsIgnoreCase(IDENTIFIER) && text.contains(GID)) {
+				gid = value(text, text.indexOf(GID) + GID.length());
+			} else if (name.equalsIgnoreCase(RECORD_MODIFIED)) {
+				recordModified = date(text);
+			} else if (name.equalsIgnoreCase(RECORD_SENT)) {
+				recordSent = date(text);
+			} else if (name.equalsIgnoreCase(DATE_SUBMITTED)) {
+				// the last one is the latest update
+				dateSubmitted = value(text);
+			}
+		}
+
+		if (gid == null || gid.isEmpty()) {
+			return null;
+		}
+		String modified = !StringUtils.isEmpty(recordModified) ? recordModified
+				: !StringUtils.isEmpty(dateSubmitted) ? dateSubmitted : recordSent;
+		return new Fingerprint(gid, hash, modified == null ? "" : modified);
+	}
+
+	// true when the last run wrote the item as it is now
+	public boolean isUnchanged(Fingerprint fingerprint) {
+		Fingerprint last = previous.get(fingerprint.gid);
+		return last != null && last.hash == fingerprint.hash && last.modified.equals(fingerprint.modified);
+	}
+
+	// called for every item in the export, written or not
+	public void add(Fingerprint fingerprint) {
+		current.put(fingerprint.gid, fingerprint);
+	}
+
+	// GIDs of the last run that are not in this one
+	public List<String> getDeleted() {
+		List<String> deleted = new ArrayList<String>();
+		for (String gid : previous.keySet()) {
+			if (!current.containsKey(gid)) {
+				deleted.add(gid);
+			}
+		}
+		deleted.sort(null);
+		return deleted;
+	}
+
+	// replaces the index in one step, so a run that stops part way leaves the last one in place
+	public void write(Path path) throws IOException {
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try (PrintStream stream = OutputFiles.open(tempPath)) {
+			for (Fingerprint fingerprint : current.values()) {
+				stream.println(fingerprint.gid + "\t" + Long.toHexString(fingerprint.hash) + "\t" + fingerprint.modified);
+			}
+		}
+		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static String value(String text) {
+		long content = FieldExtractor.content(text);
+		return FieldExtractor.isFound(content) ? FieldExtractor.toString(text, content).trim() : "";
+	}
+
+	// the record dates hold <name> and <date>, some exports have the date alone
+	private static String date(String text) {
+		long date = FieldExtractor.field(text, "<date>", 6, "</date");
+		return FieldExtractor.isFound(date) ? FieldExtractor.toString(text, date).trim() : value(text);
+	}
+
+	private static String value(String text, int start) {
+		int end = text.indexOf('<', start);
+		return (end < 0 ? text.substring(start) : text.substring(start, end)).trim();
+	}
+}
@@ -1,18 +1,12 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -29,14 +23,14 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
-import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
 
-public class GEOScanCleanupProcessor implements FileProcessor {
+public class GEOScanCleanupProcessor implements GEOScanRecordSink {
 
-	private FileInputStream inputStream;
-	private BufferedReader streamReader;
-	private FileInputStream mapInputStream;
-	private BufferedReader mapStreamReader;
+	private GEOScanRecordSource recordReader;
 	private PrintStream mappedOutputStream;
 	private String inPath;
 	private String outPath;
@@ -48,7 +42,6 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 	private String currentItemPath;
 	private String bibLevel;
 	private boolean filesOpen = false;
-	private boolean beforeFirstItem = true;
 	private PrintStream contentsFileStream;
 	private PrintStream relationshipsFileStream;
 	private PrintStream dublinCoreFileStream;
@@ -65,7 +58,7 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 	private boolean firstDateSubmitted = true;
 	private String dateIssued = "";
 	private String lastDateUpdated = "";
-	private Map<Integer, Integer> secSerials;
+	private final Map<Integer, Integer> secSerials = new HashMap<Integer, Integer>();
 	private int secSerialCount;
 	private int uniqueSecSerialCount;
 	private int secSerialNumberCount;
@@ -82,7 +75,7 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 	private Set<String> existingPublisherCodes = new HashSet<String>();
 	private Set<String> existingAreaCodes = new HashSet<String>();
 	private List<String> bBoxes = new ArrayList<String>();
-	private Map<String, String> gidMap = new HashMap<String, String>();
+	private GidObjectTable gidTable;
 	private Map<String, String> relMap = new HashMap<String, String>();
 	
 	private static final String VALUE = "##VALUE##";
@@ -242,45 +235,17 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 	
 	public void process() {
 		try {
+			open();
 			
-			readMapFile();
+			recordReader = GEOScanRecordReader.open(inPath, getLineBreakMarker());
+			GEOScanRecord record = recordReader.next();
 			
-			inputStream = new FileInputStream(inPath);
-			streamReader = new BufferedReader(new InputStreamReader(inputStream));
-	
-			mappedOutputStream = getPrintStream(outPath + "/output.csv");
-			
-			String line = streamReader.readLine();
-			String nextLine;
-			
-			while(line != null) {
-				nextLine = streamReader.readLine();
-				if (nextLine == null) {
-					processLine(line);
-				} else {
-					if (!nextLine.startsWith("<")) {
-						while (nextLine != null && !nextLine.startsWith("<")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						if (nextLine != null && nextLine.startsWith("</") && !nextLine.startsWith("</item")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						processLine(line);
-					} else if (nextLine.startsWith("</item>")) {
-						processLine(line);
-					} else if (nextLine.startsWith("</")) {
-						line = line + nextLine;
-						processLine(line);
-						nextLine = streamReader.readLine();
-					} else {
-						processLine(line);
-					}
-				}
-				line = nextLine;
+			while(record != null) {
+				processRecord(record);
+				record = recordReader.next();
 			}
 			
+			finish();
 		}
 		catch(Exception ex) {
 			System.out.println(ex);
@@ -291,18 +256,25 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 		}		
 	}
 	
+	@Override
+	public String getLineBreakMarker() {
+		return "";
+	}
+	
+	@Override
+	public void open() throws Exception {
+		readMapFile();
+		
+		mappedOutputStream = OutputFiles.open(OutputFiles.resolve(outPath).resolve("output.csv"));
+	}
+	
+	@Override
+	public void finish() {
+	}
+	
 	private void readMapFile() throws IOException {
 		try {
-			mapInputStream = new FileInputStream(mapPath);
-			mapStreamReader = new BufferedReader(new InputStreamReader(mapInputStream));
-			
-			String line = mapStreamReader.readLine();
-			
-			while(line != null) {
-				processMapFileLine(line);
-				line = mapStreamReader.readLine();;
-			}
-			
+			gidTable = GidObjectTable.load(mapPath);
 		} catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
@@ -310,87 +282,59 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 
 	}
 
-	private void processMapFileLine(String line) throws IOException {
-		line = line.replace("\"", "");
-		String gid = line.substring(0, line.indexOf(","));
-		String id = line.substring(line.indexOf(",") + 1);
-		
-		gidMap.put(gid, id);
-	}
 	
 	@Override
 	public void close() {
 		try {
-			mapStreamReader.close();
-			mapInputStream.close();	
-			streamReader.close();
-			inputStream.close();
-			
+			if (recordReader != null) {
+				recordReader.close();
+			}
+			if (mappedOutputStream != null) {
+				mappedOutputStream.close();
+			}
 		}
 		catch(IOException ex) {
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
-		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
-	}
 	
-	public void processLine(String input) throws Exception {
-		try {		
-			if (StringUtils.isEmpty(input.trim())) {
-				return;
-			}
-			
-			if (StringUtils.trim(input).equals("<item>")) {
-				bibLevel = "";
-				firstDateSubmitted = true;
-				dateIssued = "";
-				lastDateUpdated = "";
-				secSerials = new HashMap<Integer, Integer>();
-				secSerialCount = 0;
-				uniqueSecSerialCount = 0;
-				secSerialNumberCount = 0;
-				geoScanId= "";
-				existingFundingCodes = new HashSet<String>();
-				existingProvinceCodes = new HashSet<String>();
-				existingDivisionCodes = new HashSet<String>();
-				existingSecSerialCodes = new HashSet<String>();
-				existingCountryCodes = new HashSet<String>();
-				existingAuthorCodes = new HashSet<String>();
-				existingAuthorACodes = new HashSet<String>();
-				existingMonoCorpAuthorCodes = new HashSet<String>();
-				existingCorpAuthorCodes = new HashSet<String>();
-				existingPublisherCodes = new HashSet<String>();
-				existingAreaCodes = new HashSet<String>();
-				bBoxes = new ArrayList<String>();
-				
-				beforeFirstItem = false;
-				
-				return;
-			}
-			
-			if (!beforeFirstItem) {
-				processMetadata(input);
-			}
-			
-		} catch (Exception e) {
-			throw e;
+	@Override
+	public void processRecord(GEOScanRecord record) throws Exception {
+		startItem();
+		for (GEOScanElement element : record.getElements()) {
+			processMetadata(element);
 		}
 	}
-
-	private void processMetadata(String line) throws Exception {
-		Integer indexOfGT = line.indexOf(">");
-		Integer indexOfSpace = line.indexOf(" ");
+	
+	private void startItem() throws Exception {
+		bibLevel = "";
+		firstDateSubmitted = true;
+		dateIssued = "";
+		lastDateUpdated = "";
+		secSerials.clear();
+		secSerialCount = 0;
+		uniqueSecSerialCount = 0;
+		secSerialNumberCount = 0;
+		geoScanId= "";
+		existingFundingCodes.clear();
+		existingProvinceCodes.clear();
+		existingDivisionCodes.clear();
+		existingSecSerialCodes.clear();
+		existingCountryCodes.clear();
+		existingAuthorCodes.clear();
+		existingAuthorACodes.clear();
+		existingMonoCorpAuthorCodes.clear();
+		existingCorpAuthorCodes.clear();
+		existingPublisherCodes.clear();
+		existingAreaCodes.clear();
+		bBoxes.clear();
 		
-		String element = line.substring(1, 
-				Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace));
+	}
+	
+	private void processMetadata(GEOScanElement metadata) throws Exception {
+		String line = metadata.getText();
+		String element = metadata.getName();
 		
 		String output = processElement(element.toLowerCase(), line);
 		if (StringUtils.isEmpty(output)) {
@@ -405,8 +349,9 @@ public class GEOScanCleanupProcessor implements FileProcessor {
 		}
 		
 		if (element.contentEquals(ELEMENT_AREA_TEXT)) {
-			if (gidMap.containsKey(geoScanId)) {				
-				mappedOutputStream.println(gidMap.get(geoScanId) + "," + value);
+			int entry = gidTable.find(geoScanId);
+			if (entry >= 0) {
+				mappedOutputStream.println(gidTable.getObjectId(entry) + "," + value);
 			}			
 		}		
 		
@@ -0,0 +1,97 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.cli.CommandLine;
+import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanCompiledReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanCompiledWriter;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
+
+// Compiles a GEOScan or photo export into a record file, which every type that reads an export
+// takes with -f in its place. The file is written next to the output, which can be a URI as for the
+// other types, and moved over it once complete.
+public class GEOScanCompiler implements FileProcessor {
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final String inPath;
+	private final String outPath;
+	private GEOScanRecordSource recordReader;
+
+	public GEOScanCompiler(String inPath, String outPath, CommandLine cmd) {
+		this.inPath = inPath;
+		this.outPath = outPath;
+	}
+
+	public void process() {
+		Path outFile = OutputFiles.resolve(outPath);
+		Path tempFile = outFile.resolveSibling(outFile.getFileName() + ".tmp");
+		try {
+			long start = System.currentTimeMillis();
+			recordReader = GEOScanRecordReader.open(inPath, "");
+			if (recordReader instanceof GEOScanCompiledReader) {
+				System.out.println("ERROR: " + inPath + " is already compiled, -f has to be the export");
+				return;
+			}
+			int recordCount;
+			try (GEOScanCompiledWriter writer = new GEOScanCompiledWriter(OutputFiles.openStream(tempFile, BUFFER_SIZE))) {
+				GEOScanRecord record = recordReader.next();
+				while(record != null) {
+					writer.write(record);
+					record = recordReader.next();
+				}
+				recordCount = writer.getRecordCount();
+			}
+
+			replace(tempFile, outFile);
+			System.out.println("COMPILED " + recordCount + " RECORDS, " + Files.size(Paths.get(inPath)) + " BYTES TO " + Files.size(outFile)
+					+ " IN " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch(Exception ex) {
+			System.out.println(ex);
+			try {
+				Files.deleteIfExists(tempFile);
+			} catch(IOException deleteEx) {
+				// left for the next run to replace
+			}
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+		finally {
+			close();
+		}
+	}
+
+	// Replaced in one step, so there is always a complete file. A zip file system only writes the zip
+	// when it is closed, and moving an entry it stores loses the entry's size, so there the bytes are
+	// copied over instead.
+	private static void replace(Path tempFile, Path outFile) throws IOException {
+		if (!"jar".equals(outFile.getFileSystem().provider().getScheme())) {
+			Files.move(tempFile, outFile, StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+		try (InputStream input = Files.newInputStream(tempFile)) {
+			Files.copy(input, outFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		Files.delete(tempFile);
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (recordReader != null) {
+				recordReader.close();
+			}
+		}
+		catch(IOException ex) {
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+	}
+}
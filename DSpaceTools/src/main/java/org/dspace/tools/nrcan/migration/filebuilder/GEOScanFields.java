@@ -0,0 +1,174 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.NOT_FOUND;
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.append;
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.field;
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.indexOf;
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.isFound;
+import static org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor.length;
+
+import org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor;
+
+// The values GEOScanFileProcessor reads out of a GEOScan export line. Each one finds its fields as
+// offsets and builds the value in one go. The offsets are the ones the processor always used, so
+// some values keep the '>' of their tag, as they did before.
+public final class GEOScanFields {
+
+	private static final String SEPARATOR = " - ";
+	private static final String RECORD_CREATED = "Record added to GEOScan on ";
+	private static final String EMPTY_FUNDING = "<Funding></Funding>";
+
+	private GEOScanFields() {
+	}
+
+	// "" for a malformed line
+	public static String getGeneric(CharSequence line) {
+		long value = FieldExtractor.content(line);
+		if (!isFound(value)) {
+			FieldExtractor.malformed();
+			return "";
+		}
+		return FieldExtractor.toString(line, value);
+	}
+
+	public static String getRecordCreated(CharSequence line) {
+		long date = require(line, field(line, "<date>", 6, "</date"));
+		return append(new StringBuilder(RECORD_CREATED.length() + length(date)).append(RECORD_CREATED), line, date).toString();
+	}
+
+	public static String getThesis(CharSequence line) {
+		long degree = require(line, field(line, "<degree>", 8, "</degree"));
+		long univ = require(line, field(line, "<univ>", 6, "</univ"));
+		long city = require(line, field(line, "<city>", 6, "</city"));
+		long country = require(line, field(line, "<country>", 9, "</country"));
+		return join(line, degree, univ, city, country);
+	}
+
+	public static String getDownload(CharSequence line) {
+		require(line, field(line, "<service>", 8, "</service"));
+		int pos = indexOf(line, "<filename>", 0);
+		if (pos < 0) {
+			return "";
+		}
+		return FieldExtractor.toString(line, require(line, field(line, pos + 9, "</filename")));
+	}
+
+	public static String getArchivalFile(CharSequence line) {
+		long name = require(line, field(line, "<name>", 5, "</name"));
+		long folder = require(line, field(line, "<folder>", 7, "</folder"));
+		long size = require(line, field(line, "<size>", 5, "</size"));
+		return join(line, folder, name, size);
+	}
+
+	public static String getDateRecordTouched(CharSequence line) {
+		long name = require(line, field(line, "<name>", 6, "</name"));
+		long date = require(line, field(line, "<date>", 6, "</date"));
+		return join(line, date, name);
+	}
+
+	public static String getMap(CharSequence line) {
+		long type = require(line, field(line, "<general>", 8, "</general"));
+		int pos = indexOf(line, "<scale>", 0);
+		if (pos > 0) {
+			return join(line, type, require(line, field(line, pos + 7, "</scale")));
+		}
+		return FieldExtractor.toString(line, type);
+	}
+
+	public static String getRelationUrl(CharSequence line) {
+		long label = require(line, field(line, "<label>", 7, "</label"));
+		long url = require(line, field(line, "<URL>", 5, "</URL"));
+		return join(line, label, url);
+	}
+
+	// null when there is no funding, or the line is malformed. A URL replaces the project, and the
+	// url part stays empty, as it always has.
+	public static String getFundingLegacy(CharSequence line) {
+		if (EMPTY_FUNDING.contentEquals(line)) {
+			return null;
+		}
+
+		boolean english = indexOf(line, "Program En>", 0) >= 0;
+		long program = field(line, english ? "Program En>" : "Program Fr>", 10, english ? "</Program En" : "</Program Fr");
+		if (!isFound(program)) {
+			FieldExtractor.malformed();
+			return null;
+		}
+
+		long project = NOT_FOUND;
+		int pos = firstOf(line, "Project En>", "Project Fr>");
+		if (pos > 0) {
+			project = field(line, pos + 10, english ? "</Project En" : "</Project Fr");
+			if (!isFound(project)) {
+				FieldExtractor.malformed();
+				return null;
+			}
+		}
+		pos = firstOf(line, "URL En>", "URL Fr>");
+		if (pos > 0) {
+			project = field(line, pos + 10, english ? "</URL En" : "</URL Fr");
+			if (!isFound(project)) {
+				FieldExtractor.malformed();
+				return null;
+			}
+		}
+
+		StringBuilder value = append(new StringBuilder(), line, program).append(SEPARATOR);
+		if (isFound(project)) {
+			append(value, line, project);
+		}
+		return value.append(SEPARATOR).toString();
+	}
+
+	// SURNAME_GIVENNAME_dpsid_orcid, null without a name
+	public static String getAuthorMigrationId(CharSequence line) {
+		long firstName = field(line, "given_name", 11, "</given_name");
+		long lastName = field(line, "surname", 8, "</surname");
+		if (!isFound(firstName) || !isFound(lastName)) {
+			return null;
+		}
+		long deptId = field(line, "dpsid", 6, "</dpsid");
+		long orcId = field(line, "ORCID", 45, "</ORCID");
+
+		StringBuilder value = new StringBuilder(length(firstName) + length(lastName) + 24);
+		FieldExtractor.appendUpperCaseWithoutCommas(value, line, lastName).append('_');
+		FieldExtractor.appendUpperCaseWithoutCommas(value, line, firstName).append('_');
+		if (isFound(deptId)) {
+			append(value, line, deptId);
+		}
+		value.append('_');
+		if (isFound(orcId)) {
+			append(value, line, orcId);
+		}
+		return value.toString();
+	}
+
+	private static String join(CharSequence line, long... fields) {
+		int size = SEPARATOR.length() * (fields.length - 1);
+		for (long field : fields) {
+			size += length(field);
+		}
+		StringBuilder value = new StringBuilder(size);
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				value.append(SEPARATOR);
+			}
+			append(value, line, fields[i]);
+		}
+		return value.toString();
+	}
+
+	private static int firstOf(CharSequence line, String first, String second) {
+		int pos = indexOf(line, first, 0);
+		return pos < 0 ? indexOf(line, second, 0) : pos;
+	}
+
+	// the processor stops on these, as it did when substring threw
+	private static long require(CharSequence line, long range) {
+		if (!isFound(range)) {
+			FieldExtractor.malformed();
+			throw new IllegalArgumentException("Malformed line: " + line);
+		}
+		return range;
+	}
+}
@@ -1,17 +1,18 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
 import java.io.BufferedReader;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -20,96 +21,93 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.cli.CommandLine;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
-import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.FieldExtractor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
 
-public class GEOScanFileProcessor implements FileProcessor {
+public class GEOScanFileProcessor implements GEOScanRecordSink {
 
-	private FileInputStream inputStream;
-	private BufferedReader streamReader;
+	private GEOScanRecordSource recordReader;
 	private String inPath;
-	private String outPath;
-	private FileInputStream gidInputStream;
+	private Path outPath;
+	private ArchiveZipper zipper;
+	private InputStream gidInputStream;
 	private BufferedReader gidStreamReader;
 	private int itemCount = 0;
 	private int archiveCount = 0;
 	private int archiveSize = 100;
 	private String currentArchivePath;
+	private Path archiveDirectory;
 	private String currentItemPath;
-	private String bibLevel;
-	private boolean filesOpen = false;
-	private boolean beforeFirstItem = true;
-	private PrintStream contentsFileStream;
-	private PrintStream relationshipsFileStream;
-	private PrintStream dublinCoreFileStream;
-	private PrintStream dspaceFileStream;
-	private PrintStream nrcanFileStream;
-	private PrintStream geospatialFileStream;
-	private Map<String, String> dcElementTemplates;
-	private Map<String, String> nrcanElementTemplates;
-	private Map<String, String> geospatialElementTemplates;
+	private ElementTable elementTable;
+	private String elementMapPath;
 	private Map<String, Relationship> relationshipElements;
 	private Set<String> unknownElements = new HashSet<String>();
 	private Set<String> ignoredElements = new HashSet<String>();
 	private Set<String> valueSet = new HashSet<String>();
 	private Set<String> statusSet = new HashSet<String>();
-	private boolean firstDateSubmitted = true;
-	private String dateIssued = "";
-	private String lastDateUpdated = "";
-	private Map<Integer, Integer> secSerials;
-	private int secSerialCount;
-	private int uniqueSecSerialCount;
-	private int secSerialNumberCount;
 	private int completeCount = 0;
-	private String geoScanId;
-	private Set<String> existingFundingCodes = new HashSet<String>();
-	private Set<String> existingProvinceCodes = new HashSet<String>();
-	private Set<String> existingDivisionCodes = new HashSet<String>();
-	private Set<String> existingSecSerialCodes = new HashSet<String>();
-	private Set<String> existingCountryCodes = new HashSet<String>();
-	private Set<String> existingAuthorCodes = new HashSet<String>();
-	private Set<String> existingAuthorACodes = new HashSet<String>();
-	private Set<String> existingMonoCorpAuthorCodes = new HashSet<String>();
-	private Set<String> existingCorpAuthorCodes = new HashSet<String>();
-	private Set<String> existingPublisherCodes = new HashSet<String>();
-	private Set<String> existingAreaCodes = new HashSet<String>();
-	private Set<String> existingLanguageCodes = new HashSet<String>();
-	private List<String> bBoxes = new ArrayList<String>();
-	private boolean itemComplete = false;
 	private PrintStream cfsidFileStream;
-	private int authorCount = 0;
-	private int monoAuthorCount = 0;
-	private int bitstreamCount = 0;
 	private int keptItemCount = 0;
-	private int position = 0;
-	private String bitstreamPath = "";
-	private boolean hasAsset = false;
 	private List<String> geoScanIdList = new ArrayList<String>();
-	private List<String> authors = new ArrayList<String>();
-	private boolean linebreak = false;
+	private int threads = 1;
+	private boolean directZip = false;
+	private boolean zipStore = false;
+	private boolean keepDirectories = false;
+	private boolean resume = false;
+	private CheckpointJournal journal;
+	private boolean resumed = false;
+	private boolean sinceLastRun = false;
+	private FingerprintIndex fingerprints;
+	private int unchangedCount = 0;
+	private String gidsPath;
+	private String filterExpression;
+	private ItemFilter itemFilter;
+	private int filteredOutCount = 0;
+	private final Queue<GEOScanItem> itemPool = new ConcurrentLinkedQueue<GEOScanItem>();
+	private ZipOutputStream archiveZip;
+	private final CRC32 zipCrc = new CRC32();
+	private final CheckedOutputStream zipCrcStream = new CheckedOutputStream(NullOutputStream.INSTANCE, zipCrc);
 	
-	private static final String VALUE = "##VALUE##";
-	private static final String LANGUAGE = "##LANG##";
-	private static final String QUALIFIER = "##QUAL##";
+	private static final int ZIP_BUFFER_SIZE = 256 * 1024;
+	private static final String ELEMENT_MAP_RESOURCE = "geoscan-elements.txt";
 	
+	private static final String FILTER_GID = "gid";
+	private static final String FILTER_STATUS = "status";
+	private static final String FILTER_BIBLIOGRAPHIC_LEVEL = "biblevel";
+	private static final String FILTER_DOCTYPE = "doctype";
+	private static final String FILTER_TYPE = "type";
+	private static final String FILTER_HAS_ASSET = "hasasset";
+	private static final String FILTER_DATE = "date";
+	
+	private static final String ELEMENT_CONTENT = "dc:content";
 	private static final String ELEMENT_TYPE = "dc:type";
 	private static final String ELEMENT_DOCTYPE = "doctype";
-	private static final String ELEMENT_CONTENT = "dc:content";
 	private static final String ELEMENT_TITLE_M = "dc:titlem";
 	private static final String ELEMENT_TITLE_A = "dc:titlea";
-	private static final String ELEMENT_VOLUME = "volume";
-	private static final String ELEMENT_ISSUE = "issue";
-	private static final String ELEMENT_ARTICLE_NUMBER = "articlenumber";
-	private static final String ELEMENT_OPEN_ACCESS = "openaccess";
-	private static final String ELEMENT_OPEN_ACCESS_TYPE = "openaccesstype";
 	private static final String ELEMENT_SERIAL_CODE = "serialcode";
 	private static final String ELEMENT_JOURNAL_CODE = "journalcode";
 	private static final String ELEMENT_AUTHOR_A = "dc:creatora";
@@ -118,91 +116,32 @@ public class GEOScanFileProcessor implements FileProcessor {
 	private static final String ELEMENT_PUBLISHER = "dc:publisher";
 	private static final String ELEMENT_CORP_AUTHOR_A = "corpcreatora";
 	private static final String ELEMENT_CORP_AUTHOR_M = "corpcreatorm";
-	private static final String ELEMENT_CONTRIBUTOR = "dc:contributor";
 	private static final String ELEMENT_LANGUAGE = "dc:language";
-	private static final String ELEMENT_LANGUAGE_ABSTRACT = "dc:languageabst";
-	private static final String ELEMENT_NTS = "nts";
-	private static final String ELEMENT_PAGE_RANGE = "pagerange";
-	private static final String ELEMENT_TOTAL_PAGES = "totalpages";
-	private static final String ELEMENT_TOTAL_SHEETS = "totalsheets";
-	private static final String ELEMENT_FILE_TYPE = "filetype";
-	private static final String ELEMENT_MEDIA = "media";
 	private static final String ELEMENT_STATUS = "status";
-	private static final String ELEMENT_ONLINE_URL = "onlineurl";
 	private static final String ELEMENT_IMAGE = "image";
 	private static final String ELEMENT_PLAIN_LANGUAGE_SUMMARY_E = "plainlanguagesummarye";
 	private static final String ELEMENT_PLAIN_LANGUAGE_SUMMARY_F = "plainlanguagesummaryf";
-	private static final String ELEMENT_ABSTRACT = "dc:abstract";
-	private static final String ELEMENT_SUMMARY = "dc:summary";
 	private static final String ELEMENT_NOTES = "notes";
 	private static final String ELEMENT_POLYGON_WENS = "polygonwens";
-	private static final String ELEMENT_POLYGON_DEG = "polygondeg";
-	private static final String ELEMENT_COVERAGE = "dc:coverage";
-	private static final String ELEMENT_POLICY_PAAE = "policypaae";
-	private static final String ELEMENT_POLICY_IMPLICATION_E = "policyimplicatione";
-	private static final String ELEMENT_POLICY_IMPLICATION_F = "policyimplicationf";
-	private static final String ELEMENT_POLICY_RELEVANCE_E = "policyrelevancee";
-	private static final String ELEMENT_POLICY_RELEVANCE_F = "policyrelevancef";
-	private static final String ELEMENT_GEOP_SURVEY = "geopsurvey";
-	private static final String ELEMENT_GEOGRAPHY = "geography";
-	private static final String ELEMENT_WEB_ACCESSIBLE = "webaccessible";
-	private static final String ELEMENT_DATE_RECORD_SENT = "daterecordsent";
-	private static final String ELEMENT_PREVIOUS_FILENAME = "previousfilename";
 	private static final String ELEMENT_COUNTRY = "country";
 	private static final String ELEMENT_AREA = "areat";
-	private static final String ELEMENT_AREA_TEXT = "area";
 	private static final String ELEMENT_DIVISION = "division";
-	private static final String ELEMENT_EDITION = "edition";
 	private static final String ELEMENT_RELATION_REF = "dc:relationref";
 	private static final String ELEMENT_BIBLIOGRAPHIC_LEVEL = "biblevel";
-	private static final String ELEMENT_SUBJECT_GEOSCAN = "dc:subjectgeoscan";
-	private static final String ELEMENT_SUBJECT_DESCRIPTOR = "dc:subjectdescriptor";
-	private static final String ELEMENT_RECORD_CREATED = "daterecordcr";
-	private static final String ELEMENT_README_E = "readmee";
-	private static final String ELEMENT_README_F = "readmef";
-	private static final String ELEMENT_ARCHIVAL_FILE = "archivalfile";
-	private static final String ELEMENT_THESIS = "thesis";
-	private static final String ELEMENT_NUMBER_OF_MAPS = "numbermaps";
-	private static final String ELEMENT_SUBJECT_OTHER = "dc:subjectother";
-	private static final String ELEMENT_SUBJECT_GC = "dc:subjectgoc";
-	private static final String ELEMENT_SUBJECT_BROAD = "dc:subjectbroad";
-	private static final String ELEMENT_RECORD_MODIFIED = "daterecordmod";
-	private static final String ELEMENT_CONT_DESCR = "contdescr";
-	private static final String ELEMENT_DOWNLOAD = "download";
-	private static final String ELEMENT_MAP = "map";
 	private static final String ELEMENT_FUNDING = "funding";
-	private static final String ELEMENT_MEETING_NAME = "meetingname";
 	private static final String ELEMENT_MEETING_DATE = "meetingdate";
 	private static final String ELEMENT_MEETING_START = "meetingstart";
 	private static final String ELEMENT_MEETING_END = "meetingend";
-	private static final String ELEMENT_MEETING_CITY = "meetingcity";
-	private static final String ELEMENT_MEETING_COUNTRY = "meetingcountry";
-	private static final String ELEMENT_ALTERNATE_FORMAT = "altenateformat";
-	private static final String ELEMENT_PRINT_DATE = "printdate";
-	private static final String ELEMENT_RELATION_URL = "dc:relationurl";
-	private static final String ELEMENT_RELATION = "dc:relation";
 	private static final String ELEMENT_RELATION_PHOTO = "dc:relationphoto";
 	private static final String ELEMENT_DATE = "dc:date";
 	private static final String ELEMENT_DATE_SUBMITTED = "dc:datesubmitted";
 	private static final String ELEMENT_DATE_ISSUED = "dc:dateissued";
 	private static final String ELEMENT_DATE_AVAILABLE = "dc:dateavailable";
 	private static final String ELEMENT_DATE_UPDATED = "dc:dateupdated";
-	private static final String ELEMENT_DIGITAL = "digital";
-	private static final String ELEMENT_IS_OR_HAS_MAP = "isorhasmap";
-	private static final String ELEMENT_CONTAINS_MAP = "containsmap";
-	private static final String ELEMENT_REPORT_NUMBER = "reportnumber";
 	private static final String ELEMENT_SEC_SERIAL_CODE = "secserialcode";
 	private static final String ELEMENT_SEC_SERIAL_NUMBER = "secserialnumber";
-	private static final String ELEMENT_SEC_SERIAL_NUMBER1 = "secserialnumber1";
-	private static final String ELEMENT_SEC_SERIAL_NUMBER2 = "secserialnumber2";
-	private static final String ELEMENT_SEC_SERIAL_NUMBER3 = "secserialnumber3";
-	private static final String ELEMENT_SEC_SERIAL_NUMBER4 = "secserialnumber4";
-	private static final String ELEMENT_SEC_SERIAL_NUMBER5 = "secserialnumber5";
 	private static final String ELEMENT_FUNDING_LEGACY = "fundinglegacy";
 	private static final String ELEMENT_PROVINCE = "province";
-	private static final String ELEMENT_RELATION_ERRATUM = "dc:relationerratum";
-	private static final String ELEMENT_CLASSIFICATION = "classification";
-	private static final String ELEMENT_DURATION = "dc:duration";
 	private static final String ELEMENT_BBOX = "bbox";
 	private static final String ELEMENT_RELATION_REPLACES = "replaces";
 	private static final String ELEMENT_RELATION_ACCOMPANIES = "accompanies";
@@ -249,91 +188,176 @@ public class GEOScanFileProcessor implements FileProcessor {
 	
 	public GEOScanFileProcessor(String inPath, String outPath, CommandLine cmd) {
 		this.inPath = inPath;
-		this.outPath = outPath;
+		this.outPath = OutputFiles.resolve(outPath);
+		this.zipper = new ArchiveZipper(cmd);
+		
+		if (!StringUtils.isEmpty(cmd.getOptionValue(MigrationFileBuilder.OPT_THREADS))) {
+			this.threads = Integer.parseInt(cmd.getOptionValue(MigrationFileBuilder.OPT_THREADS));
+		}
+		this.directZip = cmd.hasOption(MigrationFileBuilder.OPT_DIRECT_ZIP);
+		this.zipStore = cmd.hasOption(MigrationFileBuilder.OPT_ZIP_STORE);
+		this.keepDirectories = cmd.hasOption(MigrationFileBuilder.OPT_KEEP_DIRECTORIES);
+		this.resume = cmd.hasOption(MigrationFileBuilder.OPT_RESUME);
+		this.sinceLastRun = cmd.hasOption(MigrationFileBuilder.OPT_SINCE_LAST_RUN);
+		this.elementMapPath = cmd.getOptionValue(MigrationFileBuilder.OPT_ELEMENT_MAP);
+		this.gidsPath = cmd.getOptionValue(MigrationFileBuilder.OPT_GIDS);
+		this.filterExpression = cmd.getOptionValue(MigrationFileBuilder.OPT_FILTER);
 	}
 	
 	public void process() {
 		try {
-			initializeElementTemplates();
-			//readGIDFile();
-			
-			cfsidFileStream = getPrintStream("C:\\dspace\\gids");
-			
-			inputStream = new FileInputStream(inPath);
-			streamReader = new BufferedReader(new InputStreamReader(inputStream));
-	
-			String line = streamReader.readLine();
-			String nextLine;
-			
-			while(line != null) {
-				nextLine = streamReader.readLine();
-				if (nextLine == null) {
-					processLine(line);
-				} else {
-					if (!nextLine.startsWith("<")) {
-						while (nextLine != null && !nextLine.startsWith("<")) {
-							if (StringUtils.isEmpty(nextLine)) {
-								line = line + "\\n";
-								linebreak = true;
-							} else {
-								line = line + nextLine;
-							}
-							
-							nextLine = streamReader.readLine();
-						}
-						if (nextLine != null && nextLine.startsWith("</") && !nextLine.startsWith("</item")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						processLine(line);
-					} else if (nextLine.startsWith("</item>")) {
-						processLine(line);
-					} else if (nextLine.startsWith("</")) {
-						line = line + nextLine;
-						processLine(line);
-						nextLine = streamReader.readLine();
-					} else {
-						processLine(line);
-					}
-				}
-				line = nextLine;
-			}
+			open();
 			
-			if (itemCount != archiveSize) {
-				String directory = outPath + "\\" + currentArchivePath + "\\";
-				String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-				ZipDirectory.zipDirectory(directory, filename);			
+			recordReader = GEOScanRecordReader.open(inPath, getLineBreakMarker());
+			if (resume) {
+				resumeFromJournal();
 			}
 			
-			for (String element : unknownElements) {
-				System.out.println("UNKNOWN ELEMENT: " + element);
+			if (gidsPath != null) {
+				processSelectedItems();
+			} else if (threads > 1) {
+				processRecordsInParallel();
+			} else {
+				GEOScanRecord record = recordReader.next();
+				
+				while(record != null) {
+					processRecord(record);
+					record = recordReader.next();
+				}
 			}
 			
-			for (String element : statusSet) {
-				System.out.println("STATUS: " + element);
-			}
-
-			System.out.println("COMPLETE COUNT: " + completeCount);
-			System.out.println("KEPT ITEM COUNT: " + keptItemCount);
+			finish();
 		}
 		catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 		finally {
-			cfsidFileStream.close();
 			close();
 		}		
 	}
 	
+	@Override
+	public String getLineBreakMarker() {
+		return "\\n";
+	}
+	
+	@Override
+	public void open() throws Exception {
+		initializeElementTemplates();
+		//readGIDFile();
+		
+		journal = CheckpointJournal.open(outPath, resume);
+		journal.checkExport(Paths.get(inPath));
+		if (resume) {
+			journal.restoreSideFiles(OutputFiles.getBasePath("gids"));
+		}
+		cfsidFileStream = OutputFiles.open(OutputFiles.getBasePath("gids"), resume);
+		fingerprints = FingerprintIndex.load(OutputFiles.getBasePath(FingerprintIndex.FILENAME));
+		if (StringUtils.isNotEmpty(filterExpression)) {
+			itemFilter = ItemFilter.parse(filterExpression, FILTER_GID, FILTER_STATUS, FILTER_BIBLIOGRAPHIC_LEVEL, FILTER_DOCTYPE,
+					FILTER_TYPE, FILTER_HAS_ASSET, FILTER_DATE);
+			System.out.println("FILTER: " + itemFilter);
+		}
+	}
+	
+	@Override
+	public void processRecord(GEOScanRecord record) throws Exception {
+		GEOScanItem item = transformRecord(record);
+		writeItem(item);
+		releaseItem(item);
+	}
+	
+	@Override
+	public void finish() throws Exception {
+		if (itemCount != archiveSize && StringUtils.isNotEmpty(currentArchivePath)) {
+			closeArchive();
+		}
+		zipper.finish();
+		writeFingerprints();
+		
+		for (String element : unknownElements) {
+			System.out.println("UNKNOWN ELEMENT: " + element);
+		}
+		
+		for (String element : statusSet) {
+			System.out.println("STATUS: " + element);
+		}
+
+		System.out.println("COMPLETE COUNT: " + completeCount);
+		System.out.println("KEPT ITEM COUNT: " + keptItemCount);
+		if (itemFilter != null) {
+			System.out.println("FILTERED OUT COUNT: " + filteredOutCount);
+		}
+		System.out.println("MALFORMED FIELDS: " + FieldExtractor.getMalformedCount());
+	}
+	
+	// The index covers the whole export, so a resumed run, which skipped part of it, leaves the
+	// last one in place.
+	private void writeFingerprints() throws IOException {
+		if (resumed) {
+			System.out.println("FINGERPRINTS NOT WRITTEN FOR A RESUMED RUN");
+			return;
+		}
+		if (gidsPath != null) {
+			System.out.println("FINGERPRINTS NOT WRITTEN FOR A --gids RUN");
+			return;
+		}
+		if (itemFilter != null) {
+			System.out.println("FINGERPRINTS NOT WRITTEN FOR A FILTERED RUN");
+			return;
+		}
+		fingerprints.write(OutputFiles.getBasePath(FingerprintIndex.FILENAME));
+		
+		if (sinceLastRun) {
+			List<String> deleted = fingerprints.getDeleted();
+			try (PrintStream deletedFileStream = OutputFiles.open(OutputFiles.getBasePath("deleted_gids"))) {
+				for (String gid : deleted) {
+					deletedFileStream.println(gid);
+				}
+			}
+			System.out.println("UNCHANGED COUNT: " + unchangedCount);
+			System.out.println("DELETED COUNT: " + deleted.size());
+		}
+	}
+	
+	// Skips the part of the export that went into the archives an earlier run finished, and zips
+	// any of those archives it didn't get to zip.
+	private void resumeFromJournal() throws IOException {
+		CheckpointJournal.Archive last = journal.getLastArchive();
+		if (last == null) {
+			System.out.println("NO CHECKPOINT IN " + journal.getPath() + ", STARTING FROM THE BEGINNING");
+			return;
+		}
+		
+		recordReader.skipTo(last.endOffset, last.nextRecord);
+		resumed = true;
+		archiveCount = last.number + 1;
+		for (int archive = 0; archive <= last.number; archive++) {
+			if (!journal.isZipped(archive)) {
+				zipArchive(archive);
+			}
+		}
+		System.out.println("RESUMING AFTER archive_" + String.format("%03d", last.number) + " (GID " + last.lastId + ") AT ITEM " + last.nextRecord);
+	}
+	
 	@Override
 	public void close() {
 		try {
-			streamReader.close();
-			inputStream.close();
+			zipper.shutdown();
+			if (journal != null) {
+				journal.close();
+			}
+			if (cfsidFileStream != null) {
+				cfsidFileStream.close();
+			}
+			
+			if (recordReader != null) {
+				recordReader.close();
+			}
 			
-			if (filesOpen) {
-				closeOutputFiles();
+			if (archiveZip != null) {
+				archiveZip.close();
 			}
 			
 			for (String s : valueSet) {
@@ -346,134 +370,304 @@ public class GEOScanFileProcessor implements FileProcessor {
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
+	
+	// Reads only the items listed in the GIDs file, straight from where the index says they are. They
+	// are read in export order, so they go into the archives as a full run would have put them, less
+	// the items in between.
+	private void processSelectedItems() throws Exception {
+		GidIndex index = GidIndex.load(inPath);
+		List<Integer> positions = new ArrayList<Integer>();
+		Set<Long> selected = new HashSet<Long>();
+		int gidCount = 0;
+		
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(gidsPath)))) {
+			String line = reader.readLine();
+			while (line != null) {
+				if (StringUtils.isNotBlank(line)) {
+					gidCount++;
+					long gid = GidIndex.parseGid(line);
+					int position = gid < 0 ? -1 : index.find(gid);
+					if (position < 0) {
+						System.out.println("GID NOT IN EXPORT: " + line.trim());
+					} else if (selected.add(gid)) {
+						while (position < index.size() && index.getGid(position) == gid) {
+							positions.add(position++);
+						}
+					}
+				}
+				line = reader.readLine();
+			}
 		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
+		
+		positions.sort((a, b) -> Long.compare(index.getSequence(a), index.getSequence(b)));
+		for (int position : positions) {
+			processRecord(recordReader.readAt(index.getOffset(position), index.getSequence(position)));
+		}
+		System.out.println("SELECTED ITEMS: " + positions.size() + " FOR " + gidCount + " GIDS");
 	}
 	
-	public void processLine(String input) throws Exception {
-		try {		
-			if (StringUtils.isEmpty(input.trim())) {
-				return;
-			}
+	// Reads on this thread, transforms on the worker pool and writes on a single writer thread.
+	// The writer takes items in submission order, so the output matches a single threaded run.
+	private void processRecordsInParallel() throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		Semaphore itemsInFlight = new Semaphore(threads * 4);
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		
+		try {
+			GEOScanRecord record = recordReader.next();
 			
-			if (StringUtils.trim(input).equals("<item>")) {
-				bibLevel = "";
-				firstDateSubmitted = true;
-				dateIssued = "";
-				lastDateUpdated = "";
-				secSerials = new HashMap<Integer, Integer>();
-				secSerialCount = 0;
-				uniqueSecSerialCount = 0;
-				secSerialNumberCount = 0;
-				geoScanId= "";
-				hasAsset = false;
-				existingFundingCodes = new HashSet<String>();
-				existingProvinceCodes = new HashSet<String>();
-				existingDivisionCodes = new HashSet<String>();
-				existingSecSerialCodes = new HashSet<String>();
-				existingCountryCodes = new HashSet<String>();
-				existingAuthorCodes = new HashSet<String>();
-				existingAuthorACodes = new HashSet<String>();
-				existingMonoCorpAuthorCodes = new HashSet<String>();
-				existingCorpAuthorCodes = new HashSet<String>();
-				existingPublisherCodes = new HashSet<String>();
-				existingAreaCodes = new HashSet<String>();
-				existingLanguageCodes = new HashSet<String>();
-				bBoxes = new ArrayList<String>();
-				itemComplete = false;
-				authorCount = 0;
-				position = 0;
-				monoAuthorCount = 0;
-				bitstreamCount = 0;
-				authors = new ArrayList<String>();
-				linebreak = false;
-				
-				
-				if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
-					currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
-					itemCount = 0;
-				}
+			while(record != null && failure.get() == null) {
+				itemsInFlight.acquire();
 				
-				currentItemPath = "item_" + String.format("%03d" , itemCount++);
-				
-				String path = outPath + "\\" + currentArchivePath + "\\" + currentItemPath;
-				//System.out.println("PATH: " + path);
+				final GEOScanRecord current = record;
+				final Future<GEOScanItem> item = workers.submit(() -> transformRecord(current));
+				writer.submit(() -> {
+					try {
+						if (failure.get() == null) {
+							GEOScanItem written = item.get();
+							writeItem(written);
+							releaseItem(written);
+						}
+					} catch (Exception ex) {
+						failure.compareAndSet(null, ex);
+					} finally {
+						itemsInFlight.release();
+					}
+				});
 				
-				createDirectory(path);
-				openNewOutputFiles(path);
-				filesOpen = true;
-				beforeFirstItem = false;
-				return;
+				record = recordReader.next();
 			}
-			
-			if (StringUtils.trim(input).substring(0, Math.min(7, input.length())).equals("</item>")) {
-				printBBox();
-				printDateIssued();
-				closeOutputFiles();
-				filesOpen = false;
-				
-				//if (!itemComplete || !geoScanId.startsWith("332") || !hasAsset) {
-//				if (!geoScanIdList.contains(geoScanId)) {
-//					FileUtils.deleteDirectory(new File(outPath + "\\" + currentArchivePath + "\\" + currentItemPath));
-//					for (String author : authors) {
-//						cfsidFileStream.println(author);
-//					}
-//				} else {
-//					cfsidFileStream.println(geoScanId);
-//					//cfsidFileStream.println("'" + geoScanId + "',");
-//				}
-				
-				if (itemCount == archiveSize) {
-					String directory = outPath + "\\" + currentArchivePath + "\\";
-					String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-					ZipDirectory.zipDirectory(directory, filename);			
-				}
-				
-//				if (geoScanId.equals("327388")) {
-//					cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
-//				}
-				
-				//cfsidFileStream.println(geoScanId + ", " + authorCount + "," + monoAuthorCount);
-				//cfsidFileStream.println(geoScanId);
-//				if (geoScanIdList.contains(geoScanId)) {
-//					cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
-//				}
-				return;
+		} finally {
+			workers.shutdown();
+			writer.shutdown();
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		}
+		
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+	
+	GEOScanItem transformRecord(GEOScanRecord record) throws Exception {
+		GEOScanItem item = takeItem(record.getSequence());
+		item.endOffset = record.getOffset() + record.getLength();
+		item.fingerprint = FingerprintIndex.of(record);
+		if (sinceLastRun && item.fingerprint != null && fingerprints.isUnchanged(item.fingerprint)) {
+			item.unchanged = true;
+			return item;
+		}
+		if (itemFilter != null && !itemFilter.matches(getFilterAttributes(record))) {
+			item.filteredOut = true;
+			return item;
+		}
+		initializeOutputFiles(item);
+		
+		for (GEOScanElement element : record.getElements()) {
+			if (element.hasLineBreak()) {
+				item.linebreak = true;
+			}
+			processMetadata(item, element);
+		}
+		
+		printBBox(item);
+		printDateIssued(item);
+		finalizeOutputFiles(item);
+		return item;
+	}
+	
+	// A run only allocates as many items as it has in flight. Each one goes back to the pool once
+	// it is written and is cleared by whichever thread takes it next.
+	private GEOScanItem takeItem(long sequence) {
+		GEOScanItem item = itemPool.poll();
+		if (item == null) {
+			return new GEOScanItem(sequence);
+		}
+		item.clear(sequence);
+		return item;
+	}
+	
+	// package-private so the benchmarks can hand their items back the way a run does
+	void releaseItem(GEOScanItem item) {
+		itemPool.offer(item);
+	}
+	
+	// What --filter can ask about an item, read from the record before anything is built for it.
+	// The values are the ones processMetadata would read.
+	private Map<String, String> getFilterAttributes(GEOScanRecord record) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		attributes.put(FILTER_HAS_ASSET, "false");
+		for (GEOScanElement element : record.getElements()) {
+			String name = element.getName().toLowerCase();
+			String line = element.getText();
+			switch (name) {
+				case ELEMENT_IDENTIFIER :
+					if (line.contains("GID")) {
+						attributes.put(FILTER_GID, getElementIdentifier(line));
+					}
+					break;
+				case ELEMENT_STATUS :
+					attributes.put(FILTER_STATUS, GEOScanFields.getGeneric(line));
+					break;
+				case ELEMENT_BIBLIOGRAPHIC_LEVEL :
+					attributes.put(FILTER_BIBLIOGRAPHIC_LEVEL, GEOScanFields.getGeneric(line));
+					break;
+				case ELEMENT_DOCTYPE :
+					attributes.put(FILTER_DOCTYPE, GEOScanFields.getGeneric(line));
+					break;
+				case ELEMENT_TYPE :
+					attributes.put(FILTER_TYPE, GEOScanFields.getGeneric(line));
+					break;
+				case ELEMENT_CONTENT :
+					attributes.put(FILTER_HAS_ASSET, "true");
+					break;
+				case ELEMENT_DATE :
+					attributes.put(FILTER_DATE, GEOScanFields.getGeneric(line));
+					break;
+				default :
+					break;
 			}
-			
-			if (!beforeFirstItem) {
-				processMetadata(input);
-			}	
-		} catch (Exception e) {
-			throw e;
 		}
+		return attributes;
+	}
+	
+	private void writeItem(GEOScanItem item) throws Exception {
+		if (item.fingerprint != null) {
+			fingerprints.add(item.fingerprint);
+		}
+		if (item.unchanged) {
+			unchangedCount++;
+			return;
+		}
+		if (item.filteredOut) {
+			filteredOutCount++;
+			return;
+		}
+		
+		if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
+			currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
+			itemCount = 0;
+			openArchive();
+		}
+		
+		currentItemPath = "item_" + String.format("%03d" , itemCount++);
+		
+		if (archiveZip != null) {
+			writeZipEntries(item);
+		}
+		if (archiveZip == null || keepDirectories) {
+			Path path = OutputFiles.createItemDirectory(archiveDirectory, currentItemPath);
+			writeOutputFiles(item, path);
+		}
+		
+		for (String message : item.messages) {
+			System.out.println(message);
+		}
+		for (String line : item.gidLines) {
+			cfsidFileStream.println(line);
+		}
+		unknownElements.addAll(item.unknownElements);
+		statusSet.addAll(item.statuses);
+		completeCount += item.completeCount;
+		journal.itemWritten(item.geoScanId, item.endOffset, item.sequence + 1);
+		
+		if (itemCount == archiveSize) {
+			closeArchive();
+		}
+		
+//		if (geoScanId.equals("327388")) {
+//			cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
+//		}
+		
+		//cfsidFileStream.println(geoScanId + ", " + authorCount + "," + monoAuthorCount);
+		//cfsidFileStream.println(geoScanId);
+//		if (geoScanIdList.contains(geoScanId)) {
+//			cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
+//		}
 	}
 
-	private void processMetadata(String line) throws Exception {
-		Integer indexOfGT = line.indexOf(">");
-		Integer indexOfSpace = line.indexOf(" ");
+	private void processMetadata(GEOScanItem item, GEOScanElement metadata) throws Exception {
+		String line = metadata.getText();
+		ElementMapping mapping = elementTable.get(line, 1, metadata.getNameEnd());
 		
-		String element = line.substring(1, 
-				Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace));
+		if (mapping == null || mapping.getHandler() == ElementMapping.Handler.TEMPLATE) {
+			item.unknownElements.add(metadata.getName().toLowerCase());
+			return;
+		}
 		
-		processElement(element.toLowerCase(), line);
+		processElement(item, mapping, line);
 	}
 	
-	private void processElement(String element, String line) throws Exception {
+	private void processElement(GEOScanItem item, ElementMapping mapping, String line) throws Exception {
+		switch (mapping.getHandler()) {
+			case CUSTOM :
+				processCustomElement(item, mapping.getName(), line);
+				return;
+			case RELATIONSHIP :
+				processRelationship(item, mapping.getName(), line);
+				return;
+			default :
+				break;
+		}
+		
+		String value = getElementValue(item, mapping.getHandler(), line);
+		for (ElementMapping.Filter filter : mapping.getFilters()) {
+			switch (filter) {
+				case LTGT :
+					value = replaceLTGT(value);
+					break;
+				case AMP :
+					value = replaceAmp(value);
+					break;
+				default :
+					break;
+			}
+		}
+		
+		String language = mapping.getLanguage();
+		if (language.contentEquals(ElementMapping.LANGUAGE_ATTRIBUTE)) {
+			language = getElementLanguageGeneric(line);
+		}
+		
+		printElement(item, mapping, value, language, "", mapping.getEscape());
+	}
+	
+	private String getElementValue(GEOScanItem item, ElementMapping.Handler handler, String line) throws Exception {
+		switch (handler) {
+			case CAPITALIZE :
+				return getElementGenericCapitalize(item, line);
+			case LANGUAGE :
+				return getElementLanguage(item, line);
+			case OPEN_ACCESS :
+				return getElementOpenAccess(item, line);
+			case RECORD_TOUCHED :
+				return GEOScanFields.getDateRecordTouched(line);
+			case ARCHIVAL_FILE :
+				return GEOScanFields.getArchivalFile(line);
+			case DOWNLOAD :
+				return GEOScanFields.getDownload(line);
+			case RECORD_CREATED :
+				return GEOScanFields.getRecordCreated(line);
+			case THESIS :
+				return GEOScanFields.getThesis(line);
+			case MAP :
+				return GEOScanFields.getMap(line);
+			case RELATION_URL :
+				return GEOScanFields.getRelationUrl(line);
+			default :
+				return GEOScanFields.getGeneric(line);
+		}
+	}
+	
+	private void processCustomElement(GEOScanItem item, String element, String line) throws Exception {
 		
 		if (element.contentEquals(ELEMENT_CONTENT)) {
-			processContent(element, line);
+			processContent(item, element, line);
 			return;
 		}
 		
 		if (relationshipElements.containsKey(element)) {
-			processRelationship(element, line);
+			processRelationship(item, element, line);
 			if (!element.contentEquals(ELEMENT_FUNDING)) {
 				return;
 			}		
@@ -484,253 +678,76 @@ public class GEOScanFileProcessor implements FileProcessor {
 		String qualifier = "";
 		
 		switch (element) {
-			case ELEMENT_TYPE :
-				value = getElementGenericCapitalize(line);
-				break;
 			case ELEMENT_TITLE_M :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				value = replaceLTGT(value);
 				language = getElementLanguageGeneric(line);
-				if (bibLevel.toLowerCase().contentEquals("m")) {
+				if (item.bibLevel.toLowerCase().contentEquals("m")) {
 					element = ELEMENT_TITLE_A;
 				}
 				break;
-			case ELEMENT_TITLE_A :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				language = getElementLanguageGeneric(line);
-				break;
-			case ELEMENT_ABSTRACT :
-				value = getElementGeneric(line);
-				language = getElementLanguageGeneric(line);
-//				if (linebreak) {
-//					cfsidFileStream.println("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + geoScanId + "') and metadata_field_id = 36 and text_lang = '" + language + "';");
-//				}			
-				value = replaceLTGT(value);
-				break;
-			case ELEMENT_SUMMARY :
-				value = getElementGeneric(line);
-				language = getElementLanguageGeneric(line);
-//				if (linebreak) {
-//					cfsidFileStream.println("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + geoScanId + "') and metadata_field_id = 150 and text_lang = '" + language + "';");
-//				}			
-				value = replaceLTGT(value);
-				break;
-			case ELEMENT_VOLUME :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_ISSUE :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_OPEN_ACCESS :
-				value = getElementOpenAccess(line);
-				break;
-			case ELEMENT_OPEN_ACCESS_TYPE :
-				value = getElementGeneric(line);
-				break;
 			case ELEMENT_STATUS :
-				value = getElementGeneric(line);
-				statusSet.add(value);
+				value = GEOScanFields.getGeneric(line);
+				item.statuses.add(value);
 				if (value.toUpperCase().contentEquals("COMPLETE")) {
-					completeCount++;
-					itemComplete = true;
+					item.completeCount++;
+					item.itemComplete = true;
 				} else {
 					//cfsidFileStream.println(value);
 				}
 				break;
-			case ELEMENT_DATE_RECORD_SENT :
-				value = getElementDateRecordTouched(line);
-				break;
-			case ELEMENT_PREVIOUS_FILENAME :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_RECORD_MODIFIED :
-				value = getElementDateRecordTouched(line);
-				break;
-			case ELEMENT_ARCHIVAL_FILE :
-				value = getElementArchivalFile(line);
-				break;
 			case ELEMENT_IDENTIFIER :
 				value = getElementIdentifier(line);
 				qualifier = getElementIdentifierQualifier(line).toLowerCase();
 				if (line.contains("GID")) {
-					geoScanId = value;
-					if (geoScanId.contentEquals("289560")) {
-						geoScanId = value;
-					}
+					item.geoScanId = value;
 				}
 				break;
-			case ELEMENT_CONTRIBUTOR :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_NTS :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_PAGE_RANGE :
-				value = getElementGeneric(line);
-				break;	
-			case ELEMENT_TOTAL_PAGES :
-				value = getElementGeneric(line);
-				break;	
-			case ELEMENT_FILE_TYPE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_MEDIA :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_LANGUAGE_ABSTRACT :
-				value = getElementLanguage(line);
-				break;
-			case ELEMENT_ONLINE_URL :
-				value = getElementGeneric(line);
-				value = StringEscapeUtils.escapeXml(value);
-				break;
 			case ELEMENT_PLAIN_LANGUAGE_SUMMARY_E :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				//value = replaceLTGT(value);
 				language = "en";
-				if (linebreak) {
-					cfsidFileStream.println("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + geoScanId + "') and metadata_field_id = 35 and text_lang = '" + language + "';");
+				if (item.linebreak) {
+					item.gidLines.add("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + item.geoScanId + "') and metadata_field_id = 35 and text_lang = '" + language + "';");
 				}
 				break;
 			case ELEMENT_PLAIN_LANGUAGE_SUMMARY_F :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				//value = replaceLTGT(value);
 				language = "fr";
-				if (linebreak) {
-					cfsidFileStream.println("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + geoScanId + "') and metadata_field_id = 35 and text_lang = '" + language + "';");
+				if (item.linebreak) {
+					item.gidLines.add("update metadatavalue set text_value = E'" + replaceSingleQuote(value) + "' where dspace_object_id = (select dspace_object_id from metadatavalue where metadata_field_id = 273 and text_value = '" + item.geoScanId + "') and metadata_field_id = 35 and text_lang = '" + language + "';");
 				}	
 				break;
 			case ELEMENT_NOTES :
 				line = line.replace("\n", " - ").replace("\r", " - ");
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_DOCTYPE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_AREA_TEXT :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				value = replaceAmp(value);
 				break;
 			case ELEMENT_POLYGON_WENS :
-				value = getElementPolygonWENS(line);
+				value = getElementPolygonWENS(item, line);
 				if (containsNumber(value)) {
-					bBoxes.add(value);
+					item.bBoxes.add(value);
 				}		
 				return;
-			case ELEMENT_POLYGON_DEG :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_COVERAGE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_POLICY_PAAE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_POLICY_IMPLICATION_E :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				language = "en";
-				break;
-			case ELEMENT_POLICY_IMPLICATION_F :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				language = "fr";
-				break;
-			case ELEMENT_POLICY_RELEVANCE_E :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				language = "en";
-				break;
-			case ELEMENT_POLICY_RELEVANCE_F :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				language = "fr";
-				break;
-			case ELEMENT_GEOP_SURVEY :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_GEOGRAPHY :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_WEB_ACCESSIBLE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_EDITION :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
 			case ELEMENT_RELATION_REF :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				element = getRelationElement(value);
 				value = "GID:" + value.substring(value.indexOf("-") + 1);
 				break;
 			case ELEMENT_BIBLIOGRAPHIC_LEVEL :
-				value = getElementGeneric(line);
-				bibLevel = value;
+				value = GEOScanFields.getGeneric(line);
+				item.bibLevel = value;
 				return;
-			case ELEMENT_SUBJECT_DESCRIPTOR :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
 			case ELEMENT_IMAGE :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				value = StringEscapeUtils.escapeXml(value);
-				processThumbnail(element, line);
+				processThumbnail(item, element, line);
 				return;
-			case ELEMENT_SUBJECT_GEOSCAN :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_SUBJECT_BROAD :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_SUBJECT_GC :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_SUBJECT_OTHER :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_ARTICLE_NUMBER :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_DOWNLOAD :
-				value = getElementDownload(line);
-				break;
-			case ELEMENT_RECORD_CREATED :
-				value = getElementRecordCreated(line);
-				language = "en";
-				break;
-			case ELEMENT_README_E :
-				value = getElementGeneric(line);
-				language = "en";
-				break;
-			case ELEMENT_README_F :
-				value = getElementGeneric(line);
-				language = "fr";
-				break;
-			case ELEMENT_THESIS :
-				value = getElementThesis(line);
-				break;
-			case ELEMENT_TOTAL_SHEETS :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_CONT_DESCR :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_MAP :
-				value = getElementMap(line);
-				break;
 			case ELEMENT_FUNDING :
 				value = getElementFundingCode(line);
 				if (value == null) {
-					value = getElementFundingLegacy(line);
+					value = GEOScanFields.getFundingLegacy(line);
 					if (value == null) {
 						return;
 					}
@@ -743,134 +760,86 @@ public class GEOScanFileProcessor implements FileProcessor {
 					return;
 				}
 				break;
-			case ELEMENT_MEETING_NAME :
-				value = getElementGeneric(line);
-				value = replaceLTGT(value);
-				value = StringEscapeUtils.escapeXml(value);
-				break;
 			case ELEMENT_MEETING_DATE :
-				value = getElementGeneric(line);
-				handleMeetingDate(value);
+				value = GEOScanFields.getGeneric(line);
+				handleMeetingDate(item, value);
 				return;
-			case ELEMENT_MEETING_CITY :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_MEETING_COUNTRY :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_PRINT_DATE :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_RELATION :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_RELATION_URL :
-				value = getElementRelationUrl(line);
-				value = StringEscapeUtils.escapeXml(value);
-				break;
-			case ELEMENT_ALTERNATE_FORMAT :
-				value = getElementGeneric(line);
-				break;
 			case ELEMENT_DATE :
-				dateIssued = getElementGeneric(line);
+				item.dateIssued = GEOScanFields.getGeneric(line);
 				return;
 			case ELEMENT_DATE_SUBMITTED :			
-				if (firstDateSubmitted) {
-					firstDateSubmitted = false;
+				if (item.firstDateSubmitted) {
+					item.firstDateSubmitted = false;
 										
-					if (dateIssued != null && dateIssued.contentEquals(getElementGeneric(line).substring(0,4))) {
-						dateIssued = getElementGeneric(line);
+					if (item.dateIssued != null && item.dateIssued.contentEquals(GEOScanFields.getGeneric(line).substring(0,4))) {
+						item.dateIssued = GEOScanFields.getGeneric(line);
 					}
 
 					element = ELEMENT_DATE_AVAILABLE;
-					value = getElementGeneric(line);
+					value = GEOScanFields.getGeneric(line);
 					break;
 				}
-				value = getElementRecordUpdated(line);
-				lastDateUpdated = value;
-				break;
-			case ELEMENT_NUMBER_OF_MAPS :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_DIGITAL :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_CONTAINS_MAP :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_IS_OR_HAS_MAP :
-				value = getElementGeneric(line);
+				value = getElementRecordUpdated(item, line);
+				item.lastDateUpdated = value;
 				break;
 			case ELEMENT_RELATION_PHOTO :
-				handleRelationPhotoElement(getElementGeneric(line));
+				handleRelationPhotoElement(item, GEOScanFields.getGeneric(line));
 				return;
-			case ELEMENT_REPORT_NUMBER :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_RELATION_ERRATUM :
-				value = getElementGeneric(line);
-				value = replaceAmp(value);
-				break;
-			case ELEMENT_CLASSIFICATION :
-				value = getElementGeneric(line);
-				break;
-			case ELEMENT_DURATION :
-				value = getElementGeneric(line);
-				break;
 			case ELEMENT_SEC_SERIAL_NUMBER :
-				value = getElementGeneric(line);
+				value = GEOScanFields.getGeneric(line);
 				value = replaceAmp(value);
-				element = ELEMENT_SEC_SERIAL_NUMBER + secSerials.get(++secSerialNumberCount);
+				element = ELEMENT_SEC_SERIAL_NUMBER + item.secSerials.get(++item.secSerialNumberCount);
 				if (element.contentEquals("secserialnumbernull")) {
-					System.out.println("GID: " + geoScanId + " - Too many serials or no serial code");
+					item.messages.add("GID: " + item.geoScanId + " - Too many serials or no serial code");
 					return;
 				}
 				break;
 			default :
-				unknownElements.add(element);
+				item.unknownElements.add(element);
 				return;
 		};
 		
-		boolean isDCElement = true;
-		boolean isGeospatialElement = true;
-		String template = dcElementTemplates.get(element);
-		if (StringUtils.isEmpty(template)) {
-			isDCElement = false;
-			template = geospatialElementTemplates.get(element);
-			if (StringUtils.isEmpty(template)) {
-				isGeospatialElement = false;
-				template = nrcanElementTemplates.get(element);
-			}
+		ElementMapping mapping = elementTable.get(element);
+		if (mapping == null) {
+			item.unknownElements.add(element);
+			return;
 		}
 		
+		printElement(item, mapping, value, language, qualifier, MetadataTemplate.Escape.NONE);
+	}
+	
+	private void printElement(GEOScanItem item, ElementMapping mapping, String value, String language, String qualifier, MetadataTemplate.Escape escape) {
+		String output;
 		try {
-			template = template.replace(VALUE, value);
+			output = mapping.getTemplate().format(value, language, qualifier, escape);
 		} catch (Exception e) {
-			unknownElements.add(element);
-			if (element.contentEquals("fundinglegacy")) {
-				unknownElements.add(element);
-			}
+			item.unknownElements.add(mapping.getName());
 			return;
 		}
 		
-		template = template.replace(LANGUAGE, language);
-		template = template.replace(QUALIFIER, qualifier);
-		
-		if (isDCElement) {
-			dublinCoreFileStream.println(template);
-		} else if (isGeospatialElement) {
-			geospatialFileStream.println(template);
-		} else {
-			nrcanFileStream.println(template);
+		getFileStream(item, mapping.getTarget()).println(output);
+	}
+	
+	// for values worked out in code, e.g. the date issued once the whole item has been read
+	private void printTemplate(GEOScanItem item, String element, String value) {
+		ElementMapping mapping = elementTable.get(element);
+		mapping.getTemplate().println(getFileStream(item, mapping.getTarget()), value);
+	}
+	
+	private PrintStream getFileStream(GEOScanItem item, ElementMapping.Target target) {
+		switch (target) {
+			case DC :
+				return item.dublinCoreFileStream;
+			case GEOSPATIAL :
+				return item.geospatialFileStream;
+			default :
+				return item.nrcanFileStream;
 		}
-		
 	}
 	
-	private void processContent(String element, String line) {
+	private void processContent(GEOScanItem item, String element, String line) {
 		
-		String value = getElementGeneric(line);
+		String value = GEOScanFields.getGeneric(line);
 
 		value = "STPublications_PublicationsST/" + value;
 		
@@ -878,15 +847,15 @@ public class GEOScanFileProcessor implements FileProcessor {
 		
 		String output = "-r -s 0 -f " + value;
 		
-		contentsFileStream.println(output);
-		bitstreamCount++;
-		bitstreamPath = value;
-		hasAsset = true;
+		item.contentsFileStream.println(output);
+		item.bitstreamCount++;
+		item.bitstreamPath = value;
+		item.hasAsset = true;
 	}
 	
-	private void processThumbnail(String element, String line) {
+	private void processThumbnail(GEOScanItem item, String element, String line) {
 		
-		String value = getElementGeneric(line);
+		String value = GEOScanFields.getGeneric(line);
 		
 		value = "thumbnails" + value.substring(value.lastIndexOf("/"));
 
@@ -894,149 +863,149 @@ public class GEOScanFileProcessor implements FileProcessor {
 		
 		output = output + "\tbundle:THUMBNAIL";
 		
-		contentsFileStream.println(output);
+		item.contentsFileStream.println(output);
 	}
 	
-	private void processRelationship(String element, String line) {
+	private void processRelationship(GEOScanItem item, String element, String line) {
 		
 		String value = "";
 		switch (element) {
 		case ELEMENT_SERIAL_CODE :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			break;
 		case ELEMENT_JOURNAL_CODE :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			break;
 		case ELEMENT_PUBLISHER :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			value = value.toUpperCase();
-			if (existingPublisherCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Publishers?");
+			if (item.existingPublisherCodes.contains(value)) {
+				item.messages.add("GID: " + item.geoScanId + " - Duplicate Publishers?");
 				return;
 			} else {
-				existingPublisherCodes.add(value);
+				item.existingPublisherCodes.add(value);
 			}
 			break;
 		case ELEMENT_AUTHOR_A :
-			value = getAuthorMigrationId(line);
-			if (existingAuthorACodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Authors?");
+			value = GEOScanFields.getAuthorMigrationId(line);
+			if (item.existingAuthorACodes.contains(value)) {
+				item.messages.add("GID: " + item.geoScanId + " - Duplicate Authors?");
 				return;
 			} else {
-				existingAuthorACodes.add(value);
+				item.existingAuthorACodes.add(value);
 				//authors.add(geoScanId + "," + authorCount + "," + value);
-				authorCount++;
+				item.authorCount++;
 				return;
 			}
 			//break;
 		case ELEMENT_AUTHOR_M :
-			value = getAuthorMigrationId(line);
-			if (existingAuthorCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Authors?");
+			value = GEOScanFields.getAuthorMigrationId(line);
+			if (item.existingAuthorCodes.contains(value)) {
+				item.messages.add("GID: " + item.geoScanId + " - Duplicate Authors?");
 				return;
 			} else {
-				existingAuthorCodes.add(value);
-				authors.add(geoScanId + "," + monoAuthorCount + "," + value);
-				monoAuthorCount++;
+				item.existingAuthorCodes.add(value);
+				item.authors.add(item.geoScanId + "," + item.monoAuthorCount + "," + value);
+				item.monoAuthorCount++;
 			}
-			if (bibLevel.toLowerCase().contentEquals("m")) {
+			if (item.bibLevel.toLowerCase().contentEquals("m")) {
 				element = ELEMENT_AUTHOR_A;
 				//authors.add(geoScanId + "," + authorCount + "," + value);
-				authorCount++;
+				item.authorCount++;
 			}
 			return;
 		case ELEMENT_LANGUAGE :
-			value = getElementLanguage(line);
-			if (existingLanguageCodes.contains(value)) {
+			value = getElementLanguage(item, line);
+			if (item.existingLanguageCodes.contains(value)) {
 				return;
 			} else {
-				existingLanguageCodes.add(value);
+				item.existingLanguageCodes.add(value);
 			}
 			break;
 		case ELEMENT_COUNTRY :
-			value = getElementGeneric(line);
-			if (existingCountryCodes.contains(value)) {
+			value = GEOScanFields.getGeneric(line);
+			if (item.existingCountryCodes.contains(value)) {
 				return;
 			} else {
-				existingCountryCodes.add(value);
+				item.existingCountryCodes.add(value);
 			}
 			if (value.contentEquals("Canada")) {
 				return;
 			}
 			break;
 		case ELEMENT_PROVINCE :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			if (value.contentEquals("can")) {
 				return;
 			}
-			if (existingProvinceCodes.contains(value)) {
+			if (item.existingProvinceCodes.contains(value)) {
 				return;
 			} else {
-				existingProvinceCodes.add(value);
+				item.existingProvinceCodes.add(value);
 			}
 			break;
 		case ELEMENT_AREA :
-			value = getElementGeneric(line);
-			if (existingAreaCodes.contains(value)) {
+			value = GEOScanFields.getGeneric(line);
+			if (item.existingAreaCodes.contains(value)) {
 				return;
 			} else {
-				existingAreaCodes.add(value);
+				item.existingAreaCodes.add(value);
 			}
 			break;
 		case ELEMENT_DIVISION :
 			value = getElementDivision(line);
-			if (existingDivisionCodes.contains(value)) {
+			if (item.existingDivisionCodes.contains(value)) {
 				return;
 			} else {
-				existingDivisionCodes.add(value);
+				item.existingDivisionCodes.add(value);
 			}
 			break;
 		case ELEMENT_CORP_AUTHOR_A :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			value = replaceAmp(value);
-			if (existingCorpAuthorCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Corp Authors?");
+			if (item.existingCorpAuthorCodes.contains(value)) {
+				item.messages.add("GID: " + item.geoScanId + " - Duplicate Corp Authors?");
 				return;
 			} else {
-				existingCorpAuthorCodes.add(value);
+				item.existingCorpAuthorCodes.add(value);
 			}
 			break;
 		case ELEMENT_CORP_AUTHOR_M :
-			value = getElementGeneric(line);
+			value = GEOScanFields.getGeneric(line);
 			value = replaceAmp(value);
-			if (bibLevel.toLowerCase().contentEquals("m")) {
+			if (item.bibLevel.toLowerCase().contentEquals("m")) {
 				element = ELEMENT_CORP_AUTHOR_A;
-				if (existingCorpAuthorCodes.contains(value)) {
-					System.out.println("GID: " + geoScanId + " - Duplicate Corp Authors?");
+				if (item.existingCorpAuthorCodes.contains(value)) {
+					item.messages.add("GID: " + item.geoScanId + " - Duplicate Corp Authors?");
 					return;
 				} else {
-					existingCorpAuthorCodes.add(value);
+					item.existingCorpAuthorCodes.add(value);
 				}
 			} else {							
-				if (existingMonoCorpAuthorCodes.contains(value)) {
-					System.out.println("GID: " + geoScanId + " - Duplicate Mono Corp Authors?");
+				if (item.existingMonoCorpAuthorCodes.contains(value)) {
+					item.messages.add("GID: " + item.geoScanId + " - Duplicate Mono Corp Authors?");
 					return;
 				} else {
-					existingMonoCorpAuthorCodes.add(value);
+					item.existingMonoCorpAuthorCodes.add(value);
 				}
 			}
 			break;
 		case ELEMENT_FUNDING :
 			value = getElementFundingCode(line);
-			if (value == null || existingFundingCodes.contains(value)) {
+			if (value == null || item.existingFundingCodes.contains(value)) {
 				return;
 			} else {
-				existingFundingCodes.add(value);
+				item.existingFundingCodes.add(value);
 			}
 			break;
 		case ELEMENT_SEC_SERIAL_CODE :
-			secSerialCount++;
-			value = getElementGeneric(line);
-			if (existingSecSerialCodes.size() == 0 || !existingSecSerialCodes.contains(value)) {
-				existingSecSerialCodes.add(value);
-				secSerials.put(secSerialCount, ++uniqueSecSerialCount);			
+			item.secSerialCount++;
+			value = GEOScanFields.getGeneric(line);
+			if (item.existingSecSerialCodes.size() == 0 || !item.existingSecSerialCodes.contains(value)) {
+				item.existingSecSerialCodes.add(value);
+				item.secSerials.put(item.secSerialCount, ++item.uniqueSecSerialCount);			
 			} else {
-				secSerials.put(secSerialCount, uniqueSecSerialCount);
+				item.secSerials.put(item.secSerialCount, item.uniqueSecSerialCount);
 				return;
 			}
 			break;
@@ -1052,168 +1021,138 @@ public class GEOScanFileProcessor implements FileProcessor {
 		
 		String output = "relationship." + rel.getName() + " " + rel.getAttribute() + ":" + value;
 		
-		relationshipsFileStream.println(output);
+		item.relationshipsFileStream.println(output);
 	}
 	
-	private void createDirectory(String path) {
-		File theDir = new File(path);
-		if (!theDir.exists()){
-		    theDir.mkdirs();
+	// With --direct-zip the archive is written while its items arrive, otherwise the finished
+	// archive directory is zipped once all of its items are on disk. The directory is made here,
+	// once for all of its items.
+	private void openArchive() throws IOException {
+		if (!directZip || keepDirectories) {
+			archiveDirectory = OutputFiles.createArchiveDirectory(outPath, currentArchivePath);
 		}
+		if (!directZip) {
+			return;
+		}
+		Files.createDirectories(outPath);
+		Path filename = outPath.resolve(currentArchivePath + ".zip");
+		archiveZip = new ZipOutputStream(OutputFiles.openStream(filename, ZIP_BUFFER_SIZE));
+		writeZipEntry(currentArchivePath + "/", null);
+	}
+	
+	// The journal entry goes in once the gids for the archive are on disk. A direct zip is complete
+	// when it is closed, a directory is zipped in the background and journaled when that is done.
+	private void closeArchive() throws IOException {
+		int archive = archiveCount - 1;
+		cfsidFileStream.flush();
+		if (archiveZip != null) {
+			archiveZip.close();
+			archiveZip = null;
+			journal.archiveFinished(archive, itemCount, OutputFiles.getBasePath("gids"));
+			journal.archiveZipped(archive);
+		} else {
+			journal.archiveFinished(archive, itemCount, OutputFiles.getBasePath("gids"));
+			zipArchive(archive);
+		}
+	}
+	
+	private void zipArchive(int archive) throws IOException {
+		Path directory = outPath.resolve("archive_" + String.format("%03d" , archive));
+		Path filename = outPath.resolve("archive_" + String.format("%03d" , archive) + ".zip");
+		zipper.submit(directory, filename, () -> journal.archiveZipped(archive));
 	}
 	
-	private void openNewOutputFiles(String path) throws UnsupportedEncodingException {
-		contentsFileStream = getPrintStream(path + "\\contents");
-		relationshipsFileStream = getPrintStream(path + "\\relationships");
-		dublinCoreFileStream = getPrintStream(path + "\\dublin_core.xml");
-		dspaceFileStream = getPrintStream(path + "\\metadata_dspace.xml");
-		nrcanFileStream = getPrintStream(path + "\\metadata_nrcan.xml");
-		geospatialFileStream = getPrintStream(path + "\\metadata_geospatial.xml");
+	private void writeZipEntries(GEOScanItem item) throws IOException {
+		String itemEntry = currentArchivePath + "/" + currentItemPath + "/";
+		writeZipEntry(itemEntry, null);
 		
-		initializeDSpaceFile();
-		initializeDublinCoreFile();
-		initializeNRCanFile();
-		initializeGeospatialFile();
+		writeZipEntry(itemEntry + "contents", item.contents);
+		writeZipEntry(itemEntry + "relationships", item.relationships);
+		writeZipEntry(itemEntry + "dublin_core.xml", item.dublinCore);
+		writeZipEntry(itemEntry + "metadata_dspace.xml", item.dspace);
+		writeZipEntry(itemEntry + "metadata_nrcan.xml", item.nrcan);
+		writeZipEntry(itemEntry + "metadata_geospatial.xml", item.geospatial);
 	}
 	
-	private void closeOutputFiles() {
-		finalizeXmlFile(dublinCoreFileStream);
-		finalizeXmlFile(nrcanFileStream);
-		finalizeXmlFile(geospatialFileStream);
+	// a folder when buffer is null, stored as it is with --zip-store as the zipped directories are
+	private void writeZipEntry(String name, ByteArrayOutputStream buffer) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		if (zipStore) {
+			// a stored entry's size and CRC go in its header, ahead of the data
+			zipCrc.reset();
+			if (buffer != null) {
+				buffer.writeTo(zipCrcStream);
+			}
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(buffer == null ? 0 : buffer.size());
+			entry.setCrc(zipCrc.getValue());
+		}
+		archiveZip.putNextEntry(entry);
+		if (buffer != null) {
+			buffer.writeTo(archiveZip);
+		}
+		archiveZip.closeEntry();
+	}
+	
+	private void writeOutputFiles(GEOScanItem item, Path path) throws IOException {
+		writeFile(path.resolve("contents"), item.contents);
+		writeFile(path.resolve("relationships"), item.relationships);
+		writeFile(path.resolve("dublin_core.xml"), item.dublinCore);
+		writeFile(path.resolve("metadata_dspace.xml"), item.dspace);
+		writeFile(path.resolve("metadata_nrcan.xml"), item.nrcan);
+		writeFile(path.resolve("metadata_geospatial.xml"), item.geospatial);
+	}
+	
+	private void writeFile(Path filename, ByteArrayOutputStream buffer) throws IOException {
+		OutputFiles.write(filename, buffer);
+	}
+	
+	private void initializeOutputFiles(GEOScanItem item) {
+		initializeDSpaceFile(item);
+		initializeDublinCoreFile(item);
+		initializeNRCanFile(item);
+		initializeGeospatialFile(item);
+	}
+	
+	private void finalizeOutputFiles(GEOScanItem item) {
+		finalizeXmlFile(item.dublinCoreFileStream);
+		finalizeXmlFile(item.nrcanFileStream);
+		finalizeXmlFile(item.geospatialFileStream);
 		
-		contentsFileStream.close();
-		relationshipsFileStream.close();
-		dublinCoreFileStream.close();
-		dspaceFileStream.close();
-		nrcanFileStream.close();
-		geospatialFileStream.close();
+		// flushed rather than closed, the item and its streams are reused
+		item.contentsFileStream.flush();
+		item.relationshipsFileStream.flush();
+		item.dublinCoreFileStream.flush();
+		item.dspaceFileStream.flush();
+		item.nrcanFileStream.flush();
+		item.geospatialFileStream.flush();
 	}
 	
 	private void finalizeXmlFile(PrintStream printStream) {
 		printStream.println("</dublin_core>");
 	}
 	
-	private void initializeDSpaceFile() {
-		dspaceFileStream.println("<dublin_core schema=\"dspace\">");
-		dspaceFileStream.println("<dcvalue element=\"entity\" qualifier=\"type\">Publication</dcvalue>");
-		dspaceFileStream.println("</dublin_core>");
+	private void initializeDSpaceFile(GEOScanItem item) {
+		item.dspaceFileStream.println("<dublin_core schema=\"dspace\">");
+		item.dspaceFileStream.println("<dcvalue element=\"entity\" qualifier=\"type\">Publication</dcvalue>");
+		item.dspaceFileStream.println("</dublin_core>");
 	}
 	
-	private void initializeDublinCoreFile() {
-		dublinCoreFileStream.println("<dublin_core>");
+	private void initializeDublinCoreFile(GEOScanItem item) {
+		item.dublinCoreFileStream.println("<dublin_core>");
 	}
 
-	private void initializeNRCanFile() {
-		nrcanFileStream.println("<dublin_core schema=\"nrcan\">");
+	private void initializeNRCanFile(GEOScanItem item) {
+		item.nrcanFileStream.println("<dublin_core schema=\"nrcan\">");
 	}
 	
-	private void initializeGeospatialFile() {
-		geospatialFileStream.println("<dublin_core schema=\"geospatial\">");
+	private void initializeGeospatialFile(GEOScanItem item) {
+		item.geospatialFileStream.println("<dublin_core schema=\"geospatial\">");
 	}
 	
-	private void initializeElementTemplates() {
-		dcElementTemplates = new HashMap<String, String>();
+	void initializeElementTemplates() throws IOException {
+		elementTable = ElementTable.load(elementMapPath, GEOScanFileProcessor.class, ELEMENT_MAP_RESOURCE);
 		
-		dcElementTemplates.put(ELEMENT_TITLE_A, "<dcvalue element=\"title\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_IDENTIFIER, "<dcvalue element=\"identifier\" qualifier=\"" + "##QUAL##" + "\">" + VALUE + "</dcvalue>");
-		//dcElementTemplates.put(ELEMENT_LANGUAGE, "<dcvalue element=\"language\" qualifier=\"iso\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_ABSTRACT, "<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_TYPE, "<dcvalue element=\"type\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, "<dcvalue element=\"subject\" qualifier=\"descriptor\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, "<dcvalue element=\"subject\" qualifier=\"geoscan\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, "<dcvalue element=\"subject\" qualifier=\"broad\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GC, "<dcvalue element=\"subject\" qualifier=\"gc\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, "<dcvalue element=\"subject\" qualifier=\"other\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RECORD_CREATED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_ISSUED, "<dcvalue element=\"date\" qualifier=\"issued\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, "<dcvalue element=\"date\" qualifier=\"available\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_UPDATED, "<dcvalue element=\"date\" qualifier=\"updated\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, "<dcvalue element=\"relation\" qualifier=\"replaces\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, "<dcvalue element=\"relation\" qualifier=\"accompanies\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, "<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, "<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, "<dcvalue element=\"relation\" qualifier=\"ispartof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, "<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, "<dcvalue element=\"relation\" qualifier=\"contains\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, "<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, "<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, "<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_TBD, "<dcvalue element=\"relation\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		
-		nrcanElementTemplates = new HashMap<String, String>();
-		
-		nrcanElementTemplates.put(ELEMENT_VOLUME, "<dcvalue element=\"volume\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ISSUE, "<dcvalue element=\"issue\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, "<dcvalue element=\"openaccess\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTRIBUTOR, "<dcvalue element=\"sourcesystem\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NTS, "<dcvalue element=\"nts\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, "<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, "<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, "<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FILE_TYPE, "<dcvalue element=\"filetype\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEDIA, "<dcvalue element=\"media\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_AREA_TEXT, "<dcvalue element=\"area\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, "<dcvalue element=\"abstract\" qualifier=\"language\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, "<dcvalue element=\"publication\" qualifier=\"externalurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SUMMARY, "<dcvalue element=\"summary\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NOTES, "<dcvalue element=\"notes\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOCTYPE, "<dcvalue element=\"legacy\" qualifier=\"doctype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, "<dcvalue element=\"policy\" qualifier=\"paae\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, "<dcvalue element=\"geopsurvey\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, "<dcvalue element=\"geography\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, "<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_EDITION, "<dcvalue element=\"edition\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_REF, "<dcvalue element=\"legacy\" qualifier=\"relationref\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, "<dcvalue element=\"articlenumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_E, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_F, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_THESIS, "<dcvalue element=\"legacy\" qualifier=\"thesis\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, "<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TITLE_M, "<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, "<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, "<dcvalue element=\"legacy\" qualifier=\"download\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, "<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MAP, "<dcvalue element=\"map\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, "<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, "<dcvalue element=\"meeting\" qualifier=\"name\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, "<dcvalue element=\"meeting\" qualifier=\"city\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, "<dcvalue element=\"meeting\" qualifier=\"country\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, "<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, "<dcvalue element=\"legacy\" qualifier=\"printdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_URL, "<dcvalue element=\"legacy\" qualifier=\"relationurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION, "<dcvalue element=\"legacy\" qualifier=\"relation\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, "<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_START, "<dcvalue element=\"meeting\" qualifier=\"startdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_END, "<dcvalue element=\"meeting\" qualifier=\"enddate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DIGITAL, "<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, "<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, "<dcvalue element=\"legacy\" qualifier=\"map\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, "<dcvalue element=\"reportnumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, "<dcvalue element=\"secondaryserial\" qualifier=\"0number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, "<dcvalue element=\"secondaryserial\" qualifier=\"1number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, "<dcvalue element=\"secondaryserial\" qualifier=\"2number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, "<dcvalue element=\"secondaryserial\" qualifier=\"3number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, "<dcvalue element=\"secondaryserial\" qualifier=\"4number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, "<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, "<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, "<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, "<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_STATUS, "<dcvalue element=\"legacy\" qualifier=\"status\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IMAGE, "<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, "<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, "<dcvalue element=\"legacy\" qualifier=\"classification\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DURATION, "<dcvalue element=\"legacy\" qualifier=\"duration\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, "<dcvalue element=\"legacy\" qualifier=\"bbox\">" + VALUE + "</dcvalue>");
-					
 		relationshipElements = new HashMap<String, Relationship>();
 		
 		relationshipElements.put(ELEMENT_SERIAL_CODE, new Relationship(RELATIONSHIP_SERIAL, ATTRIBUTE_SERIAL_CODE));
@@ -1232,61 +1171,41 @@ public class GEOScanFileProcessor implements FileProcessor {
 		relationshipElements.put(ELEMENT_SEC_SERIAL_CODE, new Relationship(RELATIONSHIP_SEC_SERIAL, ATTRIBUTE_SERIAL_CODE));
 		relationshipElements.put(ELEMENT_LANGUAGE, new Relationship(RELATIONSHIP_LANGUAGE, ATTRIBUTE_LANGUAGE_CODE));
 		
-		geospatialElementTemplates = new HashMap<String, String>();
-		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, "<dcvalue element=\"polygon\" qualifier=\"degrees\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_COVERAGE, "<dcvalue element=\"polygon\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_BBOX, "<dcvalue element=\"bbox\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		
 		ignoredElements.add(ELEMENT_BIBLIOGRAPHIC_LEVEL);
 		
 	}
 	
-	private void printDateIssued() throws Exception {
-		String template = dcElementTemplates.get(ELEMENT_DATE_ISSUED);
-		if (StringUtils.isEmpty(dateIssued)) {
-			System.out.println("GID: " + geoScanId + " - No Date Issued");
+	private void printDateIssued(GEOScanItem item) throws Exception {
+		if (StringUtils.isEmpty(item.dateIssued)) {
+			item.messages.add("GID: " + item.geoScanId + " - No Date Issued");
 		}
-		template = template.replace(VALUE, dateIssued);
-		
-		dublinCoreFileStream.println(template);
+		printTemplate(item, ELEMENT_DATE_ISSUED, item.dateIssued);
 		
-		if (!StringUtils.isEmpty(lastDateUpdated)) {
-			template = dcElementTemplates.get(ELEMENT_DATE_UPDATED);
-
-			template = template.replace(VALUE, lastDateUpdated);
-			
-			dublinCoreFileStream.println(template);
+		if (!StringUtils.isEmpty(item.lastDateUpdated)) {
+			printTemplate(item, ELEMENT_DATE_UPDATED, item.lastDateUpdated);
 		}
 		
 	}
 	
-	private void printBBox() {	
+	private void printBBox(GEOScanItem item) {	
 		
-		if (bBoxes.size() > 0) {
-			String value = combineBBoxes();
+		if (item.bBoxes.size() > 0) {
+			String value = combineBBoxes(item);
 			
-			if (bBoxes.size() > 1) {
-				for (String val : bBoxes) {
-					String template = nrcanElementTemplates.get(ELEMENT_POLYGON_WENS);
-	
-					template = template.replace(VALUE, val);
-					
-					nrcanFileStream.println(template);
+			if (item.bBoxes.size() > 1) {
+				for (String val : item.bBoxes) {
+					printTemplate(item, ELEMENT_POLYGON_WENS, val);
 				}
 			}
 			
-			String template = geospatialElementTemplates.get(ELEMENT_BBOX);
-
-			template = template.replace(VALUE, value);
-			
-			geospatialFileStream.println(template);
+			printTemplate(item, ELEMENT_BBOX, value);
 		}
 				
 	}
 	
-	private String combineBBoxes() {
-		if (bBoxes.size() == 1) {
-			return bBoxes.get(0);
+	String combineBBoxes(GEOScanItem item) {
+		if (item.bBoxes.size() == 1) {
+			return item.bBoxes.get(0);
 		} else {
 			Float maxW = null;
 			Float maxE = null;
@@ -1294,7 +1213,7 @@ public class GEOScanFileProcessor implements FileProcessor {
 			Float maxS = null;
 			float bBoxW, bBoxE, bBoxN, bBoxS;
 			
-			for (String bBox : bBoxes) {
+			for (String bBox : item.bBoxes) {
 				try {
 					bBox = bBox.substring(8);
 					bBox = bBox.replace("(", "");
@@ -1331,18 +1250,9 @@ public class GEOScanFileProcessor implements FileProcessor {
 		}		
 	}
 	
-	private String getElementGeneric(String line) {
-		try {
-			return line.substring(line.indexOf(">") + 1, line.substring(1).indexOf("<") + 1);
-		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - Line: " + line);
-			return "";
-		}		
-	}
-	
 	@SuppressWarnings("deprecation")
-	private String getElementGenericCapitalize(String line) {
-		line = getElementGeneric(line);
+	private String getElementGenericCapitalize(GEOScanItem item, String line) {
+		line = GEOScanFields.getGeneric(line);
 		WordUtils.capitalize(line);
 		return line;
 	}
@@ -1352,8 +1262,8 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return line.substring(pos + 10, pos + 12);
 	}
 	
-	private String getElementLanguage(String line) {
-		line = getElementGeneric(line).trim();
+	private String getElementLanguage(GEOScanItem item, String line) {
+		line = GEOScanFields.getGeneric(line).trim();
 		if (line.contentEquals("eng")) {
 			line = "en";
 		} else if (line.contentEquals("fre")) {
@@ -1387,7 +1297,7 @@ public class GEOScanFileProcessor implements FileProcessor {
 		} else if (line.contentEquals("per")) {
 			line = "fa";
 		}  else {
-			System.out.println("Unknown Language: " + line);
+			item.messages.add("Unknown Language: " + line);
 		}
 		return line;
 	}
@@ -1402,13 +1312,13 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return line.substring(pos + 5, line.indexOf("/"));
 	}
 	
-	private String getElementOpenAccess(String line) {
-		line = getElementGeneric(line).trim();
+	private String getElementOpenAccess(GEOScanItem item, String line) {
+		line = GEOScanFields.getGeneric(line).trim();
 		return line.substring(0, line.indexOf(" "));
 	}
 	
-	private String getElementPolygonWENS(String line) {
-		line = getElementGeneric(line);
+	private String getElementPolygonWENS(GEOScanItem item, String line) {
+		line = GEOScanFields.getGeneric(line);
 		if (StringUtils.isEmpty(line) || line.charAt(1) == ',') {
 			return "";
 		}
@@ -1420,69 +1330,11 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return line.substring(pos + 5, line.indexOf("</"));
 	}
 	
-	private String getElementRecordCreated(String line) {
-		int pos = line.indexOf("<date>");
-		line = line.substring(pos + 6, line.indexOf("</date"));
-		return "Record added to GEOScan on " + line;
-	}
-	
-	private String getElementRecordUpdated(String line) {
-		line = getElementGeneric(line);
+	private String getElementRecordUpdated(GEOScanItem item, String line) {
+		line = GEOScanFields.getGeneric(line);
 		return "Contents updated on " + line;
 	}
 	
-	private String getElementThesis(String line) {
-		int pos = line.indexOf("<degree>");
-		String degree = line.substring(pos + 8, line.indexOf("</degree"));
-		pos = line.indexOf("<univ>");
-		String univ = line.substring(pos + 6, line.indexOf("</univ"));
-		pos = line.indexOf("<city>");
-		String city = line.substring(pos + 6, line.indexOf("</city"));
-		pos = line.indexOf("<country>");
-		String country = line.substring(pos + 9, line.indexOf("</country"));
-		return degree + " - " + univ + " - " + city + " - " + country;
-	}
-	
-	private String getElementDownload(String line) {
-		int pos = line.indexOf("<service>");
-		String service = line.substring(pos + 8, line.indexOf("</service"));
-		pos = line.indexOf("<filename>");
-		if (pos < 0) {
-			return "";
-		}
-		String filename = line.substring(pos + 9, line.indexOf("</filename"));
-		return filename;
-	}
-	
-	private String getElementArchivalFile(String line) {
-		int pos = line.indexOf("<name>");
-		String name = line.substring(pos + 5, line.indexOf("</name"));
-		pos = line.indexOf("<folder>");
-		String folder = line.substring(pos + 7, line.indexOf("</folder"));
-		pos = line.indexOf("<size>");
-		String size = line.substring(pos + 5, line.indexOf("</size"));
-		return folder + " - " + name + " - " + size;
-	}
-	
-	private String getElementDateRecordTouched(String line) {
-		int pos = line.indexOf("<name>");
-		String name = line.substring(pos + 6, line.indexOf("</name"));
-		pos = line.indexOf("<date>");
-		String date = line.substring(pos + 6, line.indexOf("</date"));
-		return date + " - " + name;
-	}
-	
-	private String getElementMap(String line) {
-		int pos = line.indexOf("<general>");
-		String type = line.substring(pos + 8, line.indexOf("</general"));
-		pos = line.indexOf("<scale>");
-		if (pos > 0) {
-			String scale = line.substring(pos + 7, line.indexOf("</scale"));
-			return type + " - " + scale;
-		}
-		return type;
-	}
-	
 	private String getElementFundingCode(String line) {
 		int pos = line.indexOf("Code>");
 		if (pos < 0) {
@@ -1492,44 +1344,6 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return code;
 	}
 	
-	private String getElementFundingLegacy(String line) {
-		try {
-			if (line.contentEquals("<Funding></Funding>")) {
-				return null;
-			}
-			
-			int pos = line.indexOf("Program En>");
-			String lang = "En";
-			if (pos < 0) {
-				pos = line.indexOf("Program Fr>");
-				lang = "Fr";
-			}
-			String program = line.substring(pos + 10, line.indexOf("</Program " + lang));
-			
-			pos = line.indexOf("Project En>");
-			if (pos < 0) {
-				pos = line.indexOf("Project Fr>");
-			}
-			String project = "";
-			if (pos > 0) {
-				project = line.substring(pos + 10, line.indexOf("</Project " + lang));
-			}
-			
-			pos = line.indexOf("URL En>");
-			if (pos < 0) {
-				pos = line.indexOf("URL Fr>");
-			}
-			String url = "";
-			if (pos > 0) {
-				project = line.substring(pos + 10, line.indexOf("</URL " + lang));
-			}
-			return program + " - " + project + " - " + url;
-		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - FundingLegacy: " + line);
-			return null;
-		}
-	}
-	
 	private String getElementFundingLegacyLang(String line) {
 		int pos = line.indexOf("Program En>");
 		if (pos < 0) {
@@ -1538,41 +1352,7 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return "en";
 	}
 	
-	private String getElementRelationUrl(String line) {
-		int pos = line.indexOf("<label>");
-		String label = line.substring(pos + 7, line.indexOf("</label"));
-		pos = line.indexOf("<URL>");
-		String url = line.substring(pos + 5, line.indexOf("</URL"));
-		return label + " - " + url;
-	}
-	
-	private String getAuthorMigrationId(String line) {
-		try {
-			int pos = line.indexOf("given_name");
-			String firstName = line.substring(pos + 11, line.indexOf("</given_name"));
-			pos = line.indexOf("surname");
-			String lastName = line.substring(pos + 8, line.indexOf("</surname"));
-			String deptId = "";
-			try {
-				pos = line.indexOf("dpsid");
-				deptId = line.substring(pos + 6, line.indexOf("</dpsid"));
-			} catch (Exception e) {
-				//
-			}
-			String orcId = "";
-			try {
-				pos = line.indexOf("ORCID");
-				orcId = line.substring(pos + 45, line.indexOf("</ORCID"));
-			} catch (Exception e) {
-				//
-			}
-			return lastName.toUpperCase().replace(",", "") + "_" + firstName.toUpperCase().replace(",", "") + "_" + deptId + "_" + orcId;
-		} catch (Exception e) {
-			return null;
-		}		
-	}
-	
-	private void handleRelationPhotoElement(String line) {
+	private void handleRelationPhotoElement(GEOScanItem item, String line) {
 		try {
 			List<String> tokens = getTokensWithCollection(line);
 			for (String token : tokens) {
@@ -1588,25 +1368,21 @@ public class GEOScanFileProcessor implements FileProcessor {
 						
 							value = start.substring(0, start.indexOf("-"));
 							value = value + "-" + i;
-							printRelationPhotoElement(value);
+							printRelationPhotoElement(item, value);
 						
 					}
 					
 				} else {
-					printRelationPhotoElement(token);
+					printRelationPhotoElement(item, token);
 				}
 			}
 		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - Relation Photo: " + line);
+			item.messages.add("GID: " + item.geoScanId + " - Relation Photo: " + line);
 		}
 	}
 	
-	private void printRelationPhotoElement(String value) {
-		String template = nrcanElementTemplates.get(ELEMENT_RELATION_PHOTO);
-
-		template = template.replace(VALUE, value);
-		
-		nrcanFileStream.println(template);
+	private void printRelationPhotoElement(GEOScanItem item, String value) {
+		printTemplate(item, ELEMENT_RELATION_PHOTO, value);
 	}
 	
 	public List<String> getTokensWithCollection(String str) {
@@ -1665,7 +1441,7 @@ public class GEOScanFileProcessor implements FileProcessor {
 		return element;
 	}
 	
-	private void handleMeetingDate(String value) throws Exception {
+	void handleMeetingDate(GEOScanItem item, String value) throws Exception {
 		try {	
 			LocalDate startDate = null;
 			LocalDate endDate = null;
@@ -1718,27 +1494,19 @@ public class GEOScanFileProcessor implements FileProcessor {
 			
 			// 1970
 			} else {
-				String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				printTemplate(item, ELEMENT_MEETING_START, value);
 				
-				template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				printTemplate(item, ELEMENT_MEETING_END, value);
 				
 				return;
 			}
 			
-			String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-			template = template.replace(VALUE, startDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			printTemplate(item, ELEMENT_MEETING_START, startDate.format(DateTimeFormatter.ISO_DATE));
 			
-			template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-			template = template.replace(VALUE, endDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			printTemplate(item, ELEMENT_MEETING_END, endDate.format(DateTimeFormatter.ISO_DATE));
 		
 		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - Meeting Date: " + value);
+			item.messages.add("GID: " + item.geoScanId + " - Meeting Date: " + value);
 		}
 	}
 	
@@ -1782,7 +1550,7 @@ public class GEOScanFileProcessor implements FileProcessor {
 	
 	private void readGIDFile() throws IOException {
 		try {
-			gidInputStream = new FileInputStream("C:\\dspace\\missing_gids.txt");
+			gidInputStream = Files.newInputStream(OutputFiles.getBasePath("missing_gids.txt"));
 			gidStreamReader = new BufferedReader(new InputStreamReader(gidInputStream));
 			
 			String line = gidStreamReader.readLine();
@@ -1,17 +1,12 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -28,32 +23,35 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
-import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
 
-public class GEOScanFilteredFileProcessor implements FileProcessor {
+public class GEOScanFilteredFileProcessor implements GEOScanRecordSink {
 
-	private FileInputStream inputStream;
-	private BufferedReader streamReader;
+	private GEOScanRecordSource recordReader;
 	private String inPath;
-	private String outPath;
+	private Path outPath;
+	private ArchiveZipper zipper;
 	private int itemCount = 0;
 	private int archiveCount = 0;
 	private int archiveSize = 100;
 	private String currentArchivePath;
+	private Path archiveDirectory;
 	private String currentItemPath;
 	private String bibLevel;
-	private String path;
+	private Path path;
 	private boolean filesOpen = false;
-	private boolean beforeFirstItem = true;
 	private PrintStream contentsFileStream;
 	private PrintStream relationshipsFileStream;
 	private PrintStream dublinCoreFileStream;
 	private PrintStream dspaceFileStream;
 	private PrintStream nrcanFileStream;
 	private PrintStream geospatialFileStream;
-	private Map<String, String> dcElementTemplates;
-	private Map<String, String> nrcanElementTemplates;
-	private Map<String, String> geospatialElementTemplates;
+	private Map<String, MetadataTemplate> dcElementTemplates;
+	private Map<String, MetadataTemplate> nrcanElementTemplates;
+	private Map<String, MetadataTemplate> geospatialElementTemplates;
 	private Map<String, Relationship> relationshipElements;
 	private Set<String> unknownElements = new HashSet<String>();
 	private Set<String> ignoredElements = new HashSet<String>();
@@ -61,7 +59,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 	private boolean firstDateSubmitted = true;
 	private String dateIssued = "";
 	private String lastDateUpdated = "";
-	private Map<Integer, Integer> secSerials;
+	private final Map<Integer, Integer> secSerials = new HashMap<Integer, Integer>();
 	private int secSerialCount;
 	private int uniqueSecSerialCount;
 	private int secSerialNumberCount;
@@ -78,11 +76,11 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 	private Set<String> existingPublisherCodes = new HashSet<String>();
 	private Set<String> existingAreaCodes = new HashSet<String>();
 	private List<String> bBoxes = new ArrayList<String>();
-	private List<Integer> gidList = new ArrayList<Integer>();
+	private String gidFilterPath;
+	private GidFilter gidFilter;
+	private int filteredOutCount = 0;
 	
-	private static final String VALUE = "##VALUE##";
-	private static final String LANGUAGE = "##LANG##";
-	private static final String QUALIFIER = "##QUAL##";
+	private static final String GID_FILTER_RESOURCE = "filtered-gids.txt";
 	
 	private static final String ELEMENT_TYPE = "dc:type";
 	private static final String ELEMENT_DOCTYPE = "doctype";
@@ -231,59 +229,24 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 	
 	public GEOScanFilteredFileProcessor(String inPath, String outPath, CommandLine cmd) {
 		this.inPath = inPath;
-		this.outPath = outPath;
+		this.outPath = OutputFiles.resolve(outPath);
+		this.zipper = new ArchiveZipper(cmd);
+		this.gidFilterPath = cmd.getOptionValue(MigrationFileBuilder.OPT_GID_FILTER);
 	}
 	
 	public void process() {
 		try {
-			initializeElementTemplates();
+			open();
 			
-			inputStream = new FileInputStream(inPath);
-			streamReader = new BufferedReader(new InputStreamReader(inputStream));
-	
-			initGIDList();
-			
-			String line = streamReader.readLine();
-			String nextLine;
+			recordReader = GEOScanRecordReader.open(inPath, getLineBreakMarker());
+			GEOScanRecord record = recordReader.next();
 			
-			while(line != null) {
-				nextLine = streamReader.readLine();
-				if (nextLine == null) {
-					processLine(line);
-				} else {
-					if (!nextLine.startsWith("<")) {
-						while (nextLine != null && !nextLine.startsWith("<")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						if (nextLine != null && nextLine.startsWith("</") && !nextLine.startsWith("</item")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						processLine(line);
-					} else if (nextLine.startsWith("</item>")) {
-						processLine(line);
-					} else if (nextLine.startsWith("</")) {
-						line = line + nextLine;
-						processLine(line);
-						nextLine = streamReader.readLine();
-					} else {
-						processLine(line);
-					}
-				}
-				line = nextLine;
-			}
-			
-			if (itemCount != archiveSize) {
-				String directory = outPath + "\\" + currentArchivePath + "\\";
-				String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-				ZipDirectory.zipDirectory(directory, filename);			
-			}
-			
-			for (String element : unknownElements) {
-				System.out.println("UNKNOWN ELEMENT: " + element);
+			while(record != null) {
+				processRecord(record);
+				record = recordReader.next();
 			}
 			
+			finish();
 		}
 		catch(Exception ex) {
 			System.out.println(ex);
@@ -294,11 +257,42 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		}		
 	}
 	
+	@Override
+	public String getLineBreakMarker() {
+		return "";
+	}
+	
+	@Override
+	public void open() throws Exception {
+		initializeElementTemplates();
+		
+		gidFilter = GidFilter.load(gidFilterPath, GEOScanFilteredFileProcessor.class, GID_FILTER_RESOURCE);
+		System.out.println("GID FILTER: " + gidFilter.size() + " GIDS");
+	}
+	
+	@Override
+	public void finish() throws Exception {
+		if (itemCount != archiveSize && StringUtils.isNotEmpty(currentArchivePath)) {
+			Path directory = archiveDirectory;
+			Path filename = outPath.resolve("archive_" + String.format("%03d" , archiveCount -1) + ".zip");
+			zipper.submit(directory, filename);			
+		}
+		zipper.finish();
+		
+		for (String element : unknownElements) {
+			System.out.println("UNKNOWN ELEMENT: " + element);
+		}
+		System.out.println("FILTERED OUT COUNT: " + filteredOutCount);
+	}
+	
 	@Override
 	public void close() {
 		try {
-			streamReader.close();
-			inputStream.close();
+			zipper.shutdown();
+			
+			if (recordReader != null) {
+				recordReader.close();
+			}
 			
 			if (filesOpen) {
 				closeOutputFiles();
@@ -314,97 +308,86 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
+	
+	@Override
+	public void processRecord(GEOScanRecord record) throws Exception {
+		// items that aren't kept are dropped before anything is written for them
+		if (!gidFilter.contains(getGID(record))) {
+			filteredOutCount++;
+			return;
 		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
+		
+		startItem();
+		for (GEOScanElement element : record.getElements()) {
+			processMetadata(element);
+		}
+		endItem();
 	}
 	
-	public void processLine(String input) throws Exception {
-		try {		
-			if (StringUtils.isEmpty(input.trim())) {
-				return;
-			}
-			
-			if (StringUtils.trim(input).equals("<item>")) {
-				bibLevel = "";
-				firstDateSubmitted = true;
-				dateIssued = "";
-				lastDateUpdated = "";
-				secSerials = new HashMap<Integer, Integer>();
-				secSerialCount = 0;
-				uniqueSecSerialCount = 0;
-				secSerialNumberCount = 0;
-				geoScanId= "";
-				existingFundingCodes = new HashSet<String>();
-				existingProvinceCodes = new HashSet<String>();
-				existingDivisionCodes = new HashSet<String>();
-				existingSecSerialCodes = new HashSet<String>();
-				existingCountryCodes = new HashSet<String>();
-				existingAuthorCodes = new HashSet<String>();
-				existingAuthorACodes = new HashSet<String>();
-				existingMonoCorpAuthorCodes = new HashSet<String>();
-				existingCorpAuthorCodes = new HashSet<String>();
-				existingPublisherCodes = new HashSet<String>();
-				existingAreaCodes = new HashSet<String>();
-				bBoxes = new ArrayList<String>();
-				
-				if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
-					currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
-					itemCount = 0;
-				}
-				
-				currentItemPath = "item_" + String.format("%03d" , itemCount);
-				
-				path = outPath + "\\" + currentArchivePath + "\\" + currentItemPath;
-				//System.out.println("PATH: " + path);
-				
-				createDirectory(path);
-				openNewOutputFiles(path);
-				filesOpen = true;
-				beforeFirstItem = false;
-				return;
-			}
-			
-			if (StringUtils.trim(input).substring(0, Math.min(7, input.length())).equals("</item>")) {
-				printBBox();
-				printDateIssued();
-				closeOutputFiles();
-				filesOpen = false;
-				
-				if (itemCount == archiveSize) {
-					String directory = outPath + "\\" + currentArchivePath + "\\";
-					String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-					ZipDirectory.zipDirectory(directory, filename);			
-				}
-				
-				if (!gidList.contains(Integer.parseInt(geoScanId))) {
-					deleteDirectory(path);
-				} else {
-					itemCount++;
-				}
-				
-				return;
+	private void startItem() throws Exception {
+		bibLevel = "";
+		firstDateSubmitted = true;
+		dateIssued = "";
+		lastDateUpdated = "";
+		secSerials.clear();
+		secSerialCount = 0;
+		uniqueSecSerialCount = 0;
+		secSerialNumberCount = 0;
+		geoScanId= "";
+		existingFundingCodes.clear();
+		existingProvinceCodes.clear();
+		existingDivisionCodes.clear();
+		existingSecSerialCodes.clear();
+		existingCountryCodes.clear();
+		existingAuthorCodes.clear();
+		existingAuthorACodes.clear();
+		existingMonoCorpAuthorCodes.clear();
+		existingCorpAuthorCodes.clear();
+		existingPublisherCodes.clear();
+		existingAreaCodes.clear();
+		bBoxes.clear();
+		
+		if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
+			currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
+			archiveDirectory = OutputFiles.createArchiveDirectory(outPath, currentArchivePath);
+			itemCount = 0;
+		}
+		
+		currentItemPath = "item_" + String.format("%03d" , itemCount++);
+		
+		path = OutputFiles.createItemDirectory(archiveDirectory, currentItemPath);
+		openNewOutputFiles(path);
+		filesOpen = true;
+	}
+	
+	private void endItem() throws Exception {
+		printBBox();
+		printDateIssued();
+		closeOutputFiles();
+		filesOpen = false;
+		
+		if (itemCount == archiveSize) {
+			Path directory = archiveDirectory;
+			Path filename = outPath.resolve("archive_" + String.format("%03d" , archiveCount -1) + ".zip");
+			zipper.submit(directory, filename);			
+		}
+	}
+	
+	// the GID processElement would find, -1 when the item has none
+	private long getGID(GEOScanRecord record) {
+		String gid = "";
+		for (GEOScanElement element : record.getElements()) {
+			String line = element.getText();
+			if (element.getName().equalsIgnoreCase(ELEMENT_IDENTIFIER) && line.contains("GID")) {
+				gid = getElementIdentifier(line);
 			}
-			
-			if (!beforeFirstItem) {
-				processMetadata(input);
-			}	
-		} catch (Exception e) {
-			throw e;
 		}
+		return GidIndex.parseGid(gid);
 	}
 
-	private void processMetadata(String line) throws Exception {
-		Integer indexOfGT = line.indexOf(">");
-		Integer indexOfSpace = line.indexOf(" ");
-		
-		String element = line.substring(1, 
-				Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace));
+	private void processMetadata(GEOScanElement metadata) throws Exception {
+		String line = metadata.getText();
+		String element = metadata.getName();
 		
 		processElement(element.toLowerCase(), line);
 	}
@@ -426,6 +409,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		String value = "";
 		String language = "";
 		String qualifier = "";
+		MetadataTemplate.Escape escape = MetadataTemplate.Escape.NONE;
 		
 		switch (element) {
 			case ELEMENT_TYPE :
@@ -515,7 +499,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 				break;
 			case ELEMENT_ONLINE_URL :
 				value = getElementGeneric(line);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_PLAIN_LANGUAGE_SUMMARY_E :
 				value = getElementGeneric(line);
@@ -671,7 +655,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 			case ELEMENT_MEETING_NAME :
 				value = getElementGeneric(line);
 				value = replaceLTGT(value);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_MEETING_DATE :
 				value = getElementGeneric(line);
@@ -692,7 +676,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 				break;
 			case ELEMENT_RELATION_URL :
 				value = getElementRelationUrl(line);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_ALTERNATE_FORMAT :
 				value = getElementGeneric(line);
@@ -760,18 +744,19 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		
 		boolean isDCElement = true;
 		boolean isGeospatialElement = true;
-		String template = dcElementTemplates.get(element);
-		if (StringUtils.isEmpty(template)) {
+		MetadataTemplate template = dcElementTemplates.get(element);
+		if (template == null) {
 			isDCElement = false;
 			template = geospatialElementTemplates.get(element);
-			if (StringUtils.isEmpty(template)) {
+			if (template == null) {
 				isGeospatialElement = false;
 				template = nrcanElementTemplates.get(element);
 			}
 		}
 		
+		String output;
 		try {
-			template = template.replace(VALUE, value);
+			output = template.format(value, language, qualifier, escape);
 		} catch (Exception e) {
 			unknownElements.add(element);
 			if (element.contentEquals("fundinglegacy")) {
@@ -780,15 +765,12 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 			return;
 		}
 		
-		template = template.replace(LANGUAGE, language);
-		template = template.replace(QUALIFIER, qualifier);
-		
 		if (isDCElement) {
-			dublinCoreFileStream.println(template);
+			dublinCoreFileStream.println(output);
 		} else if (isGeospatialElement) {
-			geospatialFileStream.println(template);
+			geospatialFileStream.println(output);
 		} else {
-			nrcanFileStream.println(template);
+			nrcanFileStream.println(output);
 		}
 		
 	}
@@ -962,27 +944,13 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		relationshipsFileStream.println(output);
 	}
 	
-	private void createDirectory(String path) {
-		File theDir = new File(path);
-		if (!theDir.exists()){
-		    theDir.mkdirs();
-		}
-	}
-	
-	private void deleteDirectory(String path) {
-		File theDir = new File(path);
-		if (theDir.exists()){
-		    theDir.delete();
-		}
-	}
-	
-	private void openNewOutputFiles(String path) throws UnsupportedEncodingException {
-		contentsFileStream = getPrintStream(path + "\\contents");
-		relationshipsFileStream = getPrintStream(path + "\\relationships");
-		dublinCoreFileStream = getPrintStream(path + "\\dublin_core.xml");
-		dspaceFileStream = getPrintStream(path + "\\metadata_dspace.xml");
-		nrcanFileStream = getPrintStream(path + "\\metadata_nrcan.xml");
-		geospatialFileStream = getPrintStream(path + "\\metadata_geospatial.xml");
+	private void openNewOutputFiles(Path path) throws UnsupportedEncodingException {
+		contentsFileStream = OutputFiles.open(path.resolve("contents"));
+		relationshipsFileStream = OutputFiles.open(path.resolve("relationships"));
+		dublinCoreFileStream = OutputFiles.open(path.resolve("dublin_core.xml"));
+		dspaceFileStream = OutputFiles.open(path.resolve("metadata_dspace.xml"));
+		nrcanFileStream = OutputFiles.open(path.resolve("metadata_nrcan.xml"));
+		geospatialFileStream = OutputFiles.open(path.resolve("metadata_geospatial.xml"));
 		
 		initializeDSpaceFile();
 		initializeDublinCoreFile();
@@ -1026,107 +994,107 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 	}
 	
 	private void initializeElementTemplates() {
-		dcElementTemplates = new HashMap<String, String>();
+		dcElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		dcElementTemplates.put(ELEMENT_TITLE_A, "<dcvalue element=\"title\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_IDENTIFIER, "<dcvalue element=\"identifier\" qualifier=\"" + "##QUAL##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_LANGUAGE, "<dcvalue element=\"language\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_ABSTRACT, "<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_TYPE, "<dcvalue element=\"type\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, "<dcvalue element=\"subject\" qualifier=\"descriptor\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, "<dcvalue element=\"subject\" qualifier=\"geoscan\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, "<dcvalue element=\"subject\" qualifier=\"broad\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GC, "<dcvalue element=\"subject\" qualifier=\"gc\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, "<dcvalue element=\"subject\" qualifier=\"other\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RECORD_CREATED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_ISSUED, "<dcvalue element=\"date\" qualifier=\"issued\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, "<dcvalue element=\"date\" qualifier=\"available\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_UPDATED, "<dcvalue element=\"date\" qualifier=\"updated\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, "<dcvalue element=\"relation\" qualifier=\"replaces\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, "<dcvalue element=\"relation\" qualifier=\"accompanies\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, "<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, "<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, "<dcvalue element=\"relation\" qualifier=\"ispartof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, "<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, "<dcvalue element=\"relation\" qualifier=\"contains\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, "<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, "<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, "<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_TBD, "<dcvalue element=\"relation\" qualifier=\"\">" + VALUE + "</dcvalue>");
+		dcElementTemplates.put(ELEMENT_TITLE_A, MetadataTemplate.compile("<dcvalue element=\"title\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_IDENTIFIER, MetadataTemplate.compile("<dcvalue element=\"identifier\" qualifier=\"" + MetadataTemplate.QUALIFIER + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_LANGUAGE, MetadataTemplate.compile("<dcvalue element=\"language\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_TYPE, MetadataTemplate.compile("<dcvalue element=\"type\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"descriptor\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"geoscan\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"broad\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GC, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"gc\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"other\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RECORD_CREATED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_ISSUED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"issued\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"available\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_UPDATED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"updated\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"replaces\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"accompanies\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"ispartof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"contains\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_TBD, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
-		nrcanElementTemplates = new HashMap<String, String>();
+		nrcanElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		nrcanElementTemplates.put(ELEMENT_VOLUME, "<dcvalue element=\"volume\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ISSUE, "<dcvalue element=\"issue\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, "<dcvalue element=\"openaccess\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTRIBUTOR, "<dcvalue element=\"sourcesystem\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NTS, "<dcvalue element=\"nts\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, "<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, "<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, "<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FILE_TYPE, "<dcvalue element=\"filetype\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEDIA, "<dcvalue element=\"media\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_AREA_TEXT, "<dcvalue element=\"area\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, "<dcvalue element=\"abstract\" qualifier=\"language\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, "<dcvalue element=\"publication\" qualifier=\"externalurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SUMMARY, "<dcvalue element=\"summary\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NOTES, "<dcvalue element=\"notes\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOCTYPE, "<dcvalue element=\"legacy\" qualifier=\"doctype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, "<dcvalue element=\"policy\" qualifier=\"paae\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, "<dcvalue element=\"geopsurvey\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, "<dcvalue element=\"geography\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, "<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_EDITION, "<dcvalue element=\"edition\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_REF, "<dcvalue element=\"legacy\" qualifier=\"relationref\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, "<dcvalue element=\"articlenumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_E, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_F, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_THESIS, "<dcvalue element=\"legacy\" qualifier=\"thesis\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, "<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TITLE_M, "<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, "<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, "<dcvalue element=\"legacy\" qualifier=\"download\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, "<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MAP, "<dcvalue element=\"map\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, "<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, "<dcvalue element=\"meeting\" qualifier=\"name\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, "<dcvalue element=\"meeting\" qualifier=\"city\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, "<dcvalue element=\"meeting\" qualifier=\"country\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, "<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, "<dcvalue element=\"legacy\" qualifier=\"printdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_URL, "<dcvalue element=\"legacy\" qualifier=\"relationurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION, "<dcvalue element=\"legacy\" qualifier=\"relation\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, "<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_START, "<dcvalue element=\"meeting\" qualifier=\"startdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_END, "<dcvalue element=\"meeting\" qualifier=\"enddate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DIGITAL, "<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, "<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, "<dcvalue element=\"legacy\" qualifier=\"map\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, "<dcvalue element=\"reportnumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, "<dcvalue element=\"secserial\" qualifier=\"0number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, "<dcvalue element=\"secserial\" qualifier=\"1number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, "<dcvalue element=\"secserial\" qualifier=\"2number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, "<dcvalue element=\"secserial\" qualifier=\"3number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, "<dcvalue element=\"secserial\" qualifier=\"4number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, "<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, "<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, "<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, "<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_STATUS, "<dcvalue element=\"legacy\" qualifier=\"status\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IMAGE, "<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, "<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, "<dcvalue element=\"legacy\" qualifier=\"classification\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DURATION, "<dcvalue element=\"legacy\" qualifier=\"duration\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, "<dcvalue element=\"legacy\" qualifier=\"bbox\">" + VALUE + "</dcvalue>");
+		nrcanElementTemplates.put(ELEMENT_VOLUME, MetadataTemplate.compile("<dcvalue element=\"volume\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ISSUE, MetadataTemplate.compile("<dcvalue element=\"issue\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, MetadataTemplate.compile("<dcvalue element=\"openaccess\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONTRIBUTOR, MetadataTemplate.compile("<dcvalue element=\"sourcesystem\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NTS, MetadataTemplate.compile("<dcvalue element=\"nts\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_FILE_TYPE, MetadataTemplate.compile("<dcvalue element=\"filetype\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEDIA, MetadataTemplate.compile("<dcvalue element=\"media\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_AREA_TEXT, MetadataTemplate.compile("<dcvalue element=\"area\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"abstract\" qualifier=\"language\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, MetadataTemplate.compile("<dcvalue element=\"publication\" qualifier=\"externalurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SUMMARY, MetadataTemplate.compile("<dcvalue element=\"summary\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NOTES, MetadataTemplate.compile("<dcvalue element=\"notes\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOCTYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"doctype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"paae\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, MetadataTemplate.compile("<dcvalue element=\"geopsurvey\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, MetadataTemplate.compile("<dcvalue element=\"geography\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_EDITION, MetadataTemplate.compile("<dcvalue element=\"edition\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_REF, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationref\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, MetadataTemplate.compile("<dcvalue element=\"articlenumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_E, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_F, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_THESIS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thesis\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TITLE_M, MetadataTemplate.compile("<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"download\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MAP, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"name\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"city\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"country\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"printdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_URL, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relation\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_START, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"startdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_END, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"enddate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DIGITAL, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"map\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, MetadataTemplate.compile("<dcvalue element=\"reportnumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"0number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"1number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"2number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"3number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, MetadataTemplate.compile("<dcvalue element=\"secserial\" qualifier=\"4number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_STATUS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"status\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_IMAGE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"classification\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DURATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"duration\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"bbox\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 					
 		relationshipElements = new HashMap<String, Relationship>();
 		
@@ -1145,30 +1113,23 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		relationshipElements.put(ELEMENT_FUNDING, new Relationship(RELATIONSHIP_SPONSOR, ATTRIBUTE_SPONSOR_CODE));
 		relationshipElements.put(ELEMENT_SEC_SERIAL_CODE, new Relationship(RELATIONSHIP_SEC_SERIAL, ATTRIBUTE_SERIAL_CODE));
 		
-		geospatialElementTemplates = new HashMap<String, String>();
-		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, "<dcvalue element=\"polygon\" qualifier=\"degrees\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_COVERAGE, "<dcvalue element=\"polygon\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_BBOX, "<dcvalue element=\"bbox\" qualifier=\"\">" + VALUE + "</dcvalue>");
+		geospatialElementTemplates = new HashMap<String, MetadataTemplate>();
+		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"degrees\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_COVERAGE, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_BBOX, MetadataTemplate.compile("<dcvalue element=\"bbox\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
 		ignoredElements.add(ELEMENT_BIBLIOGRAPHIC_LEVEL);
 		
 	}
 	
 	private void printDateIssued() throws Exception {
-		String template = dcElementTemplates.get(ELEMENT_DATE_ISSUED);
 		if (StringUtils.isEmpty(dateIssued)) {
 			System.out.println("GID: " + geoScanId + " - No Date Issued");
 		}
-		template = template.replace(VALUE, dateIssued);
-		
-		dublinCoreFileStream.println(template);
+		dcElementTemplates.get(ELEMENT_DATE_ISSUED).println(dublinCoreFileStream, dateIssued);
 		
 		if (!StringUtils.isEmpty(lastDateUpdated)) {
-			template = dcElementTemplates.get(ELEMENT_DATE_UPDATED);
-
-			template = template.replace(VALUE, lastDateUpdated);
-			
-			dublinCoreFileStream.println(template);
+			dcElementTemplates.get(ELEMENT_DATE_UPDATED).println(dublinCoreFileStream, lastDateUpdated);
 		}
 		
 	}
@@ -1180,19 +1141,11 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 			
 			if (bBoxes.size() > 1) {
 				for (String val : bBoxes) {
-					String template = nrcanElementTemplates.get(ELEMENT_POLYGON_WENS);
-	
-					template = template.replace(VALUE, val);
-					
-					nrcanFileStream.println(template);
+					nrcanElementTemplates.get(ELEMENT_POLYGON_WENS).println(nrcanFileStream, val);
 				}
 			}
 			
-			String template = geospatialElementTemplates.get(ELEMENT_BBOX);
-
-			template = template.replace(VALUE, value);
-			
-			geospatialFileStream.println(template);
+			geospatialElementTemplates.get(ELEMENT_BBOX).println(geospatialFileStream, value);
 		}
 				
 	}
@@ -1485,11 +1438,7 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 	}
 	
 	private void printRelationPhotoElement(String value) {
-		String template = nrcanElementTemplates.get(ELEMENT_RELATION_PHOTO);
-
-		template = template.replace(VALUE, value);
-		
-		nrcanFileStream.println(template);
+		nrcanElementTemplates.get(ELEMENT_RELATION_PHOTO).println(nrcanFileStream, value);
 	}
 	
 	public List<String> getTokensWithCollection(String str) {
@@ -1601,24 +1550,16 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 			
 			// 1970
 			} else {
-				String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, value);
 				
-				template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, value);
 				
 				return;
 			}
 			
-			String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-			template = template.replace(VALUE, startDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, startDate.format(DateTimeFormatter.ISO_DATE));
 			
-			template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-			template = template.replace(VALUE, endDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, endDate.format(DateTimeFormatter.ISO_DATE));
 		
 		} catch (Exception e) {
 			System.out.println("GID: " + geoScanId + " - Meeting Date: " + value);
@@ -1653,146 +1594,4 @@ public class GEOScanFilteredFileProcessor implements FileProcessor {
 		return value;
 	}
 	
-	private void initGIDList() {
-		gidList.add(328560);
-		gidList.add(328974);
-		gidList.add(330701);
-		gidList.add(330702);
-		gidList.add(330714);
-		gidList.add(120927);
-		gidList.add(123244);
-		gidList.add(302707);
-		gidList.add(308081);
-		gidList.add(322158);
-		gidList.add(328484);
-		gidList.add(126998);
-		gidList.add(126998);
-		gidList.add(127000);
-		gidList.add(127000);
-		gidList.add(127249);
-		gidList.add(127249);
-		gidList.add(127251);
-		gidList.add(127251);
-		gidList.add(127353);
-		gidList.add(127353);
-		gidList.add(129002);
-		gidList.add(129002);
-		gidList.add(129004);
-		gidList.add(129004);
-		gidList.add(131320);
-		gidList.add(131320);
-		gidList.add(132475);
-		gidList.add(132475);
-		gidList.add(132476);
-		gidList.add(132476);
-		gidList.add(132477);
-		gidList.add(132477);
-		gidList.add(133947);
-		gidList.add(133947);
-		gidList.add(133949);
-		gidList.add(133949);
-		gidList.add(221508);
-		gidList.add(221508);
-		gidList.add(129226);
-		gidList.add(130389);
-		gidList.add(330388);
-		gidList.add(330500);
-		gidList.add(331238);
-		gidList.add(331272);
-		gidList.add(331276);
-		gidList.add(331703);
-		gidList.add(130292);
-		gidList.add(130903);
-		gidList.add(221104);
-		gidList.add(292009);
-		gidList.add(293509);
-		gidList.add(293530);
-		gidList.add(302381);
-		gidList.add(328722);
-		gidList.add(331240);
-		gidList.add(331316);
-		gidList.add(331549);
-		gidList.add(331550);
-		gidList.add(331551);
-		gidList.add(331555);
-		gidList.add(331625);
-		gidList.add(331628);
-		gidList.add(331702);
-		gidList.add(331704);
-		gidList.add(331705);
-		gidList.add(331706);
-		gidList.add(248258);
-		gidList.add(184171);
-		gidList.add(184171);
-		gidList.add(184172);
-		gidList.add(184172);
-		gidList.add(184173);
-		gidList.add(184173);
-		gidList.add(184174);
-		gidList.add(184174);
-		gidList.add(184175);
-		gidList.add(184175);
-		gidList.add(184176);
-		gidList.add(184176);
-		gidList.add(184177);
-		gidList.add(184177);
-		gidList.add(184178);
-		gidList.add(184178);
-		gidList.add(184179);
-		gidList.add(184179);
-		gidList.add(184180);
-		gidList.add(184180);
-		gidList.add(184181);
-		gidList.add(184181);
-		gidList.add(184182);
-		gidList.add(184182);
-		gidList.add(184183);
-		gidList.add(184183);
-		gidList.add(184184);
-		gidList.add(184184);
-		gidList.add(184185);
-		gidList.add(184185);
-		gidList.add(184186);
-		gidList.add(184186);
-		gidList.add(184187);
-		gidList.add(184187);
-		gidList.add(184188);
-		gidList.add(184188);
-		gidList.add(184190);
-		gidList.add(184190);
-		gidList.add(184191);
-		gidList.add(184191);
-		gidList.add(329464);
-		gidList.add(329547);
-		gidList.add(329855);
-		gidList.add(331712);
-		gidList.add(331713);
-		gidList.add(331878);
-		gidList.add(331879);
-		gidList.add(331896);
-		gidList.add(331910);
-		gidList.add(331913);
-		gidList.add(331914);
-		gidList.add(8469);
-		gidList.add(8473);
-		gidList.add(8475);
-		gidList.add(8478);
-		gidList.add(8479);
-		gidList.add(8480);
-		gidList.add(8481);
-		gidList.add(8482);
-		gidList.add(8550);
-		gidList.add(8558);
-		gidList.add(8598);
-		gidList.add(8599);
-		gidList.add(8601);
-		gidList.add(8610);
-		gidList.add(8611);
-		gidList.add(8613);
-		gidList.add(8615);
-		gidList.add(8616);
-		gidList.add(8618);
-		gidList.add(8752);		
-	}
-	
 }
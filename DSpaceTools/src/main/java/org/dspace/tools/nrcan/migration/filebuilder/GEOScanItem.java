@@ -0,0 +1,145 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Everything GEOScanFileProcessor builds for a single <item>. Output is held in memory so items
+// can be transformed on any thread and written out in input order afterwards. Items are reused once
+// written: clear() puts one back as it was new, keeping its collections and buffers.
+class GEOScanItem {
+
+	long sequence;
+	// byte offset just past the item in the export
+	long endOffset;
+	// null without a GID
+	FingerprintIndex.Fingerprint fingerprint;
+	// the last run wrote the item as it is, so it is left out
+	boolean unchanged = false;
+	// --filter doesn't select it, so nothing is built for it
+	boolean filteredOut = false;
+
+	String bibLevel = "";
+	boolean firstDateSubmitted = true;
+	String dateIssued = "";
+	String lastDateUpdated = "";
+	final Map<Integer, Integer> secSerials = new HashMap<Integer, Integer>();
+	int secSerialCount = 0;
+	int uniqueSecSerialCount = 0;
+	int secSerialNumberCount = 0;
+	String geoScanId = "";
+	boolean hasAsset = false;
+	final Set<String> existingFundingCodes = new HashSet<String>();
+	final Set<String> existingProvinceCodes = new HashSet<String>();
+	final Set<String> existingDivisionCodes = new HashSet<String>();
+	final Set<String> existingSecSerialCodes = new HashSet<String>();
+	final Set<String> existingCountryCodes = new HashSet<String>();
+	final Set<String> existingAuthorCodes = new HashSet<String>();
+	final Set<String> existingAuthorACodes = new HashSet<String>();
+	final Set<String> existingMonoCorpAuthorCodes = new HashSet<String>();
+	final Set<String> existingCorpAuthorCodes = new HashSet<String>();
+	final Set<String> existingPublisherCodes = new HashSet<String>();
+	final Set<String> existingAreaCodes = new HashSet<String>();
+	final Set<String> existingLanguageCodes = new HashSet<String>();
+	final List<String> bBoxes = new ArrayList<String>();
+	boolean itemComplete = false;
+	int completeCount = 0;
+	int authorCount = 0;
+	int monoAuthorCount = 0;
+	int bitstreamCount = 0;
+	String bitstreamPath = "";
+	final List<String> authors = new ArrayList<String>();
+	boolean linebreak = false;
+	final Set<String> unknownElements = new LinkedHashSet<String>();
+	final Set<String> statuses = new LinkedHashSet<String>();
+	// lines for the shared gids file and the console, replayed by the writer in item order
+	final List<String> gidLines = new ArrayList<String>();
+	final List<String> messages = new ArrayList<String>();
+
+	final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+	final ByteArrayOutputStream relationships = new ByteArrayOutputStream();
+	final ByteArrayOutputStream dublinCore = new ByteArrayOutputStream();
+	final ByteArrayOutputStream dspace = new ByteArrayOutputStream();
+	final ByteArrayOutputStream nrcan = new ByteArrayOutputStream();
+	final ByteArrayOutputStream geospatial = new ByteArrayOutputStream();
+
+	final PrintStream contentsFileStream;
+	final PrintStream relationshipsFileStream;
+	final PrintStream dublinCoreFileStream;
+	final PrintStream dspaceFileStream;
+	final PrintStream nrcanFileStream;
+	final PrintStream geospatialFileStream;
+
+	GEOScanItem(long sequence) {
+		this.sequence = sequence;
+		try {
+			contentsFileStream = new PrintStream(contents, false, StandardCharsets.UTF_8.toString());
+			relationshipsFileStream = new PrintStream(relationships, false, StandardCharsets.UTF_8.toString());
+			dublinCoreFileStream = new PrintStream(dublinCore, false, StandardCharsets.UTF_8.toString());
+			dspaceFileStream = new PrintStream(dspace, false, StandardCharsets.UTF_8.toString());
+			nrcanFileStream = new PrintStream(nrcan, false, StandardCharsets.UTF_8.toString());
+			geospatialFileStream = new PrintStream(geospatial, false, StandardCharsets.UTF_8.toString());
+		} catch (UnsupportedEncodingException ex) {
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+	}
+
+	void clear(long sequence) {
+		this.sequence = sequence;
+		endOffset = 0;
+		fingerprint = null;
+		unchanged = false;
+		filteredOut = false;
+
+		bibLevel = "";
+		firstDateSubmitted = true;
+		dateIssued = "";
+		lastDateUpdated = "";
+		secSerials.clear();
+		secSerialCount = 0;
+		uniqueSecSerialCount = 0;
+		secSerialNumberCount = 0;
+		geoScanId = "";
+		hasAsset = false;
+		existingFundingCodes.clear();
+		existingProvinceCodes.clear();
+		existingDivisionCodes.clear();
+		existingSecSerialCodes.clear();
+		existingCountryCodes.clear();
+		existingAuthorCodes.clear();
+		existingAuthorACodes.clear();
+		existingMonoCorpAuthorCodes.clear();
+		existingCorpAuthorCodes.clear();
+		existingPublisherCodes.clear();
+		existingAreaCodes.clear();
+		existingLanguageCodes.clear();
+		bBoxes.clear();
+		itemComplete = false;
+		completeCount = 0;
+		authorCount = 0;
+		monoAuthorCount = 0;
+		bitstreamCount = 0;
+		bitstreamPath = "";
+		authors.clear();
+		linebreak = false;
+		unknownElements.clear();
+		statuses.clear();
+		gidLines.clear();
+		messages.clear();
+
+		contents.reset();
+		relationships.reset();
+		dublinCore.reset();
+		dspace.reset();
+		nrcan.reset();
+		geospatial.reset();
+	}
+}
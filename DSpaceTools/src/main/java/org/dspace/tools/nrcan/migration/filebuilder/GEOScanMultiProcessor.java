@@ -0,0 +1,81 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
+
+// Reads a GEOScan export once for several jobs. Each record is parsed once and handed to every job
+// in turn, with the line break marker that job reads with, so each one sees what its own read of
+// the export would have given it. The jobs run on the reading thread.
+public class GEOScanMultiProcessor implements FileProcessor {
+
+	private final String inPath;
+	private final List<GEOScanRecordSink> sinks;
+	private GEOScanRecordSource recordReader;
+	private long recordCount = 0;
+
+	public GEOScanMultiProcessor(String inPath, List<GEOScanRecordSink> sinks) {
+		this.inPath = inPath;
+		this.sinks = sinks;
+	}
+
+	public void process() {
+		try {
+			for (GEOScanRecordSink sink : sinks) {
+				sink.open();
+			}
+
+			recordReader = GEOScanRecordReader.open(inPath, sinks.get(0).getLineBreakMarker());
+			GEOScanRecord record = recordReader.next();
+
+			while(record != null) {
+				for (GEOScanRecordSink sink : sinks) {
+					sink.processRecord(record.withLineBreakMarker(sink.getLineBreakMarker()));
+				}
+				recordCount++;
+				record = recordReader.next();
+			}
+
+			for (GEOScanRecordSink sink : sinks) {
+				sink.finish();
+			}
+			System.out.println("RECORDS READ: " + recordCount + " FOR " + sinks.size() + " TYPES");
+		}
+		catch(Exception ex) {
+			System.out.println(ex);
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+		finally {
+			close();
+		}
+	}
+
+	// every job is closed, even when one of them fails to
+	@Override
+	public void close() {
+		RuntimeException failure = null;
+		try {
+			if (recordReader != null) {
+				recordReader.close();
+			}
+		} catch(IOException ex) {
+			failure = new RuntimeException(ex.getMessage(), ex);
+		}
+		for (GEOScanRecordSink sink : sinks) {
+			try {
+				sink.close();
+			} catch(RuntimeException ex) {
+				if (failure == null) {
+					failure = ex;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
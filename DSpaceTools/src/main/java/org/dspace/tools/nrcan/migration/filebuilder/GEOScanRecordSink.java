@@ -0,0 +1,20 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+
+// A job that takes the records of a GEOScan export one at a time. On its own, process() reads the
+// export and feeds itself; GEOScanMultiProcessor reads it once and feeds several of them.
+public interface GEOScanRecordSink extends FileProcessor {
+
+	// what an empty line inside a value is replaced with in the records this job takes
+	String getLineBreakMarker();
+
+	// reads the side files and opens the outputs, before the first record
+	void open() throws Exception;
+
+	void processRecord(GEOScanRecord record) throws Exception;
+
+	// zips the last archive and reports the counts, after the last record
+	void finish() throws Exception;
+}
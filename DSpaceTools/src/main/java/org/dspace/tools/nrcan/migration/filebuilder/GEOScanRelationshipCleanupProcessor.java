@@ -1,18 +1,12 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -23,24 +17,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
-import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
 
-public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
+public class GEOScanRelationshipCleanupProcessor implements GEOScanRecordSink {
 
-	private FileInputStream inputStream;
-	private BufferedReader streamReader;
-	private FileInputStream mapInputStream;
-	private BufferedReader mapStreamReader;
-	private FileInputStream relInputStream;
-	private BufferedReader relStreamReader;
-	private FileInputStream placeInputStream;
-	private BufferedReader placeStreamReader;
+	private GEOScanRecordSource recordReader;
 	private PrintStream mappedOutputStream;
 	private String inPath;
 	private String outPath;
@@ -54,7 +51,6 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 	private String currentItemPath;
 	private String bibLevel;
 	private boolean filesOpen = false;
-	private boolean beforeFirstItem = true;
 	private PrintStream contentsFileStream;
 	private PrintStream relationshipsFileStream;
 	private PrintStream dublinCoreFileStream;
@@ -71,7 +67,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 	private boolean firstDateSubmitted = true;
 	private String dateIssued = "";
 	private String lastDateUpdated = "";
-	private Map<Integer, Integer> secSerials;
+	private final Map<Integer, Integer> secSerials = new HashMap<Integer, Integer>();
 	private int secSerialCount;
 	private int uniqueSecSerialCount;
 	private int secSerialNumberCount;
@@ -88,10 +84,13 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 	private Set<String> existingPublisherCodes = new HashSet<String>();
 	private Set<String> existingAreaCodes = new HashSet<String>();
 	private List<String> bBoxes = new ArrayList<String>();
-	private Map<String, String> gidMap = new HashMap<String, String>();
-	private Map<String, String> relMap = new HashMap<String, String>();
-	private Map<String, Integer> placeMap = new HashMap<String, Integer>();
+	private GidObjectTable gidTable;
+	private RelationTable relTable;
+	private PlaceTable placeTable;
+	private PlaceCounters placeCounters;
 	private Integer itemPlace = 0;
+	private ItemRelations itemRelations;
+	private int threads = 1;
 	
 	private static final String VALUE = "##VALUE##";
 	private static final String LANGUAGE = "##LANG##";
@@ -248,59 +247,65 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		this.mapPath = mapPath;
 		this.relPath = relPath;
 		this.placePath = placePath;
+		
+		if (!StringUtils.isEmpty(cmd.getOptionValue(MigrationFileBuilder.OPT_THREADS))) {
+			this.threads = Integer.parseInt(cmd.getOptionValue(MigrationFileBuilder.OPT_THREADS));
+		}
+	}
+	
+	// a processor for a worker thread, with item state of its own over the same tables
+	private GEOScanRelationshipCleanupProcessor(GEOScanRelationshipCleanupProcessor shared) {
+		this.inPath = shared.inPath;
+		this.outPath = shared.outPath;
+		this.mapPath = shared.mapPath;
+		this.relPath = shared.relPath;
+		this.placePath = shared.placePath;
+		this.gidTable = shared.gidTable;
+		this.relTable = shared.relTable;
+		this.relationshipElements = shared.relationshipElements;
+	}
+	
+	// An author of an item and the entity it relates to, which takes its place when it's written
+	private static class AuthorRelation {
+		
+		final String objectId;
+		final int relEntry;
+		final String relatedObjectId;
+		final int itemPlace;
+		
+		AuthorRelation(String objectId, int relEntry, String relatedObjectId, int itemPlace) {
+			this.objectId = objectId;
+			this.relEntry = relEntry;
+			this.relatedObjectId = relatedObjectId;
+			this.itemPlace = itemPlace;
+		}
+	}
+	
+	// What an item leaves for the writer: its author relations, and the messages it has for the
+	// console, printed as the item is written so they come out in item order whatever thread read it
+	private static class ItemRelations {
+		
+		final List<AuthorRelation> relations = new ArrayList<AuthorRelation>();
+		final List<String> messages = new ArrayList<String>();
 	}
 	
 	public void process() {
 		try {
+			open();
 			
-			// GID to DSpace Object ID of Item
-			readMapFile();
-			System.out.println("GID map read");
-			// Text of Entity to DSpace Object ID of Config Entity
-			readRelFile();
-			System.out.println("Config Entity map read");
-			// DSpace Object ID of Config Entity to Place Num
-			readPlaceFile();
-			System.out.println("Place map read");
-			initializeRelationships();
-			System.out.println("Relationships initialized");
-			
-			inputStream = new FileInputStream(inPath);
-			streamReader = new BufferedReader(new InputStreamReader(inputStream));
-	
-			mappedOutputStream = getPrintStream(outPath + "/output.csv");
-			
-			String line = streamReader.readLine();
-			String nextLine;
-			
-			while(line != null) {
-				nextLine = streamReader.readLine();
-				if (nextLine == null) {
-					processLine(line);
-				} else {
-					if (!nextLine.startsWith("<")) {
-						while (nextLine != null && !nextLine.startsWith("<")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						if (nextLine != null && nextLine.startsWith("</") && !nextLine.startsWith("</item")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						processLine(line);
-					} else if (nextLine.startsWith("</item>")) {
-						processLine(line);
-					} else if (nextLine.startsWith("</")) {
-						line = line + nextLine;
-						processLine(line);
-						nextLine = streamReader.readLine();
-					} else {
-						processLine(line);
-					}
+			recordReader = GEOScanRecordReader.open(inPath, getLineBreakMarker());
+			if (threads > 1) {
+				processRecordsInParallel();
+			} else {
+				GEOScanRecord record = recordReader.next();
+				
+				while(record != null) {
+					processRecord(record);
+					record = recordReader.next();
 				}
-				line = nextLine;
 			}
 			
+			finish();
 		}
 		catch(Exception ex) {
 			System.out.println(ex);
@@ -311,18 +316,58 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		}		
 	}
 	
-	private void readMapFile() throws IOException {
+	@Override
+	public String getLineBreakMarker() {
+		return "";
+	}
+	
+	@Override
+	public void open() throws Exception {
+		readLookupFiles();
+		placeCounters = new PlaceCounters(relTable, placeTable);
+		initializeRelationships();
+		System.out.println("Relationships initialized");
+		
+		mappedOutputStream = OutputFiles.open(OutputFiles.resolve(outPath).resolve("output.csv"));
+	}
+	
+	@Override
+	public void finish() {
+	}
+	
+	// The three files don't depend on each other, so the ones without a snapshot to map are read at once
+	void readLookupFiles() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
 		try {
-			mapInputStream = new FileInputStream(mapPath);
-			mapStreamReader = new BufferedReader(new InputStreamReader(mapInputStream));
-			
-			String line = mapStreamReader.readLine();
-			
-			while(line != null) {
-				processMapFileLine(line);
-				line = mapStreamReader.readLine();;
-			}
+			// GID to DSpace Object ID of Item
+			Future<?> map = executor.submit(() -> { readMapFile(); return null; });
+			// Text of Entity to DSpace Object ID of Config Entity
+			Future<?> rel = executor.submit(() -> { readRelFile(); return null; });
+			// DSpace Object ID of Config Entity to Place Num
+			Future<?> place = executor.submit(() -> { readPlaceFile(); return null; });
 			
+			waitFor(map);
+			System.out.println("GID map read");
+			waitFor(rel);
+			System.out.println("Config Entity map read");
+			waitFor(place);
+			System.out.println("Place map read");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static void waitFor(Future<?> future) throws Exception {
+		try {
+			future.get();
+		} catch (ExecutionException ex) {
+			throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+		}
+	}
+	
+	void readMapFile() throws IOException {
+		try {
+			gidTable = GidObjectTable.load(mapPath);
 		} catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
@@ -330,145 +375,144 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 
 	}
 
-	private void processMapFileLine(String line) throws IOException {
-		line = line.replace("\"", "");
-		String gid = line.substring(0, line.indexOf(","));
-		String id = line.substring(line.indexOf(",") + 1);
-		
-		gidMap.put(gid, id);
-	}
 	
-	private void readRelFile() throws IOException {
+	void readRelFile() throws IOException {
 		try {
-			relInputStream = new FileInputStream(relPath);
-			relStreamReader = new BufferedReader(new InputStreamReader(relInputStream));
-			
-			String line = relStreamReader.readLine();
-			
-			while(line != null) {
-				processRelFileLine(line);
-				line = relStreamReader.readLine();;
-			}
-			
+			relTable = RelationTable.load(relPath);
 		} catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 
 	}
-
-	private void processRelFileLine(String line) throws IOException {
-		line = line.replace("\"", "");
-		String id = line.substring(0, line.indexOf(","));
-		String text = line.substring(line.indexOf(",") + 1);
-		
-		relMap.put(text, id);
-	}
 	
-	private void readPlaceFile() throws IOException {
+	void readPlaceFile() throws IOException {
 		try {
-			placeInputStream = new FileInputStream(placePath);
-			placeStreamReader = new BufferedReader(new InputStreamReader(placeInputStream));
-			
-			String line = placeStreamReader.readLine();
-			
-			while(line != null) {
-				processPlaceFileLine(line);
-				line = placeStreamReader.readLine();;
-			}
-			
+			placeTable = PlaceTable.load(placePath);
 		} catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 
 	}
-
-	private void processPlaceFileLine(String line) throws IOException {
-		line = line.replace("\"", "");
-		String id = line.substring(0, line.indexOf(","));
-		int place = Integer.parseInt(line.substring(line.indexOf(",") + 1));
-		
-		placeMap.put(id, place);
-	}
 	
 	@Override
 	public void close() {
 		try {
-			placeStreamReader.close();
-			placeInputStream.close();	
-			relStreamReader.close();
-			relInputStream.close();	
-			mapStreamReader.close();
-			mapInputStream.close();	
-			streamReader.close();
-			inputStream.close();
-			
+			if (recordReader != null) {
+				recordReader.close();
+			}
+			if (mappedOutputStream != null) {
+				mappedOutputStream.close();
+			}
 		}
 		catch(IOException ex) {
 			throw new RuntimeException(ex.getMessage(), ex);
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
-		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
+	
+	@Override
+	public void processRecord(GEOScanRecord record) throws Exception {
+		writeRelations(readRelations(record));
 	}
 	
-	public void processLine(String input) throws Exception {
-		try {		
-			if (StringUtils.isEmpty(input.trim())) {
-				return;
-			}
+	// Reads on this thread, finds the relations of items on the worker pool and writes them on a
+	// single writer thread. The writer takes items in the order they were read and places are taken
+	// as they are written, so the output matches a single threaded run.
+	private void processRecordsInParallel() throws Exception {
+		ThreadLocal<GEOScanRelationshipCleanupProcessor> readers = ThreadLocal.withInitial(() -> new GEOScanRelationshipCleanupProcessor(this));
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		Semaphore itemsInFlight = new Semaphore(threads * 4);
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		
+		try {
+			GEOScanRecord record = recordReader.next();
 			
-			if (StringUtils.trim(input).equals("<item>")) {
-				bibLevel = "";
-				firstDateSubmitted = true;
-				dateIssued = "";
-				lastDateUpdated = "";
-				secSerials = new HashMap<Integer, Integer>();
-				secSerialCount = 0;
-				uniqueSecSerialCount = 0;
-				secSerialNumberCount = 0;
-				geoScanId= "";
-				existingFundingCodes = new HashSet<String>();
-				existingProvinceCodes = new HashSet<String>();
-				existingDivisionCodes = new HashSet<String>();
-				existingSecSerialCodes = new HashSet<String>();
-				existingCountryCodes = new HashSet<String>();
-				existingAuthorCodes = new HashSet<String>();
-				existingAuthorACodes = new HashSet<String>();
-				existingMonoCorpAuthorCodes = new HashSet<String>();
-				existingCorpAuthorCodes = new HashSet<String>();
-				existingPublisherCodes = new HashSet<String>();
-				existingAreaCodes = new HashSet<String>();
-				bBoxes = new ArrayList<String>();
-				itemPlace = 0;
-				beforeFirstItem = false;
+			while(record != null && failure.get() == null) {
+				itemsInFlight.acquire();
 				
-				return;
-			}
-			
-			if (!beforeFirstItem) {
-				processMetadata(input);
+				final GEOScanRecord current = record;
+				final Future<ItemRelations> relations = workers.submit(() -> readers.get().readRelations(current));
+				writer.submit(() -> {
+					try {
+						if (failure.get() == null) {
+							writeRelations(relations.get());
+						}
+					} catch (Exception ex) {
+						failure.compareAndSet(null, ex);
+					} finally {
+						itemsInFlight.release();
+					}
+				});
+				
+				record = recordReader.next();
 			}
-			
-		} catch (Exception e) {
-			throw e;
+		} finally {
+			workers.shutdown();
+			writer.shutdown();
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
 		}
-	}
-
-	private void processMetadata(String line) throws Exception {
-		Integer indexOfGT = line.indexOf(">");
-		Integer indexOfSpace = line.indexOf(" ");
 		
-		String element = line.substring(1, 
-				Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace));
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+	
+	// the author relations of an item, still without their places
+	private ItemRelations readRelations(GEOScanRecord record) throws Exception {
+		startItem();
+		for (GEOScanElement element : record.getElements()) {
+			processMetadata(element);
+		}
+		return itemRelations;
+	}
+	
+	private void writeRelations(ItemRelations item) {
+		for (String message : item.messages) {
+			System.out.println(message);
+		}
+		for (AuthorRelation relation : item.relations) {
+			int place = placeCounters.take(relation.relEntry);
+			mappedOutputStream.println(relation.objectId + "," + relation.relatedObjectId + "," + relation.itemPlace + "," + place);
+		}
+	}
+	
+	private void startItem() throws Exception {
+		bibLevel = "";
+		firstDateSubmitted = true;
+		dateIssued = "";
+		lastDateUpdated = "";
+		secSerials.clear();
+		secSerialCount = 0;
+		uniqueSecSerialCount = 0;
+		secSerialNumberCount = 0;
+		geoScanId= "";
+		existingFundingCodes.clear();
+		existingProvinceCodes.clear();
+		existingDivisionCodes.clear();
+		existingSecSerialCodes.clear();
+		existingCountryCodes.clear();
+		existingAuthorCodes.clear();
+		existingAuthorACodes.clear();
+		existingMonoCorpAuthorCodes.clear();
+		existingCorpAuthorCodes.clear();
+		existingPublisherCodes.clear();
+		existingAreaCodes.clear();
+		bBoxes.clear();
+		itemPlace = 0;
+		itemRelations = new ItemRelations();
+	}
+	
+	// a message about the item being read, for writeRelations to print
+	private void log(String message) {
+		itemRelations.messages.add(message);
+	}
+	
+	private void processMetadata(GEOScanElement metadata) throws Exception {
+		String line = metadata.getText();
+		String element = metadata.getName();
 		
 		String output = processElement(element.toLowerCase(), line);
 		if (StringUtils.isEmpty(output)) {
@@ -483,28 +527,22 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		}
 		
 		if (element.contentEquals(ELEMENT_AUTHOR_A)) {
-			if (gidMap.containsKey(geoScanId)) {
-				String objectId = gidMap.get(geoScanId);
-				String relatedObjectId = relMap.get(value);
+			int entry = gidTable.find(geoScanId);
+			if (entry >= 0) {
+				String objectId = gidTable.getObjectId(entry);
+				int relEntry = relTable.find(value);
 				
-				if (relatedObjectId == null) {
-					String newValue = value.substring(0, value.lastIndexOf("_") + 1);
-					relatedObjectId = relMap.get(newValue);
-					if (relatedObjectId == null) {
-						System.out.println("ERROR: " + value + " not found - ID: " + objectId);
+				if (relEntry < 0) {
+					// the key without its last part, looked up in place
+					relEntry = relTable.find(value, value.lastIndexOf("_") + 1);
+					if (relEntry < 0) {
+						log("ERROR: " + value + " not found - ID: " + objectId);
 					}
 				}
-
-				Integer place = placeMap.get(relatedObjectId);
-				if (place == null) {
-					place = 0;
-				} else {
-					place++;
-				}
-				mappedOutputStream.println(objectId + "," + relatedObjectId + "," + itemPlace + "," + place);
+				String relatedObjectId = relEntry < 0 ? null : relTable.getObjectId(relEntry);
+				itemRelations.relations.add(new AuthorRelation(objectId, relEntry, relatedObjectId, itemPlace));
 				
 				itemPlace++;
-				placeMap.put(relatedObjectId, place);
 			}			
 		}		
 		
@@ -867,7 +905,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 			value = getElementGeneric(line);
 			value = value.toUpperCase();
 			if (existingPublisherCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Publishers?");
+				log("GID: " + geoScanId + " - Duplicate Publishers?");
 				break;
 			} else {
 				existingPublisherCodes.add(value);
@@ -876,7 +914,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		case ELEMENT_AUTHOR_A :
 			value = getAuthorMigrationId(line);
 			if (existingAuthorACodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Authors?");
+				log("GID: " + geoScanId + " - Duplicate Authors?");
 				break;
 			} else {
 				existingAuthorACodes.add(value);
@@ -885,7 +923,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		case ELEMENT_AUTHOR_M :
 			value = getAuthorMigrationId(line);
 			if (existingAuthorCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Authors?");
+				log("GID: " + geoScanId + " - Duplicate Authors?");
 				break;
 			} else {
 				existingAuthorCodes.add(value);
@@ -936,7 +974,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 			value = getElementGeneric(line);
 			value = replaceAmp(value);
 			if (existingCorpAuthorCodes.contains(value)) {
-				System.out.println("GID: " + geoScanId + " - Duplicate Corp Authors?");
+				log("GID: " + geoScanId + " - Duplicate Corp Authors?");
 				break;
 			} else {
 				existingCorpAuthorCodes.add(value);
@@ -948,14 +986,14 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 			if (bibLevel.toLowerCase().contentEquals("m")) {
 				element = ELEMENT_CORP_AUTHOR_A;
 				if (existingCorpAuthorCodes.contains(value)) {
-					System.out.println("GID: " + geoScanId + " - Duplicate Corp Authors?");
+					log("GID: " + geoScanId + " - Duplicate Corp Authors?");
 					break;
 				} else {
 					existingCorpAuthorCodes.add(value);
 				}
 			} else {							
 				if (existingMonoCorpAuthorCodes.contains(value)) {
-					System.out.println("GID: " + geoScanId + " - Duplicate Mono Corp Authors?");
+					log("GID: " + geoScanId + " - Duplicate Mono Corp Authors?");
 					break;
 				} else {
 					existingMonoCorpAuthorCodes.add(value);
@@ -991,7 +1029,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 	private void printDateIssued() throws Exception {
 		String template = dcElementTemplates.get(ELEMENT_DATE_ISSUED);
 		if (StringUtils.isEmpty(dateIssued)) {
-			System.out.println("GID: " + geoScanId + " - No Date Issued");
+			log("GID: " + geoScanId + " - No Date Issued");
 		}
 		template = template.replace(VALUE, dateIssued);
 		
@@ -1082,7 +1120,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 		try {
 			return line.substring(line.indexOf(">") + 1, line.substring(1).indexOf("<") + 1);
 		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - Line: " + line);
+			log("GID: " + geoScanId + " - Line: " + line);
 			return "";
 		}		
 	}
@@ -1242,7 +1280,7 @@ public class GEOScanRelationshipCleanupProcessor implements FileProcessor {
 			}
 			return program + " - " + project + " - " + url;
 		} catch (Exception e) {
-			System.out.println("GID: " + geoScanId + " - FundingLegacy: " + line);
+			log("GID: " + geoScanId + " - FundingLegacy: " + line);
 			return null;
 		}
 	}
@@ -0,0 +1,62 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+// A set of GIDs kept as one bit per GID. GIDs are small and dense enough that a filter with every
+// GID in GEOScan is a few hundred kilobytes, and a lookup is a single bit test.
+public class GidFilter {
+
+	private final BitSet gids;
+
+	private GidFilter(BitSet gids) {
+		this.gids = gids;
+	}
+
+	// the built in list when path is empty
+	public static GidFilter load(String path, Class<?> owner, String resource) throws IOException {
+		if (path == null || path.isEmpty()) {
+			InputStream inputStream = owner.getResourceAsStream(resource);
+			if (inputStream == null) {
+				throw new IOException("Missing GID list " + resource);
+			}
+			return read(inputStream);
+		}
+		return read(new FileInputStream(path));
+	}
+
+	// one GID per line, blank lines and lines starting with # are skipped
+	public static GidFilter read(InputStream inputStream) throws IOException {
+		BitSet gids = new BitSet();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+			String line = reader.readLine();
+			while (line != null) {
+				String trimmed = line.trim();
+				if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+					long gid = GidIndex.parseGid(trimmed);
+					if (gid < 0 || gid > Integer.MAX_VALUE) {
+						throw new IllegalArgumentException("Not a GID: " + trimmed);
+					}
+					gids.set((int) gid);
+				}
+				line = reader.readLine();
+			}
+		}
+
+		return new GidFilter(gids);
+	}
+
+	public boolean contains(long gid) {
+		return gid >= 0 && gid <= Integer.MAX_VALUE && gids.get((int) gid);
+	}
+
+	public int size() {
+		return gids.cardinality();
+	}
+}
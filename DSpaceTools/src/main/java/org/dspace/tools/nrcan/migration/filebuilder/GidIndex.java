@@ -0,0 +1,210 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
+
+// Where every item of an export starts, by GID, so a few items can be read without going through
+// the rest. It lives next to the export and is mapped rather than read. Entries are four longs,
+// sorted by GID, after a header that says which export they were made from:
+//
+//   magic, version, export length, export last modified, entry count
+//   gid, offset of the <item> line, length, record number
+public class GidIndex {
+
+	public static final String EXTENSION = ".gidx";
+
+	private static final int MAGIC = 0x47494458;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int ENTRY_LONGS = 4;
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private static final String GID = "info:GID/";
+	private static final String IDENTIFIER = "dc:identifier";
+
+	private final LongBuffer entries;
+	private final int size;
+
+	private GidIndex(LongBuffer entries, int size) {
+		this.entries = entries;
+		this.size = size;
+	}
+
+	public static String pathFor(String exportPath) {
+		return exportPath + EXTENSION;
+	}
+
+	// the index of the export, built first when there is none or the export changed since
+	public static GidIndex load(String exportPath) throws IOException {
+		GidIndex index = open(exportPath);
+		if (index == null) {
+			System.out.println("BUILDING GID INDEX " + pathFor(exportPath));
+			build(exportPath);
+			index = open(exportPath);
+		}
+		return index;
+	}
+
+	// null when the index is missing or was made from another version of the export
+	public static GidIndex open(String exportPath) throws IOException {
+		File export = new File(exportPath);
+		File indexFile = new File(pathFor(exportPath));
+		if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+			return null;
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+			if (file.readInt() != MAGIC || file.readInt() != VERSION
+					|| file.readLong() != export.length() || file.readLong() != export.lastModified()) {
+				return null;
+			}
+			long size = file.readLong();
+			if (file.length() != HEADER_SIZE + size * ENTRY_LONGS * 8) {
+				return null;
+			}
+			// the mapping stays valid once the file is closed
+			ByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, file.length() - HEADER_SIZE);
+			return new GidIndex(mapped.asLongBuffer(), (int) size);
+		}
+	}
+
+	// Reads the export once and writes its index, replacing any earlier one in one step. Items
+	// without a numeric GID can't be asked for and are left out.
+	public static int build(String exportPath) throws IOException {
+		File export = new File(exportPath);
+		long exportLength = export.length();
+		long exportModified = export.lastModified();
+
+		long[] gids = new long[1024];
+		long[] offsets = new long[1024];
+		long[] lengths = new long[1024];
+		long[] sequences = new long[1024];
+		int size = 0;
+		int skipped = 0;
+
+		try (GEOScanRecordSource reader = GEOScanRecordReader.open(exportPath, "")) {
+			GEOScanRecord record = reader.next();
+			while (record != null) {
+				long gid = gidOf(record);
+				if (gid < 0) {
+					skipped++;
+				} else {
+					if (size == gids.length) {
+						gids = Arrays.copyOf(gids, size * 2);
+						offsets = Arrays.copyOf(offsets, size * 2);
+						lengths = Arrays.copyOf(lengths, size * 2);
+						sequences = Arrays.copyOf(sequences, size * 2);
+					}
+					gids[size] = gid;
+					offsets[size] = record.getOffset();
+					lengths[size] = record.getLength();
+					sequences[size] = record.getSequence();
+					size++;
+				}
+				record = reader.next();
+			}
+		}
+
+		// a GID in the export twice keeps both, in export order
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		final long[] keys = gids;
+		Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+		String path = pathFor(exportPath);
+		String tempPath = path + ".tmp";
+		try (DataOutputStream output = new DataOutputStream(OutputFiles.openStream(Paths.get(tempPath), BUFFER_SIZE))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(exportLength);
+			output.writeLong(exportModified);
+			output.writeLong(size);
+			for (int i : order) {
+				output.writeLong(gids[i]);
+				output.writeLong(offsets[i]);
+				output.writeLong(lengths[i]);
+				output.writeLong(sequences[i]);
+			}
+		}
+		Files.move(Paths.get(tempPath), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+
+		if (skipped > 0) {
+			System.out.println("ITEMS WITHOUT A GID: " + skipped);
+		}
+		return size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// position of the first entry for the GID, -1 when the export doesn't have it
+	public int find(long gid) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getGid(middle) < gid) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low < size && getGid(low) == gid ? low : -1;
+	}
+
+	public long getGid(int position) {
+		return entries.get(position * ENTRY_LONGS);
+	}
+
+	public long getOffset(int position) {
+		return entries.get(position * ENTRY_LONGS + 1);
+	}
+
+	public long getLength(int position) {
+		return entries.get(position * ENTRY_LONGS + 2);
+	}
+
+	public long getSequence(int position) {
+		return entries.get(position * ENTRY_LONGS + 3);
+	}
+
+	// -1 for a record without a numeric GID
+	private static long gidOf(GEOScanRecord record) {
+		for (GEOScanElement element : record.getElements()) {
+			String text = element.getText();
+			if (element.getName().equalsIgnoreCase(IDENTIFIER) && text.contains(GID)) {
+				int start = text.indexOf(GID) + GID.length();
+				int end = text.indexOf('<', start);
+				return parseGid(end < 0 ? text.substring(start) : text.substring(start, end));
+			}
+		}
+		return -1;
+	}
+
+	// -1 when the text isn't a GID
+	public static long parseGid(String text) {
+		try {
+			long gid = Long.parseLong(text.trim());
+			return gid < 0 ? -1 : gid;
+		} catch(NumberFormatException ex) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import org.apache.commons.cli.CommandLine;
+import org.dspace.tools.nrcan.FileProcessor;
+
+// Builds the GID index of an export ahead of a --gids run, which would otherwise build it first.
+// The index goes next to the export, so -o is not used.
+public class GidIndexBuilder implements FileProcessor {
+
+	private final String inPath;
+
+	public GidIndexBuilder(String inPath, CommandLine cmd) {
+		this.inPath = inPath;
+	}
+
+	public void process() {
+		try {
+			long start = System.currentTimeMillis();
+			int size = GidIndex.build(inPath);
+			System.out.println("INDEXED " + size + " ITEMS TO " + GidIndex.pathFor(inPath)
+					+ " IN " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch(Exception ex) {
+			System.out.println(ex);
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+}
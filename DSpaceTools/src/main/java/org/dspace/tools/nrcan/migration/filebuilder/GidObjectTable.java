@@ -0,0 +1,319 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The DSpace object of every GEOScan item, read from the "gid","uuid" map file DSpace exports. GIDs
+// are kept as a sorted int[] and the UUIDs as two parallel longs, 20 bytes an entry, and a lookup
+// is a binary search over the GID's digits that doesn't allocate. The odd line that isn't a GID and
+// a lower case UUID, like a header, goes in a small map on the side, so every line still finds what
+// it found in a HashMap, with the last line for a GID winning. The arrays are saved as a snapshot
+// next to the map file, which later runs map rather than read the file again.
+public class GidObjectTable {
+
+	private static final int SNAPSHOT_KIND = 1;
+	private static final int UUID_LENGTH = 36;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final int size;
+	private final IntBuffer gids;
+	private final LongBuffer mostSignificant;
+	private final LongBuffer leastSignificant;
+	// entries after the sorted ones
+	private final Map<String, Integer> otherEntries;
+	private final List<String> otherIds;
+
+	private GidObjectTable(IntBuffer gids, LongBuffer mostSignificant, LongBuffer leastSignificant, Map<String, Integer> otherEntries, List<String> otherIds) {
+		this.size = gids.limit();
+		this.gids = gids;
+		this.mostSignificant = mostSignificant;
+		this.leastSignificant = leastSignificant;
+		this.otherEntries = otherEntries;
+		this.otherIds = otherIds;
+	}
+
+	// from the snapshot of the map file, made first when there is none or the file changed since
+	public static GidObjectTable load(String path) throws IOException {
+		TableSnapshot.Input snapshot = TableSnapshot.open(Paths.get(path), SNAPSHOT_KIND);
+		if (snapshot != null) {
+			return read(snapshot);
+		}
+		TableSnapshot.Source source = TableSnapshot.read(Paths.get(path));
+		GidObjectTable table = read(source);
+		TableSnapshot.write(source, SNAPSHOT_KIND, table::write);
+		return table;
+	}
+
+	public static GidObjectTable read(InputStream inputStream) throws IOException {
+		Builder builder = new Builder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+			String line = reader.readLine();
+			while (line != null) {
+				builder.add(line);
+				line = reader.readLine();
+			}
+		}
+		return builder.build();
+	}
+
+	private static GidObjectTable read(TableSnapshot.Input input) {
+		int size = input.readInt();
+		int otherSize = input.readInt();
+		IntBuffer gids = input.readInts(size);
+		LongBuffer mostSignificant = input.readLongs(size);
+		LongBuffer leastSignificant = input.readLongs(size);
+		IntBuffer otherEntryIds = input.readInts(otherSize);
+		StringTable otherKeys = StringTable.read(input);
+		StringTable otherIdTable = StringTable.read(input);
+
+		Map<String, Integer> otherEntries = new HashMap<String, Integer>();
+		for (int i = 0; i < otherSize; i++) {
+			otherEntries.put(otherKeys.get(i), otherEntryIds.get(i));
+		}
+		List<String> otherIds = new ArrayList<String>();
+		for (int i = 0; i < otherIdTable.size(); i++) {
+			otherIds.add(otherIdTable.get(i));
+		}
+		return new GidObjectTable(gids, mostSignificant, leastSignificant, otherEntries, otherIds);
+	}
+
+	private void write(DataOutputStream output) throws IOException {
+		List<String> otherKeys = new ArrayList<String>(otherEntries.keySet());
+		output.writeInt(size);
+		output.writeInt(otherKeys.size());
+		TableSnapshot.align(output);
+		for (int i = 0; i < size; i++) {
+			output.writeInt(gids.get(i));
+		}
+		TableSnapshot.align(output);
+		for (int i = 0; i < size; i++) {
+			output.writeLong(mostSignificant.get(i));
+		}
+		for (int i = 0; i < size; i++) {
+			output.writeLong(leastSignificant.get(i));
+		}
+		TableSnapshot.align(output);
+		for (String key : otherKeys) {
+			output.writeInt(otherEntries.get(key));
+		}
+		StringTable.of(otherKeys).write(output);
+		StringTable.of(otherIds).write(output);
+	}
+
+	public int size() {
+		return size + otherIds.size();
+	}
+
+	// the entry for the GID, -1 when the map doesn't have it
+	public int find(String gid) {
+		int value = parseGid(gid, 0, gid.length(), false);
+		if (value >= 0) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int middleGid = gids.get(middle);
+				if (middleGid < value) {
+					low = middle + 1;
+				} else if (middleGid > value) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+		}
+		if (otherEntries.isEmpty()) {
+			return -1;
+		}
+		Integer other = otherEntries.get(gid);
+		return other == null ? -1 : size + other;
+	}
+
+	public String getObjectId(int entry) {
+		if (entry >= size) {
+			return otherIds.get(entry - size);
+		}
+		long most = mostSignificant.get(entry);
+		long least = leastSignificant.get(entry);
+		char[] uuid = new char[UUID_LENGTH];
+		int position = formatHex(most, 60, 8, uuid, 0);
+		uuid[position++] = '-';
+		position = formatHex(most, 28, 4, uuid, position);
+		uuid[position++] = '-';
+		position = formatHex(most, 12, 4, uuid, position);
+		uuid[position++] = '-';
+		position = formatHex(least, 60, 4, uuid, position);
+		uuid[position++] = '-';
+		formatHex(least, 44, 12, uuid, position);
+		return new String(uuid);
+	}
+
+	private static int formatHex(long value, int shift, int digits, char[] chars, int position) {
+		for (int i = 0; i < digits; i++) {
+			chars[position++] = HEX[(int) (value >>> (shift - i * 4)) & 0xF];
+		}
+		return position;
+	}
+
+	// A GID written the one way Integer.toString would write it, -1 for anything else, so "0300000"
+	// doesn't find "300000" any more than it did as a string. The map file had its quotes removed.
+	private static int parseGid(String text, int start, int end, boolean skipQuotes) {
+		long value = 0;
+		int digits = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == '"' && skipQuotes) {
+				continue;
+			}
+			if (c < '0' || c > '9' || (digits == 1 && value == 0) || digits == 10) {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+			digits++;
+		}
+		return digits == 0 || value > Integer.MAX_VALUE ? -1 : (int) value;
+	}
+
+	private static int hexValue(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		}
+		return -1;
+	}
+
+	private static class Builder {
+
+		private int[] gids = new int[1024];
+		private long[] mostSignificant = new long[1024];
+		private long[] leastSignificant = new long[1024];
+		private int size = 0;
+		private final long[] uuid = new long[2];
+
+		private final Map<String, Integer> otherEntries = new HashMap<String, Integer>();
+		private final List<String> otherIds = new ArrayList<String>();
+		// how many sorted entries there were when a GID went to the side, to tell which came last
+		private final Map<Integer, Integer> otherPositions = new HashMap<Integer, Integer>();
+
+		void add(String line) {
+			int comma = line.indexOf(',');
+			if (comma < 0) {
+				throw new IllegalArgumentException("Not a map line: " + line);
+			}
+			int gid = parseGid(line, 0, comma, true);
+			if (gid >= 0 && parseUuid(line, comma + 1)) {
+				if (size == gids.length) {
+					gids = Arrays.copyOf(gids, size * 2);
+					mostSignificant = Arrays.copyOf(mostSignificant, size * 2);
+					leastSignificant = Arrays.copyOf(leastSignificant, size * 2);
+				}
+				gids[size] = gid;
+				mostSignificant[size] = uuid[0];
+				leastSignificant[size] = uuid[1];
+				size++;
+				return;
+			}
+
+			String unquoted = line.replace("\"", "");
+			String key = unquoted.substring(0, unquoted.indexOf(","));
+			Integer entry = otherEntries.get(key);
+			if (entry == null) {
+				otherEntries.put(key, otherIds.size());
+				otherIds.add(unquoted.substring(unquoted.indexOf(",") + 1));
+			} else {
+				otherIds.set(entry, unquoted.substring(unquoted.indexOf(",") + 1));
+			}
+			if (gid >= 0) {
+				otherPositions.put(gid, size);
+			}
+		}
+
+		// a lower case UUID, quotes aside, into uuid
+		private boolean parseUuid(String line, int start) {
+			long most = 0;
+			long least = 0;
+			int digits = 0;
+			int length = 0;
+			for (int i = start; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (c == '"') {
+					continue;
+				}
+				if (length == 8 || length == 13 || length == 18 || length == 23) {
+					if (c != '-') {
+						return false;
+					}
+				} else {
+					int value = hexValue(c);
+					if (value < 0 || length >= UUID_LENGTH) {
+						return false;
+					}
+					if (digits < 16) {
+						most = most << 4 | value;
+					} else {
+						least = least << 4 | value;
+					}
+					digits++;
+				}
+				length++;
+			}
+			uuid[0] = most;
+			uuid[1] = least;
+			return length == UUID_LENGTH;
+		}
+
+		GidObjectTable build() {
+			// GID above, position below, so the entries of a GID stay in file order
+			long[] order = new long[size];
+			boolean sorted = true;
+			for (int i = 0; i < size; i++) {
+				order[i] = (long) gids[i] << 32 | i;
+				sorted &= i == 0 || gids[i - 1] < gids[i];
+			}
+			if (!sorted) {
+				Arrays.sort(order);
+			}
+
+			int[] sortedGids = new int[size];
+			long[] sortedMost = new long[size];
+			long[] sortedLeast = new long[size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				int gid = (int) (order[i] >>> 32);
+				int position = (int) order[i];
+				// the last line for a GID wins, as put would have it
+				if (i + 1 < size && (int) (order[i + 1] >>> 32) == gid) {
+					continue;
+				}
+				Integer otherPosition = otherPositions.get(gid);
+				if (otherPosition != null) {
+					if (position < otherPosition) {
+						continue;
+					}
+					otherEntries.remove(String.valueOf(gid));
+				}
+				sortedGids[count] = gid;
+				sortedMost[count] = mostSignificant[position];
+				sortedLeast[count] = leastSignificant[position];
+				count++;
+			}
+
+			// entries taken off the side map leave their ids behind, numbered as they were
+			return new GidObjectTable(IntBuffer.wrap(Arrays.copyOf(sortedGids, count)), LongBuffer.wrap(Arrays.copyOf(sortedMost, count)),
+					LongBuffer.wrap(Arrays.copyOf(sortedLeast, count)), otherEntries, otherIds);
+		}
+	}
+}
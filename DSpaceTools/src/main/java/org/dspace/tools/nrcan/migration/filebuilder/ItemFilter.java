@@ -0,0 +1,247 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+// Which items a run migrates, given with --filter as an expression over a few attributes each
+// processor reads from an item before it writes anything for it. For example:
+//
+//   status = complete and gid in 332000..332999 and hasasset
+//   (doctype = 'Open File' or biblevel = m) and not date < 1990
+//   gid = 332* or date in 2010-01-01..2015-12-31
+//
+// Comparisons are numeric when both sides are numbers and otherwise ignore case, which orders ISO
+// dates correctly. A value ending in * matches by prefix, a range includes both ends and either end
+// can be left out. A name on its own is true when the attribute is "true". An attribute an item
+// doesn't have matches nothing but !=.
+public class ItemFilter {
+
+	private interface Node {
+		boolean matches(Map<String, String> attributes);
+	}
+
+	private final String expression;
+	private final Node root;
+
+	private ItemFilter(String expression, Node root) {
+		this.expression = expression;
+		this.root = root;
+	}
+
+	// names are the attributes the processor provides, anything else is an error
+	public static ItemFilter parse(String expression, String... names) {
+		Parser parser = new Parser(expression, Arrays.asList(names));
+		Node root = parser.parseOr();
+		if (parser.position < parser.tokens.size()) {
+			throw parser.error("unexpected " + parser.tokens.get(parser.position));
+		}
+		return new ItemFilter(expression, root);
+	}
+
+	public boolean matches(Map<String, String> attributes) {
+		return root.matches(attributes);
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	private static int compare(String value, String other) {
+		if (isNumber(value) && isNumber(other)) {
+			return Long.compare(Long.parseLong(value), Long.parseLong(other));
+		}
+		return value.compareToIgnoreCase(other);
+	}
+
+	private static boolean isNumber(String value) {
+		int start = value.startsWith("-") ? 1 : 0;
+		return value.length() > start && value.length() < 19 && StringUtils.isNumeric(value.substring(start));
+	}
+
+	private static boolean equal(String value, String other) {
+		if (other.endsWith("*")) {
+			return StringUtils.startsWithIgnoreCase(value, other.substring(0, other.length() - 1));
+		}
+		return compare(value, other) == 0;
+	}
+
+	private static class Parser {
+
+		private static final String OPERATORS = "()=!<>";
+
+		private final String expression;
+		private final List<String> names;
+		private final List<String> tokens = new ArrayList<String>();
+		// quoted tokens are values even when they look like a keyword
+		private final List<Boolean> quoted = new ArrayList<Boolean>();
+		private int position = 0;
+
+		Parser(String expression, List<String> names) {
+			this.expression = expression;
+			this.names = names;
+			tokenize();
+		}
+
+		Node parseOr() {
+			Node left = parseAnd();
+			while (isKeyword("or")) {
+				position++;
+				Node first = left;
+				Node second = parseAnd();
+				left = attributes -> first.matches(attributes) || second.matches(attributes);
+			}
+			return left;
+		}
+
+		private Node parseAnd() {
+			Node left = parseNot();
+			while (isKeyword("and")) {
+				position++;
+				Node first = left;
+				Node second = parseNot();
+				left = attributes -> first.matches(attributes) && second.matches(attributes);
+			}
+			return left;
+		}
+
+		private Node parseNot() {
+			if (isKeyword("not")) {
+				position++;
+				Node operand = parseNot();
+				return attributes -> !operand.matches(attributes);
+			}
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			String token = next("an attribute or (");
+			if (token.equals("(") && !quoted.get(position - 1)) {
+				Node inner = parseOr();
+				expect(")");
+				return inner;
+			}
+
+			String name = token.toLowerCase();
+			if (quoted.get(position - 1) || !names.contains(name)) {
+				throw error("unknown attribute " + token + ", expected one of " + names);
+			}
+
+			if (isKeyword("in")) {
+				position++;
+				String range = nextValue();
+				int separator = range.indexOf("..");
+				if (separator < 0) {
+					throw error("expected a range like 1..10, not " + range);
+				}
+				String low = range.substring(0, separator);
+				String high = range.substring(separator + 2);
+				return attributes -> {
+					String value = attributes.get(name);
+					return value != null && (low.isEmpty() || compare(value, low) >= 0) && (high.isEmpty() || compare(value, high) <= 0);
+				};
+			}
+
+			if (position < tokens.size() && isOperator(tokens.get(position))) {
+				String operator = tokens.get(position++);
+				String operand = nextValue();
+				switch (operator) {
+					case "=" :
+						return attributes -> attributes.get(name) != null && equal(attributes.get(name), operand);
+					case "!=" :
+						return attributes -> attributes.get(name) == null || !equal(attributes.get(name), operand);
+					case "<" :
+						return attributes -> attributes.get(name) != null && compare(attributes.get(name), operand) < 0;
+					case "<=" :
+						return attributes -> attributes.get(name) != null && compare(attributes.get(name), operand) <= 0;
+					case ">" :
+						return attributes -> attributes.get(name) != null && compare(attributes.get(name), operand) > 0;
+					case ">=" :
+						return attributes -> attributes.get(name) != null && compare(attributes.get(name), operand) >= 0;
+					default :
+						throw error("unknown operator " + operator);
+				}
+			}
+
+			return attributes -> "true".equalsIgnoreCase(attributes.get(name));
+		}
+
+		private boolean isOperator(String token) {
+			return !quoted.get(position) && (token.equals("=") || token.equals("!=") || token.equals("<")
+					|| token.equals("<=") || token.equals(">") || token.equals(">="));
+		}
+
+		private boolean isKeyword(String keyword) {
+			return position < tokens.size() && !quoted.get(position) && tokens.get(position).equalsIgnoreCase(keyword);
+		}
+
+		private String nextValue() {
+			String token = next("a value");
+			if (!quoted.get(position - 1) && (OPERATORS.indexOf(token.charAt(0)) >= 0)) {
+				throw error("expected a value, not " + token);
+			}
+			return token;
+		}
+
+		private String next(String expected) {
+			if (position == tokens.size()) {
+				throw error("expected " + expected + " at the end");
+			}
+			return tokens.get(position++);
+		}
+
+		private void expect(String token) {
+			if (!next(token).equals(token) || quoted.get(position - 1)) {
+				throw error("expected " + token + ", not " + tokens.get(position - 1));
+			}
+		}
+
+		private void tokenize() {
+			int i = 0;
+			int length = expression.length();
+			while (i < length) {
+				char c = expression.charAt(i);
+				if (Character.isWhitespace(c)) {
+					i++;
+				} else if (c == '\'' || c == '"') {
+					int end = expression.indexOf(c, i + 1);
+					if (end < 0) {
+						throw error("unclosed " + c);
+					}
+					add(expression.substring(i + 1, end), true);
+					i = end + 1;
+				} else if (c == '(' || c == ')') {
+					add(String.valueOf(c), false);
+					i++;
+				} else if (c == '=' || c == '!' || c == '<' || c == '>') {
+					boolean twoCharacters = i + 1 < length && expression.charAt(i + 1) == '=' && c != '=';
+					if (c == '!' && !twoCharacters) {
+						throw error("expected != at " + i);
+					}
+					add(expression.substring(i, twoCharacters ? i + 2 : i + 1), false);
+					i += twoCharacters ? 2 : 1;
+				} else {
+					int start = i;
+					while (i < length && !Character.isWhitespace(expression.charAt(i)) && OPERATORS.indexOf(expression.charAt(i)) < 0
+							&& expression.charAt(i) != '\'' && expression.charAt(i) != '"') {
+						i++;
+					}
+					add(expression.substring(start, i), false);
+				}
+			}
+		}
+
+		private void add(String token, boolean isQuoted) {
+			tokens.add(token);
+			quoted.add(isQuoted);
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Bad filter \"" + expression + "\": " + message);
+		}
+	}
+}
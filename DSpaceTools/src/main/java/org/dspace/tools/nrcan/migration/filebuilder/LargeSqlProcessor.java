@@ -5,17 +5,16 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -78,16 +77,30 @@ public class LargeSqlProcessor implements FileProcessor {
 	private List<String> bBoxes = new ArrayList<String>();
 	
 	private Map<String, String> relMap = new HashMap<String, String>();	
+	private CopyWriter.Format copyFormat;
+	private int copyRows = CopyWriter.DEFAULT_ROWS_PER_BLOCK;
 
 	public LargeSqlProcessor(String inPath, String outPath, CommandLine cmd) {
 		this.inPath = inPath;
 		this.outPath = outPath;
+		
+		if (cmd.hasOption(MigrationFileBuilder.OPT_COPY)) {
+			this.copyFormat = CopyWriter.parseFormat(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY));
+		}
+		if (!StringUtils.isEmpty(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY_ROWS))) {
+			this.copyRows = Integer.parseInt(cmd.getOptionValue(MigrationFileBuilder.OPT_COPY_ROWS));
+		}
 	}
 	
 	public void process() {
+		if (copyFormat != null) {
+			processCopy();
+			return;
+		}
+		
 		try (
 	            BufferedReader reader = new BufferedReader(new FileReader(inPath));
-	            BufferedWriter writer = new BufferedWriter(new FileWriter(outPath + "/" + "sqlout.sql"))
+	            BufferedWriter writer = Files.newBufferedWriter(OutputFiles.resolve(outPath).resolve("sqlout.sql"), Charset.defaultCharset())
 	        ) {
 	            String line;
 	            int lineCount = 0;
@@ -108,6 +121,66 @@ public class LargeSqlProcessor implements FileProcessor {
 	        }		
 	}
 	
+	// The rows of the file's INSERTs as COPY blocks, with the statements between them as they are
+	private void processCopy() {
+		try (
+				// UTF-8 both ways, as the script sets the client encoding to it
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inPath), StandardCharsets.UTF_8));
+				CopyWriter writer = new CopyWriter(OutputFiles.resolve(outPath).resolve("sqlout.sql"), copyFormat, copyRows)
+			) {
+			String line;
+			int statementCount = 0;
+			
+			while ((line = reader.readLine()) != null) {
+				String statement = line;
+				while (!SqlInsert.isComplete(statement) && (line = reader.readLine()) != null) {
+					statement = statement + "\n" + line;
+				}
+				
+				SqlInsert insert = SqlInsert.parse(statement);
+				CopyTable table = insert == null ? null : CopyTable.of(insert.getTable(), insert.getColumns());
+				if (table == null || !fits(table, insert)) {
+					writer.writeStatement(statement);
+					statementCount++;
+				} else {
+					for (String[] row : insert.getRows()) {
+						writer.write(table, row);
+					}
+				}
+			}
+			
+			System.out.println("COPY ROWS: " + writer.getRowCount());
+			System.out.println("COPY BLOCKS: " + writer.getBlockCount());
+			System.out.println("SQL STATEMENTS: " + statementCount);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// Whether the rows can go in the table's COPY: its columns have to be known, each row has to have
+	// a value for every one of them, and each value has to be one its column takes. A binary COPY also
+	// has to know every column's type. Anything else stays SQL, which fails on its own at load time
+	// rather than taking a whole block with it.
+	private boolean fits(CopyTable table, SqlInsert insert) {
+		if (table.getColumns() == null) {
+			return false;
+		}
+		if (copyFormat == CopyWriter.Format.BINARY && !table.hasTypes()) {
+			return false;
+		}
+		for (String[] row : insert.getRows()) {
+			if (row.length != table.getColumnCount()) {
+				return false;
+			}
+			for (int i = 0; i < row.length; i++) {
+				if (!table.accepts(i, row[i])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
 	@Override
 	public void close() {
 		try {
@@ -120,15 +193,6 @@ public class LargeSqlProcessor implements FileProcessor {
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
-		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
-	}
 
 	private void processLine(String line) throws Exception {
 		String[] fields = line.split(",");
@@ -0,0 +1,151 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// A metadata line such as <dcvalue element="title" language="##LANG##">##VALUE##</dcvalue> split once
+// into literal text and slots. Filling it in is a single pass into one buffer, with the value
+// XML escaped on the way through when asked, instead of a replace() and a copy per placeholder.
+public final class MetadataTemplate {
+
+	public static final String VALUE = "##VALUE##";
+	public static final String LANGUAGE = "##LANG##";
+	public static final String QUALIFIER = "##QUAL##";
+
+	public enum Escape {
+		NONE,
+		XML
+	}
+
+	private static final int SLOT_VALUE = 0;
+	private static final int SLOT_LANGUAGE = 1;
+	private static final int SLOT_QUALIFIER = 2;
+	private static final String[] PLACEHOLDERS = { VALUE, LANGUAGE, QUALIFIER };
+
+	private final String template;
+	// literals[i] comes before slots[i], the last literal closes the line
+	private final String[] literals;
+	private final int[] slots;
+	private final int literalLength;
+
+	private MetadataTemplate(String template, String[] literals, int[] slots) {
+		this.template = template;
+		this.literals = literals;
+		this.slots = slots;
+		int length = 0;
+		for (String literal : literals) {
+			length += literal.length();
+		}
+		this.literalLength = length;
+	}
+
+	public static MetadataTemplate compile(String template) {
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+		int start = 0;
+
+		while (true) {
+			int next = -1;
+			int slot = -1;
+			for (int i = 0; i < PLACEHOLDERS.length; i++) {
+				int index = template.indexOf(PLACEHOLDERS[i], start);
+				if (index >= 0 && (next < 0 || index < next)) {
+					next = index;
+					slot = i;
+				}
+			}
+			if (next < 0) {
+				break;
+			}
+			literals.add(template.substring(start, next));
+			slots.add(slot);
+			start = next + PLACEHOLDERS[slot].length();
+		}
+		literals.add(template.substring(start));
+
+		int[] slotArray = new int[slots.size()];
+		for (int i = 0; i < slotArray.length; i++) {
+			slotArray[i] = slots.get(i);
+		}
+		return new MetadataTemplate(template, literals.toArray(new String[literals.size()]), slotArray);
+	}
+
+	// language and qualifier slots stay as written
+	public void println(PrintStream out, String value) {
+		out.println(format(value, null, null, Escape.NONE));
+	}
+
+	public void println(PrintStream out, String value, Escape escape) {
+		out.println(format(value, null, null, escape));
+	}
+
+	public void println(PrintStream out, String value, String language, String qualifier, Escape escape) {
+		out.println(format(value, language, qualifier, escape));
+	}
+
+	// value is required, a null language or qualifier leaves its placeholder in place
+	public String format(String value, String language, String qualifier, Escape escape) {
+		if (value == null) {
+			throw new NullPointerException("No value for " + template);
+		}
+
+		StringBuilder line = new StringBuilder(literalLength + value.length() + 16);
+		for (int i = 0; i < slots.length; i++) {
+			line.append(literals[i]);
+			switch (slots[i]) {
+				case SLOT_VALUE :
+					if (escape == Escape.XML) {
+						appendEscaped(line, value);
+					} else {
+						line.append(value);
+					}
+					break;
+				case SLOT_LANGUAGE :
+					line.append(language != null ? language : LANGUAGE);
+					break;
+				case SLOT_QUALIFIER :
+					line.append(qualifier != null ? qualifier : QUALIFIER);
+					break;
+			}
+		}
+		line.append(literals[slots.length]);
+		return line.toString();
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+
+	// the same five entities as StringEscapeUtils.escapeXml
+	private static void appendEscaped(StringBuilder line, String value) {
+		int start = 0;
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			String entity;
+			switch (value.charAt(i)) {
+				case '&' :
+					entity = "&amp;";
+					break;
+				case '<' :
+					entity = "&lt;";
+					break;
+				case '>' :
+					entity = "&gt;";
+					break;
+				case '"' :
+					entity = "&quot;";
+					break;
+				case '\'' :
+					entity = "&apos;";
+					break;
+				default :
+					continue;
+			}
+			line.append(value, start, i).append(entity);
+			start = i + 1;
+		}
+		line.append(value, start, length);
+	}
+}
@@ -2,6 +2,10 @@ package org.dspace.tools.nrcan.migration.filebuilder;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -23,6 +27,21 @@ public final class MigrationFileBuilder {
 	private final static char OPT_OUTPUT_FILE = 'o';
 	private final static char OPT_TYPE = 't';
 	private final static char OPT_INPUT_CFSID_FILE = 'c';
+	final static char OPT_THREADS = 'n';
+	final static char OPT_DIRECT_ZIP = 'z';
+	final static char OPT_KEEP_DIRECTORIES = 'k';
+	private final static char OPT_BASE_DIRECTORY = 'b';
+	final static char OPT_ELEMENT_MAP = 'e';
+	final static char OPT_ZIP_THREADS = 'w';
+	final static char OPT_ZIP_STORE = 's';
+	final static char OPT_RESUME = 'u';
+	final static char OPT_SINCE_LAST_RUN = 'l';
+	final static char OPT_GIDS = 'g';
+	final static char OPT_GID_FILTER = 'i';
+	final static char OPT_FILTER = 'x';
+	final static char OPT_COPY = 'y';
+	final static char OPT_COPY_ROWS = 'q';
+	final static char OPT_RELATIONSHIP_TYPE = 'a';
 	
 	public static final void main(String[] args) {
 		CommandLineParser parser = new PosixParser();
@@ -43,13 +62,101 @@ public final class MigrationFileBuilder {
 	}
 	
 	private static void processFile(CommandLine cmd) {
+		String inPath = cmd.getOptionValue(OPT_INPUT_FILE);
+		String outPath = cmd.getOptionValue(OPT_OUTPUT_FILE);
+		String type = cmd.getOptionValue(OPT_TYPE);
+		
+		if (cmd.hasOption(OPT_BASE_DIRECTORY)) {
+			OutputFiles.setBaseDirectory(cmd.getOptionValue(OPT_BASE_DIRECTORY));
+		}
+		
+		if (cmd.hasOption(OPT_GIDS) && (cmd.hasOption(OPT_RESUME) || cmd.hasOption(OPT_SINCE_LAST_RUN))) {
+			System.out.println("ERROR: --gids can't be used with --resume or --since-last-run");
+			return;
+		}
+		if (cmd.hasOption(OPT_FILTER) && cmd.hasOption(OPT_SINCE_LAST_RUN)) {
+			System.out.println("ERROR: --filter can't be used with --since-last-run");
+			return;
+		}
+		
+		FileProcessor processor;
+		String[] types = StringUtils.split(type, ',');
+		if (types != null && types.length > 1) {
+			if (cmd.hasOption(OPT_RESUME) || cmd.hasOption(OPT_GIDS)) {
+				System.out.println("ERROR: --resume and --gids take a single type");
+				return;
+			}
+			
+			// each type writes to a folder of its own under the output folder
+			List<GEOScanRecordSink> sinks = new ArrayList<GEOScanRecordSink>();
+			for (String sinkType : types) {
+				// passed on as a URI, so the folder can be on any file system the way -o can
+				Path sinkOutPath = OutputFiles.resolve(outPath).resolve(sinkType);
+				try {
+					Files.createDirectories(sinkOutPath);
+				} catch (IOException e) {
+					e.printStackTrace();
+					return;
+				}
+				FileProcessor sink = createProcessor(sinkType, inPath, sinkOutPath.toUri().toString(), cmd);
+				if (!(sink instanceof GEOScanRecordSink)) {
+					System.out.println("ERROR: " + sinkType + " does not read the GEOScan export");
+					return;
+				}
+				if (cmd.hasOption(OPT_FILTER) && !canFilter(sink)) {
+					System.out.println("ERROR: --filter can't be used with the " + sinkType + " type, it would migrate every item");
+					return;
+				}
+				sinks.add((GEOScanRecordSink) sink);
+			}
+			processor = new GEOScanMultiProcessor(inPath, sinks);
+		} else {
+			processor = createProcessor(type, inPath, outPath, cmd);
+			if (cmd.hasOption(OPT_RESUME) && !canResume(processor)) {
+				System.out.println("ERROR: --resume can't be used with the " + type + " type, it would start over");
+				return;
+			}
+			if (cmd.hasOption(OPT_FILTER) && !canFilter(processor)) {
+				System.out.println("ERROR: --filter can't be used with the " + type + " type, it would migrate every item");
+				return;
+			}
+		}
+		
+		try {
+			processor.process();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			closeOutputFiles();
+		}
+		
+		OutputFiles.printStatistics();
+	}
+	
+	// the processors that keep a checkpoint journal to carry on from
+	private static boolean canResume(FileProcessor processor) {
+		return processor instanceof GEOScanFileProcessor || processor instanceof CFSFileProcessor || processor instanceof PhotoFileProcessor;
+	}
+	
+	// the processors that read --filter
+	private static boolean canFilter(FileProcessor processor) {
+		return processor instanceof GEOScanFileProcessor || processor instanceof CFSFileProcessor;
+	}
+	
+	// a zip file system given with -o or -b is written out here
+	private static void closeOutputFiles() {
+		try {
+			OutputFiles.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private static FileProcessor createProcessor(String type, String inPath, String outPath, CommandLine cmd) {
 		String mapPath = cmd.getOptionValue(OPT_MAP_FILE);
 		String relPath = cmd.getOptionValue(OPT_REL_FILE);
 		String placePath = cmd.getOptionValue(OPT_PLACE_FILE);
-		String inPath = cmd.getOptionValue(OPT_INPUT_FILE);
 		String inFolderPath = cmd.getOptionValue(OPT_INPUT_FOLDER);
-		String outPath = cmd.getOptionValue(OPT_OUTPUT_FILE);
-		String type = cmd.getOptionValue(OPT_TYPE);
 		String inCFSIDPath = cmd.getOptionValue(OPT_INPUT_CFSID_FILE);
 		
 		FileProcessor processor;
@@ -69,15 +176,14 @@ public final class MigrationFileBuilder {
 			processor = new PhotoFileProcessor(inPath, outPath, cmd);
 		} else if (!StringUtils.isEmpty(type) && type.contentEquals("photo")) {
 			processor = new PhotoDBFileProcessor(inPath, outPath, cmd);
+		} else if (!StringUtils.isEmpty(type) && type.contentEquals("compile")) {
+			processor = new GEOScanCompiler(inPath, outPath, cmd);
+		} else if (!StringUtils.isEmpty(type) && type.contentEquals("index")) {
+			processor = new GidIndexBuilder(inPath, cmd);
 		}  else {
 			processor = new GEOScanFileProcessor(inPath, outPath, cmd);
 		}
-		
-		try {
-			processor.process();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		return processor;
 	}
 	
 	@SuppressWarnings("static-access")
@@ -122,14 +228,14 @@ public final class MigrationFileBuilder {
 		options.addOption(
 				OptionBuilder.withLongOpt("output")
 				.withArgName("FILE")
-				.withDescription("Output file (default, STDOUT)")
+				.withDescription("Output folder, or a URI for a folder on another file system such as jar:file:/tmp/run.zip!/out (default, STDOUT)")
 				.hasArg()
 				.create(OPT_OUTPUT_FILE));
 		
 		options.addOption(
 				OptionBuilder.withLongOpt("type")
 				.withArgName("Type")
-				.withDescription("Type of migration (default, STDOUT)")
+				.withDescription("Type of migration, or several GEOScan types to make from one read, e.g. saf,map,rel,fil (default, STDOUT)")
 				.hasArg()
 				.create(OPT_TYPE));
 		
@@ -139,6 +245,102 @@ public final class MigrationFileBuilder {
 				.withDescription("CFSID File")
 				.hasArg()
 				.create(OPT_INPUT_CFSID_FILE));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("threads")
+				.withArgName("COUNT")
+				.withDescription("Worker threads for GEOScan items (default, 1)")
+				.hasArg()
+				.create(OPT_THREADS));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("direct-zip")
+				.withDescription("Write GEOScan items straight into the archive zips")
+				.create(OPT_DIRECT_ZIP));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("keep-dirs")
+				.withDescription("Also write the archive directories with --direct-zip")
+				.create(OPT_KEEP_DIRECTORIES));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("base-dir")
+				.withArgName("FOLDER")
+				.withDescription("Folder for side files like gids and authors (default, " + OutputFiles.DEFAULT_BASE_DIRECTORY + ")")
+				.hasArg()
+				.create(OPT_BASE_DIRECTORY));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("elements")
+				.withArgName("FILE")
+				.withDescription("GEOScan element mapping file (default, built in)")
+				.hasArg()
+				.create(OPT_ELEMENT_MAP));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("zip-threads")
+				.withArgName("COUNT")
+				.withDescription("Threads zipping finished archives in the background, 0 to zip in line (default, " + ArchiveZipper.DEFAULT_THREADS + ")")
+				.hasArg()
+				.create(OPT_ZIP_THREADS));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("zip-store")
+				.withDescription("Store archive files in the zips without compressing them")
+				.create(OPT_ZIP_STORE));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("resume")
+				.withDescription("Carry on from the checkpoint journal in the output folder")
+				.create(OPT_RESUME));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("since-last-run")
+				.withDescription("Write only the GEOScan items that are new or changed since the last run, and list the deleted GIDs")
+				.create(OPT_SINCE_LAST_RUN));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("gids")
+				.withArgName("FILE")
+				.withDescription("Write only the GEOScan items whose GIDs are listed in FILE, read through the GID index of the export")
+				.hasArg()
+				.create(OPT_GIDS));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("gid-filter")
+				.withArgName("FILE")
+				.withDescription("GIDs the fil type keeps, one per line (default, built in)")
+				.hasArg()
+				.create(OPT_GID_FILTER));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("filter")
+				.withArgName("EXPRESSION")
+				.withDescription("Migrate only the items that match, e.g. \"status = complete and gid in 332000..332999 and hasasset\". "
+						+ "GEOScan items have gid, status, biblevel, doctype, type, hasasset and date, cfs items uid, doctype, hasasset and date")
+				.hasArg()
+				.create(OPT_FILTER));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("copy")
+				.withArgName("FORMAT")
+				.withDescription("Write the rows of the sql and csv types as PostgreSQL COPY blocks, text or binary")
+				.hasArg()
+				.create(OPT_COPY));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("copy-rows")
+				.withArgName("COUNT")
+				.withDescription("Rows in each COPY block (default, " + CopyWriter.DEFAULT_ROWS_PER_BLOCK + ")")
+				.hasArg()
+				.create(OPT_COPY_ROWS));
+		
+		options.addOption(
+				OptionBuilder.withLongOpt("relationship-type")
+				.withArgName("ID")
+				.withDescription("The relationship_type id of the csv type's COPY rows, which --copy needs for that type")
+				.hasArg()
+				.create(OPT_RELATIONSHIP_TYPE));
 
 		return options;
 	}
@@ -0,0 +1,231 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+// Every file the processors write is opened here. Streams are buffered and never autoflush, so a
+// println is a copy into the buffer rather than a write call. Item files are flushed when they are
+// closed at the end of the item, the shared side files when an archive is finished.
+//
+// The output folder and the base folder are paths rather than names, so they can be on any file
+// system: a local folder, a tmpfs mount, or a URI such as jar:file:/tmp/run.zip!/out for a zip
+// file system, which keeps what is written in memory until the run ends and then writes one zip.
+public final class OutputFiles {
+
+	public static final String DEFAULT_BASE_DIRECTORY = File.separatorChar == '\\' ? "C:\\dspace" : "/dspace";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final OpenOption[] CREATE = { StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE };
+	private static final OpenOption[] APPEND = { StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE };
+
+	private static Path baseDirectory = Paths.get(DEFAULT_BASE_DIRECTORY);
+
+	// file systems resolve opened, closed when the run ends
+	private static final List<FileSystem> fileSystems = new ArrayList<FileSystem>();
+
+	private static final AtomicLong fileCount = new AtomicLong();
+	private static final AtomicLong bytesWritten = new AtomicLong();
+	private static final AtomicLong writeCount = new AtomicLong();
+	private static final AtomicLong flushCount = new AtomicLong();
+
+	private OutputFiles() {
+	}
+
+	public static void setBaseDirectory(String directory) {
+		baseDirectory = resolve(directory);
+	}
+
+	public static Path getBaseDirectory() {
+		return baseDirectory;
+	}
+
+	// side files such as gids and authors live in the base directory
+	public static Path getBasePath(String name) {
+		return baseDirectory.resolve(name);
+	}
+
+	// A folder, or a URI naming a folder on another file system. A file system that isn't open yet is
+	// opened, and created if the provider can, until close is called.
+	public static synchronized Path resolve(String location) {
+		if (StringUtils.isEmpty(location)) {
+			return Paths.get("");
+		}
+		URI uri = toFileSystemUri(location);
+		if (uri == null) {
+			return Paths.get(location);
+		}
+
+		try {
+			return Paths.get(uri);
+		} catch(FileSystemNotFoundException ex) {
+			Map<String, Object> env = new HashMap<String, Object>();
+			env.put("create", "true");
+			// what goes in it is mostly zips already
+			env.put("noCompression", "true");
+			try {
+				FileSystem fileSystem = FileSystems.newFileSystem(uri, env);
+				fileSystems.add(fileSystem);
+				return fileSystem.provider().getPath(uri);
+			} catch(IOException ioException) {
+				throw new RuntimeException(ioException.getMessage(), ioException);
+			}
+		}
+	}
+
+	// The location as a URI when its scheme is one an installed file system provider takes, otherwise
+	// null for a path. A drive letter is not a scheme, and neither is the start of a folder name with a
+	// colon in it, like run:2026.
+	private static URI toFileSystemUri(String location) {
+		URI uri;
+		try {
+			uri = new URI(location);
+		} catch(URISyntaxException ex) {
+			return null;
+		}
+		if (uri.getScheme() == null || uri.getScheme().length() < 2) {
+			return null;
+		}
+		for (FileSystemProvider provider : FileSystemProvider.installedProviders()) {
+			if (provider.getScheme().equalsIgnoreCase(uri.getScheme())) {
+				return uri;
+			}
+		}
+		return null;
+	}
+
+	// the file systems resolve opened, which for a zip file system is when the zip is written
+	public static synchronized void close() throws IOException {
+		for (FileSystem fileSystem : fileSystems) {
+			fileSystem.close();
+		}
+		fileSystems.clear();
+	}
+
+	// The folder of an archive, made with any folders above it when the archive is started, so
+	// each item needs just the one folder of its own.
+	public static Path createArchiveDirectory(Path outPath, String archive) throws IOException {
+		return Files.createDirectories(outPath.resolve(archive));
+	}
+
+	// the archive folder is there already, an item folder can be too when a run picks up an archive
+	public static Path createItemDirectory(Path archiveDirectory, String item) throws IOException {
+		Path directory = archiveDirectory.resolve(item);
+		try {
+			Files.createDirectory(directory);
+		} catch(FileAlreadyExistsException ex) {
+			if (!Files.isDirectory(directory)) {
+				throw ex;
+			}
+		}
+		return directory;
+	}
+
+	public static PrintStream open(Path file) throws UnsupportedEncodingException {
+		return open(file, false);
+	}
+
+	// append carries on a side file from an earlier run
+	public static PrintStream open(Path file, boolean append) throws UnsupportedEncodingException {
+		return new PrintStream(openStream(file, BUFFER_SIZE, append), false, StandardCharsets.UTF_8.toString());
+	}
+
+	public static OutputStream openStream(Path file) {
+		return openStream(file, BUFFER_SIZE);
+	}
+
+	public static OutputStream openStream(Path file, int bufferSize) {
+		return openStream(file, bufferSize, false);
+	}
+
+	public static OutputStream openStream(Path file, int bufferSize, boolean append) {
+		OutputStream fileOutputStream;
+		try {
+			fileOutputStream = Files.newOutputStream(file, append ? APPEND : CREATE);
+		} catch(IOException ex) {
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+		fileCount.incrementAndGet();
+		return new BufferedOutputStream(new CountingOutputStream(fileOutputStream), bufferSize);
+	}
+
+	// writes a file that was already built in memory in a single call
+	public static void write(Path file, ByteArrayOutputStream contents) throws IOException {
+		OutputStream fileOutputStream;
+		try {
+			fileOutputStream = Files.newOutputStream(file, CREATE);
+		} catch(IOException ex) {
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+		fileCount.incrementAndGet();
+		try (OutputStream outputStream = new CountingOutputStream(fileOutputStream)) {
+			contents.writeTo(outputStream);
+		}
+	}
+
+	public static void printStatistics() {
+		System.out.println("OUTPUT FILES: " + fileCount.get());
+		System.out.println("OUTPUT BYTES: " + bytesWritten.get());
+		System.out.println("OUTPUT WRITES: " + writeCount.get());
+		System.out.println("OUTPUT FLUSHES: " + flushCount.get());
+	}
+
+	// counts what actually reaches the file, below the buffer
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			writeCount.incrementAndGet();
+			bytesWritten.incrementAndGet();
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			writeCount.incrementAndGet();
+			bytesWritten.addAndGet(len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+			flushCount.incrementAndGet();
+		}
+
+		// the buffer above has already flushed, don't count the flush FilterOutputStream adds
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
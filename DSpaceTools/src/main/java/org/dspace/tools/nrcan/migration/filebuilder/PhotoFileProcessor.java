@@ -1,24 +1,20 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,37 +23,40 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
 import org.dspace.tools.nrcan.FileProcessor;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanElement;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
 import org.dspace.tools.nrcan.migration.filebuilder.model.Author;
 
 public class PhotoFileProcessor implements FileProcessor {
 
-	private FileInputStream inputStream;
-	private BufferedReader streamReader;
+	private GEOScanRecordSource recordReader;
 	private String inPath;
-	private String outPath;
-	private FileInputStream gidInputStream;
-	private BufferedReader gidStreamReader;
+	private Path outPath;
+	private ArchiveZipper zipper;
+	private boolean resume = false;
+	private CheckpointJournal journal;
 	private int itemCount = 0;
 	private int archiveCount = 0;
 	private int archiveSize = 100;
 	private String currentArchivePath;
+	private Path archiveDirectory;
 	private String currentItemPath;
 	private String bibLevel;
 	private boolean filesOpen = false;
-	private boolean beforeFirstItem = true;
 	private PrintStream contentsFileStream;
 	private PrintStream relationshipsFileStream;
 	private PrintStream dublinCoreFileStream;
 	private PrintStream dspaceFileStream;
 	private PrintStream nrcanFileStream;
 	private PrintStream geospatialFileStream;
-	private Map<String, String> dcElementTemplates;
-	private Map<String, String> nrcanElementTemplates;
-	private Map<String, String> geospatialElementTemplates;
+	private Map<String, MetadataTemplate> dcElementTemplates;
+	private Map<String, MetadataTemplate> nrcanElementTemplates;
+	private Map<String, MetadataTemplate> geospatialElementTemplates;
 	private Map<String, Relationship> relationshipElements;
 	private Set<String> unknownElements = new HashSet<String>();
 	private Set<String> ignoredElements = new HashSet<String>();
@@ -66,7 +65,7 @@ public class PhotoFileProcessor implements FileProcessor {
 	private boolean firstDateSubmitted = true;
 	private String dateIssued = "";
 	private String lastDateUpdated = "";
-	private Map<Integer, Integer> secSerials;
+	private final Map<Integer, Integer> secSerials = new HashMap<Integer, Integer>();
 	private int secSerialCount;
 	private int uniqueSecSerialCount;
 	private int secSerialNumberCount;
@@ -99,17 +98,13 @@ public class PhotoFileProcessor implements FileProcessor {
 	private List<String> geoScanIdList = new ArrayList<String>();
 	private List<String> authors = new ArrayList<String>();
 	private boolean linebreak = false;
-	private HashMap<String, Set<Author>> authorMap = new HashMap();
+	private AuthorTable authorTable;
 	private int matchCount = 0;
 	private int missCount = 0;
 	private int conflictCount = 0;
 	private String imageName;
 	private String imageDetail;
 	
-	private static final String VALUE = "##VALUE##";
-	private static final String LANGUAGE = "##LANG##";
-	private static final String QUALIFIER = "##QUAL##";
-	
 	private static final String ELEMENT_TYPE = "dc:type";
 	private static final String ELEMENT_DOCTYPE = "doctype";
 	private static final String ELEMENT_CONTENT = "imagedetail";
@@ -278,65 +273,42 @@ public class PhotoFileProcessor implements FileProcessor {
 	
 	public PhotoFileProcessor(String inPath, String outPath, CommandLine cmd) {
 		this.inPath = inPath;
-		this.outPath = outPath;
+		this.outPath = OutputFiles.resolve(outPath);
+		this.zipper = new ArchiveZipper(cmd);
+		this.resume = cmd.hasOption(MigrationFileBuilder.OPT_RESUME);
 	}
 	
 	public void process() {
 		try {
 			initializeElementTemplates();
 			readAuthorFile();
-			System.out.println("Names: " + authorMap.size());
-			authorFileStream = getPrintStream("C:\\dspace\\authors");
-			provinceFileStream = getPrintStream("C:\\dspace\\provinces");
-			countryFileStream = getPrintStream("C:\\dspace\\countries");
+			System.out.println("Names: " + authorTable.size());
+			journal = CheckpointJournal.open(outPath, resume);
+			journal.checkExport(Paths.get(inPath));
+			if (resume) {
+				journal.restoreSideFiles(getSideFiles());
+			}
+			authorFileStream = OutputFiles.open(OutputFiles.getBasePath("authors"), resume);
+			provinceFileStream = OutputFiles.open(OutputFiles.getBasePath("provinces"), resume);
+			countryFileStream = OutputFiles.open(OutputFiles.getBasePath("countries"), resume);
 			
 			existingDivisionCodes = new HashSet<String>();
 			
-			inputStream = new FileInputStream(inPath);
-			streamReader = new BufferedReader(new InputStreamReader(inputStream));
-	
-			String line = streamReader.readLine();
-			String nextLine;
+			recordReader = GEOScanRecordReader.open(inPath, "\\n");
+			if (resume) {
+				resumeFromJournal();
+			}
+			GEOScanRecord record = recordReader.next();
 			
-			while(line != null) {
-				nextLine = streamReader.readLine();
-				if (nextLine == null) {
-					processLine(line);
-				} else {
-					if (!nextLine.startsWith("<")) {
-						while (nextLine != null && !nextLine.startsWith("<")) {
-							if (StringUtils.isEmpty(nextLine)) {
-								line = line + "\\n";
-								linebreak = true;
-							} else {
-								line = line + nextLine;
-							}
-							
-							nextLine = streamReader.readLine();
-						}
-						if (nextLine != null && nextLine.startsWith("</") && !nextLine.startsWith("</item")) {
-							line = line + nextLine;
-							nextLine = streamReader.readLine();
-						}
-						processLine(line);
-					} else if (nextLine.startsWith("</item>")) {
-						processLine(line);
-					} else if (nextLine.startsWith("</")) {
-						line = line + nextLine;
-						processLine(line);
-						nextLine = streamReader.readLine();
-					} else {
-						processLine(line);
-					}
-				}
-				line = nextLine;
+			while(record != null) {
+				processRecord(record);
+				record = recordReader.next();
 			}
 			
-			if (itemCount != archiveSize) {
-				String directory = outPath + "\\" + currentArchivePath + "\\";
-				String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-				ZipDirectory.zipDirectory(directory, filename);			
+			if (itemCount != archiveSize && StringUtils.isNotEmpty(currentArchivePath)) {
+				closeArchive();
 			}
+			zipper.finish();
 			
 			for (String element : unknownElements) {
 				System.out.println("UNKNOWN ELEMENT: " + element);
@@ -372,8 +344,12 @@ public class PhotoFileProcessor implements FileProcessor {
 	@Override
 	public void close() {
 		try {
-			streamReader.close();
-			inputStream.close();
+			zipper.shutdown();
+			
+			recordReader.close();
+			if (journal != null) {
+				journal.close();
+			}
 			
 			if (filesOpen) {
 				closeOutputFiles();
@@ -389,126 +365,143 @@ public class PhotoFileProcessor implements FileProcessor {
 		}
 	}
 	
-	private PrintStream getPrintStream(String filename) throws UnsupportedEncodingException {
-		FileOutputStream fileOutputStream;
-		try {
-			fileOutputStream = new FileOutputStream(filename);
-		} catch(IOException ex) {
-			throw new RuntimeException(ex.getMessage(), ex);
+	
+	public void processRecord(GEOScanRecord record) throws Exception {
+		startItem();
+		for (GEOScanElement element : record.getElements()) {
+			if (element.hasLineBreak()) {
+				linebreak = true;
+			}
+			processMetadata(element);
 		}
-		return new PrintStream(fileOutputStream, true, StandardCharsets.UTF_8.toString());
+		journal.itemWritten(photonumber, record.getOffset() + record.getLength(), record.getSequence() + 1);
+		endItem();
 	}
 	
-	public void processLine(String input) throws Exception {
-		try {		
-			if (StringUtils.isEmpty(input.trim())) {
-				return;
-			}
-			
-			if (StringUtils.trim(input).equals("<item>")) {
-				bibLevel = "";
-				firstDateSubmitted = true;
-				dateIssued = "";
-				lastDateUpdated = "";
-				secSerials = new HashMap<Integer, Integer>();
-				secSerialCount = 0;
-				uniqueSecSerialCount = 0;
-				secSerialNumberCount = 0;
-				photonumber= "";
-				hasAsset = false;
-				existingFundingCodes = new HashSet<String>();
-				existingProvinceCodes = new HashSet<String>();
-				//existingDivisionCodes = new HashSet<String>();
-				existingSecSerialCodes = new HashSet<String>();
-				existingCountryCodes = new HashSet<String>();
-				existingAuthorCodes = new HashSet<String>();
-				existingAuthorACodes = new HashSet<String>();
-				existingMonoCorpAuthorCodes = new HashSet<String>();
-				existingCorpAuthorCodes = new HashSet<String>();
-				//existingPublisherCodes = new HashSet<String>();
-				existingAreaCodes = new HashSet<String>();
-				existingLanguageCodes = new HashSet<String>();
-				bBoxes = new ArrayList<String>();
-				itemComplete = false;
-				authorCount = 0;
-				position = 0;
-				monoAuthorCount = 0;
-				bitstreamCount = 0;
-				authors = new ArrayList<String>();
-				linebreak = false;
-				imageName = null;
-				imageDetail = null;
-				
-				
-				if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
-					currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
-					itemCount = 0;
-				}
-				
-				currentItemPath = "item_" + String.format("%03d" , itemCount++);
-				
-				String path = outPath + "\\" + currentArchivePath + "\\" + currentItemPath;
-				//System.out.println("PATH: " + path);
-				
-				createDirectory(path);
-				openNewOutputFiles(path);
-				filesOpen = true;
-				beforeFirstItem = false;
-				return;
-			}
-			
-			if (StringUtils.trim(input).substring(0, Math.min(7, input.length())).equals("</item>")) {
-				printBBox();
-				printType();
-				printDateIssued();
-				processContent();
-				processThumbnail();
-				closeOutputFiles();
-				filesOpen = false;
-				
-				//if (!itemComplete || !geoScanId.startsWith("332") || !hasAsset) {
-//				if (!geoScanIdList.contains(geoScanId)) {
-//					FileUtils.deleteDirectory(new File(outPath + "\\" + currentArchivePath + "\\" + currentItemPath));
-//					for (String author : authors) {
-//						cfsidFileStream.println(author);
-//					}
-//				} else {
-//					cfsidFileStream.println(geoScanId);
-//					//cfsidFileStream.println("'" + geoScanId + "',");
-//				}
-				
-				if (itemCount == archiveSize) {
-					String directory = outPath + "\\" + currentArchivePath + "\\";
-					String filename = outPath + "\\" + "archive_" + String.format("%03d" , archiveCount -1) + ".zip";
-					ZipDirectory.zipDirectory(directory, filename);			
-				}
-				
-//				if (geoScanId.equals("327388")) {
-//					cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
-//				}
-				
-				//cfsidFileStream.println(geoScanId + ", " + authorCount + "," + monoAuthorCount);
-				//cfsidFileStream.println(geoScanId);
-//				if (geoScanIdList.contains(geoScanId)) {
-//					cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
-//				}
-				return;
+	// Skips the part of the export that went into the archives an earlier run finished, and zips
+	// any of those archives it didn't get to zip.
+	private void resumeFromJournal() throws IOException {
+		CheckpointJournal.Archive last = journal.getLastArchive();
+		if (last == null) {
+			System.out.println("NO CHECKPOINT IN " + journal.getPath() + ", STARTING FROM THE BEGINNING");
+			return;
+		}
+		
+		recordReader.skipTo(last.endOffset, last.nextRecord);
+		archiveCount = last.number + 1;
+		for (int archive = 0; archive <= last.number; archive++) {
+			if (!journal.isZipped(archive)) {
+				zipArchive(archive);
 			}
-			
-			if (!beforeFirstItem) {
-				processMetadata(input);
-			}	
-		} catch (Exception e) {
-			throw e;
 		}
+		System.out.println("RESUMING AFTER archive_" + String.format("%03d", last.number) + " (PHOTO " + last.lastId + ") AT ITEM " + last.nextRecord);
 	}
-
-	private void processMetadata(String line) throws Exception {
-		Integer indexOfGT = line.indexOf(">");
-		Integer indexOfSpace = line.indexOf(" ");
+	
+	// the journal entry goes in once the side files for the archive are on disk
+	private void closeArchive() throws IOException {
+		authorFileStream.flush();
+		provinceFileStream.flush();
+		countryFileStream.flush();
+		journal.archiveFinished(archiveCount - 1, itemCount, getSideFiles());
+		zipArchive(archiveCount - 1);
+	}
+	
+	private Path[] getSideFiles() {
+		return new Path[] { OutputFiles.getBasePath("authors"), OutputFiles.getBasePath("provinces"), OutputFiles.getBasePath("countries") };
+	}
+	
+	private void zipArchive(int archive) throws IOException {
+		Path directory = outPath.resolve("archive_" + String.format("%03d" , archive));
+		Path filename = outPath.resolve("archive_" + String.format("%03d" , archive) + ".zip");
+		zipper.submit(directory, filename, () -> journal.archiveZipped(archive));
+	}
+	
+	private void startItem() throws Exception {
+		bibLevel = "";
+		firstDateSubmitted = true;
+		dateIssued = "";
+		lastDateUpdated = "";
+		secSerials.clear();
+		secSerialCount = 0;
+		uniqueSecSerialCount = 0;
+		secSerialNumberCount = 0;
+		photonumber= "";
+		hasAsset = false;
+		existingFundingCodes.clear();
+		existingProvinceCodes.clear();
+		//existingDivisionCodes = new HashSet<String>();
+		existingSecSerialCodes.clear();
+		existingCountryCodes.clear();
+		existingAuthorCodes.clear();
+		existingAuthorACodes.clear();
+		existingMonoCorpAuthorCodes.clear();
+		existingCorpAuthorCodes.clear();
+		//existingPublisherCodes = new HashSet<String>();
+		existingAreaCodes.clear();
+		existingLanguageCodes.clear();
+		bBoxes.clear();
+		itemComplete = false;
+		authorCount = 0;
+		position = 0;
+		monoAuthorCount = 0;
+		bitstreamCount = 0;
+		authors.clear();
+		linebreak = false;
+		imageName = null;
+		imageDetail = null;
+		
+		
+		if (itemCount == archiveSize || StringUtils.isEmpty(currentArchivePath)) {
+			currentArchivePath = "archive_" + String.format("%03d" , archiveCount++);
+			archiveDirectory = OutputFiles.createArchiveDirectory(outPath, currentArchivePath);
+			itemCount = 0;
+		}
+		
+		currentItemPath = "item_" + String.format("%03d" , itemCount++);
+		
+		Path path = OutputFiles.createItemDirectory(archiveDirectory, currentItemPath);
+		openNewOutputFiles(path);
+		filesOpen = true;
+	}
+	
+	private void endItem() throws Exception {
+		printBBox();
+		printType();
+		printDateIssued();
+		processContent();
+		processThumbnail();
+		closeOutputFiles();
+		filesOpen = false;
+		
+		//if (!itemComplete || !geoScanId.startsWith("332") || !hasAsset) {
+//		if (!geoScanIdList.contains(geoScanId)) {
+//			FileUtils.deleteDirectory(new File(outPath + "\\" + currentArchivePath + "\\" + currentItemPath));
+//			for (String author : authors) {
+//				cfsidFileStream.println(author);
+//			}
+//		} else {
+//			cfsidFileStream.println(geoScanId);
+//			//cfsidFileStream.println("'" + geoScanId + "',");
+//		}
 		
-		String element = line.substring(1, 
-				Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace));
+		if (itemCount == archiveSize) {
+			closeArchive();
+		}
+		
+//		if (geoScanId.equals("327388")) {
+//			cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
+//		}
+		
+		//cfsidFileStream.println(geoScanId + ", " + authorCount + "," + monoAuthorCount);
+		//cfsidFileStream.println(geoScanId);
+//		if (geoScanIdList.contains(geoScanId)) {
+//			cfsidFileStream.println(geoScanId + ", " + bitstreamPath);
+//		}
+	}
+
+	private void processMetadata(GEOScanElement metadata) throws Exception {
+		String line = metadata.getText();
+		String element = metadata.getName();
 		
 		processElement(element.toLowerCase(), line);
 	}
@@ -530,6 +523,7 @@ public class PhotoFileProcessor implements FileProcessor {
 		String value = "";
 		String language = "";
 		String qualifier = "";
+		MetadataTemplate.Escape escape = MetadataTemplate.Escape.NONE;
 		
 		switch (element) {
 			case ELEMENT_TYPE :
@@ -682,7 +676,7 @@ public class PhotoFileProcessor implements FileProcessor {
 				break;
 			case ELEMENT_ONLINE_URL :
 				value = getElementGeneric(line);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_PLAIN_LANGUAGE_SUMMARY_E :
 				value = getElementGeneric(line);
@@ -858,7 +852,7 @@ public class PhotoFileProcessor implements FileProcessor {
 			case ELEMENT_MEETING_NAME :
 				value = getElementGeneric(line);
 				value = replaceLTGT(value);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_MEETING_DATE :
 				value = getElementGeneric(line);
@@ -879,7 +873,7 @@ public class PhotoFileProcessor implements FileProcessor {
 				break;
 			case ELEMENT_RELATION_URL :
 				value = getElementRelationUrl(line);
-				value = StringEscapeUtils.escapeXml(value);
+				escape = MetadataTemplate.Escape.XML;
 				break;
 			case ELEMENT_ALTERNATE_FORMAT :
 				value = getElementGeneric(line);
@@ -939,18 +933,14 @@ public class PhotoFileProcessor implements FileProcessor {
 				break;
 			case ELEMENT_CREATOR :
 				value = getElementGeneric(line);
-				if (authorMap.containsKey(value)) {
+				int authorEntry = authorTable.find(value);
+				if (authorEntry >= 0) {
 					matchCount++;
-					Set<Author> authors = authorMap.get(value);
-					if (authors.size() > 1) {
+					if (authorTable.getAuthorCount(authorEntry) > 1) {
 						conflictCount++;
 					}
 					// Add to author file
-					Iterator<Author> iterator = authors.iterator();
-			        if (iterator.hasNext()) {
-			            Author author = iterator.next();
-			            authorFileStream.println(photonumber + "," + author.getUuid());
-			        }
+					authorFileStream.println(photonumber + "," + authorTable.getUuid(authorEntry));
 					return;
 				} else {
 					missCount++;
@@ -973,18 +963,19 @@ public class PhotoFileProcessor implements FileProcessor {
 		
 		boolean isDCElement = true;
 		boolean isGeospatialElement = true;
-		String template = dcElementTemplates.get(element);
-		if (StringUtils.isEmpty(template)) {
+		MetadataTemplate template = dcElementTemplates.get(element);
+		if (template == null) {
 			isDCElement = false;
 			template = geospatialElementTemplates.get(element);
-			if (StringUtils.isEmpty(template)) {
+			if (template == null) {
 				isGeospatialElement = false;
 				template = nrcanElementTemplates.get(element);
 			}
 		}
 		
+		String output;
 		try {
-			template = template.replace(VALUE, value);
+			output = template.format(value, language, qualifier, escape);
 		} catch (Exception e) {
 			unknownElements.add(element);
 			if (element.contentEquals("fundinglegacy")) {
@@ -993,15 +984,12 @@ public class PhotoFileProcessor implements FileProcessor {
 			return;
 		}
 		
-		template = template.replace(LANGUAGE, language);
-		template = template.replace(QUALIFIER, qualifier);
-		
 		if (isDCElement) {
-			dublinCoreFileStream.println(template);
+			dublinCoreFileStream.println(output);
 		} else if (isGeospatialElement) {
-			geospatialFileStream.println(template);
+			geospatialFileStream.println(output);
 		} else {
-			nrcanFileStream.println(template);
+			nrcanFileStream.println(output);
 		}
 		
 	}
@@ -1233,20 +1221,13 @@ public class PhotoFileProcessor implements FileProcessor {
 		relationshipsFileStream.println(output);
 	}
 	
-	private void createDirectory(String path) {
-		File theDir = new File(path);
-		if (!theDir.exists()){
-		    theDir.mkdirs();
-		}
-	}
-	
-	private void openNewOutputFiles(String path) throws UnsupportedEncodingException {
-		contentsFileStream = getPrintStream(path + "\\contents");
-		relationshipsFileStream = getPrintStream(path + "\\relationships");
-		dublinCoreFileStream = getPrintStream(path + "\\dublin_core.xml");
-		dspaceFileStream = getPrintStream(path + "\\metadata_dspace.xml");
-		nrcanFileStream = getPrintStream(path + "\\metadata_nrcan.xml");
-		geospatialFileStream = getPrintStream(path + "\\metadata_geospatial.xml");
+	private void openNewOutputFiles(Path path) throws UnsupportedEncodingException {
+		contentsFileStream = OutputFiles.open(path.resolve("contents"));
+		relationshipsFileStream = OutputFiles.open(path.resolve("relationships"));
+		dublinCoreFileStream = OutputFiles.open(path.resolve("dublin_core.xml"));
+		dspaceFileStream = OutputFiles.open(path.resolve("metadata_dspace.xml"));
+		nrcanFileStream = OutputFiles.open(path.resolve("metadata_nrcan.xml"));
+		geospatialFileStream = OutputFiles.open(path.resolve("metadata_geospatial.xml"));
 		
 		initializeDSpaceFile();
 		initializeDublinCoreFile();
@@ -1290,115 +1271,115 @@ public class PhotoFileProcessor implements FileProcessor {
 	}
 	
 	private void initializeElementTemplates() {
-		dcElementTemplates = new HashMap<String, String>();
+		dcElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		dcElementTemplates.put(ELEMENT_TITLE_A, "<dcvalue element=\"title\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_TITLE, "<dcvalue element=\"title\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_IDENTIFIER, "<dcvalue element=\"identifier\" qualifier=\"" + "##QUAL##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_ALTERNATE_PHOTONUM, "<dcvalue element=\"identifier\" qualifier=\"altphotonumber\">" + VALUE + "</dcvalue>");
+		dcElementTemplates.put(ELEMENT_TITLE_A, MetadataTemplate.compile("<dcvalue element=\"title\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_TITLE, MetadataTemplate.compile("<dcvalue element=\"title\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_IDENTIFIER, MetadataTemplate.compile("<dcvalue element=\"identifier\" qualifier=\"" + MetadataTemplate.QUALIFIER + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_ALTERNATE_PHOTONUM, MetadataTemplate.compile("<dcvalue element=\"identifier\" qualifier=\"altphotonumber\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
 		//dcElementTemplates.put(ELEMENT_LANGUAGE, "<dcvalue element=\"language\" qualifier=\"iso\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_CREATOR, "<dcvalue element=\"contributor\" qualifier=\"author\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, "<dcvalue element=\"description\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_ABSTRACT, "<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_TYPE, "<dcvalue element=\"type\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, "<dcvalue element=\"subject\" qualifier=\"descriptor\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, "<dcvalue element=\"subject\" qualifier=\"geoscan\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, "<dcvalue element=\"subject\" qualifier=\"broad\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_PHOTO, "<dcvalue element=\"subject\" qualifier=\"photo\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_GC, "<dcvalue element=\"subject\" qualifier=\"gc\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, "<dcvalue element=\"subject\" qualifier=\"other\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RECORD_CREATED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_ISSUED, "<dcvalue element=\"date\" qualifier=\"issued\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, "<dcvalue element=\"date\" qualifier=\"available\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_DIGITIZED, "<dcvalue element=\"date\" qualifier=\"available\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_UPDATED, "<dcvalue element=\"date\" qualifier=\"updated\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, "<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, "<dcvalue element=\"relation\" qualifier=\"replaces\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, "<dcvalue element=\"relation\" qualifier=\"accompanies\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, "<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, "<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, "<dcvalue element=\"relation\" qualifier=\"ispartof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, "<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, "<dcvalue element=\"relation\" qualifier=\"contains\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, "<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, "<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, "<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, "<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_RELATION_TBD, "<dcvalue element=\"relation\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_MEDIA, "<dcvalue element=\"source\" qualifier=\"media\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_COLOUR, "<dcvalue element=\"source\" qualifier=\"colour\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_FILE_TYPE, "<dcvalue element=\"format\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		dcElementTemplates.put(ELEMENT_DIMENSIONS, "<dcvalue element=\"source\" qualifier=\"dimensions\">" + VALUE + "</dcvalue>");
+		dcElementTemplates.put(ELEMENT_CREATOR, MetadataTemplate.compile("<dcvalue element=\"contributor\" qualifier=\"author\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_E, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_PLAIN_LANGUAGE_SUMMARY_F, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"abstract\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_TYPE, MetadataTemplate.compile("<dcvalue element=\"type\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_DESCRIPTOR, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"descriptor\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GEOSCAN, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"geoscan\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_BROAD, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"broad\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_PHOTO, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"photo\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_GC, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"gc\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_SUBJECT_OTHER, MetadataTemplate.compile("<dcvalue element=\"subject\" qualifier=\"other\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RECORD_CREATED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_ISSUED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"issued\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_AVAILABLE, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"available\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_DIGITIZED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"available\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_UPDATED, MetadataTemplate.compile("<dcvalue element=\"date\" qualifier=\"updated\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DATE_SUBMITTED, MetadataTemplate.compile("<dcvalue element=\"description\" qualifier=\"provenance\"  language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_REPLACES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"replaces\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ACCOMPANIES, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"accompanies\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPLACEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreplacedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISRELATEDTO, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isrelatedto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISPARTOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"ispartof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISACCOMPANIEDBY, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isaccompaniedby\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_CONTAINS, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"contains\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISENLARGEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isenlargedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREDUCEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreducedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISTRANSLATIONOF, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"istranslationof\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDFROM, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedfrom\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_ISREPRINTEDIN, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"isreprintedin\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_RELATION_TBD, MetadataTemplate.compile("<dcvalue element=\"relation\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_MEDIA, MetadataTemplate.compile("<dcvalue element=\"source\" qualifier=\"media\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_COLOUR, MetadataTemplate.compile("<dcvalue element=\"source\" qualifier=\"colour\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_FILE_TYPE, MetadataTemplate.compile("<dcvalue element=\"format\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		dcElementTemplates.put(ELEMENT_DIMENSIONS, MetadataTemplate.compile("<dcvalue element=\"source\" qualifier=\"dimensions\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
-		nrcanElementTemplates = new HashMap<String, String>();
+		nrcanElementTemplates = new HashMap<String, MetadataTemplate>();
 		
-		nrcanElementTemplates.put(ELEMENT_VOLUME, "<dcvalue element=\"volume\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ISSUE, "<dcvalue element=\"issue\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, "<dcvalue element=\"openaccess\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NTS, "<dcvalue element=\"nts\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, "<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, "<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, "<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_AREA_TEXT, "<dcvalue element=\"area\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, "<dcvalue element=\"abstract\" qualifier=\"language\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, "<dcvalue element=\"publication\" qualifier=\"externalurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SUMMARY, "<dcvalue element=\"summary\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NOTES, "<dcvalue element=\"notes\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOCTYPE, "<dcvalue element=\"legacy\" qualifier=\"doctype\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, "<dcvalue element=\"policy\" qualifier=\"paae\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, "<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, "<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, "<dcvalue element=\"geopsurvey\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, "<dcvalue element=\"geography\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, "<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_EDITION, "<dcvalue element=\"edition\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_REF, "<dcvalue element=\"legacy\" qualifier=\"relationref\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, "<dcvalue element=\"articlenumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_E, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_README_F, "<dcvalue element=\"readme\" qualifier=\"\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_THESIS, "<dcvalue element=\"legacy\" qualifier=\"thesis\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, "<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_TITLE_M, "<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, "<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, "<dcvalue element=\"legacy\" qualifier=\"download\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, "<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MAP, "<dcvalue element=\"map\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, "<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + "##LANG##" + "\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, "<dcvalue element=\"meeting\" qualifier=\"name\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, "<dcvalue element=\"meeting\" qualifier=\"city\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, "<dcvalue element=\"meeting\" qualifier=\"country\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, "<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, "<dcvalue element=\"legacy\" qualifier=\"printdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_URL, "<dcvalue element=\"publication\" qualifier=\"externalurl\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION, "<dcvalue element=\"legacy\" qualifier=\"relation\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, "<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_START, "<dcvalue element=\"meeting\" qualifier=\"startdate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_MEETING_END, "<dcvalue element=\"meeting\" qualifier=\"enddate\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DIGITAL, "<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, "<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, "<dcvalue element=\"legacy\" qualifier=\"map\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, "<dcvalue element=\"reportnumber\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, "<dcvalue element=\"secondaryserial\" qualifier=\"0number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, "<dcvalue element=\"secondaryserial\" qualifier=\"1number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, "<dcvalue element=\"secondaryserial\" qualifier=\"2number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, "<dcvalue element=\"secondaryserial\" qualifier=\"3number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, "<dcvalue element=\"secondaryserial\" qualifier=\"4number\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, "<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, "<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, "<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, "<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + VALUE + "</dcvalue>");
+		nrcanElementTemplates.put(ELEMENT_VOLUME, MetadataTemplate.compile("<dcvalue element=\"volume\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ISSUE, MetadataTemplate.compile("<dcvalue element=\"issue\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS, MetadataTemplate.compile("<dcvalue element=\"openaccess\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NTS, MetadataTemplate.compile("<dcvalue element=\"nts\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PAGE_RANGE, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"pagerange\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_PAGES, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalpages\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TOTAL_SHEETS, MetadataTemplate.compile("<dcvalue element=\"pagination\" qualifier=\"totalsheets\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_AREA_TEXT, MetadataTemplate.compile("<dcvalue element=\"area\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_LANGUAGE_ABSTRACT, MetadataTemplate.compile("<dcvalue element=\"abstract\" qualifier=\"language\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ONLINE_URL, MetadataTemplate.compile("<dcvalue element=\"publication\" qualifier=\"externalurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SUMMARY, MetadataTemplate.compile("<dcvalue element=\"summary\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NOTES, MetadataTemplate.compile("<dcvalue element=\"notes\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOCTYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"doctype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_PAAE, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"paae\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_IMPLICATION_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"implication\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_E, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLICY_RELEVANCE_F, MetadataTemplate.compile("<dcvalue element=\"policy\" qualifier=\"relevance\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOP_SURVEY, MetadataTemplate.compile("<dcvalue element=\"geopsurvey\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_GEOGRAPHY, MetadataTemplate.compile("<dcvalue element=\"geography\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_WEB_ACCESSIBLE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"webaccessible\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_EDITION, MetadataTemplate.compile("<dcvalue element=\"edition\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_REF, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationref\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARTICLE_NUMBER, MetadataTemplate.compile("<dcvalue element=\"articlenumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_E, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_README_F, MetadataTemplate.compile("<dcvalue element=\"readme\" qualifier=\"\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_THESIS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thesis\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_NUMBER_OF_MAPS, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"numberofmaps\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_TITLE_M, MetadataTemplate.compile("<dcvalue element=\"monographic\" qualifier=\"title\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONT_DESCR, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"contdescr\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DOWNLOAD, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"download\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ARCHIVAL_FILE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"archivalfile\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MAP, MetadataTemplate.compile("<dcvalue element=\"map\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_FUNDING_LEGACY, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"sponsor\" language=\"" + MetadataTemplate.LANGUAGE + "\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_NAME, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"name\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_CITY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"city\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_COUNTRY, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"country\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_ALTERNATE_FORMAT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"alternateformat\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PRINT_DATE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"printdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_URL, MetadataTemplate.compile("<dcvalue element=\"publication\" qualifier=\"externalurl\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relation\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_PHOTO, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationphoto\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_START, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"startdate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_MEETING_END, MetadataTemplate.compile("<dcvalue element=\"meeting\" qualifier=\"enddate\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DIGITAL, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"mapdigital\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_IS_OR_HAS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"isorhasmap\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CONTAINS_MAP, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"map\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_REPORT_NUMBER, MetadataTemplate.compile("<dcvalue element=\"reportnumber\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER1, MetadataTemplate.compile("<dcvalue element=\"secondaryserial\" qualifier=\"0number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER2, MetadataTemplate.compile("<dcvalue element=\"secondaryserial\" qualifier=\"1number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER3, MetadataTemplate.compile("<dcvalue element=\"secondaryserial\" qualifier=\"2number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER4, MetadataTemplate.compile("<dcvalue element=\"secondaryserial\" qualifier=\"3number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SEC_SERIAL_NUMBER5, MetadataTemplate.compile("<dcvalue element=\"secondaryserial\" qualifier=\"4number\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DATE_RECORD_SENT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordsent\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RECORD_MODIFIED, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"daterecordmod\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_PREVIOUS_FILENAME, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"previousfilename\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_OPEN_ACCESS_TYPE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"openaccesstype\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		//nrcanElementTemplates.put(ELEMENT_STATUS, "<dcvalue element=\"legacy\" qualifier=\"status\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_IMAGE, "<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, "<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, "<dcvalue element=\"legacy\" qualifier=\"classification\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_DURATION, "<dcvalue element=\"legacy\" qualifier=\"duration\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, "<dcvalue element=\"legacy\" qualifier=\"bbox\">" + VALUE + "</dcvalue>");
-		nrcanElementTemplates.put(ELEMENT_SUBJECT, "<dcvalue element=\"legacy\" qualifier=\"photosubject\">" + VALUE + "</dcvalue>");
+		nrcanElementTemplates.put(ELEMENT_IMAGE, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"thumbnail\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_RELATION_ERRATUM, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"relationerratum\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_CLASSIFICATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"classification\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_DURATION, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"duration\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_POLYGON_WENS, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"bbox\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		nrcanElementTemplates.put(ELEMENT_SUBJECT, MetadataTemplate.compile("<dcvalue element=\"legacy\" qualifier=\"photosubject\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 					
 		relationshipElements = new HashMap<String, Relationship>();
 		
@@ -1418,11 +1399,11 @@ public class PhotoFileProcessor implements FileProcessor {
 		relationshipElements.put(ELEMENT_SEC_SERIAL_CODE, new Relationship(RELATIONSHIP_SEC_SERIAL, ATTRIBUTE_SERIAL_CODE));
 		relationshipElements.put(ELEMENT_LANGUAGE, new Relationship(RELATIONSHIP_LANGUAGE, ATTRIBUTE_LANGUAGE_CODE));
 		
-		geospatialElementTemplates = new HashMap<String, String>();
-		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, "<dcvalue element=\"polygon\" qualifier=\"degrees\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_COVERAGE, "<dcvalue element=\"polygon\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_BBOX, "<dcvalue element=\"bbox\" qualifier=\"\">" + VALUE + "</dcvalue>");
-		geospatialElementTemplates.put(ELEMENT_POINT, "<dcvalue element=\"point\" qualifier=\"\">" + VALUE + "</dcvalue>");
+		geospatialElementTemplates = new HashMap<String, MetadataTemplate>();
+		geospatialElementTemplates.put(ELEMENT_POLYGON_DEG, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"degrees\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_COVERAGE, MetadataTemplate.compile("<dcvalue element=\"polygon\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_BBOX, MetadataTemplate.compile("<dcvalue element=\"bbox\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
+		geospatialElementTemplates.put(ELEMENT_POINT, MetadataTemplate.compile("<dcvalue element=\"point\" qualifier=\"\">" + MetadataTemplate.VALUE + "</dcvalue>"));
 		
 		ignoredElements.add(ELEMENT_BIBLIOGRAPHIC_LEVEL);
 		ignoredElements.add(ELEMENT_CONTRIBUTOR);
@@ -1439,31 +1420,20 @@ public class PhotoFileProcessor implements FileProcessor {
 	}
 	
 	private void printDateIssued() throws Exception {
-		String template = dcElementTemplates.get(ELEMENT_DATE_ISSUED);
 		if (StringUtils.isEmpty(dateIssued)) {
 			//System.out.println("PhotoNumber: " + photonumber + " - No Date Issued");
 		}
-		template = template.replace(VALUE, dateIssued);
-		
-		dublinCoreFileStream.println(template);
+		dcElementTemplates.get(ELEMENT_DATE_ISSUED).println(dublinCoreFileStream, dateIssued);
 		
 		if (!StringUtils.isEmpty(lastDateUpdated)) {
-			template = dcElementTemplates.get(ELEMENT_DATE_UPDATED);
-
-			template = template.replace(VALUE, lastDateUpdated);
-			
-			dublinCoreFileStream.println(template);
+			dcElementTemplates.get(ELEMENT_DATE_UPDATED).println(dublinCoreFileStream, lastDateUpdated);
 		}
 		
 	}
 	
 	private void printType() {	
 
-		String template = dcElementTemplates.get(ELEMENT_TYPE);
-
-		template = template.replace(VALUE, "Image");
-		
-		dublinCoreFileStream.println(template);		
+		dcElementTemplates.get(ELEMENT_TYPE).println(dublinCoreFileStream, "Image");		
 	}
 	
 	private void printBBox() {	
@@ -1473,19 +1443,11 @@ public class PhotoFileProcessor implements FileProcessor {
 			
 			if (bBoxes.size() > 1) {
 				for (String val : bBoxes) {
-					String template = nrcanElementTemplates.get(ELEMENT_POLYGON_WENS);
-	
-					template = template.replace(VALUE, val);
-					
-					nrcanFileStream.println(template);
+					nrcanElementTemplates.get(ELEMENT_POLYGON_WENS).println(nrcanFileStream, val);
 				}
 			}
 			
-			String template = geospatialElementTemplates.get(ELEMENT_BBOX);
-
-			template = template.replace(VALUE, value);
-			
-			geospatialFileStream.println(template);
+			geospatialElementTemplates.get(ELEMENT_BBOX).println(geospatialFileStream, value);
 		}
 				
 	}
@@ -1808,11 +1770,7 @@ public class PhotoFileProcessor implements FileProcessor {
 	}
 	
 	private void printRelationPhotoElement(String value) {
-		String template = nrcanElementTemplates.get(ELEMENT_RELATION_PHOTO);
-
-		template = template.replace(VALUE, value);
-		
-		nrcanFileStream.println(template);
+		nrcanElementTemplates.get(ELEMENT_RELATION_PHOTO).println(nrcanFileStream, value);
 	}
 	
 	public List<String> getTokensWithCollection(String str) {
@@ -1924,24 +1882,16 @@ public class PhotoFileProcessor implements FileProcessor {
 			
 			// 1970
 			} else {
-				String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, value);
 				
-				template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-				template = template.replace(VALUE, value);
-				nrcanFileStream.println(template);
+				nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, value);
 				
 				return;
 			}
 			
-			String template = nrcanElementTemplates.get(ELEMENT_MEETING_START);
-			template = template.replace(VALUE, startDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_START).println(nrcanFileStream, startDate.format(DateTimeFormatter.ISO_DATE));
 			
-			template = nrcanElementTemplates.get(ELEMENT_MEETING_END);
-			template = template.replace(VALUE, endDate.format(DateTimeFormatter.ISO_DATE));
-			nrcanFileStream.println(template);
+			nrcanElementTemplates.get(ELEMENT_MEETING_END).println(nrcanFileStream, endDate.format(DateTimeFormatter.ISO_DATE));
 		
 		} catch (Exception e) {
 			System.out.println("PhotoNumber: " + photonumber + " - Meeting Date: " + value);
@@ -1988,29 +1938,7 @@ public class PhotoFileProcessor implements FileProcessor {
 	
 	private void readAuthorFile() throws IOException {
 		try {
-			gidInputStream = new FileInputStream("C:\\dspace\\author_export.csv");
-			gidStreamReader = new BufferedReader(new InputStreamReader(gidInputStream));
-			
-			String line = gidStreamReader.readLine();
-			
-			while(line != null) {
-				geoScanIdList.add(line.trim());
-				line = gidStreamReader.readLine();
-				
-				if (line != null) {
-					Author author = createAuthor(line);					
-					Set<Author> authorSet = authorMap.get(author.getName());
-					if (authorSet != null && authorSet.size() > 0) {
-						authorSet.add(author);
-						authorMap.put(author.getName(), authorSet);
-					} else {
-						authorSet = new HashSet<Author>();
-						authorSet.add(author);
-						authorMap.put(author.getName(), authorSet);
-					}
-				}			
-			}
-			
+			authorTable = AuthorTable.load(OutputFiles.getBasePath("author_export.csv"));
 		} catch(Exception ex) {
 			System.out.println(ex);
 			throw new RuntimeException(ex.getMessage(), ex);
@@ -2018,20 +1946,7 @@ public class PhotoFileProcessor implements FileProcessor {
 	}
 	
 	public Author createAuthor(String line) {
-		Author author = new Author();
-		line = line.replace("\"", "");
-		try {
-			String[] columns = line.split(",");
-			
-			author.setName(columns[2] + ", " + columns[1]);
-			author.setUuid(columns[9]);
-			author.setDpsid(columns[5]);
-			
-			author.setName(author.getName().replace(".", ""));
-		} catch (Exception e) {
-			System.out.println(line);
-		}
-		return author;
+		return AuthorTable.createAuthor(line);
 	}
 
 }
@@ -0,0 +1,40 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.util.Arrays;
+
+// The next place on every config entity in a run, by the entity's entry in the rel file, so taking a
+// place is an array update rather than a boxed get and put. An entity starts after the place in the
+// place file the first time it's used. Texts the rel file doesn't have share the last counter, as
+// they shared the null key of the map this replaces.
+public class PlaceCounters {
+
+	private static final int UNSET = Integer.MIN_VALUE;
+
+	private final RelationTable relTable;
+	private final PlaceTable placeTable;
+	private final int[] next;
+
+	public PlaceCounters(RelationTable relTable, PlaceTable placeTable) {
+		this.relTable = relTable;
+		this.placeTable = placeTable;
+		this.next = new int[relTable.getObjectCount() + 1];
+		Arrays.fill(next, UNSET);
+	}
+
+	// the place for the entity of the rel entry, -1 for a text the rel file doesn't have
+	public int take(int relEntry) {
+		int object = relEntry < 0 ? next.length - 1 : relTable.getObject(relEntry);
+		int place = next[object];
+		if (place == UNSET) {
+			place = 0;
+			if (relEntry >= 0) {
+				int placeEntry = placeTable.find(relTable.getObjectId(relEntry));
+				if (placeEntry >= 0) {
+					place = placeTable.getPlace(placeEntry) + 1;
+				}
+			}
+		}
+		next[object] = place + 1;
+		return place;
+	}
+}
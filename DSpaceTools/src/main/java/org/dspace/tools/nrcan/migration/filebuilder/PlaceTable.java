@@ -0,0 +1,89 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The last place taken on every config entity, read from the "id",place file DSpace exports, as a
+// sorted string table of entity ids and their places. It's saved as a snapshot next to the place
+// file, which later runs map rather than read the file again.
+public class PlaceTable {
+
+	private static final int SNAPSHOT_KIND = 3;
+
+	private final StringTable objectIds;
+	private final IntBuffer places;
+
+	private PlaceTable(StringTable objectIds, IntBuffer places) {
+		this.objectIds = objectIds;
+		this.places = places;
+	}
+
+	// from the snapshot of the place file, made first when there is none or the file changed since
+	public static PlaceTable load(String path) throws IOException {
+		TableSnapshot.Input snapshot = TableSnapshot.open(Paths.get(path), SNAPSHOT_KIND);
+		if (snapshot != null) {
+			return read(snapshot);
+		}
+		TableSnapshot.Source source = TableSnapshot.read(Paths.get(path));
+		PlaceTable table = read(source);
+		TableSnapshot.write(source, SNAPSHOT_KIND, table::write);
+		return table;
+	}
+
+	public static PlaceTable read(InputStream inputStream) throws IOException {
+		Map<String, Integer> entries = new HashMap<String, Integer>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+			String line = reader.readLine();
+			while (line != null) {
+				line = line.replace("\"", "");
+				String id = line.substring(0, line.indexOf(","));
+				entries.put(id, Integer.parseInt(line.substring(line.indexOf(",") + 1)));
+				line = reader.readLine();
+			}
+		}
+
+		List<String> objectIds = new ArrayList<String>(entries.keySet());
+		Collections.sort(objectIds);
+		int[] places = new int[objectIds.size()];
+		for (int i = 0; i < places.length; i++) {
+			places[i] = entries.get(objectIds.get(i));
+		}
+		return new PlaceTable(StringTable.of(objectIds), IntBuffer.wrap(places));
+	}
+
+	private static PlaceTable read(TableSnapshot.Input input) {
+		StringTable objectIds = StringTable.read(input);
+		return new PlaceTable(objectIds, input.readInts(objectIds.size()));
+	}
+
+	private void write(DataOutputStream output) throws IOException {
+		objectIds.write(output);
+		TableSnapshot.align(output);
+		for (int i = 0; i < objectIds.size(); i++) {
+			output.writeInt(places.get(i));
+		}
+	}
+
+	public int size() {
+		return objectIds.size();
+	}
+
+	// the entry for the entity, -1 when the place file doesn't have it
+	public int find(CharSequence objectId) {
+		return objectIds.find(objectId);
+	}
+
+	public int getPlace(int entry) {
+		return places.get(entry);
+	}
+}
@@ -0,0 +1,114 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+// The config entity of every text, like an author's key, read from the "id","text" rel file DSpace
+// exports. The texts are a front coded dictionary, which keeps a national authority file of author
+// keys in a few bytes a key, and the entity ids a sorted string table, each text keeping the entry of
+// its id. Both are saved as a snapshot next to the rel file that later runs map rather than read the
+// file again. The last line for a text wins, as it did in a HashMap.
+public class RelationTable {
+
+	// 2 had the texts in a string table
+	private static final int SNAPSHOT_KIND = 5;
+
+	private final StringDictionary texts;
+	private final IntBuffer objects;
+	private final StringTable objectIds;
+
+	private RelationTable(StringDictionary texts, IntBuffer objects, StringTable objectIds) {
+		this.texts = texts;
+		this.objects = objects;
+		this.objectIds = objectIds;
+	}
+
+	// from the snapshot of the rel file, made first when there is none or the file changed since
+	public static RelationTable load(String path) throws IOException {
+		TableSnapshot.Input snapshot = TableSnapshot.open(Paths.get(path), SNAPSHOT_KIND);
+		if (snapshot != null) {
+			return read(snapshot);
+		}
+		TableSnapshot.Source source = TableSnapshot.read(Paths.get(path));
+		RelationTable table = read(source);
+		TableSnapshot.write(source, SNAPSHOT_KIND, table::write);
+		return table;
+	}
+
+	public static RelationTable read(InputStream inputStream) throws IOException {
+		Map<String, String> relations = new HashMap<String, String>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+			String line = reader.readLine();
+			while (line != null) {
+				line = line.replace("\"", "");
+				String id = line.substring(0, line.indexOf(","));
+				String text = line.substring(line.indexOf(",") + 1);
+				relations.put(text, id);
+				line = reader.readLine();
+			}
+		}
+
+		List<String> texts = new ArrayList<String>(relations.keySet());
+		Collections.sort(texts, StringDictionary.ORDER);
+		List<String> ids = new ArrayList<String>(new HashSet<String>(relations.values()));
+		Collections.sort(ids);
+		int[] objects = new int[texts.size()];
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = Collections.binarySearch(ids, relations.get(texts.get(i)));
+		}
+		return new RelationTable(StringDictionary.of(texts), IntBuffer.wrap(objects), StringTable.of(ids));
+	}
+
+	private static RelationTable read(TableSnapshot.Input input) {
+		StringDictionary texts = StringDictionary.read(input);
+		IntBuffer objects = input.readInts(texts.size());
+		return new RelationTable(texts, objects, StringTable.read(input));
+	}
+
+	private void write(DataOutputStream output) throws IOException {
+		texts.write(output);
+		TableSnapshot.align(output);
+		for (int i = 0; i < texts.size(); i++) {
+			output.writeInt(objects.get(i));
+		}
+		objectIds.write(output);
+	}
+
+	public int size() {
+		return texts.size();
+	}
+
+	// the entry for the text, -1 when the rel file doesn't have it
+	public int find(CharSequence text) {
+		return texts.find(text);
+	}
+
+	// the entry for the first length chars of the text
+	public int find(CharSequence text, int length) {
+		return texts.find(text, length);
+	}
+
+	// the entity of the entry, numbered from 0 in the order of the ids
+	public int getObject(int entry) {
+		return objects.get(entry);
+	}
+
+	public int getObjectCount() {
+		return objectIds.size();
+	}
+
+	public String getObjectId(int entry) {
+		return objectIds.get(objects.get(entry));
+	}
+}
@@ -0,0 +1,335 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A plain INSERT statement read back into its table, columns and rows, so a SQL file's INSERTs can be
+// loaded with COPY. Only literal values are taken: NULL, numbers, true and false and strings, with or
+// without an E in front and a ::type cast after. Any other statement, or an INSERT with a quoted name,
+// an expression, a subquery or a clause after the rows, isn't one and stays SQL.
+public class SqlInsert {
+
+	private final String statement;
+	private int position;
+	private String literal;
+
+	private String table;
+	private String[] columns;
+	private List<String[]> rows;
+
+	private SqlInsert(String statement) {
+		this.statement = statement;
+	}
+
+	// null when the statement isn't a plain INSERT
+	public static SqlInsert parse(String statement) {
+		return new SqlInsert(statement).read();
+	}
+
+	// whether the statement ends outside a string, as a line ending inside one goes on to the next line
+	public static boolean isComplete(String statement) {
+		boolean inString = false;
+		boolean escapes = false;
+		for (int i = 0; i < statement.length(); i++) {
+			char c = statement.charAt(i);
+			if (!inString) {
+				if (c == '-' && i + 1 < statement.length() && statement.charAt(i + 1) == '-') {
+					// the rest is a comment
+					return true;
+				}
+				if (c == '\'') {
+					inString = true;
+					escapes = i > 0 && (statement.charAt(i - 1) == 'E' || statement.charAt(i - 1) == 'e')
+							&& (i == 1 || !isIdentifierPart(statement.charAt(i - 2)));
+				}
+			} else if (escapes && c == '\\') {
+				i++;
+			} else if (c == '\'') {
+				if (i + 1 < statement.length() && statement.charAt(i + 1) == '\'') {
+					i++;
+				} else {
+					inString = false;
+				}
+			}
+		}
+		return !inString;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	// null when the statement names no columns
+	public String[] getColumns() {
+		return columns;
+	}
+
+	public List<String[]> getRows() {
+		return rows;
+	}
+
+	private SqlInsert read() {
+		if (!keyword("insert") || !keyword("into")) {
+			return null;
+		}
+		String table = identifier();
+		if (table == null) {
+			return null;
+		}
+		while (skip('.')) {
+			String name = identifier();
+			if (name == null) {
+				return null;
+			}
+			table = table + "." + name;
+		}
+
+		String[] columns = null;
+		if (skip('(')) {
+			List<String> names = new ArrayList<String>();
+			do {
+				String name = identifier();
+				if (name == null) {
+					return null;
+				}
+				names.add(name);
+			} while (skip(','));
+			if (!skip(')')) {
+				return null;
+			}
+			columns = names.toArray(new String[names.size()]);
+		}
+
+		if (!keyword("values")) {
+			return null;
+		}
+		List<String[]> rows = new ArrayList<String[]>();
+		do {
+			if (!skip('(')) {
+				return null;
+			}
+			List<String> values = new ArrayList<String>();
+			do {
+				skipSpace();
+				if (position >= statement.length()) {
+					return null;
+				}
+				if (!value()) {
+					return null;
+				}
+				values.add(literal);
+			} while (skip(','));
+			if (!skip(')') || (columns != null && values.size() != columns.length)) {
+				return null;
+			}
+			rows.add(values.toArray(new String[values.size()]));
+		} while (skip(','));
+
+		skip(';');
+		skipSpace();
+		if (position < statement.length()) {
+			return null;
+		}
+		this.table = table;
+		this.columns = columns;
+		this.rows = rows;
+		return this;
+	}
+
+	// the literal at the position into literal, moving past it, or false when it isn't a literal
+	private boolean value() {
+		int start = position;
+		char c = statement.charAt(position);
+		if (keyword("null")) {
+			literal = null;
+		} else if (keyword("true")) {
+			literal = "true";
+		} else if (keyword("false")) {
+			literal = "false";
+		} else {
+			if (c == '\'') {
+				literal = string(false);
+			} else if ((c == 'E' || c == 'e') && position + 1 < statement.length() && statement.charAt(position + 1) == '\'') {
+				position++;
+				literal = string(true);
+			} else {
+				literal = number();
+			}
+			if (literal == null) {
+				position = start;
+				return false;
+			}
+		}
+
+		// a cast is dropped, COPY gives the value the type of its column
+		skipSpace();
+		if (statement.startsWith("::", position)) {
+			position += 2;
+			if (identifier() == null) {
+				position = start;
+				return false;
+			}
+			if (skip('(')) {
+				while (position < statement.length() && statement.charAt(position) != ')') {
+					position++;
+				}
+				if (!skip(')')) {
+					position = start;
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// the string starting at the quote, with backslash escapes when escapes is set, null when it
+	// doesn't end
+	private String string(boolean escapes) {
+		StringBuilder builder = new StringBuilder();
+		int i = position + 1;
+		while (i < statement.length()) {
+			char c = statement.charAt(i);
+			if (c == '\'') {
+				if (i + 1 < statement.length() && statement.charAt(i + 1) == '\'') {
+					builder.append('\'');
+					i += 2;
+					continue;
+				}
+				position = i + 1;
+				return builder.toString();
+			}
+			if (escapes && c == '\\' && i + 1 < statement.length()) {
+				i = unescape(i + 1, builder);
+				continue;
+			}
+			builder.append(c);
+			i++;
+		}
+		return null;
+	}
+
+	// the escape after a backslash at i, returning where it ends
+	private int unescape(int i, StringBuilder builder) {
+		char c = statement.charAt(i);
+		switch (c) {
+		case 'b':
+			builder.append('\b');
+			return i + 1;
+		case 'f':
+			builder.append('\f');
+			return i + 1;
+		case 'n':
+			builder.append('\n');
+			return i + 1;
+		case 'r':
+			builder.append('\r');
+			return i + 1;
+		case 't':
+			builder.append('\t');
+			return i + 1;
+		case 'x':
+			return unescapeNumber(i + 1, 2, 16, builder, c);
+		case 'u':
+			return unescapeNumber(i + 1, 4, 16, builder, c);
+		case 'U':
+			return unescapeNumber(i + 1, 8, 16, builder, c);
+		default:
+			if (c >= '0' && c <= '7') {
+				return unescapeNumber(i, 3, 8, builder, c);
+			}
+			builder.append(c);
+			return i + 1;
+		}
+	}
+
+	// up to most digits in the radix as a code point, or the letter itself when there are none
+	private int unescapeNumber(int i, int most, int radix, StringBuilder builder, char letter) {
+		int codePoint = 0;
+		int end = i;
+		while (end < statement.length() && end - i < most && Character.digit(statement.charAt(end), radix) >= 0) {
+			codePoint = codePoint * radix + Character.digit(statement.charAt(end), radix);
+			end++;
+		}
+		if (end == i) {
+			builder.append(letter);
+			return i;
+		}
+		builder.appendCodePoint(codePoint);
+		return end;
+	}
+
+	private String number() {
+		int start = position;
+		int i = position;
+		if (i < statement.length() && (statement.charAt(i) == '-' || statement.charAt(i) == '+')) {
+			i++;
+		}
+		int digits = i;
+		while (i < statement.length() && (Character.isDigit(statement.charAt(i)) || statement.charAt(i) == '.')) {
+			i++;
+		}
+		if (i == digits) {
+			return null;
+		}
+		if (i < statement.length() && (statement.charAt(i) == 'e' || statement.charAt(i) == 'E')) {
+			int exponent = i + 1;
+			if (exponent < statement.length() && (statement.charAt(exponent) == '-' || statement.charAt(exponent) == '+')) {
+				exponent++;
+			}
+			if (exponent < statement.length() && Character.isDigit(statement.charAt(exponent))) {
+				i = exponent;
+				while (i < statement.length() && Character.isDigit(statement.charAt(i))) {
+					i++;
+				}
+			}
+		}
+		if (i < statement.length() && isIdentifierPart(statement.charAt(i))) {
+			return null;
+		}
+		position = i;
+		return statement.substring(start, i);
+	}
+
+	// an unquoted name, folded to lower case as PostgreSQL folds it
+	private String identifier() {
+		skipSpace();
+		int start = position;
+		if (position >= statement.length() || !(Character.isLetter(statement.charAt(position)) || statement.charAt(position) == '_')) {
+			return null;
+		}
+		while (position < statement.length() && isIdentifierPart(statement.charAt(position))) {
+			position++;
+		}
+		return statement.substring(start, position).toLowerCase();
+	}
+
+	private boolean keyword(String keyword) {
+		skipSpace();
+		int end = position + keyword.length();
+		if (!statement.regionMatches(true, position, keyword, 0, keyword.length())
+				|| (end < statement.length() && isIdentifierPart(statement.charAt(end)))) {
+			return false;
+		}
+		position = end;
+		return true;
+	}
+
+	private boolean skip(char c) {
+		skipSpace();
+		if (position < statement.length() && statement.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpace() {
+		while (position < statement.length() && Character.isWhitespace(statement.charAt(position))) {
+			position++;
+		}
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+}
@@ -0,0 +1,301 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// A sorted set of strings front coded in one run of UTF-8 bytes, for keys that share long prefixes
+// like the author keys of the rel file. Strings go in buckets of 16, the first kept whole and each of
+// the others as the number of bytes it shares with the one before and the bytes after those:
+//
+//   length, bytes of the first string, then for each other string: shared length, length, bytes
+//
+// with the lengths as varints. A lookup encodes the key into a buffer kept by the thread, binary
+// searches the first strings of the buckets and decodes one bucket, without making any objects, and
+// can look up the first chars of a key without a substring. Strings are in UTF-8 byte order, which
+// is the order of their code points.
+public class StringDictionary {
+
+	public static final Comparator<String> ORDER = StringDictionary::compareCodePoints;
+
+	private static final int BUCKET_SIZE = 16;
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private final int size;
+	private final IntBuffer buckets;
+	private final ByteBuffer bytes;
+
+	private StringDictionary(int size, IntBuffer buckets, ByteBuffer bytes) {
+		this.size = size;
+		this.buckets = buckets;
+		this.bytes = bytes;
+	}
+
+	// distinct strings in ORDER
+	public static StringDictionary of(List<String> strings) {
+		int[] buckets = new int[(strings.size() + BUCKET_SIZE - 1) / BUCKET_SIZE];
+		byte[] bytes = new byte[1024];
+		int length = 0;
+		byte[] previous = new byte[0];
+		for (int i = 0; i < strings.size(); i++) {
+			byte[] encoded = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			int shared = 0;
+			if (i % BUCKET_SIZE == 0) {
+				buckets[i / BUCKET_SIZE] = length;
+			} else {
+				int most = Math.min(previous.length, encoded.length);
+				while (shared < most && previous[shared] == encoded[shared]) {
+					shared++;
+				}
+			}
+			if (length + encoded.length - shared + 10 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length - shared + 10));
+			}
+			if (i % BUCKET_SIZE != 0) {
+				length = writeVarint(bytes, length, shared);
+			}
+			length = writeVarint(bytes, length, encoded.length - shared);
+			System.arraycopy(encoded, shared, bytes, length, encoded.length - shared);
+			length += encoded.length - shared;
+			previous = encoded;
+		}
+		return new StringDictionary(strings.size(), IntBuffer.wrap(buckets), ByteBuffer.wrap(bytes, 0, length).slice());
+	}
+
+	// the dictionary write put at the next sections of the input
+	static StringDictionary read(TableSnapshot.Input input) {
+		int size = input.readInt();
+		int length = input.readInt();
+		IntBuffer buckets = input.readInts((size + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		return new StringDictionary(size, buckets, input.readBytes(length));
+	}
+
+	void write(DataOutputStream output) throws IOException {
+		int length = bytes.limit();
+		output.writeInt(size);
+		output.writeInt(length);
+		TableSnapshot.align(output);
+		for (int i = 0; i < buckets.limit(); i++) {
+			output.writeInt(buckets.get(i));
+		}
+		TableSnapshot.align(output);
+		byte[] chunk = new byte[8192];
+		for (int start = 0; start < length; start += chunk.length) {
+			int count = Math.min(chunk.length, length - start);
+			for (int i = 0; i < count; i++) {
+				chunk[i] = bytes.get(start + i);
+			}
+			output.write(chunk, 0, count);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String get(int entry) {
+		Scratch scratch = SCRATCH.get();
+		int bucket = entry / BUCKET_SIZE;
+		int position = buckets.get(bucket);
+		int length = 0;
+		for (int i = bucket * BUCKET_SIZE; i <= entry; i++) {
+			int shared = 0;
+			if (i != bucket * BUCKET_SIZE) {
+				shared = readVarint(position, scratch);
+				position = scratch.position;
+			}
+			int rest = readVarint(position, scratch);
+			position = scratch.position;
+			length = shared + rest;
+			byte[] current = scratch.current(length);
+			for (int j = 0; j < rest; j++) {
+				current[shared + j] = bytes.get(position + j);
+			}
+			position += rest;
+		}
+		return new String(scratch.current, 0, length, StandardCharsets.UTF_8);
+	}
+
+	// the entry of the string, -1 when the dictionary doesn't have it
+	public int find(CharSequence key) {
+		return find(key, key.length());
+	}
+
+	// the entry of the first length chars of key
+	public int find(CharSequence key, int length) {
+		if (size == 0) {
+			return -1;
+		}
+		Scratch scratch = SCRATCH.get();
+		int keyLength = encode(key, length, scratch);
+		byte[] encoded = scratch.key;
+
+		// the last bucket starting at or before the key
+		int low = 0;
+		int high = buckets.limit() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			int position = buckets.get(middle);
+			int headLength = readVarint(position, scratch);
+			if (compare(scratch.position, headLength, encoded, keyLength) <= 0) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		int entry = low * BUCKET_SIZE;
+		int last = Math.min(size, entry + BUCKET_SIZE);
+		int position = buckets.get(low);
+		for (; entry < last; entry++) {
+			int shared = 0;
+			if (entry != low * BUCKET_SIZE) {
+				shared = readVarint(position, scratch);
+				position = scratch.position;
+			}
+			int rest = readVarint(position, scratch);
+			position = scratch.position;
+			byte[] current = scratch.current(shared + rest);
+			for (int j = 0; j < rest; j++) {
+				current[shared + j] = bytes.get(position + j);
+			}
+			position += rest;
+
+			int compare = compare(current, shared + rest, encoded, keyLength);
+			if (compare == 0) {
+				return entry;
+			}
+			if (compare > 0) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	// the bytes of the buffer at position against the key, unsigned
+	private int compare(int position, int length, byte[] key, int keyLength) {
+		int most = Math.min(length, keyLength);
+		for (int i = 0; i < most; i++) {
+			int difference = (bytes.get(position + i) & 0xFF) - (key[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - keyLength;
+	}
+
+	private static int compare(byte[] current, int length, byte[] key, int keyLength) {
+		int most = Math.min(length, keyLength);
+		for (int i = 0; i < most; i++) {
+			int difference = (current[i] & 0xFF) - (key[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - keyLength;
+	}
+
+	// the varint at position, leaving where it ends in the scratch
+	private int readVarint(int position, Scratch scratch) {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = bytes.get(position++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		scratch.position = position;
+		return value;
+	}
+
+	private static int writeVarint(byte[] bytes, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[position++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte) value;
+		return position;
+	}
+
+	// The first length chars of key as UTF-8 in the scratch, as String.getBytes would have them,
+	// with a surrogate on its own as ?
+	private static int encode(CharSequence key, int length, Scratch scratch) {
+		byte[] encoded = scratch.key(length * 3);
+		int position = 0;
+		for (int i = 0; i < length; i++) {
+			char c = key.charAt(i);
+			if (c < 0x80) {
+				encoded[position++] = (byte) c;
+			} else if (c < 0x800) {
+				encoded[position++] = (byte) (0xC0 | c >> 6);
+				encoded[position++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, key.charAt(++i));
+				encoded[position++] = (byte) (0xF0 | codePoint >> 18);
+				encoded[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				encoded[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				encoded[position++] = (byte) (0x80 | codePoint & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				encoded[position++] = '?';
+			} else {
+				encoded[position++] = (byte) (0xE0 | c >> 12);
+				encoded[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+				encoded[position++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		return position;
+	}
+
+	private static int compareCodePoints(String a, String b) {
+		int i = 0;
+		int j = 0;
+		while (i < a.length() && j < b.length()) {
+			int first = a.codePointAt(i);
+			int second = b.codePointAt(j);
+			if (first != second) {
+				return first - second;
+			}
+			i += Character.charCount(first);
+			j += Character.charCount(second);
+		}
+		if (i < a.length()) {
+			return 1;
+		}
+		return j < b.length() ? -1 : 0;
+	}
+
+	// buffers a thread reuses from one lookup to the next
+	private static class Scratch {
+
+		private byte[] key = new byte[256];
+		private byte[] current = new byte[256];
+		private int position;
+
+		byte[] key(int length) {
+			if (key.length < length) {
+				key = new byte[Math.max(length, key.length * 2)];
+			}
+			return key;
+		}
+
+		// grown keeping the bytes shared with the string before
+		byte[] current(int length) {
+			if (current.length < length) {
+				current = Arrays.copyOf(current, Math.max(length, current.length * 2));
+			}
+			return current;
+		}
+	}
+}
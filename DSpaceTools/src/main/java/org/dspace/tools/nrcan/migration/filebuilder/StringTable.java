@@ -0,0 +1,143 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Strings kept as UTF-8 in one run of bytes, with the offset each one starts at, about a third of
+// the memory of the Strings and in a form a snapshot maps as it is. A table of sorted strings finds
+// one with a binary search that compares the chars with the bytes as it goes, making no String.
+public class StringTable {
+
+	private final int size;
+	private final IntBuffer offsets;
+	private final ByteBuffer bytes;
+
+	private StringTable(int size, IntBuffer offsets, ByteBuffer bytes) {
+		this.size = size;
+		this.offsets = offsets;
+		this.bytes = bytes;
+	}
+
+	// in the order given, which for find has to be the order String.compareTo puts them in
+	public static StringTable of(List<String> strings) {
+		int[] offsets = new int[strings.size() + 1];
+		byte[] bytes = new byte[1024];
+		int length = 0;
+		for (int i = 0; i < strings.size(); i++) {
+			byte[] encoded = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			if (length + encoded.length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length));
+			}
+			System.arraycopy(encoded, 0, bytes, length, encoded.length);
+			length += encoded.length;
+			offsets[i + 1] = length;
+		}
+		return new StringTable(strings.size(), IntBuffer.wrap(offsets), ByteBuffer.wrap(bytes, 0, length).slice());
+	}
+
+	// the table write put at the next sections of the input
+	static StringTable read(TableSnapshot.Input input) {
+		int size = input.readInt();
+		int length = input.readInt();
+		IntBuffer offsets = input.readInts(size + 1);
+		return new StringTable(size, offsets, input.readBytes(length));
+	}
+
+	void write(DataOutputStream output) throws IOException {
+		int length = offsets.get(size);
+		output.writeInt(size);
+		output.writeInt(length);
+		TableSnapshot.align(output);
+		for (int i = 0; i <= size; i++) {
+			output.writeInt(offsets.get(i));
+		}
+		TableSnapshot.align(output);
+		byte[] chunk = new byte[8192];
+		for (int start = 0; start < length; start += chunk.length) {
+			int count = Math.min(chunk.length, length - start);
+			for (int i = 0; i < count; i++) {
+				chunk[i] = bytes.get(start + i);
+			}
+			output.write(chunk, 0, count);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String get(int entry) {
+		int start = offsets.get(entry);
+		byte[] encoded = new byte[offsets.get(entry + 1) - start];
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = bytes.get(start + i);
+		}
+		return new String(encoded, StandardCharsets.UTF_8);
+	}
+
+	// the entry of the string, -1 when the table doesn't have it
+	public int find(CharSequence key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = compare(middle, key);
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	// below 0 when the string at entry comes before key, as String.compareTo has it
+	private int compare(int entry, CharSequence key) {
+		int position = offsets.get(entry);
+		int end = offsets.get(entry + 1);
+		int length = key.length();
+		int i = 0;
+		while (position < end && i < length) {
+			int b = bytes.get(position) & 0xFF;
+			int c;
+			if (b < 0x80) {
+				c = b;
+				position++;
+			} else if (b < 0xE0) {
+				c = (b & 0x1F) << 6 | (bytes.get(position + 1) & 0x3F);
+				position += 2;
+			} else if (b < 0xF0) {
+				c = (b & 0x0F) << 12 | (bytes.get(position + 1) & 0x3F) << 6 | (bytes.get(position + 2) & 0x3F);
+				position += 3;
+			} else {
+				// two chars in the key
+				int codePoint = (b & 0x07) << 18 | (bytes.get(position + 1) & 0x3F) << 12
+						| (bytes.get(position + 2) & 0x3F) << 6 | (bytes.get(position + 3) & 0x3F);
+				position += 4;
+				char high = Character.highSurrogate(codePoint);
+				if (high != key.charAt(i)) {
+					return high - key.charAt(i);
+				}
+				if (++i == length) {
+					return 1;
+				}
+				c = Character.lowSurrogate(codePoint);
+			}
+			if (c != key.charAt(i)) {
+				return c - key.charAt(i);
+			}
+			i++;
+		}
+		if (position < end) {
+			return 1;
+		}
+		return i < length ? -1 : 0;
+	}
+}
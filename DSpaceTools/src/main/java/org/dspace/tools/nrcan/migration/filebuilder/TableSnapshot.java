@@ -0,0 +1,248 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// A lookup table read from a CSV, saved next to it once it has been read so the next run maps it
+// instead of parsing the CSV again. The header says which CSV the body was made from:
+//
+//   magic, version, table kind, charset, source length, source last modified, source hash, body length
+//
+// A snapshot is used as it is while its source has the same length and date, so opening one doesn't
+// depend on the size of the table. A source with a new date but the same length is hashed, and when
+// it hashes the same, say it was copied or touched, the snapshot takes the new date and is kept.
+public class TableSnapshot {
+
+	public static final String EXTENSION = ".snap";
+
+	private static final int MAGIC = 0x534e4150;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 48;
+	private static final int MODIFIED_OFFSET = 24;
+	private static final int BODY_LENGTH_OFFSET = 40;
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	interface Body {
+		void write(DataOutputStream output) throws IOException;
+	}
+
+	public static Path pathFor(Path source) {
+		return source.resolveSibling(source.getFileName() + EXTENSION);
+	}
+
+	// the body of the snapshot, null when there is none or it was made from another version of the source
+	public static Input open(Path source, int kind) throws IOException {
+		Path path = pathFor(source);
+		if (!Files.isRegularFile(path) || !Files.isRegularFile(source)) {
+			return null;
+		}
+
+		ByteBuffer body;
+		long sourceModified = Files.getLastModifiedTime(source).toMillis();
+		boolean touched;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != kind
+					|| header.getInt(12) != charset() || header.getLong(16) != Files.size(source)) {
+				return null;
+			}
+			long bodyLength = header.getLong(BODY_LENGTH_OFFSET);
+			if (channel.size() != HEADER_SIZE + bodyLength) {
+				return null;
+			}
+			touched = header.getLong(MODIFIED_OFFSET) != sourceModified;
+			if (touched && hash(source) != header.getLong(32)) {
+				return null;
+			}
+
+			// the mapping stays valid once the file is closed
+			try {
+				body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, bodyLength);
+			} catch(UnsupportedOperationException ex) {
+				// a file system that can't map, like a zip, is read
+				byte[] bytes = new byte[(int) bodyLength];
+				readFully(channel, ByteBuffer.wrap(bytes), HEADER_SIZE);
+				body = ByteBuffer.wrap(bytes);
+			}
+		}
+
+		if (touched) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(8).putLong(0, sourceModified), MODIFIED_OFFSET);
+			} catch(IOException ex) {
+				// hashed again next time
+			}
+		}
+		return new Input(body);
+	}
+
+	// The source to read a table from, hashed as it's read. Its length and date are taken first, so
+	// a source that changes while it's read leaves a snapshot that won't be used.
+	public static Source read(Path source) throws IOException {
+		return new Source(source);
+	}
+
+	// Saves the table read from source, replacing any earlier snapshot in one step. A folder the
+	// snapshot can't be written to only means the source is read again next time.
+	static void write(Source source, int kind, Body body) {
+		Path path = pathFor(source.path);
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		long bodyLength;
+		try {
+			try (DataOutputStream output = new DataOutputStream(OutputFiles.openStream(tempPath, BUFFER_SIZE))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(kind);
+				output.writeInt(charset());
+				output.writeLong(source.length);
+				output.writeLong(source.modified);
+				output.writeLong(source.hash);
+				output.writeLong(0);
+				body.write(output);
+				output.flush();
+				bodyLength = output.size() - HEADER_SIZE;
+			}
+			// the length of the body is only known once it has been written
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(8).putLong(0, bodyLength), BODY_LENGTH_OFFSET);
+			}
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+		} catch(IOException ex) {
+			System.out.println("COULD NOT SAVE SNAPSHOT " + path + ": " + ex);
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch(IOException deleteEx) {
+				// left for the next run to replace
+			}
+		}
+	}
+
+	// Written before each run of ints, longs or bytes in a body, so the ints and longs of a mapped
+	// snapshot are aligned
+	static void align(DataOutputStream output) throws IOException {
+		while (output.size() % 8 != 0) {
+			output.writeByte(0);
+		}
+	}
+
+	// the same bytes read with another charset are another table
+	private static int charset() {
+		return Charset.defaultCharset().name().hashCode();
+	}
+
+	private static long hash(Path source) throws IOException {
+		try (Source input = new Source(source)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (input.read(buffer) >= 0) {
+				// hashed as it goes
+			}
+			return input.hash;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Snapshot ends early");
+			}
+			position += read;
+		}
+	}
+
+	public static class Source extends FilterInputStream {
+
+		private final Path path;
+		private final long length;
+		private final long modified;
+		private long hash = FNV_OFFSET;
+
+		private Source(Path path) throws IOException {
+			super(null);
+			this.path = path;
+			this.length = Files.size(path);
+			this.modified = Files.getLastModifiedTime(path).toMillis();
+			this.in = Files.newInputStream(path);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0) {
+				hash = (hash ^ b) * FNV_PRIME;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			int read = in.read(buffer, offset, count);
+			for (int i = 0; i < read; i++) {
+				hash = (hash ^ (buffer[offset + i] & 0xFF)) * FNV_PRIME;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			throw new IOException("A hashed source is read through");
+		}
+	}
+
+	// the sections of a body, read in the order they were written
+	static class Input {
+
+		private final ByteBuffer body;
+		private int position = 0;
+
+		private Input(ByteBuffer body) {
+			this.body = body;
+		}
+
+		int readInt() {
+			int value = body.getInt(position);
+			position += 4;
+			return value;
+		}
+
+		IntBuffer readInts(int count) {
+			return slice(count * 4).asIntBuffer();
+		}
+
+		LongBuffer readLongs(int count) {
+			return slice(count * 8).asLongBuffer();
+		}
+
+		ByteBuffer readBytes(int count) {
+			return slice(count);
+		}
+
+		private ByteBuffer slice(int length) {
+			position = (position + 7) & ~7;
+			// through Buffer, which has position and limit on Java 8 as well
+			ByteBuffer slice = body.duplicate();
+			((Buffer) slice).position(position);
+			((Buffer) slice).limit(position + length);
+			position += length;
+			return slice.slice();
+		}
+	}
+}
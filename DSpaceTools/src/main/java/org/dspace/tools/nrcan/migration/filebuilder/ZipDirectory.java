@@ -1,50 +1,180 @@
 package org.dspace.tools.nrcan.migration.filebuilder;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.StreamCompressor;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+
+// Zips an archive directory by compressing its files in parallel, each into a scatter file of its
+// own, and then gathering them into the one zip in path order, every folder before what's in it, so
+// the same directory always gives the same zip. Files that are already compressed are stored rather
+// than deflated, and with store set nothing is deflated at all. Archives hold metadata files of a
+// few kilobytes, so the scatter files are kept in memory rather than in temp files.
 public class ZipDirectory {
-    public static void zipDirectory(String directoryName, String outputFilename) throws IOException {
-        String sourceFile = directoryName;
-        FileOutputStream fos = new FileOutputStream(outputFilename);
-        ZipOutputStream zipOut = new ZipOutputStream(fos);
-
-        File fileToZip = new File(sourceFile);
-        zipFile(fileToZip, fileToZip.getName(), zipOut);
-        zipOut.close();
-        fos.close();
-    }
-
-    public static void zipFile(File fileToZip, String fileName, ZipOutputStream zipOut) throws IOException {
-        if (fileToZip.isHidden()) {
-            return;
-        }
-        if (fileToZip.isDirectory()) {
-            if (fileName.endsWith("/")) {
-                zipOut.putNextEntry(new ZipEntry(fileName));
-                zipOut.closeEntry();
-            } else {
-                zipOut.putNextEntry(new ZipEntry(fileName + "/"));
-                zipOut.closeEntry();
-            }
-            File[] children = fileToZip.listFiles();
-            for (File childFile : children) {
-                zipFile(childFile, fileName + "/" + childFile.getName(), zipOut);
-            }
-            return;
-        }
-        FileInputStream fis = new FileInputStream(fileToZip);
-        ZipEntry zipEntry = new ZipEntry(fileName);
-        zipOut.putNextEntry(zipEntry);
-        byte[] bytes = new byte[1024];
-        int length;
-        while ((length = fis.read(bytes)) >= 0) {
-            zipOut.write(bytes, 0, length);
-        }
-        fis.close();
-    }
+
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+			"zip", "gz", "pdf", "jpg", "jpeg", "png", "gif", "tif", "tiff", "mp3", "mp4"));
+
+	public static void zipDirectory(Path directory, Path outputFile) throws IOException {
+		zipDirectory(directory, outputFile, DEFAULT_THREADS, false);
+	}
+
+	// on a pool of its own for this one directory
+	public static void zipDirectory(Path directory, Path outputFile, int threads, boolean store) throws IOException {
+		ExecutorService deflater = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			zipDirectory(directory, outputFile, deflater, store);
+		} finally {
+			deflater.shutdownNow();
+		}
+	}
+
+	// deflater can be shared by archives zipped at the same time, which keeps the deflate threads of
+	// a run to the size of the one pool
+	public static void zipDirectory(Path directory, Path outputFile, ExecutorService deflater, boolean store) throws IOException {
+		if (!Files.exists(directory)) {
+			throw new NoSuchFileException(directory.toString());
+		}
+
+		List<ZipArchiveEntry> entries = new ArrayList<ZipArchiveEntry>();
+		// null for a folder
+		List<Future<ScatterZipOutputStream>> scatters = new ArrayList<Future<ScatterZipOutputStream>>();
+		try {
+			addEntries(deflater, entries, scatters, directory, directory.getFileName().toString(), store);
+
+			try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(OutputFiles.openStream(outputFile))) {
+				for (int i = 0; i < entries.size(); i++) {
+					if (scatters.get(i) == null) {
+						zipOut.putArchiveEntry(entries.get(i));
+						zipOut.closeArchiveEntry();
+						continue;
+					}
+					try (ScatterZipOutputStream scatter = scatters.get(i).get()) {
+						scatter.writeTo(zipOut);
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted zipping " + directory);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause() instanceof UncheckedIOException ? ex.getCause().getCause() : ex.getCause();
+			throw new IOException(cause.getMessage(), cause);
+		} finally {
+			// the files not deflated yet when an entry failed
+			for (Future<ScatterZipOutputStream> scatter : scatters) {
+				if (scatter != null) {
+					scatter.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static void addEntries(ExecutorService deflater, List<ZipArchiveEntry> entries, List<Future<ScatterZipOutputStream>> scatters,
+			Path path, String name, boolean store) throws IOException {
+		if (Files.isHidden(path)) {
+			return;
+		}
+		if (Files.isDirectory(path)) {
+			ZipArchiveEntry folder = new ZipArchiveEntry(name.endsWith("/") ? name : name + "/");
+			folder.setMethod(ZipEntry.STORED);
+			folder.setSize(0);
+			folder.setCrc(0);
+			folder.setTime(Files.getLastModifiedTime(path).toMillis());
+			entries.add(folder);
+			scatters.add(null);
+
+			List<Path> children = new ArrayList<Path>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path child : stream) {
+					children.add(child);
+				}
+			}
+			Collections.sort(children);
+			for (Path child : children) {
+				addEntries(deflater, entries, scatters, child, name + "/" + child.getFileName(), store);
+			}
+			return;
+		}
+
+		ZipArchiveEntry entry = new ZipArchiveEntry(name);
+		entry.setMethod(store || isCompressed(name) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+		entry.setTime(Files.getLastModifiedTime(path).toMillis());
+		int bufferSize = (int) Math.min(BUFFER_SIZE, Files.size(path) + 1);
+		entries.add(entry);
+		scatters.add(deflater.submit(() -> {
+			MemoryBackingStore backingStore = new MemoryBackingStore();
+			ScatterZipOutputStream scatter = new ScatterZipOutputStream(backingStore, StreamCompressor.create(backingStore));
+			try {
+				scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(entry, () -> {
+					try {
+						return new BufferedInputStream(Files.newInputStream(path), bufferSize);
+					} catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				}));
+			} catch (IOException | RuntimeException ex) {
+				scatter.close();
+				throw ex;
+			}
+			return scatter;
+		}));
+	}
+
+	private static boolean isCompressed(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot > name.lastIndexOf('/') && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+	}
+
+	private static class MemoryBackingStore implements ScatterGatherBackingStore {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+
+		@Override
+		public void writeOut(byte[] data, int offset, int length) {
+			buffer.write(data, offset, length);
+		}
+
+		@Override
+		public void closeForWriting() {
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(buffer.toByteArray());
+		}
+
+		@Override
+		public void close() {
+		}
+	}
 }
@@ -0,0 +1,129 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finds fields inside a line of the export without copying it. A field is a range of offsets into
+// the line packed into a long, start in the high half and end in the low half, so nothing is
+// allocated until the value is appended to the line being written. Lines that don't have the
+// expected shape are counted here rather than logged one by one.
+public final class FieldExtractor {
+
+	public static final long NOT_FOUND = -1L;
+
+	private static final AtomicLong malformedCount = new AtomicLong();
+
+	private FieldExtractor() {
+	}
+
+	public static long range(int start, int end) {
+		return ((long) start << 32) | (end & 0xFFFFFFFFL);
+	}
+
+	public static int start(long range) {
+		return (int) (range >>> 32);
+	}
+
+	public static int end(long range) {
+		return (int) range;
+	}
+
+	public static int length(long range) {
+		return end(range) - start(range);
+	}
+
+	public static boolean isFound(long range) {
+		return range != NOT_FOUND;
+	}
+
+	// the text of an element, between the first '>' and the next '<'
+	public static long content(CharSequence line) {
+		int start = indexOf(line, '>', 0) + 1;
+		int end = Math.max(indexOf(line, '<', 1), 0);
+		if (end < start) {
+			return NOT_FOUND;
+		}
+		return range(start, end);
+	}
+
+	// starts skip characters after the first marker and runs to the first end marker in the line
+	public static long field(CharSequence line, String marker, int skip, String end) {
+		int pos = indexOf(line, marker, 0);
+		if (pos < 0) {
+			return NOT_FOUND;
+		}
+		return field(line, pos + skip, end);
+	}
+
+	public static long field(CharSequence line, int start, String end) {
+		int endPos = indexOf(line, end, 0);
+		if (endPos < start) {
+			return NOT_FOUND;
+		}
+		return range(start, endPos);
+	}
+
+	public static StringBuilder append(StringBuilder builder, CharSequence line, long range) {
+		return builder.append(line, start(range), end(range));
+	}
+
+	// upper case with the commas dropped, without a copy for plain ASCII
+	public static StringBuilder appendUpperCaseWithoutCommas(StringBuilder builder, CharSequence line, long range) {
+		int start = start(range);
+		int end = end(range);
+		for (int i = start; i < end; i++) {
+			if (line.charAt(i) >= 128) {
+				return builder.append(line.subSequence(start, end).toString().toUpperCase().replace(",", ""));
+			}
+		}
+		for (int i = start; i < end; i++) {
+			char c = line.charAt(i);
+			if (c >= 'a' && c <= 'z') {
+				builder.append((char) (c - ('a' - 'A')));
+			} else if (c != ',') {
+				builder.append(c);
+			}
+		}
+		return builder;
+	}
+
+	public static String toString(CharSequence line, long range) {
+		return line.subSequence(start(range), end(range)).toString();
+	}
+
+	public static int indexOf(CharSequence text, char c, int from) {
+		if (text instanceof String) {
+			return ((String) text).indexOf(c, from);
+		}
+		for (int i = Math.max(from, 0); i < text.length(); i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public static int indexOf(CharSequence text, String token, int from) {
+		if (text instanceof String) {
+			return ((String) text).indexOf(token, from);
+		}
+		int last = text.length() - token.length();
+		for (int i = Math.max(from, 0); i <= last; i++) {
+			int j = 0;
+			while (j < token.length() && text.charAt(i + j) == token.charAt(j)) {
+				j++;
+			}
+			if (j == token.length()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public static void malformed() {
+		malformedCount.incrementAndGet();
+	}
+
+	public static long getMalformedCount() {
+		return malformedCount.get();
+	}
+}
@@ -0,0 +1,70 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// The layout of a compiled GEOScan record file, which holds the records of an export already split
+// into elements, so the processors don't have to find the lines and tags again.
+//
+//   header   magic, version
+//   records  per record: body length, then the body
+//              export offset, export length, element count
+//              per element: its tag, the text between "<name" and "</name>" as UTF-8, the number
+//              of empty lines and where each one was
+//              the tag is 0 when the text doesn't start with "<name", otherwise the name id + 1
+//              shifted left once, with the low bit set when the text ends with "</name>"
+//   names    count, then each element name once, in the order the ids were given out
+//   index    the file offset of every record, for seeking to a record number
+//   footer   names offset, index offset, record count, magic
+//
+// Counts, lengths and ids are variable length ints, offsets are plain longs.
+final class GEOScanCompiledFormat {
+
+	static final int MAGIC = 0x47534342; // GSCB
+	static final int VERSION = 1;
+	static final int FOOTER_SIZE = 8 + 8 + 8 + 4;
+
+	private GEOScanCompiledFormat() {
+	}
+
+	static int tag(int nameId, boolean closed) {
+		return ((nameId + 1) << 1) | (closed ? 1 : 0);
+	}
+
+	static int nameId(int tag) {
+		return (tag >>> 1) - 1;
+	}
+
+	static boolean isClosed(int tag) {
+		return (tag & 1) != 0;
+	}
+
+	static void writeVarInt(DataOutput output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	static void writeVarLong(DataOutput output, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte((int) value);
+	}
+
+	static int readVarInt(DataInput input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed compiled record file");
+	}
+}
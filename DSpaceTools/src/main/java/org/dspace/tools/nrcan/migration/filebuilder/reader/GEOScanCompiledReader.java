@@ -0,0 +1,197 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads the records of a compiled record file, see GEOScanCompiledFormat. Each record is read with
+// one length prefixed read and decoded straight from the bytes, with the marker the caller wants
+// put back where the empty lines were.
+public class GEOScanCompiledReader implements GEOScanRecordSource {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final RandomAccessFile file;
+	private final String lineBreakMarker;
+	private final String[] names;
+	private final long indexOffset;
+	private final long recordCount;
+	private DataInputStream input;
+	private long sequence = 0;
+	private byte[] body = new byte[8 * 1024];
+	private int bodyPosition;
+
+	public GEOScanCompiledReader(String path, String lineBreakMarker) throws IOException {
+		this.file = new RandomAccessFile(path, "r");
+		this.lineBreakMarker = lineBreakMarker;
+		try {
+			if (file.length() < 8 + GEOScanCompiledFormat.FOOTER_SIZE || file.readInt() != GEOScanCompiledFormat.MAGIC) {
+				throw new IOException(path + " is not a compiled record file");
+			}
+			int version = file.readInt();
+			if (version != GEOScanCompiledFormat.VERSION) {
+				throw new IOException(path + " is version " + version + " of the compiled record file, not " + GEOScanCompiledFormat.VERSION);
+			}
+
+			file.seek(file.length() - GEOScanCompiledFormat.FOOTER_SIZE);
+			long namesOffset = file.readLong();
+			indexOffset = file.readLong();
+			recordCount = file.readLong();
+			if (file.readInt() != GEOScanCompiledFormat.MAGIC) {
+				throw new IOException(path + " was not completely written");
+			}
+
+			names = readNames(namesOffset);
+			seek(8);
+		} catch (IOException ex) {
+			file.close();
+			throw ex;
+		}
+	}
+
+	// true when the file starts like a compiled record file rather than an export
+	public static boolean isCompiled(String path) throws IOException {
+		File candidate = new File(path);
+		if (!candidate.isFile() || candidate.length() < 4) {
+			return false;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(candidate, "r")) {
+			return file.readInt() == GEOScanCompiledFormat.MAGIC;
+		}
+	}
+
+	@Override
+	public GEOScanRecord next() throws IOException {
+		if (sequence == recordCount) {
+			return null;
+		}
+
+		int length = input.readInt();
+		if (body.length < length) {
+			body = new byte[Math.max(length, body.length * 2)];
+		}
+		input.readFully(body, 0, length);
+		bodyPosition = 0;
+
+		long offset = readVarLong();
+		long recordLength = readVarLong();
+		int count = readVarInt();
+		List<GEOScanElement> elements = new ArrayList<GEOScanElement>(count);
+		for (int i = 0; i < count; i++) {
+			elements.add(readElement());
+		}
+		return new GEOScanRecord(sequence++, offset, recordLength, elements, lineBreakMarker);
+	}
+
+	// the record number is enough to find the place in the index, the offset is what the text reader
+	// needs and is not used here
+	@Override
+	public void skipTo(long offset, long sequence) throws IOException {
+		if (this.sequence != 0) {
+			throw new IllegalStateException("Records were already read");
+		}
+		if (sequence > recordCount) {
+			throw new EOFException("Compiled file ends before record " + sequence);
+		}
+		if (sequence == recordCount) {
+			this.sequence = sequence;
+			return;
+		}
+		file.seek(indexOffset + sequence * 8);
+		seek(file.readLong());
+		this.sequence = sequence;
+	}
+
+	// the index is by record number, like skipTo the offset is not needed
+	@Override
+	public GEOScanRecord readAt(long offset, long sequence) throws IOException {
+		if (sequence >= recordCount) {
+			throw new EOFException("Compiled file ends before record " + sequence);
+		}
+		file.seek(indexOffset + sequence * 8);
+		seek(file.readLong());
+		this.sequence = sequence;
+		return next();
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private void seek(long position) throws IOException {
+		file.seek(position);
+		input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel()), BUFFER_SIZE));
+	}
+
+	private String[] readNames(long namesOffset) throws IOException {
+		file.seek(namesOffset);
+		DataInputStream namesInput = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel()), BUFFER_SIZE));
+		String[] names = new String[GEOScanCompiledFormat.readVarInt(namesInput)];
+		for (int i = 0; i < names.length; i++) {
+			byte[] bytes = new byte[GEOScanCompiledFormat.readVarInt(namesInput)];
+			namesInput.readFully(bytes);
+			names[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return names;
+	}
+
+	private GEOScanElement readElement() {
+		int tag = readVarInt();
+		int length = readVarInt();
+		String value = new String(body, bodyPosition, length, StandardCharsets.UTF_8);
+		bodyPosition += length;
+		String text = value;
+		if (tag != 0) {
+			String name = names[GEOScanCompiledFormat.nameId(tag)];
+			StringBuilder builder = new StringBuilder(value.length() + name.length() * 2 + 4).append('<').append(name).append(value);
+			if (GEOScanCompiledFormat.isClosed(tag)) {
+				builder.append("</").append(name).append('>');
+			}
+			text = builder.toString();
+		}
+
+		int count = readVarInt();
+		if (count == 0) {
+			return new GEOScanElement(text, false);
+		}
+		int[] lineBreaks = new int[count];
+		for (int i = 0; i < count; i++) {
+			lineBreaks[i] = readVarInt();
+		}
+		return new GEOScanElement(text, lineBreaks, "").withLineBreakMarker(lineBreakMarker);
+	}
+
+	private int readVarInt() {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = body[bodyPosition++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private long readVarLong() {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = body[bodyPosition++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes GEOScan records to a compiled record file, see GEOScanCompiledFormat. The names and the
+// index go at the end, once every record is in.
+public class GEOScanCompiledWriter implements Closeable {
+
+	private final DataOutputStream output;
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream(8 * 1024);
+	private final DataOutputStream bodyOutput = new DataOutputStream(body);
+	private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+	private long[] index = new long[1024];
+	private int recordCount = 0;
+	private long position = 0;
+
+	public GEOScanCompiledWriter(OutputStream outputStream) throws IOException {
+		this.output = new DataOutputStream(outputStream);
+		output.writeInt(GEOScanCompiledFormat.MAGIC);
+		output.writeInt(GEOScanCompiledFormat.VERSION);
+		position = 8;
+	}
+
+	public void write(GEOScanRecord record) throws IOException {
+		body.reset();
+		GEOScanCompiledFormat.writeVarLong(bodyOutput, record.getOffset());
+		GEOScanCompiledFormat.writeVarLong(bodyOutput, record.getLength());
+		GEOScanCompiledFormat.writeVarInt(bodyOutput, record.getElements().size());
+		for (GEOScanElement element : record.getElements()) {
+			writeElement(element.withLineBreakMarker(""));
+		}
+
+		if (recordCount == index.length) {
+			index = Arrays.copyOf(index, index.length * 2);
+		}
+		index[recordCount++] = position;
+		output.writeInt(body.size());
+		body.writeTo(output);
+		position += 4 + body.size();
+	}
+
+	public int getRecordCount() {
+		return recordCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			body.reset();
+			GEOScanCompiledFormat.writeVarInt(bodyOutput, names.size());
+			for (String name : names) {
+				byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+				GEOScanCompiledFormat.writeVarInt(bodyOutput, bytes.length);
+				bodyOutput.write(bytes);
+			}
+			long namesOffset = position;
+			long indexOffset = namesOffset + body.size();
+			body.writeTo(output);
+
+			for (int i = 0; i < recordCount; i++) {
+				output.writeLong(index[i]);
+			}
+
+			output.writeLong(namesOffset);
+			output.writeLong(indexOffset);
+			output.writeLong(recordCount);
+			output.writeInt(GEOScanCompiledFormat.MAGIC);
+		} finally {
+			output.close();
+		}
+	}
+
+	// the text is stored without the marker, so a reader can put in whichever one it wants
+	private void writeElement(GEOScanElement element) throws IOException {
+		String text = element.getText();
+		String name = element.getName();
+		int start = 0;
+		int end = text.length();
+		int tag = 0;
+		if (!name.isEmpty() && text.startsWith(name, 1)) {
+			Integer id = nameIds.get(name);
+			if (id == null) {
+				id = names.size();
+				nameIds.put(name, id);
+				names.add(name);
+			}
+			start = name.length() + 1;
+			boolean closed = text.length() >= start + name.length() + 3 && text.endsWith(">")
+					&& text.startsWith("</" + name, text.length() - name.length() - 3);
+			if (closed) {
+				end -= name.length() + 3;
+			}
+			tag = GEOScanCompiledFormat.tag(id, closed);
+		}
+
+		byte[] bytes = text.substring(start, end).getBytes(StandardCharsets.UTF_8);
+		GEOScanCompiledFormat.writeVarInt(bodyOutput, tag);
+		GEOScanCompiledFormat.writeVarInt(bodyOutput, bytes.length);
+		bodyOutput.write(bytes);
+
+		int[] lineBreaks = element.getLineBreaks();
+		int count = lineBreaks == null ? 0 : lineBreaks.length;
+		GEOScanCompiledFormat.writeVarInt(bodyOutput, count);
+		for (int i = 0; i < count; i++) {
+			GEOScanCompiledFormat.writeVarInt(bodyOutput, lineBreaks[i]);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+public class GEOScanElement {
+
+	private final String text;
+	private final boolean lineBreak;
+	private final int nameEnd;
+	private String name;
+	// offsets in text where lineBreakMarker stands for an empty line, null without any
+	private final int[] lineBreaks;
+	private final String lineBreakMarker;
+
+	public GEOScanElement(String text, boolean lineBreak) {
+		this.text = text;
+		this.lineBreak = lineBreak;
+		this.nameEnd = getElementNameEnd(text);
+		this.lineBreaks = null;
+		this.lineBreakMarker = null;
+	}
+
+	public GEOScanElement(String text, int[] lineBreaks, String lineBreakMarker) {
+		this.text = text;
+		this.lineBreak = lineBreaks.length > 0;
+		this.nameEnd = getElementNameEnd(text);
+		this.lineBreaks = lineBreaks;
+		this.lineBreakMarker = lineBreakMarker;
+	}
+
+	// the same element with another marker for the empty lines, this one when nothing changes
+	public GEOScanElement withLineBreakMarker(String marker) {
+		if (lineBreaks == null || lineBreaks.length == 0 || marker.equals(lineBreakMarker)) {
+			return this;
+		}
+		StringBuilder builder = new StringBuilder(text.length() + (marker.length() - lineBreakMarker.length()) * lineBreaks.length);
+		int[] breaks = new int[lineBreaks.length];
+		int from = 0;
+		for (int i = 0; i < lineBreaks.length; i++) {
+			builder.append(text, from, lineBreaks[i]);
+			breaks[i] = builder.length();
+			builder.append(marker);
+			from = lineBreaks[i] + lineBreakMarker.length();
+		}
+		builder.append(text, from, text.length());
+		return new GEOScanElement(builder.toString(), breaks, marker);
+	}
+
+	// tag name as written in the export, e.g. "dc:titleA" for <dc:titleA lang="en">
+	public String getName() {
+		if (name == null) {
+			name = nameEnd < 1 ? "" : text.substring(1, nameEnd);
+		}
+		return name;
+	}
+
+	// the tag name is getText() from 1 up to here, for lookups that don't want the substring
+	public int getNameEnd() {
+		return nameEnd;
+	}
+
+	// the complete element, continuation lines joined
+	public String getText() {
+		return text;
+	}
+
+	// true when the value contained an empty line
+	public boolean hasLineBreak() {
+		return lineBreak;
+	}
+
+	// offsets of the markers in getText(), null when there are none
+	int[] getLineBreaks() {
+		return lineBreaks;
+	}
+
+	static String getElementName(String line) {
+		int end = getElementNameEnd(line);
+		if (end < 1) {
+			return "";
+		}
+		return line.substring(1, end);
+	}
+
+	private static int getElementNameEnd(String line) {
+		int indexOfGT = line.indexOf(">");
+		int indexOfSpace = line.indexOf(" ");
+
+		return Math.min(indexOfGT < 0 ? line.length()-1 : indexOfGT, indexOfSpace < 0 ? line.length()-1 : indexOfSpace);
+	}
+}
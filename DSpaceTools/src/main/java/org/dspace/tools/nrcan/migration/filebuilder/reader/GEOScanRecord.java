@@ -0,0 +1,63 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GEOScanRecord {
+
+	private final long sequence;
+	private final long offset;
+	private final long length;
+	private final List<GEOScanElement> elements;
+	private final String lineBreakMarker;
+
+	public GEOScanRecord(long sequence, long offset, long length, List<GEOScanElement> elements) {
+		this(sequence, offset, length, elements, null);
+	}
+
+	public GEOScanRecord(long sequence, long offset, long length, List<GEOScanElement> elements, String lineBreakMarker) {
+		this.sequence = sequence;
+		this.offset = offset;
+		this.length = length;
+		this.elements = elements;
+		this.lineBreakMarker = lineBreakMarker;
+	}
+
+	// The record as a reader with this marker would have read it, so jobs that want different
+	// markers can share one read. Only elements with empty lines are copied.
+	public GEOScanRecord withLineBreakMarker(String marker) {
+		if (marker.equals(lineBreakMarker)) {
+			return this;
+		}
+		List<GEOScanElement> marked = null;
+		for (int i = 0; i < elements.size(); i++) {
+			GEOScanElement element = elements.get(i).withLineBreakMarker(marker);
+			if (marked == null && element != elements.get(i)) {
+				marked = new ArrayList<GEOScanElement>(elements.subList(0, i));
+			}
+			if (marked != null) {
+				marked.add(element);
+			}
+		}
+		return new GEOScanRecord(sequence, offset, length, marked == null ? elements : marked, marker);
+	}
+
+	// zero based position of the <item> in the export
+	public long getSequence() {
+		return sequence;
+	}
+
+	// byte offset of the <item> line
+	public long getOffset() {
+		return offset;
+	}
+
+	// bytes from the <item> line up to and including the </item> line
+	public long getLength() {
+		return length;
+	}
+
+	public List<GEOScanElement> getElements() {
+		return elements;
+	}
+}
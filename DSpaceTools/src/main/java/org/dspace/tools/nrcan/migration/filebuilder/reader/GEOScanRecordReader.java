@@ -0,0 +1,265 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+// Streams a GEOScan export one <item> at a time. Lines are split straight from a byte buffer so
+// record offsets are exact, and only the lines of the current item are held in memory.
+public class GEOScanRecordReader implements GEOScanRecordSource {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream inputStream;
+	private final String lineBreakMarker;
+	private final Charset charset;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition = 0;
+	private int bufferLimit = 0;
+	private long bufferOffset = 0;
+	private byte[] lineBuffer = new byte[1024];
+	private long lineOffset = 0;
+	private long recordCount = 0;
+	private List<String> itemLines = new ArrayList<String>();
+	// where the marker went in the element being joined
+	private List<Integer> lineBreaks = new ArrayList<Integer>();
+
+	public GEOScanRecordReader(String path, String lineBreakMarker) throws IOException {
+		this(new FileInputStream(path), lineBreakMarker, Charset.defaultCharset());
+	}
+
+	public GEOScanRecordReader(String path, String lineBreakMarker, Charset charset) throws IOException {
+		this(new FileInputStream(path), lineBreakMarker, charset);
+	}
+
+	// lineBreakMarker is what an empty line inside a value is replaced with
+	public GEOScanRecordReader(InputStream inputStream, String lineBreakMarker, Charset charset) {
+		this.inputStream = inputStream;
+		this.lineBreakMarker = lineBreakMarker;
+		this.charset = charset;
+	}
+
+	// the export, or the compiled record file made from it
+	public static GEOScanRecordSource open(String path, String lineBreakMarker) throws IOException {
+		if (GEOScanCompiledReader.isCompiled(path)) {
+			return new GEOScanCompiledReader(path, lineBreakMarker);
+		}
+		return new GEOScanRecordReader(path, lineBreakMarker);
+	}
+
+	@Override
+	public GEOScanRecord next() throws IOException {
+		String line = readLine();
+		while (line != null && !StringUtils.trim(line).equals("<item>")) {
+			line = readLine();
+		}
+		if (line == null) {
+			return null;
+		}
+
+		long itemOffset = lineOffset;
+		itemLines.clear();
+		line = readLine();
+		while (line != null && !StringUtils.trim(line).startsWith("</item>")) {
+			itemLines.add(line);
+			line = readLine();
+		}
+
+		return new GEOScanRecord(recordCount++, itemOffset, getOffset() - itemOffset, joinElements(itemLines), lineBreakMarker);
+	}
+
+	@Override
+	public void skipTo(long offset, long sequence) throws IOException {
+		if (getOffset() != 0) {
+			throw new IllegalStateException("Records were already read");
+		}
+		// skip goes past the end of a file without saying so
+		if (inputStream instanceof FileInputStream && offset > ((FileInputStream) inputStream).getChannel().size()) {
+			throw new EOFException("Export ends before offset " + offset);
+		}
+		long remaining = offset;
+		while (remaining > 0) {
+			long skipped = inputStream.skip(remaining);
+			if (skipped <= 0) {
+				throw new EOFException("Export ends before offset " + offset);
+			}
+			remaining -= skipped;
+		}
+		bufferOffset = offset;
+		recordCount = sequence;
+	}
+
+	@Override
+	public GEOScanRecord readAt(long offset, long sequence) throws IOException {
+		if (!(inputStream instanceof FileInputStream)) {
+			throw new UnsupportedOperationException("Only an export read from a file can be read at an offset");
+		}
+		((FileInputStream) inputStream).getChannel().position(offset);
+		bufferOffset = offset;
+		bufferPosition = 0;
+		bufferLimit = 0;
+		recordCount = sequence;
+		return next();
+	}
+
+	// byte offset of the next unread byte
+	public long getOffset() {
+		return bufferOffset + bufferPosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+
+	private List<GEOScanElement> joinElements(List<String> lines) {
+		List<GEOScanElement> elements = new ArrayList<GEOScanElement>();
+		int size = lines.size();
+		int i = 0;
+
+		while (i < size) {
+			String line = lines.get(i++);
+			if (StringUtils.isBlank(line)) {
+				continue;
+			}
+
+			StringBuilder text = new StringBuilder(line);
+			boolean lineBreak = false;
+			lineBreaks.clear();
+			String name = GEOScanElement.getElementName(line);
+			int closingLine = isOpen(line, name) ? findClosingLine(lines, i, name) : -1;
+
+			if (closingLine >= 0) {
+				// the value runs up to its own closing tag, even when a line in between starts with <
+				while (i <= closingLine) {
+					lineBreak = append(text, lines.get(i++)) || lineBreak;
+				}
+			} else if (i < size && !lines.get(i).startsWith("<")) {
+				while (i < size && !lines.get(i).startsWith("<")) {
+					lineBreak = append(text, lines.get(i++)) || lineBreak;
+				}
+				if (i < size && lines.get(i).startsWith("</")) {
+					text.append(lines.get(i++));
+				}
+			} else if (i < size && lines.get(i).startsWith("</")) {
+				text.append(lines.get(i++));
+			}
+
+			elements.add(lineBreak ? new GEOScanElement(text.toString(), toArray(lineBreaks), lineBreakMarker)
+					: new GEOScanElement(text.toString(), false));
+		}
+
+		return elements;
+	}
+
+	private boolean append(StringBuilder text, String line) {
+		if (line.isEmpty()) {
+			lineBreaks.add(text.length());
+			text.append(lineBreakMarker);
+			return true;
+		}
+		text.append(line);
+		return false;
+	}
+	
+	private static int[] toArray(List<Integer> values) {
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+	private boolean isOpen(String line, String name) {
+		if (name.isEmpty() || StringUtils.stripEnd(line, null).endsWith("/>")) {
+			return false;
+		}
+		return !StringUtils.containsIgnoreCase(line.substring(1), "</" + name);
+	}
+
+	private int findClosingLine(List<String> lines, int from, String name) {
+		for (int i = from; i < lines.size(); i++) {
+			String line = lines.get(i);
+			if (StringUtils.containsIgnoreCase(line, "</" + name)) {
+				return i;
+			}
+			if (name.equalsIgnoreCase(GEOScanElement.getElementName(line)) && !line.startsWith("</")) {
+				// same element opened again, the first one was never closed
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private String readLine() throws IOException {
+		lineOffset = getOffset();
+		int lineLength = 0;
+
+		while (true) {
+			if (bufferPosition == bufferLimit && !fill()) {
+				return lineLength == 0 ? null : new String(lineBuffer, 0, lineLength, charset);
+			}
+
+			int start = bufferPosition;
+			int i = start;
+			while (i < bufferLimit && buffer[i] != '\n' && buffer[i] != '\r') {
+				i++;
+			}
+
+			if (i == bufferLimit) {
+				lineLength = copyToLineBuffer(start, i - start, lineLength);
+				bufferPosition = i;
+				continue;
+			}
+
+			String line;
+			if (lineLength == 0) {
+				line = new String(buffer, start, i - start, charset);
+			} else {
+				lineLength = copyToLineBuffer(start, i - start, lineLength);
+				line = new String(lineBuffer, 0, lineLength, charset);
+			}
+
+			byte terminator = buffer[i];
+			bufferPosition = i + 1;
+			if (terminator == '\r') {
+				if (bufferPosition == bufferLimit) {
+					fill();
+				}
+				if (bufferPosition < bufferLimit && buffer[bufferPosition] == '\n') {
+					bufferPosition++;
+				}
+			}
+			return line;
+		}
+	}
+
+	private int copyToLineBuffer(int start, int length, int lineLength) {
+		if (lineLength + length > lineBuffer.length) {
+			byte[] larger = new byte[Math.max(lineBuffer.length * 2, lineLength + length)];
+			System.arraycopy(lineBuffer, 0, larger, 0, lineLength);
+			lineBuffer = larger;
+		}
+		System.arraycopy(buffer, start, lineBuffer, lineLength, length);
+		return lineLength + length;
+	}
+
+	private boolean fill() throws IOException {
+		bufferOffset += bufferLimit;
+		bufferPosition = 0;
+		bufferLimit = 0;
+
+		int read = inputStream.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		bufferLimit = read;
+		return true;
+	}
+}
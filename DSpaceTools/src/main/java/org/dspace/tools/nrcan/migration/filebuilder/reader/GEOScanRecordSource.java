@@ -0,0 +1,19 @@
+package org.dspace.tools.nrcan.migration.filebuilder.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Where the processors get GEOScan records from: the export itself, or the compiled record file
+// made from it. GEOScanRecordReader.open() picks the one a path holds.
+public interface GEOScanRecordSource extends Closeable {
+
+	// null after the last record
+	GEOScanRecord next() throws IOException;
+
+	// carries on from where an earlier run stopped: offset is the byte in the export after its last
+	// </item> line and sequence the number of records it had read. Only before the first record.
+	void skipTo(long offset, long sequence) throws IOException;
+
+	// the record whose <item> line is at offset, as found in a GidIndex. Can be called in any order.
+	GEOScanRecord readAt(long offset, long sequence) throws IOException;
+}
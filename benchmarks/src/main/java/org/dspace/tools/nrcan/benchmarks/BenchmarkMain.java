@@ -0,0 +1,19 @@
+package org.dspace.tools.nrcan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs JMH with the results written as JSON (jmh-result.json unless -rff says otherwise), so runs
+// on different commits can be compared. Any other JMH option is passed through.
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		if (!arguments.contains("-rf")) {
+			arguments.add(0, "-rf");
+			arguments.add(1, "json");
+		}
+		org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+}
@@ -0,0 +1,103 @@
+package org.dspace.tools.nrcan.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dspace.tools.nrcan.migration.filebuilder.GEOScanFields;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The substring extractors against GEOScanFields on typical export lines. Run the shaded jar with
+// -prof gc to see the allocation per call as well as the time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldExtractorBenchmark {
+
+	String generic = "<dc:titleA xml:lang=\"en\">Surficial geology, Lac Seul, Ontario</dc:titleA>";
+	String thesis = "<thesis><degree>PhD</degree><univ>University of Ottawa</univ><city>Ottawa</city><country>Canada</country></thesis>";
+	String archivalFile = "<archivalFile><name>of_1234.pdf</name><folder>OF/1234</folder><size>2048</size></archivalFile>";
+	String dateRecordTouched = "<dateRecordMod><name>jsmith</name><date>2019-04-12</date></dateRecordMod>";
+	String map = "<map><general>geological</general><scale>1:50000</scale></map>";
+	String fundingLegacy = "<Funding><Program En>Geo-mapping for Energy and Minerals</Program En><Project En>Hudson Bay</Project En></Funding>";
+	String author = "<dc:creatorA><given_name>Smith, J.</given_name><surname>Tremblay</surname><dpsid>1234</dpsid></dc:creatorA>";
+
+	@Benchmark
+	public String legacyGeneric() {
+		return LegacyFieldExtractors.getElementGeneric(generic);
+	}
+
+	@Benchmark
+	public String generic() {
+		return GEOScanFields.getGeneric(generic);
+	}
+
+	@Benchmark
+	public String legacyThesis() {
+		return LegacyFieldExtractors.getElementThesis(thesis);
+	}
+
+	@Benchmark
+	public String thesis() {
+		return GEOScanFields.getThesis(thesis);
+	}
+
+	@Benchmark
+	public String legacyArchivalFile() {
+		return LegacyFieldExtractors.getElementArchivalFile(archivalFile);
+	}
+
+	@Benchmark
+	public String archivalFile() {
+		return GEOScanFields.getArchivalFile(archivalFile);
+	}
+
+	@Benchmark
+	public String legacyDateRecordTouched() {
+		return LegacyFieldExtractors.getElementDateRecordTouched(dateRecordTouched);
+	}
+
+	@Benchmark
+	public String dateRecordTouched() {
+		return GEOScanFields.getDateRecordTouched(dateRecordTouched);
+	}
+
+	@Benchmark
+	public String legacyMap() {
+		return LegacyFieldExtractors.getElementMap(map);
+	}
+
+	@Benchmark
+	public String map() {
+		return GEOScanFields.getMap(map);
+	}
+
+	@Benchmark
+	public String legacyFundingLegacy() {
+		return LegacyFieldExtractors.getElementFundingLegacy(fundingLegacy);
+	}
+
+	@Benchmark
+	public String fundingLegacy() {
+		return GEOScanFields.getFundingLegacy(fundingLegacy);
+	}
+
+	@Benchmark
+	public String legacyAuthorMigrationId() {
+		return LegacyFieldExtractors.getAuthorMigrationId(author);
+	}
+
+	@Benchmark
+	public String authorMigrationId() {
+		return GEOScanFields.getAuthorMigrationId(author);
+	}
+}
@@ -0,0 +1,121 @@
+package org.dspace.tools.nrcan.benchmarks;
+
+// The substring based extractors GEOScanFileProcessor used before GEOScanFields, kept as the
+// baseline for FieldExtractorBenchmark. The malformed line message is left out.
+final class LegacyFieldExtractors {
+
+	private LegacyFieldExtractors() {
+	}
+
+	static String getElementGeneric(String line) {
+		try {
+			return line.substring(line.indexOf(">") + 1, line.substring(1).indexOf("<") + 1);
+		} catch (Exception e) {
+			return "";
+		}
+	}
+
+	static String getElementThesis(String line) {
+		int pos = line.indexOf("<degree>");
+		String degree = line.substring(pos + 8, line.indexOf("</degree"));
+		pos = line.indexOf("<univ>");
+		String univ = line.substring(pos + 6, line.indexOf("</univ"));
+		pos = line.indexOf("<city>");
+		String city = line.substring(pos + 6, line.indexOf("</city"));
+		pos = line.indexOf("<country>");
+		String country = line.substring(pos + 9, line.indexOf("</country"));
+		return degree + " - " + univ + " - " + city + " - " + country;
+	}
+
+	static String getElementArchivalFile(String line) {
+		int pos = line.indexOf("<name>");
+		String name = line.substring(pos + 5, line.indexOf("</name"));
+		pos = line.indexOf("<folder>");
+		String folder = line.substring(pos + 7, line.indexOf("</folder"));
+		pos = line.indexOf("<size>");
+		String size = line.substring(pos + 5, line.indexOf("</size"));
+		return folder + " - " + name + " - " + size;
+	}
+
+	static String getElementDateRecordTouched(String line) {
+		int pos = line.indexOf("<name>");
+		String name = line.substring(pos + 6, line.indexOf("</name"));
+		pos = line.indexOf("<date>");
+		String date = line.substring(pos + 6, line.indexOf("</date"));
+		return date + " - " + name;
+	}
+
+	static String getElementMap(String line) {
+		int pos = line.indexOf("<general>");
+		String type = line.substring(pos + 8, line.indexOf("</general"));
+		pos = line.indexOf("<scale>");
+		if (pos > 0) {
+			String scale = line.substring(pos + 7, line.indexOf("</scale"));
+			return type + " - " + scale;
+		}
+		return type;
+	}
+
+	static String getElementFundingLegacy(String line) {
+		try {
+			if (line.contentEquals("<Funding></Funding>")) {
+				return null;
+			}
+
+			int pos = line.indexOf("Program En>");
+			String lang = "En";
+			if (pos < 0) {
+				pos = line.indexOf("Program Fr>");
+				lang = "Fr";
+			}
+			String program = line.substring(pos + 10, line.indexOf("</Program " + lang));
+
+			pos = line.indexOf("Project En>");
+			if (pos < 0) {
+				pos = line.indexOf("Project Fr>");
+			}
+			String project = "";
+			if (pos > 0) {
+				project = line.substring(pos + 10, line.indexOf("</Project " + lang));
+			}
+
+			pos = line.indexOf("URL En>");
+			if (pos < 0) {
+				pos = line.indexOf("URL Fr>");
+			}
+			String url = "";
+			if (pos > 0) {
+				project = line.substring(pos + 10, line.indexOf("</URL " + lang));
+			}
+			return program + " - " + project + " - " + url;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	static String getAuthorMigrationId(String line) {
+		try {
+			int pos = line.indexOf("given_name");
+			String firstName = line.substring(pos + 11, line.indexOf("</given_name"));
+			pos = line.indexOf("surname");
+			String lastName = line.substring(pos + 8, line.indexOf("</surname"));
+			String deptId = "";
+			try {
+				pos = line.indexOf("dpsid");
+				deptId = line.substring(pos + 6, line.indexOf("</dpsid"));
+			} catch (Exception e) {
+				//
+			}
+			String orcId = "";
+			try {
+				pos = line.indexOf("ORCID");
+				orcId = line.substring(pos + 45, line.indexOf("</ORCID"));
+			} catch (Exception e) {
+				//
+			}
+			return lastName.toUpperCase().replace(",", "") + "_" + firstName.toUpperCase().replace(",", "") + "_" + deptId + "_" + orcId;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
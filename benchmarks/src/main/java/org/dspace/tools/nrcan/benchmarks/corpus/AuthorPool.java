@@ -0,0 +1,78 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// The people the generated items are written by. Every export draws on the same pool, so the author
+// CSVs line up with the migration ids the processors build from the exports.
+class AuthorPool {
+
+	static class Author {
+
+		final String givenName;
+		final String surname;
+		final String dpsid;
+		final String uuid;
+		final int place;
+
+		Author(String givenName, String surname, String dpsid, String uuid, int place) {
+			this.givenName = givenName;
+			this.surname = surname;
+			this.dpsid = dpsid;
+			this.uuid = uuid;
+			this.place = place;
+		}
+
+		// the same shape as GEOScanFields.getAuthorMigrationId, without an ORCID
+		String getMigrationId() {
+			return surname.toUpperCase() + "_" + givenName.toUpperCase() + "_" + dpsid + "_";
+		}
+	}
+
+	private final List<Author> authors = new ArrayList<Author>();
+
+	AuthorPool(Random random, int size) {
+		for (int i = 0; i < size; i++) {
+			String givenName = CorpusText.pick(random, CorpusText.GIVEN_NAMES) + " " + (char) ('A' + random.nextInt(26)) + ".";
+			String surname = CorpusText.pick(random, CorpusText.SURNAMES) + i;
+			String dpsid = random.nextInt(4) == 0 ? "" : String.valueOf(10000 + i);
+			int place = random.nextInt(3) == 0 ? random.nextInt(40) : -1;
+			authors.add(new Author(givenName, surname, dpsid, CorpusText.uuid(random).toString(), place));
+		}
+	}
+
+	Author pick(Random random) {
+		return authors.get(random.nextInt(authors.size()));
+	}
+
+	List<Author> getAuthors() {
+		return authors;
+	}
+
+	// "id","migration id" for the relationship cleanup
+	void writeRelFile(PrintStream out) {
+		for (Author author : authors) {
+			out.println("\"" + author.uuid + "\",\"" + author.getMigrationId() + "\"");
+		}
+	}
+
+	// "id",place for the authors that already have relationships
+	void writePlaceFile(PrintStream out) {
+		for (Author author : authors) {
+			if (author.place >= 0) {
+				out.println("\"" + author.uuid + "\"," + author.place);
+			}
+		}
+	}
+
+	// the DSpace author export the photo processor reads, given name in column 1, surname in 2,
+	// dpsid in 5 and uuid in 9
+	void writeAuthorExport(PrintStream out) {
+		out.println("\"id\",\"givenname\",\"surname\",\"orcid\",\"email\",\"dpsid\",\"affiliation\",\"division\",\"legacy\",\"uuid\"");
+		for (Author author : authors) {
+			out.println("\"x\",\"" + author.givenName + "\",\"" + author.surname + "\",\"\",\"\",\"" + author.dpsid + "\",\"\",\"\",\"\",\"" + author.uuid + "\"");
+		}
+	}
+}
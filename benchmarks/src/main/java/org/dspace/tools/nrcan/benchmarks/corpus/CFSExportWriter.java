@@ -0,0 +1,203 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.dspace.tools.nrcan.benchmarks.corpus.AuthorPool.Author;
+import org.dspace.tools.nrcan.migration.filebuilder.model.AuthorData;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Authors;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Availability;
+import org.dspace.tools.nrcan.migration.filebuilder.model.CFSFile;
+import org.dspace.tools.nrcan.migration.filebuilder.model.CFSItem;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Centre;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Data;
+import org.dspace.tools.nrcan.migration.filebuilder.model.LangValue;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Meta;
+import org.dspace.tools.nrcan.migration.filebuilder.model.ProgramData;
+import org.dspace.tools.nrcan.migration.filebuilder.model.ProgramDetailData;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Programs;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Series;
+import org.dspace.tools.nrcan.migration.filebuilder.model.SubjectData;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Subjects;
+import org.dspace.tools.nrcan.migration.filebuilder.model.Type;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Writes CFS API pages, pageSize items to a file, through the same model classes
+// CFSFileProcessor reads them back with.
+class CFSExportWriter {
+
+	static final int FIRST_UID = 40000;
+
+	private static final String[][] TYPES = {
+		{ "Journal Article", "Article de revue" }, { "Series Item", "Publication en série" },
+		{ "Monographs", "Monographies" }, { "Newsletter", "Bulletin" }
+	};
+
+	private static final String[][] PROGRAMS = {
+		{ "Forest Ecosystem Health", "Santé des écosystèmes forestiers" },
+		{ "Climate Change", "Changements climatiques" },
+		{ "Fibre Solutions", "Solutions fibre" }
+	};
+
+	private static final String[] MEETING_DATES = { "May 16-19", "17-Sep", "July 8-12, 2002", "June 5, 2019" };
+
+	private final CorpusSettings settings;
+	private final AuthorPool authors;
+	private final Random random;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	CFSExportWriter(CorpusSettings settings, AuthorPool authors, Random random) {
+		this.settings = settings;
+		this.authors = authors;
+		this.random = random;
+	}
+
+	void writeExport(File dir) throws IOException {
+		dir.mkdirs();
+		int pages = Math.max(1, (settings.items + settings.pageSize - 1) / settings.pageSize);
+		for (int page = 0; page < pages; page++) {
+			int first = page * settings.pageSize;
+			int count = Math.min(settings.pageSize, settings.items - first);
+
+			CFSItem[] data = new CFSItem[Math.max(0, count)];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = newItem(FIRST_UID + first + i);
+			}
+
+			Meta meta = new Meta();
+			meta.setTotal(String.valueOf(settings.items));
+			meta.setReturned(String.valueOf(data.length));
+			meta.setPage(String.valueOf(page + 1));
+			meta.setPages(String.valueOf(pages));
+
+			CFSFile file = new CFSFile();
+			file.setData(data);
+			file.setMeta(meta);
+			mapper.writeValue(new File(dir, String.format("cfs_%04d.json", page + 1)), file);
+		}
+	}
+
+	private CFSItem newItem(int uid) {
+		boolean french = random.nextInt(4) == 0;
+		String[] words = french ? CorpusText.FRENCH_WORDS : CorpusText.ENGLISH_WORDS;
+		String year = String.valueOf(1980 + random.nextInt(42));
+
+		CFSItem item = new CFSItem();
+		item.setUid(String.valueOf(uid));
+		item.setYear(year);
+		item.setTitle(CorpusText.words(random, words, 4, 12));
+		item.setCitation_title(item.getTitle());
+		item.setKeywords(CorpusText.words(random, words, 1, 2) + "; " + CorpusText.words(random, words, 1, 2) + "\r\n"
+				+ CorpusText.words(random, words, 1, 2));
+
+		if (optional()) {
+			item.setDoi("10.1139/cjfr-" + year + "-" + uid);
+			item.setIssn("0045-5067");
+			item.setPublication_name("Canadian Journal of Forest Research");
+			item.setVolume(String.valueOf(1 + random.nextInt(60)));
+			item.setIssue(random.nextBoolean() ? String.valueOf(1 + random.nextInt(12)) : "6 & 7");
+			int first = 1 + random.nextInt(900);
+			item.setPage_first(String.valueOf(first));
+			item.setPage_last(String.valueOf(first + random.nextInt(40)));
+		}
+		if (random.nextInt(10) == 0) {
+			item.setMeeting_date(CorpusText.pick(random, MEETING_DATES));
+		}
+
+		Availability availability = new Availability();
+		availability.setPdf_download(random.nextInt(3) == 0 ? "0" : "1");
+		availability.setPdf_email(random.nextInt(10) == 0 ? "1" : "0");
+		availability.setPrint(random.nextInt(10) == 0 ? "1" : "0");
+		availability.setEpub("0");
+		item.setAvailability(availability);
+		item.setCover(optional() ? "https://cfs.nrcan.gc.ca/images/covers/" + uid + ".jpg" : "false");
+
+		item.setItemAbstract(langValue(text(CorpusText.ENGLISH_WORDS), optional() ? text(CorpusText.FRENCH_WORDS) : ""));
+		item.setPls(optional() ? langValue(text(CorpusText.ENGLISH_WORDS), text(CorpusText.FRENCH_WORDS)) : langValue("", ""));
+		item.setLanguage(french ? langValue("French", "Français") : langValue("English", "Anglais"));
+
+		String[] type = TYPES[random.nextInt(TYPES.length)];
+		item.setType(new Type());
+		item.getType().setData(data(String.valueOf(random.nextInt(20)), type[0], type[1]));
+
+		ProgramData[] programs = new ProgramData[random.nextInt(3)];
+		for (int i = 0; i < programs.length; i++) {
+			String[] name = PROGRAMS[random.nextInt(PROGRAMS.length)];
+			ProgramDetailData program = new ProgramDetailData();
+			program.setId(String.valueOf(i + 1));
+			program.setEn(name[0]);
+			program.setFr(name[1]);
+			programs[i] = new ProgramData();
+			programs[i].setProgram(program);
+		}
+		item.setPrograms(new Programs());
+		item.getPrograms().setData(programs);
+
+		AuthorData[] authorData = new AuthorData[random.nextInt(settings.maxAuthors + 1)];
+		for (int i = 0; i < authorData.length; i++) {
+			Author author = authors.pick(random);
+			authorData[i] = new AuthorData();
+			authorData[i].setUid(author.uuid);
+			authorData[i].setName(author.surname + ", " + author.givenName);
+		}
+		item.setAuthors(new Authors());
+		item.getAuthors().setData(authorData);
+
+		if (optional()) {
+			SubjectData[] subjects = new SubjectData[1 + random.nextInt(3)];
+			for (int i = 0; i < subjects.length; i++) {
+				subjects[i] = new SubjectData();
+				subjects[i].setUid(String.valueOf(random.nextInt(100)));
+				subjects[i].setSubject(langValue(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 1, 3),
+						CorpusText.words(random, CorpusText.FRENCH_WORDS, 1, 3)));
+			}
+			item.setSubjects(new Subjects());
+			item.getSubjects().setData(subjects);
+		}
+		if (optional()) {
+			item.setSeries(new Series());
+			item.getSeries().setData(data("s" + random.nextInt(10), "Information Report", "Rapport d'information"));
+		}
+		if (optional()) {
+			item.setCentre(new Centre());
+			item.getCentre().setData(data(String.valueOf(1 + random.nextInt(5)), "Northern Forestry Centre", "Centre de foresterie du Nord"));
+		}
+		return item;
+	}
+
+	// a paragraph, or with multiLineRate several separated by empty lines
+	private String text(String[] words) {
+		if (random.nextDouble() >= settings.multiLineRate) {
+			return CorpusText.words(random, words, 20, 60);
+		}
+		StringBuilder text = new StringBuilder();
+		int paragraphs = 2 + random.nextInt(3);
+		for (int i = 0; i < paragraphs; i++) {
+			if (i > 0) {
+				text.append("\r\n\r\n");
+			}
+			text.append(CorpusText.words(random, words, 15, 40));
+		}
+		return text.toString();
+	}
+
+	private boolean optional() {
+		return random.nextDouble() < settings.elementRate;
+	}
+
+	private static LangValue langValue(String en, String fr) {
+		LangValue value = new LangValue();
+		value.setEn(en);
+		value.setFr(fr);
+		return value;
+	}
+
+	private static Data data(String uid, String en, String fr) {
+		Data data = new Data();
+		data.setUid(uid);
+		data.setName(langValue(en, fr));
+		return data;
+	}
+}
@@ -0,0 +1,231 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+// Generates a GEOScan export, a PhotoDB export and a folder of CFS pages, with the map, rel, place,
+// author export and missing gid files that go with them. The same seed and settings always give the
+// same corpus, and each export has its own random source, so leaving one out changes nothing in the
+// others.
+public final class CorpusGenerator {
+
+	public static final String GEOSCAN = "geoscan";
+	public static final String PHOTO = "photo";
+	public static final String CFS = "cfs";
+
+	public static final String GEOSCAN_FILE = "geoscan.xml";
+	public static final String PHOTO_FILE = "photodb.xml";
+	public static final String CFS_FOLDER = "cfs";
+	public static final String MAP_FILE = "map.csv";
+	public static final String REL_FILE = "rel.csv";
+	public static final String PLACE_FILE = "place.csv";
+	public static final String AUTHOR_EXPORT_FILE = "author_export.csv";
+	public static final String MISSING_GIDS_FILE = "missing_gids.txt";
+
+	private final static char OPT_OUTPUT = 'o';
+	private final static char OPT_ITEMS = 'n';
+	private final static char OPT_SEED = 's';
+	private final static char OPT_TYPES = 't';
+	private final static char OPT_AUTHORS = 'a';
+	private final static char OPT_BBOXES = 'x';
+	private final static char OPT_MULTI_LINE = 'l';
+	private final static char OPT_ELEMENTS = 'e';
+	private final static char OPT_PAGE_SIZE = 'p';
+	private final static char OPT_AUTHOR_POOL = 'u';
+
+	private final CorpusSettings settings;
+
+	CorpusGenerator(CorpusSettings settings) {
+		this.settings = settings;
+	}
+
+	// every export with the default mix
+	public static void generate(File dir, int items, long seed) throws IOException {
+		CorpusSettings settings = new CorpusSettings();
+		settings.items = items;
+		settings.seed = seed;
+		new CorpusGenerator(settings).generate(dir, new LinkedHashSet<String>(Arrays.asList(GEOSCAN, PHOTO, CFS)));
+	}
+
+	void generate(File dir, Set<String> types) throws IOException {
+		dir.mkdirs();
+		AuthorPool authors = new AuthorPool(random(0), settings.getAuthorPoolSize());
+
+		if (types.contains(GEOSCAN)) {
+			try (PrintStream out = open(new File(dir, GEOSCAN_FILE))) {
+				new GEOScanExportWriter(settings, authors, random(1)).writeGEOScanExport(out);
+			}
+		}
+		if (types.contains(PHOTO)) {
+			try (PrintStream out = open(new File(dir, PHOTO_FILE))) {
+				new GEOScanExportWriter(settings, authors, random(2)).writePhotoExport(out);
+			}
+		}
+		if (types.contains(CFS)) {
+			new CFSExportWriter(settings, authors, random(3)).writeExport(new File(dir, CFS_FOLDER));
+		}
+
+		try (PrintStream out = open(new File(dir, REL_FILE))) {
+			authors.writeRelFile(out);
+		}
+		try (PrintStream out = open(new File(dir, PLACE_FILE))) {
+			authors.writePlaceFile(out);
+		}
+		try (PrintStream out = open(new File(dir, AUTHOR_EXPORT_FILE))) {
+			authors.writeAuthorExport(out);
+		}
+		writeGidFiles(dir);
+	}
+
+	// "gid","uuid" for every item already in DSpace, and the gids that are not
+	private void writeGidFiles(File dir) throws IOException {
+		Random random = random(4);
+		try (PrintStream map = open(new File(dir, MAP_FILE)); PrintStream missing = open(new File(dir, MISSING_GIDS_FILE))) {
+			for (int first : new int[] { GEOScanExportWriter.FIRST_GID, GEOScanExportWriter.FIRST_PHOTO_GID }) {
+				for (int gid = first; gid < first + settings.items; gid++) {
+					if (random.nextDouble() < settings.missingRate) {
+						missing.println(gid);
+					} else {
+						map.println("\"" + gid + "\",\"" + CorpusText.uuid(random) + "\"");
+					}
+				}
+			}
+		}
+	}
+
+	private Random random(int stream) {
+		return new Random(settings.seed * 31 + stream);
+	}
+
+	private static PrintStream open(File file) throws IOException {
+		return new PrintStream(new BufferedOutputStream(new FileOutputStream(file)), false, StandardCharsets.UTF_8.name());
+	}
+
+	public static void main(String[] args) throws IOException {
+		CommandLineParser parser = new PosixParser();
+		Options options = getCliOptions();
+		CommandLine cmd;
+
+		try {
+			cmd = parser.parse(options, args);
+		}
+		catch(ParseException ex) {
+			System.out.println("ERROR: " + ex.getMessage());
+			new HelpFormatter().printUsage(new PrintWriter(System.out, true), 80, CorpusGenerator.class.getName(), options);
+			new HelpFormatter().printHelp(CorpusGenerator.class.getName(), "", options, "");
+			return;
+		}
+
+		CorpusSettings settings = new CorpusSettings();
+		settings.items = Integer.parseInt(cmd.getOptionValue(OPT_ITEMS, String.valueOf(settings.items)));
+		settings.seed = Long.parseLong(cmd.getOptionValue(OPT_SEED, String.valueOf(settings.seed)));
+		settings.maxAuthors = Integer.parseInt(cmd.getOptionValue(OPT_AUTHORS, String.valueOf(settings.maxAuthors)));
+		settings.maxBBoxes = Integer.parseInt(cmd.getOptionValue(OPT_BBOXES, String.valueOf(settings.maxBBoxes)));
+		settings.multiLineRate = Double.parseDouble(cmd.getOptionValue(OPT_MULTI_LINE, String.valueOf(settings.multiLineRate)));
+		settings.elementRate = Double.parseDouble(cmd.getOptionValue(OPT_ELEMENTS, String.valueOf(settings.elementRate)));
+		settings.pageSize = Integer.parseInt(cmd.getOptionValue(OPT_PAGE_SIZE, String.valueOf(settings.pageSize)));
+		settings.authorPoolSize = Integer.parseInt(cmd.getOptionValue(OPT_AUTHOR_POOL, "0"));
+
+		Set<String> types = new LinkedHashSet<String>(Arrays.asList(cmd.getOptionValue(OPT_TYPES, GEOSCAN + "," + PHOTO + "," + CFS).split(",")));
+
+		long start = System.currentTimeMillis();
+		File dir = new File(cmd.getOptionValue(OPT_OUTPUT));
+		new CorpusGenerator(settings).generate(dir, types);
+		System.out.println("GENERATED " + settings.items + " ITEMS OF " + types + " IN " + dir + " (" + (System.currentTimeMillis() - start) + " ms)");
+	}
+
+	@SuppressWarnings("static-access")
+	public static Options getCliOptions() {
+		Options options = new Options();
+
+		options.addOption(
+				OptionBuilder.withLongOpt("output")
+				.withArgName("FOLDER")
+				.withDescription("Folder the corpus is written to")
+				.hasArg()
+				.isRequired()
+				.create(OPT_OUTPUT));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("items")
+				.withArgName("COUNT")
+				.withDescription("Items in each export (default 1000)")
+				.hasArg()
+				.create(OPT_ITEMS));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("seed")
+				.withArgName("SEED")
+				.withDescription("Random seed (default 1)")
+				.hasArg()
+				.create(OPT_SEED));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("types")
+				.withArgName("TYPES")
+				.withDescription("Exports to write, any of geoscan,photo,cfs (default all)")
+				.hasArg()
+				.create(OPT_TYPES));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("authors")
+				.withArgName("COUNT")
+				.withDescription("Most authors on an item (default 4)")
+				.hasArg()
+				.create(OPT_AUTHORS));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("bboxes")
+				.withArgName("COUNT")
+				.withDescription("Most bounding boxes on an item (default 3)")
+				.hasArg()
+				.create(OPT_BBOXES));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("multi-line")
+				.withArgName("RATE")
+				.withDescription("Share of abstracts written over several lines (default 0.3)")
+				.hasArg()
+				.create(OPT_MULTI_LINE));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("elements")
+				.withArgName("RATE")
+				.withDescription("Chance of each optional element being present (default 0.5)")
+				.hasArg()
+				.create(OPT_ELEMENTS));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("page-size")
+				.withArgName("COUNT")
+				.withDescription("Items in each CFS page (default 100)")
+				.hasArg()
+				.create(OPT_PAGE_SIZE));
+
+		options.addOption(
+				OptionBuilder.withLongOpt("author-pool")
+				.withArgName("COUNT")
+				.withDescription("Distinct authors (default a quarter of the items)")
+				.hasArg()
+				.create(OPT_AUTHOR_POOL));
+
+		return options;
+	}
+}
@@ -0,0 +1,22 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+// What a generated corpus looks like. Rates are chances between 0 and 1.
+class CorpusSettings {
+
+	int items = 1000;
+	long seed = 1;
+	int maxAuthors = 4;
+	int maxBBoxes = 3;
+	// abstracts and summaries that run over several lines, with empty lines in between
+	double multiLineRate = 0.3;
+	// chance of each optional element being present in an item
+	double elementRate = 0.5;
+	int authorPoolSize = 0;
+	int pageSize = 100;
+	// items left out of the migrated set, listed in missing_gids.txt
+	double missingRate = 0.1;
+
+	int getAuthorPoolSize() {
+		return authorPoolSize > 0 ? authorPoolSize : Math.max(10, items / 4);
+	}
+}
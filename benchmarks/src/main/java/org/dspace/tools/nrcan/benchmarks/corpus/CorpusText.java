@@ -0,0 +1,63 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+import java.util.Random;
+import java.util.UUID;
+
+// Words, names and places the corpus is made of. English and French text is kept apart so the CFS
+// language detection has something real to decide on.
+final class CorpusText {
+
+	static final String[] ENGLISH_WORDS = {
+		"geology", "surficial", "bedrock", "mapping", "survey", "northern", "Ontario", "Quebec", "basin",
+		"sediment", "glacial", "mineral", "deposits", "forest", "boreal", "drought", "climate", "change",
+		"regional", "assessment", "of", "the", "and", "in", "for", "with", "results", "from", "analysis",
+		"field", "observations", "geochemical", "data", "water", "quality", "permafrost", "coastal", "report"
+	};
+
+	static final String[] FRENCH_WORDS = {
+		"géologie", "cartographie", "levé", "du", "nord", "bassin", "sédiments", "glaciaires", "gisements",
+		"minéraux", "forêt", "boréale", "sécheresse", "changement", "climatique", "évaluation", "régionale",
+		"de", "la", "et", "des", "dans", "pour", "avec", "résultats", "analyse", "observations", "terrain",
+		"données", "géochimiques", "qualité", "eau", "pergélisol", "côtière", "rapport"
+	};
+
+	static final String[] GIVEN_NAMES = {
+		"Anne", "Marc", "Louise", "David", "Sophie", "Pierre", "Janet", "Robert", "Hélène", "Michael",
+		"Claire", "Jean", "Karen", "Luc", "Susan", "André", "Emily", "Paul", "Nathalie", "Thomas"
+	};
+
+	static final String[] SURNAMES = {
+		"Smith", "Tremblay", "Roy", "Brown", "Gagnon", "Wilson", "Côté", "Martin", "Bouchard", "Taylor",
+		"Gauthier", "Campbell", "Morin", "Anderson", "Lavoie", "MacDonald", "Fortin", "Clarke", "Pelletier", "Young"
+	};
+
+	static final String[] PROVINCES = { "on", "qc", "bc", "ab", "sk", "mb", "nb", "ns", "nl", "pe", "yt", "nt", "nu" };
+
+	static final String[] COUNTRIES = { "Canada", "Canada", "Canada", "United States", "Greenland" };
+
+	private CorpusText() {
+	}
+
+	static String words(Random random, String[] words, int min, int max) {
+		int count = min + random.nextInt(max - min + 1);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(pick(random, words));
+		}
+		text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+		return text.toString();
+	}
+
+	static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	static UUID uuid(Random random) {
+		long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long least = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+		return new UUID(most, least);
+	}
+}
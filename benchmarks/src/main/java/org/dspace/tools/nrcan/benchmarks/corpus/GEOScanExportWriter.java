@@ -0,0 +1,229 @@
+package org.dspace.tools.nrcan.benchmarks.corpus;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Random;
+
+import org.dspace.tools.nrcan.benchmarks.corpus.AuthorPool.Author;
+
+// Writes GEOScan style exports: one element per line inside <item>, with multi-line values left as
+// they come out of GEOScan. The PhotoDB export has the same layout with photo records in it.
+class GEOScanExportWriter {
+
+	static final int FIRST_GID = 300000;
+	static final int FIRST_PHOTO_GID = 900000;
+
+	private static final String[] MEETING_DATES = {
+		"July 8-12, 2002", "April 29-May 11, 1974", "December 28, 2011-January 2, 2012",
+		"September 28 - October 1, 1987", "May 19, 2020", "1970"
+	};
+
+	private final CorpusSettings settings;
+	private final AuthorPool authors;
+	private final Random random;
+	private PrintStream out;
+
+	GEOScanExportWriter(CorpusSettings settings, AuthorPool authors, Random random) {
+		this.settings = settings;
+		this.authors = authors;
+		this.random = random;
+	}
+
+	void writeGEOScanExport(PrintStream out) {
+		this.out = out;
+		out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		out.println("<items>");
+		for (int i = 0; i < settings.items; i++) {
+			writeGEOScanItem(FIRST_GID + i);
+		}
+		out.println("</items>");
+	}
+
+	void writePhotoExport(PrintStream out) {
+		this.out = out;
+		out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		out.println("<items>");
+		for (int i = 0; i < settings.items; i++) {
+			writePhotoItem(FIRST_PHOTO_GID + i);
+		}
+		out.println("</items>");
+	}
+
+	private void writeGEOScanItem(int gid) {
+		int year = 1950 + random.nextInt(72);
+		boolean monograph = random.nextBoolean();
+
+		out.println("<item>");
+		element("dc:identifier", "info:GID/" + gid);
+		if (optional()) {
+			element("dc:identifier", "info:DOI/10.4095/" + gid);
+		}
+		element("bibLevel", monograph ? "m" : "a");
+		element("dc:type", CorpusText.pick(random, new String[] { "report", "map", "serial", "thesis" }));
+		element("docType", CorpusText.pick(random, new String[] { "Open File", "Bulletin", "Current Research", "Map" }));
+		element("dc:titleA xml:lang=\"en\"", "dc:titleA", escape(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 4, 12)));
+		if (monograph || optional()) {
+			element("dc:titleM xml:lang=\"fr\"", "dc:titleM", escape(CorpusText.words(random, CorpusText.FRENCH_WORDS, 4, 12)));
+		}
+		writeAuthors(monograph ? "dc:creatorM" : "dc:creatorA");
+		if (optional()) {
+			element("corpCreatorA", "Geological Survey of Canada");
+		}
+		element("dc:publisher", "Natural Resources Canada");
+		element("dc:language", random.nextInt(4) == 0 ? "fre" : "eng");
+		if (optional()) {
+			element("dc:languageAbst", random.nextBoolean() ? "eng" : "fre");
+		}
+		element("country", CorpusText.pick(random, CorpusText.COUNTRIES));
+		element("province", CorpusText.pick(random, CorpusText.PROVINCES));
+		if (optional()) {
+			element("areaT", CorpusText.words(random, CorpusText.ENGLISH_WORDS, 1, 2));
+			element("area", CorpusText.words(random, CorpusText.ENGLISH_WORDS, 2, 5) + " & region");
+		}
+		if (optional()) {
+			element("division", "code GSC" + random.nextInt(8));
+		}
+		element("serialCode", CorpusText.pick(random, new String[] { "OF", "B", "CR", "P" }));
+		if (optional()) {
+			element("secSerialCode", "S" + random.nextInt(5));
+			element("secSerialNumber", String.valueOf(random.nextInt(2000)));
+		}
+		element("status", random.nextInt(10) == 0 ? "IN PROCESS" : "COMPLETE");
+		element("dc:content", "/pubs/" + gid + "/" + gid + ".pdf");
+		if (optional()) {
+			element("image", "https://geoscan.nrcan.gc.ca/images/thumb" + gid + ".gif");
+		}
+		writeText("dc:abstract xml:lang=\"en\"", "dc:abstract", CorpusText.ENGLISH_WORDS);
+		if (optional()) {
+			writeText("plainLanguageSummaryE", "plainLanguageSummaryE", CorpusText.ENGLISH_WORDS);
+		}
+		if (optional()) {
+			element("notes", escape(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 3, 10)) + " &amp; more");
+		}
+		writeBBoxes();
+		element("dc:coverage", CorpusText.pick(random, new String[] { "Ontario", "Quebec", "Nunavut", "British Columbia" }));
+		element("dc:date", String.valueOf(year));
+		element("dc:dateSubmitted", year + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+		element("dateRecordCr", "<name>loader</name><date>" + (year + 1) + "-01-01</date>");
+		element("dateRecordMod", "<name>editor</name><date>2019-0" + (1 + random.nextInt(9)) + "-01</date>");
+		if (optional()) {
+			element("meetingName", escape(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 3, 6)));
+			element("meetingDate", CorpusText.pick(random, MEETING_DATES));
+		}
+		if (optional()) {
+			element("dc:relationRef", (1 + random.nextInt(13)) + "-" + (gid - 1 - random.nextInt(100)));
+		}
+		if (optional()) {
+			element("Funding", "<Project Code>P" + random.nextInt(40) + "</Project Code>");
+		}
+		if (optional()) {
+			element("Funding", "<Program En>" + CorpusText.words(random, CorpusText.ENGLISH_WORDS, 2, 4) + "</Program En><Project En>"
+					+ CorpusText.words(random, CorpusText.ENGLISH_WORDS, 1, 3) + "</Project En>");
+		}
+		if (random.nextInt(20) == 0) {
+			element("thesis", "<degree>PhD</degree><univ>University of Ottawa</univ><city>Ottawa</city><country>Canada</country>");
+		}
+		if (optional()) {
+			element("map", "<general>geological</general><scale>1:" + (50000 * (1 + random.nextInt(5))) + "</scale>");
+		}
+		if (optional()) {
+			element("dc:relationURL", "<label>Download</label><URL>https://ftp.maps.canada.ca/pub/" + gid + "?lang=en&format=pdf</URL>");
+		}
+		if (optional()) {
+			element("onlineURL", "https://doi.org/10.4095/" + gid);
+		}
+		if (optional()) {
+			element("openAccess", random.nextBoolean() ? "Y yes" : "N no");
+		}
+		out.println("</item>");
+	}
+
+	private void writePhotoItem(int gid) {
+		int year = 1900 + random.nextInt(100);
+
+		out.println("<item>");
+		element("dc:identifier", "info:GID/" + gid);
+		element("bibLevel", "a");
+		element("dc:type", "photograph");
+		element("docType", "Photo");
+		element("dc:titleA xml:lang=\"en\"", "dc:titleA", escape(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 3, 8)));
+		writeAuthors("dc:creatorA");
+		element("dc:publisher", "Geological Survey of Canada");
+		element("dc:language", "eng");
+		element("country", CorpusText.pick(random, CorpusText.COUNTRIES));
+		element("province", CorpusText.pick(random, CorpusText.PROVINCES));
+		element("status", "COMPLETE");
+		element("image", "https://geoscan.nrcan.gc.ca/images/photo" + gid + ".jpg");
+		element("dc:relationPhoto", year + "-" + String.format(Locale.ROOT, "%03d", random.nextInt(1000)));
+		if (optional()) {
+			writeText("dc:abstract xml:lang=\"en\"", "dc:abstract", CorpusText.ENGLISH_WORDS);
+		}
+		writeBBoxes();
+		element("dc:coverage", CorpusText.pick(random, new String[] { "Yukon", "Ontario", "Alberta", "Quebec" }));
+		element("dc:date", String.valueOf(year));
+		element("dc:dateSubmitted", year + "-06-01");
+		if (optional()) {
+			element("notes", escape(CorpusText.words(random, CorpusText.ENGLISH_WORDS, 3, 10)));
+		}
+		out.println("</item>");
+	}
+
+	private void writeAuthors(String name) {
+		int count = random.nextInt(settings.maxAuthors + 1);
+		for (int i = 0; i < count; i++) {
+			Author author = authors.pick(random);
+			StringBuilder value = new StringBuilder();
+			value.append("<given_name>").append(author.givenName).append("</given_name>");
+			value.append("<surname>").append(author.surname).append("</surname>");
+			if (!author.dpsid.isEmpty()) {
+				value.append("<dpsid>").append(author.dpsid).append("</dpsid>");
+			}
+			element(name, value.toString());
+		}
+	}
+
+	private void writeBBoxes() {
+		int count = random.nextInt(settings.maxBBoxes + 1);
+		for (int i = 0; i < count; i++) {
+			double west = -140 + random.nextDouble() * 80;
+			double north = 42 + random.nextDouble() * 30;
+			element("polygonWENS", String.format(Locale.ROOT, "(%.3f,%.3f,%.3f,%.3f)", west, west + random.nextDouble() * 5,
+					north, north - random.nextDouble() * 3));
+		}
+	}
+
+	// a paragraph, or with multiLineRate several separated by empty lines
+	private void writeText(String open, String close, String[] words) {
+		if (random.nextDouble() >= settings.multiLineRate) {
+			element(open, close, escape(CorpusText.words(random, words, 20, 60)));
+			return;
+		}
+		int paragraphs = 2 + random.nextInt(3);
+		out.print("<" + open + ">");
+		for (int i = 0; i < paragraphs; i++) {
+			if (i > 0) {
+				out.println();
+				out.println();
+			}
+			out.print(escape(CorpusText.words(random, words, 15, 40)));
+		}
+		out.println("</" + close + ">");
+	}
+
+	private boolean optional() {
+		return random.nextDouble() < settings.elementRate;
+	}
+
+	private void element(String name, String value) {
+		element(name, name, value);
+	}
+
+	private void element(String open, String close, String value) {
+		out.println("<" + open + ">" + value + "</" + close + ">");
+	}
+
+	// GEOScan exports carry XML special characters escaped twice
+	private static String escape(String value) {
+		return value.replace("&", "&amp;amp;").replace("<", "&amp;lt;").replace(">", "&amp;gt;");
+	}
+}
@@ -0,0 +1,59 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+
+// Fixtures shared by the processor benchmarks. The benchmarks sit in the processors' package so they
+// can call the package private steps directly, without the files process() opens around them.
+final class BenchmarkData {
+
+	static final String GEOSCAN_ITEMS = "geoscan-items.xml";
+	static final String CFS_ITEM = "cfs-item.json";
+
+	private BenchmarkData() {
+	}
+
+	static CommandLine noOptions() {
+		try {
+			return new GnuParser().parse(new Options(), new String[0]);
+		} catch (ParseException ex) {
+			throw new RuntimeException(ex.getMessage(), ex);
+		}
+	}
+
+	static InputStream open(String resource) throws IOException {
+		InputStream inputStream = BenchmarkData.class.getResourceAsStream(resource);
+		if (inputStream == null) {
+			throw new IOException("Missing benchmark resource " + resource);
+		}
+		return inputStream;
+	}
+
+	static List<GEOScanRecord> readGEOScanRecords() throws IOException {
+		List<GEOScanRecord> records = new ArrayList<GEOScanRecord>();
+		try (GEOScanRecordReader reader = new GEOScanRecordReader(open(GEOSCAN_ITEMS), "\\n", StandardCharsets.UTF_8)) {
+			GEOScanRecord record = reader.next();
+			while (record != null) {
+				records.add(record);
+				record = reader.next();
+			}
+		}
+		return records;
+	}
+
+	static GEOScanFileProcessor newGEOScanFileProcessor() throws IOException {
+		GEOScanFileProcessor processor = new GEOScanFileProcessor("", "", noOptions());
+		processor.initializeElementTemplates();
+		return processor;
+	}
+}
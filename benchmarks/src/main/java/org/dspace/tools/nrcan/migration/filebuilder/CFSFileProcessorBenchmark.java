@@ -0,0 +1,66 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import static com.github.pemistahl.lingua.api.Language.ENGLISH;
+import static com.github.pemistahl.lingua.api.Language.FRENCH;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.dspace.tools.nrcan.migration.filebuilder.model.CFSItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.pemistahl.lingua.api.Language;
+import com.github.pemistahl.lingua.api.LanguageDetector;
+import com.github.pemistahl.lingua.api.LanguageDetectorBuilder;
+
+// A CFS item through processMetadata with the item files going nowhere, and the title language
+// detection it does on its own, which is most of the cost.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CFSFileProcessorBenchmark {
+
+	private CFSFileProcessor processor;
+	private CFSItem item;
+	private LanguageDetector detector;
+
+	@Setup
+	public void setUp() throws Exception {
+		try (InputStream inputStream = BenchmarkData.open(BenchmarkData.CFS_ITEM)) {
+			item = new ObjectMapper().readValue(inputStream, CFSItem.class);
+		}
+		processor = new CFSFileProcessor("", "", "", BenchmarkData.noOptions());
+		processor.initializeElementTemplates();
+		processor.setOutputStream(new PrintStream(NullOutputStream.INSTANCE, false, "UTF-8"));
+		detector = LanguageDetectorBuilder.fromLanguages(ENGLISH, FRENCH).build();
+
+		// the language models load on first use
+		processor.processMetadata(item);
+		detector.detectLanguageOf(item.getTitle());
+	}
+
+	@Benchmark
+	public void processMetadata() throws Exception {
+		processor.processMetadata(item);
+	}
+
+	@Benchmark
+	public Language detectTitleLanguage() {
+		return detector.detectLanguageOf(item.getTitle());
+	}
+}
@@ -0,0 +1,449 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+// Runs the sql type's --copy text and --copy binary over INSERTs with the values that are easy to get
+// wrong, reads the script and its block files back the way PostgreSQL reads COPY data, and checks that
+// every row comes back as the INSERT had it and every other statement is still SQL. The cases are E''
+// strings, strings over several lines, casts, NULL, \. in a value, blocks split by --copy-rows, tables
+// without known types and INSERTs that aren't plain literals. Exits with 1 when a format doesn't match,
+// leaving its output in the temp folder it names.
+//
+//     java -cp benchmarks/target/benchmarks.jar org.dspace.tools.nrcan.migration.filebuilder.CopyFormatCheck
+public class CopyFormatCheck {
+
+	private static final int ROWS_PER_BLOCK = 2;
+
+	private static final String UUID_1 = "6f1c2b9e-0d7e-4c7a-9a51-3c2f1d7e8a90";
+	private static final String UUID_2 = "0b4e7c2d-51a8-4f3e-8c6d-7a9e1f2b3c4d";
+
+	private static final String METADATA_VALUE = "metadatavalue (metadata_value_id, metadata_field_id, text_value, text_lang, place, authority, confidence, dspace_object_id)";
+	private static final String RELATIONSHIP = "relationship (id, left_id, type_id, right_id, left_place, right_place)";
+	private static final String HANDLE = "handle (handle_id, handle)";
+
+	private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+	private static final Pattern TEXT_COPY = Pattern.compile("COPY (.*) FROM STDIN;");
+	private static final Pattern BINARY_COPY = Pattern.compile("\\\\copy (.*) FROM '(.*)' WITH \\(FORMAT binary\\)");
+	private static final Pattern TARGET = Pattern.compile("(\\S+) \\((.*)\\)");
+
+	// the binary columns that aren't text, by table
+	private static final Map<String, Map<String, String>> TYPES = new HashMap<String, Map<String, String>>();
+
+	static {
+		Map<String, String> metadataValue = new HashMap<String, String>();
+		for (String column : new String[] { "metadata_value_id", "metadata_field_id", "place", "confidence" }) {
+			metadataValue.put(column, "int4");
+		}
+		metadataValue.put("dspace_object_id", "uuid");
+		for (String column : new String[] { "text_value", "text_lang", "authority" }) {
+			metadataValue.put(column, "text");
+		}
+		TYPES.put("metadatavalue", metadataValue);
+
+		Map<String, String> relationship = new HashMap<String, String>();
+		for (String column : new String[] { "id", "type_id", "left_place", "right_place", "latest_version_status" }) {
+			relationship.put(column, "int4");
+		}
+		relationship.put("left_id", "uuid");
+		relationship.put("right_id", "uuid");
+		relationship.put("leftward_value", "text");
+		relationship.put("rightward_value", "text");
+		TYPES.put("relationship", relationship);
+	}
+
+	// a statement of the input, and the rows COPY should load for it, none when it stays SQL
+	private static class Case {
+		final String sql;
+		final String target;
+		final boolean textOnly;
+		final List<String[]> rows;
+
+		Case(String sql, String target, boolean textOnly, String[]... rows) {
+			this.sql = sql;
+			this.target = target;
+			this.textOnly = textOnly;
+			this.rows = Arrays.asList(rows);
+		}
+	}
+
+	private static final List<Case> CASES = Arrays.asList(
+			sql("SET search_path = public;"),
+			sql("-- the plain rows"),
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES (1, 64, 'Geology of the Canadian Shield', 'en', 0, NULL, -1, '" + UUID_1 + "');",
+					row("1", "64", "Geology of the Canadian Shield", "en", "0", null, "-1", UUID_1)),
+			// every escape SqlInsert reads, and quotes both ways
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES (2, 64, E'tab\\there\\nnew line \\\\ back\\'s it''s \\x41\\101 \\u00e9\\r\\b\\f', 'fr', 1, NULL, -1, '" + UUID_1 + "');",
+					row("2", "64", "tab\there\nnew line \\ back's it's AA \u00e9\r\b\f", "fr", "1", null, "-1", UUID_1)),
+			// a plain string keeps its backslashes, and a line of \. in it mustn't end the block
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES (3, 65, 'first line\n\\.\nlast line \\n', NULL, 0, NULL, -1, '" + UUID_1 + "');",
+					row("3", "65", "first line\n\\.\nlast line \\n", null, "0", null, "-1", UUID_1)),
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES ('4'::integer, 64::int4, '\\.'::text, 'en'::varchar(5), 0, NULL::text, -1, '" + UUID_1 + "'::uuid);",
+					row("4", "64", "\\.", "en", "0", null, "-1", UUID_1)),
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES (5, 66, 'Qu\u00e9bec \u2013 \u5317 \uD83D\uDDFA', 'fr', 0, 'vt\u000Bhere', 500, '" + UUID_1 + "'),"
+					+ " (6, 66, '', '', 1, NULL, -1, '" + UUID_1 + "'), (7, 66, ' padded ', NULL, 2, NULL, -1, NULL),"
+					+ " (8, 66, 'tab\there', NULL, -2147483648, NULL, 2147483647, '" + UUID_2 + "'), (9, 66, 'nine', NULL, 3, NULL, -1, '" + UUID_1 + "');",
+					row("5", "66", "Qu\u00e9bec \u2013 \u5317 \uD83D\uDDFA", "fr", "0", "vt\u000Bhere", "500", UUID_1),
+					row("6", "66", "", "", "1", null, "-1", UUID_1),
+					row("7", "66", " padded ", null, "2", null, "-1", null),
+					row("8", "66", "tab\there", null, "-2147483648", null, "2147483647", UUID_2),
+					row("9", "66", "nine", null, "3", null, "-1", UUID_1)),
+			// all of a known table's columns, and a schema in front of its name
+			rows(METADATA_VALUE, "INSERT INTO metadatavalue VALUES (10, 64, 'every column', 'en', 0, NULL, -1, '" + UUID_1 + "');",
+					row("10", "64", "every column", "en", "0", null, "-1", UUID_1)),
+			rows("public." + METADATA_VALUE, "INSERT INTO public." + METADATA_VALUE + " VALUES (11, 64, 'schema', 'en', 0, NULL, -1, '" + UUID_1 + "');",
+					row("11", "64", "schema", "en", "0", null, "-1", UUID_1)),
+			rows(RELATIONSHIP, "INSERT INTO " + RELATIONSHIP + " VALUES (1, '" + UUID_1 + "', 3, '" + UUID_2 + "', 0, 1);",
+					row("1", UUID_1, "3", UUID_2, "0", "1")),
+			rows(METADATA_VALUE, "insert into " + METADATA_VALUE + " values (12, 64, 'lower case', 'en', 0, null, -1, '" + UUID_2 + "');",
+					row("12", "64", "lower case", "en", "0", null, "-1", UUID_2)),
+			// a table without known types goes in text only
+			textRows(HANDLE, "INSERT INTO " + HANDLE + " VALUES (1, '1845/1'), (2, E'1845\\\\2');",
+					row("1", "1845/1"), row("2", "1845\\2")),
+			sql("INSERT INTO handle VALUES (3, '1845/3');"),
+			sql("COMMIT;"),
+			// not plain literals
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES (nextval('metadatavalue_seq'), 64, 'over\ntwo lines', 'en', 0, NULL, -1, '" + UUID_1 + "');"),
+			sql("INSERT INTO item SELECT * FROM item_import;"),
+			sql("UPDATE metadatavalue SET text_lang = 'en' WHERE text_lang IS NULL;"),
+			// values their columns don't take
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES ('abc', 64, 'x', 'en', 0, NULL, -1, '" + UUID_1 + "');"),
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES (1.0, 64, 'x', 'en', 0, NULL, -1, '" + UUID_1 + "');"),
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES (2147483648, 64, 'x', 'en', 0, NULL, -1, '" + UUID_1 + "');"),
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES (13, 64, 'x', 'en', 0, NULL, -1, '6f1c2b9e-0d7e');"),
+			sql("INSERT INTO " + METADATA_VALUE + " VALUES (14, 64, 'x', 'en', 0, NULL, -1, '{" + UUID_1 + "}');"),
+			sql("INSERT INTO metadatavalue VALUES (15, 64, 'x');"),
+			rows(METADATA_VALUE, "INSERT INTO " + METADATA_VALUE + " VALUES (16, 64, 'after the SQL', 'en', 0, NULL, -1, '" + UUID_1 + "');",
+					row("16", "64", "after the SQL", "en", "0", null, "-1", UUID_1)),
+			sql("COMMIT;"));
+
+	public static void main(String[] args) throws IOException {
+		Path root = Files.createTempDirectory("copy-format-check");
+		Path input = root.resolve("input.sql");
+		StringBuilder text = new StringBuilder();
+		for (Case c : CASES) {
+			text.append(c.sql).append('\n');
+		}
+		Files.write(input, text.toString().getBytes(StandardCharsets.UTF_8));
+
+		boolean passed = true;
+		for (String format : new String[] { "text", "binary" }) {
+			Path out = Files.createDirectories(root.resolve(format));
+			MigrationFileBuilder.main(new String[] { "-t", "sql", "-f", input.toString(), "-o", out.toString(),
+					"--copy", format, "--copy-rows", String.valueOf(ROWS_PER_BLOCK) });
+
+			List<String> expected = expected(format.equals("binary"));
+			List<String> actual;
+			try {
+				actual = read(out.resolve("sqlout.sql"));
+			} catch (Exception ex) {
+				System.out.println("COPY FORMAT CHECK FAILED: " + format.toUpperCase() + ", " + ex);
+				passed = false;
+				continue;
+			}
+			if (!compare(format, expected, actual)) {
+				passed = false;
+			}
+		}
+
+		if (!passed) {
+			System.out.println("OUTPUT KEPT IN " + root);
+			System.exit(1);
+		}
+		FileUtils.deleteDirectory(root.toFile());
+	}
+
+	// the script's entries as they should be: a block of rows for each run of rows of the same columns,
+	// split at the rows per block, and each line of the statements that stay SQL
+	private static List<String> expected(boolean binary) {
+		List<String> entries = new ArrayList<String>();
+		entries.add("SET client_encoding = 'UTF8';");
+		String target = null;
+		List<String[]> block = new ArrayList<String[]>();
+		for (Case c : CASES) {
+			if (c.target == null || (binary && c.textOnly)) {
+				if (target != null) {
+					entries.add(block(target, block));
+					target = null;
+				}
+				entries.addAll(Arrays.asList(c.sql.split("\n", -1)));
+				continue;
+			}
+			for (String[] row : c.rows) {
+				if (!c.target.equals(target) || block.size() == ROWS_PER_BLOCK) {
+					if (target != null) {
+						entries.add(block(target, block));
+					}
+					target = c.target;
+					block = new ArrayList<String[]>();
+				}
+				block.add(row);
+			}
+		}
+		if (target != null) {
+			entries.add(block(target, block));
+		}
+		return entries;
+	}
+
+	// the script's entries as PostgreSQL reads them, each COPY with the COMMIT after it
+	private static List<String> read(Path script) throws IOException {
+		List<String> lines = Arrays.asList(new String(Files.readAllBytes(script), StandardCharsets.UTF_8).split("\n", -1));
+		if (!lines.get(lines.size() - 1).isEmpty()) {
+			throw new IOException("The script doesn't end with a new line");
+		}
+		List<String> entries = new ArrayList<String>();
+		int i = 0;
+		while (i < lines.size() - 1) {
+			String line = lines.get(i++);
+			Matcher textCopy = TEXT_COPY.matcher(line);
+			Matcher binaryCopy = BINARY_COPY.matcher(line);
+			if (textCopy.matches()) {
+				List<String[]> rows = new ArrayList<String[]>();
+				while (!lines.get(i).equals("\\.")) {
+					if (i == lines.size() - 1) {
+						throw new IOException("The COPY into " + textCopy.group(1) + " doesn't end");
+					}
+					rows.add(readTextRow(lines.get(i++), columns(textCopy.group(1)).length));
+				}
+				i++;
+				entries.add(block(textCopy.group(1), rows));
+			} else if (binaryCopy.matches()) {
+				Path file = script.resolveSibling(binaryCopy.group(2));
+				entries.add(block(binaryCopy.group(1), readBinary(file, binaryCopy.group(1))));
+			} else {
+				entries.add(line);
+				continue;
+			}
+			if (!lines.get(i++).equals("COMMIT;")) {
+				throw new IOException("No COMMIT after the COPY into " + entries.get(entries.size() - 1));
+			}
+		}
+		return entries;
+	}
+
+	// tab separated fields, \N for NULL and a backslash before anything else taken as COPY takes it
+	private static String[] readTextRow(String line, int columns) throws IOException {
+		String[] fields = line.split("\t", -1);
+		if (fields.length != columns) {
+			throw new IOException(fields.length + " fields for " + columns + " columns: " + line);
+		}
+		String[] values = new String[fields.length];
+		for (int f = 0; f < fields.length; f++) {
+			String field = fields[f];
+			if (field.equals("\\N")) {
+				continue;
+			}
+			StringBuilder value = new StringBuilder();
+			for (int i = 0; i < field.length(); i++) {
+				char c = field.charAt(i);
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (++i == field.length()) {
+					throw new IOException("A backslash ends the field: " + line);
+				}
+				c = field.charAt(i);
+				switch (c) {
+				case 'b':
+					value.append('\b');
+					break;
+				case 'f':
+					value.append('\f');
+					break;
+				case 'n':
+					value.append('\n');
+					break;
+				case 'r':
+					value.append('\r');
+					break;
+				case 't':
+					value.append('\t');
+					break;
+				case 'v':
+					value.append('\u000B');
+					break;
+				default:
+					if (c >= '0' && c <= '7') {
+						int end = i;
+						while (end < field.length() && end < i + 3 && field.charAt(end) >= '0' && field.charAt(end) <= '7') {
+							end++;
+						}
+						value.append((char) Integer.parseInt(field.substring(i, end), 8));
+						i = end - 1;
+					} else if (c == 'x' && i + 1 < field.length() && Character.digit(field.charAt(i + 1), 16) >= 0) {
+						int end = i + 1;
+						while (end < field.length() && end < i + 3 && Character.digit(field.charAt(end), 16) >= 0) {
+							end++;
+						}
+						value.append((char) Integer.parseInt(field.substring(i + 1, end), 16));
+						i = end - 1;
+					} else {
+						value.append(c);
+					}
+				}
+			}
+			values[f] = value.toString();
+		}
+		return values;
+	}
+
+	// the signature, flags and header extension, then tuples of a field count and each field's
+	// length, -1 for NULL, and bytes, until a count of -1
+	private static List<String[]> readBinary(Path file, String target) throws IOException {
+		String[] columns = columns(target);
+		Map<String, String> types = TYPES.get(table(target));
+		if (types == null) {
+			throw new IOException("A binary COPY into a table without known types: " + target);
+		}
+		byte[] bytes = Files.readAllBytes(file);
+		List<String[]> rows = new ArrayList<String[]>();
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			byte[] signature = new byte[SIGNATURE.length];
+			in.readFully(signature);
+			if (!Arrays.equals(signature, SIGNATURE)) {
+				throw new IOException("No COPY signature in " + file);
+			}
+			if (in.readInt() != 0) {
+				throw new IOException("Flags set in " + file);
+			}
+			in.skipBytes(in.readInt());
+
+			short count;
+			while ((count = in.readShort()) != -1) {
+				if (count != columns.length) {
+					throw new IOException(count + " fields for " + columns.length + " columns in " + file);
+				}
+				String[] values = new String[count];
+				for (int f = 0; f < count; f++) {
+					int length = in.readInt();
+					if (length == -1) {
+						continue;
+					}
+					String type = types.get(columns[f]);
+					if ("int4".equals(type)) {
+						if (length != 4) {
+							throw new IOException(length + " bytes for the int4 " + columns[f] + " in " + file);
+						}
+						values[f] = String.valueOf(in.readInt());
+					} else if ("uuid".equals(type)) {
+						if (length != 16) {
+							throw new IOException(length + " bytes for the uuid " + columns[f] + " in " + file);
+						}
+						values[f] = new UUID(in.readLong(), in.readLong()).toString();
+					} else {
+						byte[] value = new byte[length];
+						in.readFully(value);
+						values[f] = new String(value, StandardCharsets.UTF_8);
+					}
+				}
+				rows.add(values);
+			}
+			if (in.available() > 0) {
+				throw new IOException("Bytes after the trailer in " + file);
+			}
+		}
+		return rows;
+	}
+
+	private static boolean compare(String format, List<String> expected, List<String> actual) {
+		for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+			String want = i < expected.size() ? expected.get(i) : "(nothing)";
+			String got = i < actual.size() ? actual.get(i) : "(nothing)";
+			if (!want.equals(got)) {
+				System.out.println("COPY FORMAT CHECK FAILED: " + format.toUpperCase() + ", ENTRY " + (i + 1));
+				System.out.println("EXPECTED: " + want);
+				System.out.println("ACTUAL: " + got);
+				return false;
+			}
+		}
+		int blocks = 0;
+		for (String entry : actual) {
+			if (entry.startsWith("COPY ")) {
+				blocks++;
+			}
+		}
+		System.out.println("COPY FORMAT CHECK PASSED: " + format.toUpperCase() + ", " + blocks + " BLOCKS, " + (actual.size() - blocks) + " SQL LINES");
+		return true;
+	}
+
+	// a block as one line, with its values quoted and escaped so the two sides compare and print alike
+	private static String block(String target, List<String[]> rows) {
+		StringBuilder builder = new StringBuilder("COPY ").append(target);
+		for (String[] row : rows) {
+			builder.append(" (");
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					builder.append(", ");
+				}
+				show(row[i], builder);
+			}
+			builder.append(')');
+		}
+		return builder.toString();
+	}
+
+	private static void show(String value, StringBuilder builder) {
+		if (value == null) {
+			builder.append("NULL");
+			return;
+		}
+		builder.append('\'');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\'' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < ' ' || c > '~') {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('\'');
+	}
+
+	private static String table(String target) {
+		Matcher matcher = TARGET.matcher(target);
+		String name = matcher.matches() ? matcher.group(1) : target;
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	private static String[] columns(String target) throws IOException {
+		Matcher matcher = TARGET.matcher(target);
+		if (!matcher.matches()) {
+			throw new IOException("No column list in the COPY into " + target);
+		}
+		return matcher.group(2).split(", ");
+	}
+
+	private static Case sql(String sql) {
+		return new Case(sql, null, false);
+	}
+
+	private static Case rows(String target, String sql, String[]... rows) {
+		return new Case(sql, target, false, rows);
+	}
+
+	private static Case textRows(String target, String sql, String[]... rows) {
+		return new Case(sql, target, true, rows);
+	}
+
+	private static String[] row(String... values) {
+		return values;
+	}
+}
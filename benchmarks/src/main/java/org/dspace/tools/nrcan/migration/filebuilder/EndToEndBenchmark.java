@@ -0,0 +1,167 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.dspace.tools.nrcan.benchmarks.corpus.CorpusGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A whole MigrationFileBuilder run over a generated corpus, from reading the export to the zipped
+// archives. The corpus is generated once per trial from a fixed seed, so runs on different
+// machines and commits work on the same input. Each iteration starts from an empty output folder.
+// The output goes to a local temp folder, to tmpfs, or to a zip file system that holds it in memory
+// for the whole trial, picked with -p target=local,tmpfs,memory.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+	private static final String[] SIDE_FILES = { CorpusGenerator.MISSING_GIDS_FILE, CorpusGenerator.AUTHOR_EXPORT_FILE };
+
+	@Param({ "geoscan", "map", "rel", "cfs", "photo", "pdb" })
+	String type;
+
+	@Param({ "local" })
+	String target;
+
+	@Param({ "1000" })
+	int items;
+
+	@Param({ "1" })
+	long seed;
+
+	private File root;
+	private File corpus;
+	private Path work;
+	private Path tmpfs;
+	private FileSystem memory;
+	private String[] args;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("end-to-end-benchmark").toFile();
+		corpus = new File(root, "corpus");
+		CorpusGenerator.generate(corpus, items, seed);
+
+		// the processors find their side files with OutputFiles.getBasePath
+		String base = new File(root, "base").getPath();
+		OutputFiles.setBaseDirectory(base);
+		for (String name : SIDE_FILES) {
+			FileUtils.copyFile(new File(corpus, name), OutputFiles.getBasePath(name).toFile());
+		}
+
+		switch (target) {
+		case "tmpfs":
+			tmpfs = Files.createTempDirectory(Paths.get("/dev/shm"), "end-to-end-benchmark");
+			work = tmpfs.resolve("work");
+			break;
+		case "memory":
+			// opened here rather than by OutputFiles, so it stays open from one run to the next
+			Map<String, Object> env = new HashMap<String, Object>();
+			env.put("create", "true");
+			env.put("noCompression", "true");
+			memory = FileSystems.newFileSystem(URI.create("jar:" + new File(root, "memory.zip").toURI()), env);
+			work = memory.getPath("/work");
+			break;
+		default:
+			work = new File(root, "work").toPath();
+		}
+
+		List<String> args = new ArrayList<String>(Arrays.asList("-b", base, "-o", work.resolve("out").toUri().toString()));
+		switch (type) {
+		case "geoscan":
+			args.addAll(Arrays.asList("-t", "geoscan", "-z", "-f", corpusPath(CorpusGenerator.GEOSCAN_FILE)));
+			break;
+		case "cfs":
+			args.addAll(Arrays.asList("-t", "cfs", "-d", corpusPath(CorpusGenerator.CFS_FOLDER)));
+			break;
+		case "photo":
+		case "pdb":
+			args.addAll(Arrays.asList("-t", type, "-f", corpusPath(CorpusGenerator.PHOTO_FILE)));
+			break;
+		default:
+			args.addAll(Arrays.asList("-t", type, "-f", corpusPath(CorpusGenerator.GEOSCAN_FILE),
+					"-m", corpusPath(CorpusGenerator.MAP_FILE), "-r", corpusPath(CorpusGenerator.REL_FILE),
+					"-p", corpusPath(CorpusGenerator.PLACE_FILE)));
+		}
+		this.args = args.toArray(new String[0]);
+	}
+
+	@Setup(Level.Iteration)
+	public void clearOutput() throws IOException {
+		delete(work);
+		Files.createDirectories(work.resolve("out"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		OutputFiles.setBaseDirectory(OutputFiles.DEFAULT_BASE_DIRECTORY);
+		if (memory != null) {
+			memory.close();
+		}
+		if (tmpfs != null) {
+			delete(tmpfs);
+		}
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Benchmark
+	public void migrate() {
+		// the processors report every item on the console
+		PrintStream console = System.out;
+		System.setOut(new PrintStream(NullOutputStream.INSTANCE));
+		try {
+			MigrationFileBuilder.main(args);
+		} finally {
+			System.setOut(console);
+		}
+	}
+
+	private String corpusPath(String name) {
+		return new File(corpus, name).getPath();
+	}
+
+	// FileUtils only deletes from the default file system
+	private static void delete(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
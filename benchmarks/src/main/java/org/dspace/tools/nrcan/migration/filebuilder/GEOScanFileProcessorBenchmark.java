@@ -0,0 +1,99 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Turning GEOScan records into item files in memory, and the two per item helpers that do the most
+// work of their own.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GEOScanFileProcessorBenchmark {
+
+	private GEOScanFileProcessor processor;
+	private List<GEOScanRecord> records;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		processor = BenchmarkData.newGEOScanFileProcessor();
+		records = BenchmarkData.readGEOScanRecords();
+	}
+
+	// every element of one record through processMetadata/processElement, one record per call, with
+	// the item handed back to the processor's pool as a run does once it is written
+	@Benchmark
+	public int transformRecord() throws Exception {
+		GEOScanRecord record = records.get(next);
+		next = (next + 1) % records.size();
+		GEOScanItem item = processor.transformRecord(record);
+		int size = item.dublinCore.size();
+		processor.releaseItem(item);
+		return size;
+	}
+
+	@Benchmark
+	public String combineBBoxes(BBoxes bBoxes) {
+		return processor.combineBBoxes(bBoxes.item);
+	}
+
+	@Benchmark
+	public int handleMeetingDate(MeetingDates meetingDates) throws Exception {
+		GEOScanItem item = meetingDates.item;
+		processor.handleMeetingDate(item, meetingDates.value);
+		int size = item.nrcan.size();
+		item.nrcan.reset();
+		return size;
+	}
+
+	@State(Scope.Thread)
+	public static class BBoxes {
+
+		@Param({ "1", "4", "16" })
+		int count;
+
+		GEOScanItem item;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(count);
+			item = new GEOScanItem(0);
+			for (int i = 0; i < count; i++) {
+				float west = -100 + random.nextFloat() * 10;
+				float north = 50 + random.nextFloat() * 5;
+				item.bBoxes.add(String.format("ENVELOPE(%.3f,%.3f,%.3f,%.3f)", west, west + random.nextFloat() * 5, north, north - random.nextFloat() * 3));
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class MeetingDates {
+
+		@Param({ "July 8-12, 2002", "April 29-May 11, 1974", "December 28, 2011-January 2, 2012", "September 28 - October 1, 1987", "May 19, 2020", "1970" })
+		String value;
+
+		GEOScanItem item;
+
+		@Setup
+		public void setUp() {
+			item = new GEOScanItem(0);
+		}
+	}
+}
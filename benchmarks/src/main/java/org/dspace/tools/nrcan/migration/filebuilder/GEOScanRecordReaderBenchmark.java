@@ -0,0 +1,85 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.dspace.tools.nrcan.benchmarks.corpus.CorpusGenerator;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanCompiledWriter;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordReader;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecordSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Reading every record of a generated GEOScan export, from the text and from its compiled record
+// file, with the marker the SAF processor reads with.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GEOScanRecordReaderBenchmark {
+
+	@Param({ "text", "compiled" })
+	String format;
+
+	@Param({ "1000" })
+	int items;
+
+	private File root;
+	private String path;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("record-reader-benchmark").toFile();
+		CorpusGenerator.generate(root, items, 1);
+		path = new File(root, CorpusGenerator.GEOSCAN_FILE).getPath();
+
+		if (format.equals("compiled")) {
+			String compiledPath = new File(root, "geoscan.gsc").getPath();
+			try (GEOScanRecordReader reader = new GEOScanRecordReader(path, "");
+					GEOScanCompiledWriter writer = new GEOScanCompiledWriter(new FileOutputStream(compiledPath))) {
+				GEOScanRecord record = reader.next();
+				while (record != null) {
+					writer.write(record);
+					record = reader.next();
+				}
+			}
+			path = compiledPath;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Benchmark
+	public int readAll() throws IOException {
+		int elements = 0;
+		try (GEOScanRecordSource source = GEOScanRecordReader.open(path, "\\n")) {
+			GEOScanRecord record = source.next();
+			while (record != null) {
+				elements += record.getElements().size();
+				record = source.next();
+			}
+		}
+		return elements;
+	}
+}
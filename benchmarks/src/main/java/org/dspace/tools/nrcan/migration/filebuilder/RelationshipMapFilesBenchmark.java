@@ -0,0 +1,150 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Loading the GID, entity and place maps GEOScanRelationshipCleanupProcessor reads before it starts,
+// and looking up the object of every GID, as the processor does for each item, once the map is loaded.
+// findRelations looks up author keys in the rel file's dictionary, half of them with an ORCID the rel
+// file doesn't have, which are found again without it.
+// With snapshots=false the snapshots are deleted before each load, so the CSVs are read again.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationshipMapFilesBenchmark {
+
+	@Param({ "100000" })
+	int rows;
+
+	@Param({ "true", "false" })
+	boolean snapshots;
+
+	private File root;
+	private String mapPath;
+	private String relPath;
+	private String placePath;
+	private GidObjectTable gidTable;
+	private String[] gids;
+	private RelationTable relTable;
+	private String[] authorKeys;
+
+	@Setup
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("map-benchmark").toFile();
+		mapPath = new File(root, "map.csv").getPath();
+		relPath = new File(root, "rel.csv").getPath();
+		placePath = new File(root, "place.csv").getPath();
+
+		try (PrintStream map = new PrintStream(mapPath, "UTF-8");
+				PrintStream rel = new PrintStream(relPath, "UTF-8");
+				PrintStream place = new PrintStream(placePath, "UTF-8")) {
+			for (int i = 0; i < rows; i++) {
+				String uuid = String.format("%08x-1c2d-4e5f-8a9b-%012x", i * 2654435761L & 0xFFFFFFFFL, (long) i);
+				map.println("\"" + (300000 + i) + "\",\"" + uuid + "\"");
+				rel.println("\"" + uuid + "\",\"SMITH" + i + "_JOHN_" + (i % 97) + "_\"");
+				place.println("\"" + uuid + "\"," + (i % 40));
+			}
+		}
+
+		gidTable = GidObjectTable.load(mapPath);
+		gids = new String[rows];
+		for (int i = 0; i < rows; i++) {
+			gids[i] = String.valueOf(300000 + i);
+		}
+		relTable = RelationTable.load(relPath);
+		authorKeys = new String[rows];
+		for (int i = 0; i < rows; i++) {
+			authorKeys[i] = "SMITH" + i + "_JOHN_" + (i % 97) + "_" + (i % 2 == 0 ? "" : "0000-0002-1825-" + i);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void deleteSnapshots() throws IOException {
+		if (!snapshots) {
+			for (String path : new String[] { mapPath, relPath, placePath }) {
+				Files.deleteIfExists(TableSnapshot.pathFor(Paths.get(path)));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Benchmark
+	public GEOScanRelationshipCleanupProcessor readMapFile() throws IOException {
+		GEOScanRelationshipCleanupProcessor processor = newProcessor();
+		processor.readMapFile();
+		return processor;
+	}
+
+	@Benchmark
+	public GEOScanRelationshipCleanupProcessor readRelFile() throws IOException {
+		GEOScanRelationshipCleanupProcessor processor = newProcessor();
+		processor.readRelFile();
+		return processor;
+	}
+
+	@Benchmark
+	public GEOScanRelationshipCleanupProcessor readPlaceFile() throws IOException {
+		GEOScanRelationshipCleanupProcessor processor = newProcessor();
+		processor.readPlaceFile();
+		return processor;
+	}
+
+	@Benchmark
+	public GEOScanRelationshipCleanupProcessor readLookupFiles() throws Exception {
+		GEOScanRelationshipCleanupProcessor processor = newProcessor();
+		processor.readLookupFiles();
+		return processor;
+	}
+
+	@Benchmark
+	public long findObjects() {
+		long found = 0;
+		for (String gid : gids) {
+			found += gidTable.find(gid);
+		}
+		return found;
+	}
+
+	@Benchmark
+	public long findRelations() {
+		long found = 0;
+		for (String key : authorKeys) {
+			int entry = relTable.find(key);
+			if (entry < 0) {
+				entry = relTable.find(key, key.lastIndexOf("_") + 1);
+			}
+			found += entry;
+		}
+		return found;
+	}
+
+	private GEOScanRelationshipCleanupProcessor newProcessor() {
+		return new GEOScanRelationshipCleanupProcessor(mapPath, relPath, placePath, "", "", BenchmarkData.noOptions());
+	}
+}
@@ -0,0 +1,85 @@
+package org.dspace.tools.nrcan.migration.filebuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.dspace.tools.nrcan.migration.filebuilder.reader.GEOScanRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Zipping an archive directory of GEOScan items as the processors leave it on disk, with the
+// entries compressed on one or more threads, or stored.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipDirectoryBenchmark {
+
+	@Param({ "100" })
+	int items;
+
+	@Param({ "1", "4" })
+	int threads;
+
+	@Param({ "false", "true" })
+	boolean store;
+
+	private File root;
+	private String archivePath;
+	private String zipPath;
+
+	@Setup
+	public void setUp() throws Exception {
+		root = Files.createTempDirectory("zip-benchmark").toFile();
+		archivePath = new File(root, "archive_000").getPath();
+		zipPath = new File(root, "archive_000.zip").getPath();
+
+		GEOScanFileProcessor processor = BenchmarkData.newGEOScanFileProcessor();
+		List<GEOScanRecord> records = BenchmarkData.readGEOScanRecords();
+		for (int i = 0; i < items; i++) {
+			GEOScanItem item = processor.transformRecord(records.get(i % records.size()));
+			File itemDirectory = new File(archivePath, String.format("item_%03d", i));
+			itemDirectory.mkdirs();
+			write(itemDirectory, "contents", item.contents);
+			write(itemDirectory, "relationships", item.relationships);
+			write(itemDirectory, "dublin_core.xml", item.dublinCore);
+			write(itemDirectory, "metadata_dspace.xml", item.dspace);
+			write(itemDirectory, "metadata_nrcan.xml", item.nrcan);
+			write(itemDirectory, "metadata_geospatial.xml", item.geospatial);
+			processor.releaseItem(item);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Benchmark
+	public long zipDirectory() throws IOException {
+		ZipDirectory.zipDirectory(Paths.get(archivePath), Paths.get(zipPath), threads, store);
+		return new File(zipPath).length();
+	}
+
+	private void write(File directory, String name, ByteArrayOutputStream contents) throws IOException {
+		Files.write(new File(directory, name).toPath(), contents.toByteArray());
+	}
+}